@@ -0,0 +1,62 @@
+package jaid.collection;
+
+import jaid.number.Maths;
+
+/**
+ * Activation functions for {@link FloatKernels#biasActivation}, along with their derivatives written in terms of the
+ * activation's output so that a backward pass only needs the outputs kept from the forward pass.
+ */
+public enum Activation {
+
+    IDENTITY {
+        @Override
+        public float apply(final float value) {
+            return value;
+        }
+
+        @Override
+        public float derivative(final float output) {
+            return 1;
+        }
+    },
+    RELU {
+        @Override
+        public float apply(final float value) {
+            return Math.max(0, value);
+        }
+
+        @Override
+        public float derivative(final float output) {
+            return output > 0 ? 1 : 0;
+        }
+    },
+    SIGMOID {
+        @Override
+        public float apply(final float value) {
+            return (float) Maths.sigmoid(value);
+        }
+
+        @Override
+        public float derivative(final float output) {
+            return (float) Maths.sigmoidDerivative(output);
+        }
+    },
+    TANH {
+        @Override
+        public float apply(final float value) {
+            return (float) Math.tanh(value);
+        }
+
+        @Override
+        public float derivative(final float output) {
+            return 1 - output * output;
+        }
+    };
+
+    public abstract float apply(float value);
+
+    /**
+     * @return the derivative of the activation at the input which produced this output
+     */
+    public abstract float derivative(float output);
+}
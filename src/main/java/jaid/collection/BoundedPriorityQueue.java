@@ -32,6 +32,21 @@ public class BoundedPriorityQueue {
         return queue.size();
     }
 
+    /**
+     * @return true if k candidates have been added, so any further candidate must beat {@link #lowestDotProduct()}
+     */
+    public boolean isFull() {
+        return queue.size() >= k;
+    }
+
+    /**
+     * @return the lowest dot product currently held, or negative infinity if the queue is empty
+     */
+    public double lowestDotProduct() {
+        final Candidate lowest = queue.peek();
+        return lowest == null ? Double.NEGATIVE_INFINITY : lowest.dotProduct;
+    }
+
     private static class Candidate {
         final IVector vector;
         final double dotProduct;
@@ -0,0 +1,347 @@
+package jaid.collection;
+
+import com.google.common.annotations.VisibleForTesting;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import jaid.number.GeometricRandom;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+import static jaid.collection.IntSkipLists.ABSENT;
+
+/**
+ * Non threadsafe sorted collection of ints, like {@link IntSkipList} but with every node kept in a single int[] rather
+ * than as objects. Each node is a block of the array holding its value, its number of levels, and the index of the next
+ * node's block at each of those levels, so a node on only the bottom level takes 3 ints and the average node about 4,
+ * against around 40 to 50 bytes for an {@link IntSkipList} node object with its forward array sized to its level.
+ * Walking the list then reads from one array rather than chasing references across the heap, and adding and removing
+ * allocate nothing once the array is large enough, since removed blocks are kept on a free list for their size to be
+ * reused.
+ * The navigation methods return a long as with the OrAbsent methods of {@link IntSkipList}, which is
+ * {@link IntSkipLists#ABSENT} when there is no such element or otherwise the element itself.
+ */
+public class CompactIntSkipList {
+
+    /**
+     * The value should not be higher than the maximum value produced by {@link GeometricRandom#nextByte}.
+     */
+    private static final int MAX_LEVEL = 32;
+
+    /**
+     * The index of no node, at the end of each level
+     */
+    private static final int NIL = -1;
+
+    /**
+     * The offsets of a node's value, number of levels and first next index within its block
+     */
+    private static final int VALUE = 0;
+    private static final int LEVELS = 1;
+    private static final int NEXT = 2;
+
+    /**
+     * The head node's block is at the start of the array with every level, and its value is never compared
+     */
+    private static final int HEAD = 0;
+    private static final int HEAD_SIZE = NEXT + MAX_LEVEL;
+
+    private final GeometricRandom random = new GeometricRandom();
+
+    private final int initialCapacity;
+
+    /**
+     * The blocks of every node
+     */
+    private int[] nodes;
+
+    /**
+     * The index after the last block allocated
+     */
+    private int end;
+
+    /**
+     * The first removed block with each number of levels, each of which holds the next in its first next index
+     */
+    private final int[] freeLists = new int[MAX_LEVEL + 1];
+
+    /**
+     * Reused by every {@link #add} and {@link #remove} to hold the node that may need to be updated at each level
+     */
+    private final int[] update = new int[MAX_LEVEL];
+
+    /**
+     * Current level of the skiplist.
+     */
+    private int level;
+
+    /**
+     * The number of elements in the collection
+     */
+    private int size;
+
+    public CompactIntSkipList() {
+        this(16);
+    }
+
+    /**
+     * @param initialCapacity the number of elements to allocate space for up front
+     */
+    public CompactIntSkipList(final int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        reset();
+    }
+
+    /**
+     * Check if this collection contains the specified value
+     */
+    public boolean contains(final int toFind) {
+        final int x = forward(predecessor(toFind, false), 0);
+        return x != NIL && nodes[x + VALUE] == toFind;
+    }
+
+    /**
+     * Adds the element with the specified value to this collection
+     * @return true if it was added, or false if it was already present
+     */
+    public boolean add(final int value) {
+        int x = HEAD;
+        for (int i = level; i >= 0; i--) {
+            int next;
+            while ((next = forward(x, i)) != NIL && nodes[next + VALUE] < value) {
+                x = next;
+            }
+            update[i] = x;
+        }
+        x = forward(x, 0);
+        if (x != NIL && nodes[x + VALUE] == value) {
+            return false;
+        }
+        final int newLevel = random.nextByte();
+        if (newLevel > level) {
+            for (int i = level + 1; i <= newLevel; i++) {
+                update[i] = HEAD;
+            }
+            level = newLevel;
+        }
+        x = allocate(newLevel + 1);
+        nodes[x + VALUE] = value;
+        for (int i = 0; i <= newLevel; i++) {
+            nodes[x + NEXT + i] = forward(update[i], i);
+            nodes[update[i] + NEXT + i] = x;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the element with the specified value from this collection
+     * @return true if it was removed, or false if it was not present
+     */
+    public boolean remove(final int value) {
+        int x = HEAD;
+        for (int i = level; i >= 0; i--) {
+            int next;
+            while ((next = forward(x, i)) != NIL && nodes[next + VALUE] < value) {
+                x = next;
+            }
+            update[i] = x;
+        }
+        x = forward(x, 0);
+        if (x == NIL || nodes[x + VALUE] != value) {
+            return false;
+        }
+        final int levels = nodes[x + LEVELS];
+        for (int i = 0; i < levels; i++) {
+            nodes[update[i] + NEXT + i] = forward(x, i);
+        }
+        while (level > 0 && forward(HEAD, level) == NIL) {
+            level--;
+        }
+        nodes[x + NEXT] = freeLists[levels];
+        freeLists[levels] = x;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return the greatest element strictly less than the given element, or {@link IntSkipLists#ABSENT}
+     */
+    public long lowerOrAbsent(final int value) {
+        final int x = predecessor(value, false);
+        return x == HEAD ? ABSENT : nodes[x + VALUE];
+    }
+
+    /**
+     * @return the greatest element less than or equal to the given element, or {@link IntSkipLists#ABSENT}
+     */
+    public long floorOrAbsent(final int value) {
+        final int x = predecessor(value, true);
+        return x == HEAD ? ABSENT : nodes[x + VALUE];
+    }
+
+    /**
+     * @return the least element greater than or equal to the given element, or {@link IntSkipLists#ABSENT}
+     */
+    public long ceilingOrAbsent(final int value) {
+        final int x = forward(predecessor(value, false), 0);
+        return x == NIL ? ABSENT : nodes[x + VALUE];
+    }
+
+    /**
+     * @return the least element strictly greater than the given element, or {@link IntSkipLists#ABSENT}
+     */
+    public long higherOrAbsent(final int value) {
+        final int x = forward(predecessor(value, true), 0);
+        return x == NIL ? ABSENT : nodes[x + VALUE];
+    }
+
+    /**
+     * Removes and returns the first (smallest) element of the collection, or {@link IntSkipLists#ABSENT} if the
+     * collection is empty.
+     */
+    public long pollFirstOrAbsent() {
+        final int x = forward(HEAD, 0);
+        if (x == NIL) {
+            return ABSENT;
+        }
+        final int first = nodes[x + VALUE];
+        remove(first);
+        return first;
+    }
+
+    /**
+     * Removes and returns the last (largest) element of the collection, or {@link IntSkipLists#ABSENT} if the
+     * collection is empty.
+     */
+    public long pollLastOrAbsent() {
+        if (isEmpty()) {
+            return ABSENT;
+        }
+        int x = HEAD;
+        for (int i = level; i >= 0; i--) {
+            int next;
+            while ((next = forward(x, i)) != NIL) {
+                x = next;
+            }
+        }
+        final int last = nodes[x + VALUE];
+        remove(last);
+        return last;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every element and releases the space they used
+     */
+    public void clear() {
+        reset();
+    }
+
+    public int[] toArray() {
+        final int[] arr = new int[size];
+        int i = 0;
+        for (int x = forward(HEAD, 0); x != NIL; x = forward(x, 0)) {
+            arr[i++] = nodes[x + VALUE];
+        }
+        return arr;
+    }
+
+    /**
+     * Passes each element to the consumer in ascending order
+     */
+    public void forEach(final IntConsumer consumer) {
+        for (int x = forward(HEAD, 0); x != NIL; x = forward(x, 0)) {
+            consumer.accept(nodes[x + VALUE]);
+        }
+    }
+
+    /**
+     * @return an iterator over the elements in ascending order, without boxing them
+     */
+    public IntIterator iterator() {
+        return new IntIterator() {
+            private int current = HEAD;
+
+            @Override
+            public boolean hasNext() {
+                return forward(current, 0) != NIL;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                current = forward(current, 0);
+                return nodes[current + VALUE];
+            }
+        };
+    }
+
+    /**
+     * @return the number of ints allocated for nodes, including removed nodes waiting to be reused
+     */
+    @VisibleForTesting
+    int allocatedInts() {
+        return end;
+    }
+
+    /**
+     * Allocates a new array holding only the head, which both the constructor and {@link #clear} use
+     */
+    private void reset() {
+        nodes = new int[HEAD_SIZE + initialCapacity * (NEXT + 2)];
+        nodes[HEAD + LEVELS] = MAX_LEVEL;
+        Arrays.fill(nodes, HEAD + NEXT, HEAD_SIZE, NIL);
+        Arrays.fill(freeLists, NIL);
+        end = HEAD_SIZE;
+        level = 0;
+        size = 0;
+    }
+
+    private int forward(final int x, final int level) {
+        return nodes[x + NEXT + level];
+    }
+
+    /**
+     * @return the last node with a value less than (or equal to if inclusive) the value, or the head if there is none
+     */
+    private int predecessor(final int value, final boolean inclusive) {
+        int x = HEAD;
+        for (int i = level; i >= 0; i--) {
+            int next;
+            while ((next = forward(x, i)) != NIL && (nodes[next + VALUE] < value
+                    || inclusive && nodes[next + VALUE] == value)) {
+                x = next;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * @return the index of a block for a node with the given number of levels, reusing a removed one if possible
+     */
+    private int allocate(final int levels) {
+        int x = freeLists[levels];
+        if (x != NIL) {
+            freeLists[levels] = nodes[x + NEXT];
+        } else {
+            final int blockSize = NEXT + levels;
+            if (end + blockSize > nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(end + blockSize, nodes.length * 2));
+            }
+            x = end;
+            end += blockSize;
+        }
+        nodes[x + LEVELS] = levels;
+        return x;
+    }
+}
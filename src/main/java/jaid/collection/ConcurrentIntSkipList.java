@@ -0,0 +1,346 @@
+package jaid.collection;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import jaid.number.GeometricRandom;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+import static jaid.collection.IntSkipLists.ABSENT;
+
+/**
+ * Threadsafe lock-free sorted set of ints, an alternative to {@link IntSkipList} for concurrent use or to
+ * {@link java.util.concurrent.ConcurrentSkipListSet} without boxing every element. This is the lock-free skip list of
+ * Herlihy and Shavit: each node links to its successors with an {@link AtomicMarkableReference} per level, and is
+ * removed by first marking its links, top level down, after which any thread which passes it unlinks it with a CAS.
+ * {@link #add} and {@link #remove} are lock-free and {@link #contains} is wait-free.
+ * The navigation methods return a long as with the OrAbsent methods of {@link IntSkipList}, which is
+ * {@link IntSkipLists#ABSENT} when there is no such element or otherwise the element itself. Iteration is weakly
+ * consistent, as in the java.util.concurrent collections, so it never throws
+ * {@link java.util.ConcurrentModificationException} and reflects some but not necessarily all of the changes made since
+ * it started.
+ */
+public class ConcurrentIntSkipList {
+
+    /**
+     * The value should not be higher than the maximum value produced by {@link GeometricRandom#nextByte}.
+     */
+    private static final int MAX_LEVEL = 32;
+
+    private final GeometricRandom random = new GeometricRandom();
+
+    /**
+     * The head node precedes every element, so its value is never compared
+     */
+    private final Node head = new Node(0, MAX_LEVEL - 1);
+
+    /**
+     * The highest level of any node ever added, which searches start from
+     */
+    private final AtomicInteger level = new AtomicInteger();
+
+    private final LongAdder size = new LongAdder();
+
+    private static final class Node {
+        final int value;
+        final AtomicMarkableReference<Node>[] next;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node(final int value, final int topLevel) {
+            this.value = value;
+            this.next = new AtomicMarkableReference[topLevel + 1];
+            for (int i = 0; i <= topLevel; i++) {
+                next[i] = new AtomicMarkableReference<>(null, false);
+            }
+        }
+
+        int topLevel() {
+            return next.length - 1;
+        }
+
+        /**
+         * A node is in the set until its bottom level link is marked
+         */
+        boolean isRemoved() {
+            return next[0].isMarked();
+        }
+    }
+
+    /**
+     * Check if this collection contains the specified value
+     */
+    public boolean contains(final int toFind) {
+        final Node node = successor(predecessor(toFind, false));
+        return node != null && node.value == toFind;
+    }
+
+    /**
+     * Adds the element with the specified value to this collection
+     * @return true if it was added, or false if it was already present
+     */
+    public boolean add(final int value) {
+        final int topLevel = random.nextByte();
+        level.accumulateAndGet(topLevel, Math::max);
+        final Node[] preds = new Node[MAX_LEVEL];
+        final Node[] succs = new Node[MAX_LEVEL];
+        while (true) {
+            if (find(value, preds, succs)) {
+                return false;
+            }
+            final Node node = new Node(value, topLevel);
+            for (int i = 0; i <= topLevel; i++) {
+                node.next[i].set(succs[i], false);
+            }
+            // The node is in the set once linked at the bottom level, the higher levels only speed up searches
+            if (!preds[0].next[0].compareAndSet(succs[0], node, false, false)) {
+                continue;
+            }
+            size.increment();
+            for (int i = 1; i <= topLevel; i++) {
+                while (true) {
+                    final Node succ = node.next[i].getReference();
+                    if (node.next[i].isMarked()) {
+                        // Already being removed, so stop linking it in
+                        return true;
+                    }
+                    if (succ != succs[i] && !node.next[i].compareAndSet(succ, succs[i], false, false)) {
+                        continue;
+                    }
+                    if (preds[i].next[i].compareAndSet(succs[i], node, false, false)) {
+                        break;
+                    }
+                    find(value, preds, succs);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Removes the element with the specified value from this collection
+     * @return true if it was removed by this call, or false if it was not present
+     */
+    public boolean remove(final int value) {
+        final Node[] preds = new Node[MAX_LEVEL];
+        final Node[] succs = new Node[MAX_LEVEL];
+        if (!find(value, preds, succs)) {
+            return false;
+        }
+        final Node victim = succs[0];
+        // Mark the upper levels first so that no new links are made to the node once it is removed
+        final boolean[] marked = {false};
+        for (int i = victim.topLevel(); i >= 1; i--) {
+            Node succ = victim.next[i].get(marked);
+            while (!marked[0]) {
+                victim.next[i].compareAndSet(succ, succ, false, true);
+                succ = victim.next[i].get(marked);
+            }
+        }
+        Node succ = victim.next[0].get(marked);
+        while (true) {
+            final boolean markedHere = victim.next[0].compareAndSet(succ, succ, false, true);
+            succ = victim.next[0].get(marked);
+            if (markedHere) {
+                size.decrement();
+                // Unlink it from every level
+                find(value, preds, succs);
+                return true;
+            } else if (marked[0]) {
+                // Another thread removed it first
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return the greatest element strictly less than the given element, or {@link IntSkipLists#ABSENT}
+     */
+    public long lowerOrAbsent(final int value) {
+        final Node node = predecessor(value, false);
+        return node == head ? ABSENT : node.value;
+    }
+
+    /**
+     * @return the greatest element less than or equal to the given element, or {@link IntSkipLists#ABSENT}
+     */
+    public long floorOrAbsent(final int value) {
+        final Node node = predecessor(value, true);
+        return node == head ? ABSENT : node.value;
+    }
+
+    /**
+     * @return the least element greater than or equal to the given element, or {@link IntSkipLists#ABSENT}
+     */
+    public long ceilingOrAbsent(final int value) {
+        final Node node = successor(predecessor(value, false));
+        return node == null ? ABSENT : node.value;
+    }
+
+    /**
+     * @return the least element strictly greater than the given element, or {@link IntSkipLists#ABSENT}
+     */
+    public long higherOrAbsent(final int value) {
+        final Node node = successor(predecessor(value, true));
+        return node == null ? ABSENT : node.value;
+    }
+
+    /**
+     * @return the smallest element, or {@link IntSkipLists#ABSENT} if the collection is empty
+     */
+    public long firstOrAbsent() {
+        final Node node = successor(head);
+        return node == null ? ABSENT : node.value;
+    }
+
+    /**
+     * Removes and returns the first (smallest) element of the collection, or {@link IntSkipLists#ABSENT} if the
+     * collection is empty.
+     */
+    public long pollFirstOrAbsent() {
+        while (true) {
+            final Node node = successor(head);
+            if (node == null) {
+                return ABSENT;
+            }
+            if (remove(node.value)) {
+                return node.value;
+            }
+        }
+    }
+
+    /**
+     * @return the number of elements, which is only an estimate while elements are being added or removed
+     */
+    public int size() {
+        return size.intValue();
+    }
+
+    public boolean isEmpty() {
+        return successor(head) == null;
+    }
+
+    /**
+     * Removes every element, which is not atomic so elements added concurrently may or may not be removed
+     */
+    public void clear() {
+        while (pollFirstOrAbsent() != ABSENT) {
+            // Keep removing
+        }
+    }
+
+    public int[] toArray() {
+        final IntArrayList values = new IntArrayList(size());
+        forEach(values::add);
+        return values.toIntArray();
+    }
+
+    /**
+     * Passes each element to the consumer in ascending order, which is weakly consistent in the same way as
+     * {@link #iterator()}
+     */
+    public void forEach(final IntConsumer consumer) {
+        for (Node node = successor(head); node != null; node = successor(node)) {
+            consumer.accept(node.value);
+        }
+    }
+
+    /**
+     * @return a weakly consistent iterator over the elements in ascending order, without boxing them
+     */
+    public IntIterator iterator() {
+        return new IntIterator() {
+            private Node next = successor(head);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final int value = next.value;
+                next = successor(next);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Finds the nodes either side of the value at every level, unlinking any removed nodes passed on the way.
+     * @return true if the node after the value at the bottom level holds the value
+     */
+    private boolean find(final int value, final Node[] preds, final Node[] succs) {
+        final boolean[] marked = {false};
+        retry:
+        while (true) {
+            Node pred = head;
+            Node curr = null;
+            for (int i = MAX_LEVEL - 1; i >= 0; i--) {
+                if (i > level.get()) {
+                    preds[i] = head;
+                    succs[i] = null;
+                    continue;
+                }
+                curr = pred.next[i].getReference();
+                while (curr != null) {
+                    Node succ = curr.next[i].get(marked);
+                    while (marked[0]) {
+                        if (!pred.next[i].compareAndSet(curr, succ, false, false)) {
+                            continue retry;
+                        }
+                        curr = succ;
+                        if (curr == null) {
+                            break;
+                        }
+                        succ = curr.next[i].get(marked);
+                    }
+                    if (curr != null && curr.value < value) {
+                        pred = curr;
+                        curr = succ;
+                    } else {
+                        break;
+                    }
+                }
+                preds[i] = pred;
+                succs[i] = curr;
+            }
+            return curr != null && curr.value == value;
+        }
+    }
+
+    /**
+     * @return the last node which hasn't been removed with a value less than (or equal to if inclusive) the value, or
+     * the head if there is none, without unlinking anything so that reads never write
+     */
+    private Node predecessor(final int value, final boolean inclusive) {
+        Node pred = head;
+        for (int i = level.get(); i >= 0; i--) {
+            Node curr = pred.next[i].getReference();
+            while (curr != null && (curr.value < value || inclusive && curr.value == value)) {
+                if (!curr.isRemoved()) {
+                    pred = curr;
+                }
+                curr = curr.next[i].getReference();
+            }
+        }
+        return pred;
+    }
+
+    /**
+     * @return the first node after the given one at the bottom level which hasn't been removed, or null
+     */
+    private static Node successor(final Node node) {
+        Node next = node.next[0].getReference();
+        while (next != null && next.isRemoved()) {
+            next = next.next[0].getReference();
+        }
+        return next;
+    }
+}
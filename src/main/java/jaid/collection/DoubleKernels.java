@@ -0,0 +1,177 @@
+package jaid.collection;
+
+/**
+ * Kernels over double arrays, shared by {@link DoublesVector} and anything else that keeps its components in a
+ * double[]. Element-wise kernels write into a destination array which may be the same array as either input, so they
+ * can be used to update a vector in place without allocating. The offset forms operate on a slice of a larger array,
+ * such as a row of a matrix or a prefix of a vector.
+ * Whether these use the Vector API or a scalar fallback is decided once by {@link VectorSupport}.
+ */
+public final class DoubleKernels {
+
+    private static final Implementation IMPLEMENTATION =
+            VectorSupport.create("jaid.collection.SimdDoubleKernels", Implementation.class, ScalarDoubleKernels::new);
+
+    private DoubleKernels() {
+    }
+
+    /**
+     * The operations every kernel implementation provides, each over length elements starting at the given offsets.
+     */
+    interface Implementation {
+
+        /**
+         * @return the width of the vectors used, or 0 for scalar kernels
+         */
+        int vectorBits();
+
+        double dotProduct(double[] left, int leftOffset, double[] right, int rightOffset, int length);
+
+        void dotProducts(double[] left, int leftOffset, double[][] rights, int rightOffset, int length,
+                         double[] results);
+
+        void dotProductRows(double[] left, int leftOffset, double[] matrix, int matrixOffset, int stride, int rows,
+                            int length, double[] results, int resultsOffset);
+
+        double sumOfSquares(double[] values, int offset, int length);
+
+        double squaredDistance(double[] left, int leftOffset, double[] right, int rightOffset, int length);
+
+        void add(double[] left, int leftOffset, double[] right, int rightOffset, double[] destination,
+                 int destinationOffset, int length);
+
+        void subtract(double[] left, int leftOffset, double[] right, int rightOffset, double[] destination,
+                      int destinationOffset, int length);
+
+        void scale(double[] source, int sourceOffset, double amount, double[] destination, int destinationOffset,
+                   int length);
+
+        void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length);
+
+        void multiplyAdd(double[] left, int leftOffset, int leftStride, double[] right, int rightOffset,
+                         int rightStride, int rows, int depth, int columns, double[] results, int resultsOffset,
+                         int resultsStride);
+    }
+
+    static Implementation implementation() {
+        return IMPLEMENTATION;
+    }
+
+    public static double dotProduct(final double[] left, final double[] right) {
+        return IMPLEMENTATION.dotProduct(left, 0, right, 0, left.length);
+    }
+
+    public static double dotProduct(final double[] left, final int leftOffset, final double[] right,
+                                   final int rightOffset, final int length) {
+        return IMPLEMENTATION.dotProduct(left, leftOffset, right, rightOffset, length);
+    }
+
+    /**
+     * Computes the dot product of the left slice with the slice at rightOffset of each of the rights, which is faster
+     * than separate calls since each load of the left values is shared between several rights.
+     * @param results receives the dot product with rights[i] at index i
+     */
+    public static void dotProducts(final double[] left, final int leftOffset, final double[][] rights,
+                                   final int rightOffset, final int length, final double[] results) {
+        IMPLEMENTATION.dotProducts(left, leftOffset, rights, rightOffset, length, results);
+    }
+
+    /**
+     * Computes the dot product of the left slice with each of rows consecutive slices of the matrix, starting at
+     * matrixOffset and stride elements apart, which is a matrix-vector product over a row-major matrix. Several rows
+     * are processed together so that each load of the left values is shared between them.
+     * @param results receives the dot product with row r at index resultsOffset + r
+     */
+    public static void dotProductRows(final double[] left, final int leftOffset, final double[] matrix,
+                                      final int matrixOffset, final int stride, final int rows, final int length,
+                                      final double[] results, final int resultsOffset) {
+        IMPLEMENTATION.dotProductRows(left, leftOffset, matrix, matrixOffset, stride, rows, length, results,
+                resultsOffset);
+    }
+
+    /**
+     * @return the sum of the squares of the values, which is the squared magnitude without needing a second array
+     */
+    public static double sumOfSquares(final double[] values) {
+        return IMPLEMENTATION.sumOfSquares(values, 0, values.length);
+    }
+
+    public static double sumOfSquares(final double[] values, final int offset, final int length) {
+        return IMPLEMENTATION.sumOfSquares(values, offset, length);
+    }
+
+    /**
+     * @return the sum of the squared differences between the values, which is the squared Euclidean distance
+     */
+    public static double squaredDistance(final double[] left, final double[] right) {
+        return IMPLEMENTATION.squaredDistance(left, 0, right, 0, left.length);
+    }
+
+    public static double squaredDistance(final double[] left, final int leftOffset, final double[] right,
+                                        final int rightOffset, final int length) {
+        return IMPLEMENTATION.squaredDistance(left, leftOffset, right, rightOffset, length);
+    }
+
+    /**
+     * destination = left + right
+     */
+    public static void add(final double[] left, final double[] right, final double[] destination) {
+        IMPLEMENTATION.add(left, 0, right, 0, destination, 0, left.length);
+    }
+
+    public static void add(final double[] left, final int leftOffset, final double[] right, final int rightOffset,
+                           final double[] destination, final int destinationOffset, final int length) {
+        IMPLEMENTATION.add(left, leftOffset, right, rightOffset, destination, destinationOffset, length);
+    }
+
+    /**
+     * destination = left - right
+     */
+    public static void subtract(final double[] left, final double[] right, final double[] destination) {
+        IMPLEMENTATION.subtract(left, 0, right, 0, destination, 0, left.length);
+    }
+
+    public static void subtract(final double[] left, final int leftOffset, final double[] right,
+                                final int rightOffset, final double[] destination, final int destinationOffset,
+                                final int length) {
+        IMPLEMENTATION.subtract(left, leftOffset, right, rightOffset, destination, destinationOffset, length);
+    }
+
+    /**
+     * destination = source * amount
+     */
+    public static void scale(final double[] source, final double amount, final double[] destination) {
+        IMPLEMENTATION.scale(source, 0, amount, destination, 0, source.length);
+    }
+
+    public static void scale(final double[] source, final int sourceOffset, final double amount,
+                             final double[] destination, final int destinationOffset, final int length) {
+        IMPLEMENTATION.scale(source, sourceOffset, amount, destination, destinationOffset, length);
+    }
+
+    /**
+     * y = alpha * x + y
+     */
+    public static void axpy(final double alpha, final double[] x, final double[] y) {
+        IMPLEMENTATION.axpy(alpha, x, 0, y, 0, x.length);
+    }
+
+    public static void axpy(final double alpha, final double[] x, final int xOffset, final double[] y,
+                            final int yOffset, final int length) {
+        IMPLEMENTATION.axpy(alpha, x, xOffset, y, yOffset, length);
+    }
+
+    /**
+     * Adds the product of a rows by depth block of the left matrix and a depth by columns block of the right matrix
+     * to a rows by columns block of the results, where each block starts at its offset and has its rows stride
+     * elements apart. A small tile of results is held in registers over the whole depth, so each load of the right
+     * values is shared between several rows and the results are only read and written once per tile.
+     */
+    public static void multiplyAdd(final double[] left, final int leftOffset, final int leftStride,
+                                   final double[] right, final int rightOffset, final int rightStride, final int rows,
+                                   final int depth, final int columns, final double[] results,
+                                   final int resultsOffset, final int resultsStride) {
+        IMPLEMENTATION.multiplyAdd(left, leftOffset, leftStride, right, rightOffset, rightStride, rows, depth,
+                columns, results, resultsOffset, resultsStride);
+    }
+}
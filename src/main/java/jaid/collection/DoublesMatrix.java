@@ -0,0 +1,237 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+import jaid.function.IntBiConsumer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Dense row-major matrix of doubles, where each row is typically a {@link DoublesVector}. Products are computed with
+ * {@link DoubleKernels#dotProductRows} and {@link DoubleKernels#multiplyAdd}, which work on several rows at a time,
+ * rather than with one dot product call per pair of vectors. Matrix-matrix products go through the other matrix in
+ * blocks small enough to stay in cache while every row of this matrix is multiplied against them, with a small tile of
+ * the result held in registers across each block, and can optionally be split by blocks of rows over the common
+ * ForkJoin pool.
+ */
+public final class DoublesMatrix {
+
+    /**
+     * Target size of a block of rows of the other matrix which is reused from cache, roughly the size of an L2 cache
+     */
+    private static final int BLOCK_BYTES = 256 * 1024;
+    /**
+     * Rows of this matrix handled by each task when multiplying in parallel
+     */
+    private static final int PARALLEL_ROWS = 64;
+
+    private final double[] contents;
+    private final int rows;
+    private final int columns;
+
+    public DoublesMatrix(final int rows, final int columns) {
+        this(new double[Math.multiplyExact(rows, columns)], rows, columns);
+    }
+
+    /**
+     * @param contents the elements of each row in turn, which are used directly rather than copied
+     */
+    public DoublesMatrix(final double[] contents, final int rows, final int columns) {
+        Preconditions.checkArgument(rows >= 0 && columns >= 0);
+        Preconditions.checkArgument(contents.length == rows * columns, "Contents must have rows * columns elements");
+        this.contents = contents;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * @return a matrix with a copy of each vector as a row
+     * @throws IllegalArgumentException if the vectors have different dimensions
+     */
+    public static DoublesMatrix of(final List<DoublesVector> vectors) {
+        final int columns = vectors.isEmpty() ? 0 : vectors.get(0).contents().length;
+        final double[] contents = new double[Math.multiplyExact(vectors.size(), columns)];
+        for (int row = 0; row < vectors.size(); row++) {
+            final double[] vector = vectors.get(row).contents();
+            if (vector.length != columns) {
+                throw new IllegalArgumentException("Vectors must have the same dimensions");
+            }
+            System.arraycopy(vector, 0, contents, row * columns, columns);
+        }
+        return new DoublesMatrix(contents, vectors.size(), columns);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public double[] contents() {
+        return contents;
+    }
+
+    public double get(final int row, final int column) {
+        return contents[index(row, column)];
+    }
+
+    public void set(final int row, final int column, final double value) {
+        contents[index(row, column)] = value;
+    }
+
+    /**
+     * @return a copy of the row as a vector
+     */
+    public DoublesVector row(final int row) {
+        Preconditions.checkElementIndex(row, rows);
+        return new DoublesVector(Arrays.copyOfRange(contents, row * columns, (row + 1) * columns));
+    }
+
+    /**
+     * @return this * vector, which has the dot product of each row with the vector as its components
+     * @throws IllegalArgumentException if the vector does not have {@link #getColumns()} components
+     */
+    public DoublesVector multiply(final DoublesVector vector) {
+        final double[] result = new double[rows];
+        multiplyInto(vector.contents(), result);
+        return new DoublesVector(result);
+    }
+
+    /**
+     * Writes this * vector into the destination without allocating
+     * @throws IllegalArgumentException if the vector does not have {@link #getColumns()} components or the destination
+     * does not have {@link #getRows()} components
+     */
+    public void multiplyInto(final double[] vector, final double[] destination) {
+        if (vector.length != columns || destination.length != rows) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        DoubleKernels.dotProductRows(vector, 0, contents, 0, columns, rows, columns, destination, 0);
+    }
+
+    public DoublesMatrix multiply(final DoublesMatrix other) {
+        return multiply(other, false);
+    }
+
+    /**
+     * @return this * other
+     * @throws IllegalArgumentException if the columns of this do not match the rows of other
+     */
+    public DoublesMatrix multiply(final DoublesMatrix other, final boolean parallel) {
+        if (columns != other.rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match");
+        }
+        final DoublesMatrix result = new DoublesMatrix(rows, other.columns);
+        forEachRowBlock(parallel, (start, end) -> multiplyRows(other, result, start, end));
+        return result;
+    }
+
+    public DoublesMatrix multiplyTransposed(final DoublesMatrix other) {
+        return multiplyTransposed(other, false);
+    }
+
+    /**
+     * Scores every row of this against every row of other, which is the usual way to compare many queries (the rows of
+     * this) against many stored vectors (the rows of other).
+     * @return this * transpose(other), where element (i, j) is the dot product of row i of this with row j of other
+     * @throws IllegalArgumentException if the rows of this and other have different dimensions
+     */
+    public DoublesMatrix multiplyTransposed(final DoublesMatrix other, final boolean parallel) {
+        if (columns != other.columns) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        final DoublesMatrix result = new DoublesMatrix(rows, other.rows);
+        forEachRowBlock(parallel, (start, end) -> multiplyTransposedRows(other, result, start, end));
+        return result;
+    }
+
+    public DoublesMatrix transpose() {
+        final DoublesMatrix result = new DoublesMatrix(columns, rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                result.contents[column * rows + row] = contents[row * columns + column];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                builder.append(", ");
+            }
+            builder.append(Arrays.toString(Arrays.copyOfRange(contents, row * columns, (row + 1) * columns)));
+        }
+        return builder.append(']').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DoublesMatrix that = (DoublesMatrix) o;
+        return rows == that.rows && columns == that.columns && Arrays.equals(contents, that.contents);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rows + columns) + Arrays.hashCode(contents);
+    }
+
+    private void multiplyTransposedRows(final DoublesMatrix other, final DoublesMatrix result, final int start,
+                                        final int end) {
+        final int blockRows = blockRows(columns);
+        for (int block = 0; block < other.rows; block += blockRows) {
+            final int count = Math.min(blockRows, other.rows - block);
+            for (int row = start; row < end; row++) {
+                DoubleKernels.dotProductRows(contents, row * columns, other.contents, block * columns, columns, count,
+                        columns, result.contents, row * other.rows + block);
+            }
+        }
+    }
+
+    private void multiplyRows(final DoublesMatrix other, final DoublesMatrix result, final int start, final int end) {
+        // Each result row is the sum of the rows of other weighted by a row of this, so the kernel runs along
+        // contiguous rows of other rather than down its columns, keeping a tile of result rows in registers over
+        // each block
+        final int blockRows = blockRows(other.columns);
+        for (int block = 0; block < other.rows; block += blockRows) {
+            final int blockEnd = Math.min(block + blockRows, other.rows);
+            DoubleKernels.multiplyAdd(contents, start * columns + block, columns, other.contents, block * other.columns,
+                    other.columns, end - start, blockEnd - block, other.columns, result.contents,
+                    start * other.columns, other.columns);
+        }
+    }
+
+    private void forEachRowBlock(final boolean parallel, final IntBiConsumer action) {
+        if (!parallel || rows <= PARALLEL_ROWS) {
+            action.accept(0, rows);
+            return;
+        }
+        IntStream.range(0, (rows + PARALLEL_ROWS - 1) / PARALLEL_ROWS).parallel()
+                .forEach(block -> action.accept(block * PARALLEL_ROWS, Math.min(rows, (block + 1) * PARALLEL_ROWS)));
+    }
+
+    private int index(final int row, final int column) {
+        Preconditions.checkElementIndex(row, rows);
+        Preconditions.checkElementIndex(column, columns);
+        return row * columns + column;
+    }
+
+    /**
+     * @return how many rows of the given width fit in {@link #BLOCK_BYTES}, at least 4 so that the kernels can use a
+     * full tile
+     */
+    private static int blockRows(final int columns) {
+        return Math.max(4, BLOCK_BYTES / (Double.BYTES * Math.max(1, columns)));
+    }
+}
@@ -1,128 +1,116 @@
 package jaid.collection;
 
 import com.google.common.base.Preconditions;
-import jdk.incubator.vector.DoubleVector;
-import jdk.incubator.vector.VectorOperators;
 
 import java.util.Arrays;
 
 import static jaid.number.HashingUtil.compressHash;
-import static jdk.incubator.vector.DoubleVector.SPECIES_256;
 
-public record DoublesVector(double[] contents) implements IVector {
+/**
+ * Dense vector of double components. The magnitude is computed lazily and cached, so that repeated cosine similarity
+ * calculations (such as every query against a {@link jaid.number.NearestVectorStore}) only need one dot product each.
+ * The cache is kept up to date by the methods of this class, so the array returned by {@link #contents()} must not be
+ * modified directly.
+ */
+public final class DoublesVector implements IVector {
+
+    private static final double UNKNOWN_MAGNITUDE = -1;
+
+    private final double[] contents;
+    /**
+     * Racy single check, recomputing the same value in more than one thread is harmless
+     */
+    private volatile double magnitude = UNKNOWN_MAGNITUDE;
 
     public DoublesVector(double[] contents) {
         this.contents = Preconditions.checkNotNull(contents);
     }
 
+    private DoublesVector(double[] contents, double magnitude) {
+        this.contents = contents;
+        this.magnitude = magnitude;
+    }
+
+    public double[] contents() {
+        return contents;
+    }
+
     @Override
     public double angleBetween(final IVector other) {
-        // The dot product of two normalized vectors equals the cosine of the angle between them.
-        double dotProduct = normalize().dotProduct(other.normalize());
-        // The clamp to [-1,1] ensures numerical stability since floating-point errors
-        // might occasionally produce values slightly outside the valid domain for acos.
-        return Math.acos(Math.min(1.0, Math.max(-1.0, dotProduct)));
+        // Clamp to valid domain for acos, since rounding can give a cosine slightly outside [-1,1]
+        return Math.acos(Math.min(1.0, Math.max(-1.0, cosineSimilarity(other))));
     }
 
     @Override
     public <T extends IVector> double distance(final T other) {
-        // MSE * dimension = sum of squared differences
-        return Math.sqrt(meanSquaredError(other) * contents.length);
+        return Math.sqrt(squaredDistance(other));
+    }
+
+    @Override
+    public <T extends IVector> double squaredDistance(final T other) {
+        if (other instanceof DoublesVectorView view) {
+            return view.squaredDistance(this);
+        }
+        return DoubleKernels.squaredDistance(contents, checkDimensions(other));
     }
 
     @Override
     public double dotProduct(final IVector comparedTo) {
         if (!(comparedTo instanceof DoublesVector) || contents.length != ((DoublesVector) comparedTo).contents.length) {
+            if (comparedTo instanceof DoublesVectorView view) {
+                return view.dotProduct(this);
+            }
             throw new IllegalArgumentException();
         }
-        // Use unrolled vector calculation based on https://richardstartin.github.io/posts/vector-api-dot-product
-        // This is much faster for large vectors than a Math.fma intrinsic, see DoublesVectorPerformanceTest
-        double[] left = contents;
-        double[] right = ((DoublesVector) comparedTo).contents;
-        int size = left.length;
-        int width = SPECIES_256.length();
-        // Handle case where array length is not a multiple of (width * 4)
-        int vectorizableLimit = size - (size % (width * 4));
-        // Multiple accumulators for better instruction-level parallelism
-        var sum1 = DoubleVector.zero(SPECIES_256);
-        var sum2 = DoubleVector.zero(SPECIES_256);
-        var sum3 = DoubleVector.zero(SPECIES_256);
-        var sum4 = DoubleVector.zero(SPECIES_256);
-        // Main vectorized loop with 4x unrolling
-        for (int i = 0; i < vectorizableLimit; i += width * 4) {
-            sum1 = DoubleVector.fromArray(SPECIES_256, left, i)
-                    .fma(DoubleVector.fromArray(SPECIES_256, right, i), sum1);
-            sum2 = DoubleVector.fromArray(SPECIES_256, left, i + width)
-                    .fma(DoubleVector.fromArray(SPECIES_256, right, i + width), sum2);
-            sum3 = DoubleVector.fromArray(SPECIES_256, left, i + width * 2)
-                    .fma(DoubleVector.fromArray(SPECIES_256, right, i + width * 2), sum3);
-            sum4 = DoubleVector.fromArray(SPECIES_256, left, i + width * 3)
-                    .fma(DoubleVector.fromArray(SPECIES_256, right, i + width * 3), sum4);
-        }
-        // Handle remaining elements
-        double remainderSum = 0;
-        for (int i = vectorizableLimit; i < size; i++) {
-            remainderSum += left[i] * right[i];
-        }
-        // Combine all sums
-        return sum1.reduceLanes(VectorOperators.ADD) +
-                sum2.reduceLanes(VectorOperators.ADD) +
-                sum3.reduceLanes(VectorOperators.ADD) +
-                sum4.reduceLanes(VectorOperators.ADD) +
-                remainderSum;
+        return DoubleKernels.dotProduct(contents, ((DoublesVector) comparedTo).contents);
     }
 
     @Override
     public double magnitude() {
-        double sum = 0;
-        for (int i = 0; i < contents.length; i++) {
-            sum += contents[i] * contents[i];
+        double result = magnitude;
+        if (result == UNKNOWN_MAGNITUDE) {
+            result = Math.sqrt(DoubleKernels.sumOfSquares(contents));
+            magnitude = result;
         }
-        return Math.sqrt(sum);
+        return result;
+    }
+
+    @Override
+    public boolean isUnitNormalized() {
+        return magnitude == 1;
     }
 
     @Override
     public <T extends IVector> double meanSquaredError(final T other) {
-        if (!(other instanceof DoublesVector) || contents.length != ((DoublesVector)other).contents().length) {
-            throw new IllegalArgumentException("Vectors must have the same dimensions");
-        }
-        double sumSquaredDiff = 0;
-        for (int i = 0; i < contents.length; i++) {
-            double diff = contents[i] - ((DoublesVector)other).contents()[i];
-            sumSquaredDiff += diff * diff;
-        }
-        return sumSquaredDiff / contents.length;
+        return squaredDistance(other) / contents.length;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T extends IVector> T minus(T operand) {
+        final double[] right = checkDimensions(operand);
         final double[] newContents = new double[contents.length];
-        for (int i = 0; i < contents.length; i++) {
-            newContents[i] = contents[i] - ((DoublesVector)operand).contents[i];
-        }
+        DoubleKernels.subtract(contents, right, newContents);
         return (T)new DoublesVector(newContents);
     }
 
     @Override
     public DoublesVector normalize() {
-        double magnitude = Math.sqrt(this.dotProduct(this));
-        if (magnitude == 0) return this; // avoid division by zero for a zero vector
+        double magnitude = magnitude();
+        // avoid division by zero for a zero vector, and the copy for an already normalized vector
+        if (magnitude == 0 || magnitude == 1) return this;
 
         double[] normalizedContents = new double[this.contents.length];
-        for (int i = 0; i < this.contents.length; i++) {
-            normalizedContents[i] = this.contents[i] / magnitude;
-        }
-        return new DoublesVector(normalizedContents);
+        DoubleKernels.scale(contents, 1 / magnitude, normalizedContents);
+        return new DoublesVector(normalizedContents, 1);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T extends IVector> T plus(T operand) {
+        final double[] right = checkDimensions(operand);
         final double[] newContents = new double[contents.length];
-        for (int i = 0; i < contents.length; i++) {
-            newContents[i] = contents[i] + ((DoublesVector)operand).contents[i];
-        }
+        DoubleKernels.add(contents, right, newContents);
         return (T)new DoublesVector(newContents);
     }
 
@@ -130,12 +118,52 @@ public record DoublesVector(double[] contents) implements IVector {
     @SuppressWarnings("unchecked")
     public <T extends IVector> T scale(final float amount) {
         final double[] newContents = new double[contents.length];
-        for (int i = 0; i < contents.length; i++) {
-            newContents[i] = contents[i] * amount;
-        }
+        DoubleKernels.scale(contents, amount, newContents);
         return (T)new DoublesVector(newContents);
     }
 
+    @Override
+    public <T extends IVector> T addInto(final T operand, final T destination) {
+        DoubleKernels.add(contents, checkDimensions(operand), checkDimensions(destination));
+        ((DoublesVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T subtractInto(final T operand, final T destination) {
+        DoubleKernels.subtract(contents, checkDimensions(operand), checkDimensions(destination));
+        ((DoublesVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T scaleInto(final float amount, final T destination) {
+        DoubleKernels.scale(contents, amount, checkDimensions(destination));
+        ((DoublesVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public void scaleInPlace(final float amount) {
+        DoubleKernels.scale(contents, amount, contents);
+        magnitude = UNKNOWN_MAGNITUDE;
+    }
+
+    @Override
+    public void axpy(final float alpha, final IVector x) {
+        DoubleKernels.axpy(alpha, checkDimensions(x), contents);
+        magnitude = UNKNOWN_MAGNITUDE;
+    }
+
+    @Override
+    public void normalizeInPlace() {
+        final double magnitude = magnitude();
+        if (magnitude != 0 && magnitude != 1) {
+            DoubleKernels.scale(contents, 1 / magnitude, contents);
+            this.magnitude = 1;
+        }
+    }
+
     @Override
     public int getSimHashBucket(byte bits) {
         // Shortcut - if we want every hash to be the same, then don't compute anything
@@ -175,4 +203,11 @@ public record DoublesVector(double[] contents) implements IVector {
     public int hashCode() {
         return Arrays.hashCode(contents);
     }
+
+    private double[] checkDimensions(final IVector other) {
+        if (!(other instanceof DoublesVector) || contents.length != ((DoublesVector) other).contents.length) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        return ((DoublesVector) other).contents;
+    }
 }
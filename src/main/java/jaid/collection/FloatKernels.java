@@ -0,0 +1,235 @@
+package jaid.collection;
+
+/**
+ * Kernels over float arrays, shared by {@link FloatsVector} and anything else that keeps its components in a float[].
+ * Element-wise kernels write into a destination array which may be the same array as either input, so they can be
+ * used to update a vector in place without allocating. The offset forms operate on a slice of a larger array, such as
+ * a row of a matrix or a prefix of a vector.
+ * Whether these use the Vector API or a scalar fallback is decided once by {@link VectorSupport}.
+ */
+public final class FloatKernels {
+
+    private static final Implementation IMPLEMENTATION =
+            VectorSupport.create("jaid.collection.SimdFloatKernels", Implementation.class, ScalarFloatKernels::new);
+
+    private FloatKernels() {
+    }
+
+    /**
+     * The operations every kernel implementation provides, each over length elements starting at the given offsets.
+     */
+    interface Implementation {
+
+        /**
+         * @return the width of the vectors used, or 0 for scalar kernels
+         */
+        int vectorBits();
+
+        float dotProduct(float[] left, int leftOffset, float[] right, int rightOffset, int length);
+
+        void dotProducts(float[] left, int leftOffset, float[][] rights, int rightOffset, int length,
+                         float[] results);
+
+        void dotProductRows(float[] left, int leftOffset, float[] matrix, int matrixOffset, int stride, int rows,
+                            int length, float[] results, int resultsOffset);
+
+        float sumOfSquares(float[] values, int offset, int length);
+
+        float squaredDistance(float[] left, int leftOffset, float[] right, int rightOffset, int length);
+
+        void add(float[] left, int leftOffset, float[] right, int rightOffset, float[] destination,
+                 int destinationOffset, int length);
+
+        void subtract(float[] left, int leftOffset, float[] right, int rightOffset, float[] destination,
+                      int destinationOffset, int length);
+
+        void scale(float[] source, int sourceOffset, float amount, float[] destination, int destinationOffset,
+                   int length);
+
+        void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length);
+
+        void multiplyAdd(float[] left, int leftOffset, int leftStride, float[] right, int rightOffset,
+                         int rightStride, int rows, int depth, int columns, float[] results, int resultsOffset,
+                         int resultsStride);
+
+        void combine(float[][] terms, int[] offsets, float[] coefficients, float[] destination,
+                     int destinationOffset, int length);
+
+        float combineDotProduct(float[][] terms, int[] offsets, float[] coefficients, float[] other,
+                                int otherOffset, int length);
+
+        float combineSumOfSquares(float[][] terms, int[] offsets, float[] coefficients, int length);
+
+        void biasActivation(float[] values, int offset, float[] bias, int biasOffset, int length,
+                            Activation activation);
+
+        void activationGradient(float[] outputs, int outputsOffset, float[] gradients, int gradientsOffset,
+                                int length, Activation activation);
+    }
+
+    static Implementation implementation() {
+        return IMPLEMENTATION;
+    }
+
+    public static float dotProduct(final float[] left, final float[] right) {
+        return IMPLEMENTATION.dotProduct(left, 0, right, 0, left.length);
+    }
+
+    public static float dotProduct(final float[] left, final int leftOffset, final float[] right,
+                                   final int rightOffset, final int length) {
+        return IMPLEMENTATION.dotProduct(left, leftOffset, right, rightOffset, length);
+    }
+
+    /**
+     * Computes the dot product of the left slice with the slice at rightOffset of each of the rights, which is faster
+     * than separate calls since each load of the left values is shared between several rights.
+     * @param results receives the dot product with rights[i] at index i
+     */
+    public static void dotProducts(final float[] left, final int leftOffset, final float[][] rights,
+                                   final int rightOffset, final int length, final float[] results) {
+        IMPLEMENTATION.dotProducts(left, leftOffset, rights, rightOffset, length, results);
+    }
+
+    /**
+     * Computes the dot product of the left slice with each of rows consecutive slices of the matrix, starting at
+     * matrixOffset and stride elements apart, which is a matrix-vector product over a row-major matrix. Several rows
+     * are processed together so that each load of the left values is shared between them.
+     * @param results receives the dot product with row r at index resultsOffset + r
+     */
+    public static void dotProductRows(final float[] left, final int leftOffset, final float[] matrix,
+                                      final int matrixOffset, final int stride, final int rows, final int length,
+                                      final float[] results, final int resultsOffset) {
+        IMPLEMENTATION.dotProductRows(left, leftOffset, matrix, matrixOffset, stride, rows, length, results,
+                resultsOffset);
+    }
+
+    /**
+     * @return the sum of the squares of the values, which is the squared magnitude without needing a second array
+     */
+    public static float sumOfSquares(final float[] values) {
+        return IMPLEMENTATION.sumOfSquares(values, 0, values.length);
+    }
+
+    public static float sumOfSquares(final float[] values, final int offset, final int length) {
+        return IMPLEMENTATION.sumOfSquares(values, offset, length);
+    }
+
+    /**
+     * @return the sum of the squared differences between the values, which is the squared Euclidean distance
+     */
+    public static float squaredDistance(final float[] left, final float[] right) {
+        return IMPLEMENTATION.squaredDistance(left, 0, right, 0, left.length);
+    }
+
+    public static float squaredDistance(final float[] left, final int leftOffset, final float[] right,
+                                        final int rightOffset, final int length) {
+        return IMPLEMENTATION.squaredDistance(left, leftOffset, right, rightOffset, length);
+    }
+
+    /**
+     * destination = left + right
+     */
+    public static void add(final float[] left, final float[] right, final float[] destination) {
+        IMPLEMENTATION.add(left, 0, right, 0, destination, 0, left.length);
+    }
+
+    public static void add(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                           final float[] destination, final int destinationOffset, final int length) {
+        IMPLEMENTATION.add(left, leftOffset, right, rightOffset, destination, destinationOffset, length);
+    }
+
+    /**
+     * destination = left - right
+     */
+    public static void subtract(final float[] left, final float[] right, final float[] destination) {
+        IMPLEMENTATION.subtract(left, 0, right, 0, destination, 0, left.length);
+    }
+
+    public static void subtract(final float[] left, final int leftOffset, final float[] right,
+                                final int rightOffset, final float[] destination, final int destinationOffset,
+                                final int length) {
+        IMPLEMENTATION.subtract(left, leftOffset, right, rightOffset, destination, destinationOffset, length);
+    }
+
+    /**
+     * destination = source * amount
+     */
+    public static void scale(final float[] source, final float amount, final float[] destination) {
+        IMPLEMENTATION.scale(source, 0, amount, destination, 0, source.length);
+    }
+
+    public static void scale(final float[] source, final int sourceOffset, final float amount,
+                             final float[] destination, final int destinationOffset, final int length) {
+        IMPLEMENTATION.scale(source, sourceOffset, amount, destination, destinationOffset, length);
+    }
+
+    /**
+     * y = alpha * x + y
+     */
+    public static void axpy(final float alpha, final float[] x, final float[] y) {
+        IMPLEMENTATION.axpy(alpha, x, 0, y, 0, x.length);
+    }
+
+    public static void axpy(final float alpha, final float[] x, final int xOffset, final float[] y, final int yOffset,
+                            final int length) {
+        IMPLEMENTATION.axpy(alpha, x, xOffset, y, yOffset, length);
+    }
+
+    /**
+     * destination = sum of coefficients[t] * terms[t] over every term, starting at offsets[t] in each term, in a single
+     * pass. The destination may be one of the terms, as long as it is at the same offset.
+     */
+    /**
+     * Adds the product of a rows by depth block of the left matrix and a depth by columns block of the right matrix
+     * to a rows by columns block of the results, where each block starts at its offset and has its rows stride
+     * elements apart. A small tile of results is held in registers over the whole depth, so each load of the right
+     * values is shared between several rows and the results are only read and written once per tile.
+     */
+    public static void multiplyAdd(final float[] left, final int leftOffset, final int leftStride,
+                                   final float[] right, final int rightOffset, final int rightStride, final int rows,
+                                   final int depth, final int columns, final float[] results,
+                                   final int resultsOffset, final int resultsStride) {
+        IMPLEMENTATION.multiplyAdd(left, leftOffset, leftStride, right, rightOffset, rightStride, rows, depth,
+                columns, results, resultsOffset, resultsStride);
+    }
+
+    public static void combine(final float[][] terms, final int[] offsets, final float[] coefficients,
+                               final float[] destination, final int destinationOffset, final int length) {
+        IMPLEMENTATION.combine(terms, offsets, coefficients, destination, destinationOffset, length);
+    }
+
+    /**
+     * @return the dot product of the {@link #combine combination} of the terms with the other slice, without storing
+     * the combination
+     */
+    public static float combineDotProduct(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                          final float[] other, final int otherOffset, final int length) {
+        return IMPLEMENTATION.combineDotProduct(terms, offsets, coefficients, other, otherOffset, length);
+    }
+
+    /**
+     * @return the sum of the squares of the {@link #combine combination} of the terms, without storing the combination
+     */
+    public static float combineSumOfSquares(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                            final int length) {
+        return IMPLEMENTATION.combineSumOfSquares(terms, offsets, coefficients, length);
+    }
+
+    /**
+     * values = activation(values + bias) in place, which is the end of a dense layer's forward pass fused into one
+     * pass over its outputs
+     */
+    public static void biasActivation(final float[] values, final int offset, final float[] bias, final int biasOffset,
+                                      final int length, final Activation activation) {
+        IMPLEMENTATION.biasActivation(values, offset, bias, biasOffset, length, activation);
+    }
+
+    /**
+     * gradients *= the derivative of the activation which produced the outputs, in place, which turns the gradient of
+     * a dense layer's outputs into the gradient before its activation
+     */
+    public static void activationGradient(final float[] outputs, final int outputsOffset, final float[] gradients,
+                                          final int gradientsOffset, final int length, final Activation activation) {
+        IMPLEMENTATION.activationGradient(outputs, outputsOffset, gradients, gradientsOffset, length, activation);
+    }
+}
@@ -0,0 +1,237 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+import jaid.function.IntBiConsumer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Dense row-major matrix of floats, where each row is typically a {@link FloatsVector}. Products are computed with
+ * {@link FloatKernels#dotProductRows} and {@link FloatKernels#multiplyAdd}, which work on several rows at a time,
+ * rather than with one dot product call per pair of vectors. Matrix-matrix products go through the other matrix in
+ * blocks small enough to stay in cache while every row of this matrix is multiplied against them, with a small tile of
+ * the result held in registers across each block, and can optionally be split by blocks of rows over the common
+ * ForkJoin pool.
+ */
+public final class FloatsMatrix {
+
+    /**
+     * Target size of a block of rows of the other matrix which is reused from cache, roughly the size of an L2 cache
+     */
+    private static final int BLOCK_BYTES = 256 * 1024;
+    /**
+     * Rows of this matrix handled by each task when multiplying in parallel
+     */
+    private static final int PARALLEL_ROWS = 64;
+
+    private final float[] contents;
+    private final int rows;
+    private final int columns;
+
+    public FloatsMatrix(final int rows, final int columns) {
+        this(new float[Math.multiplyExact(rows, columns)], rows, columns);
+    }
+
+    /**
+     * @param contents the elements of each row in turn, which are used directly rather than copied
+     */
+    public FloatsMatrix(final float[] contents, final int rows, final int columns) {
+        Preconditions.checkArgument(rows >= 0 && columns >= 0);
+        Preconditions.checkArgument(contents.length == rows * columns, "Contents must have rows * columns elements");
+        this.contents = contents;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * @return a matrix with a copy of each vector as a row
+     * @throws IllegalArgumentException if the vectors have different dimensions
+     */
+    public static FloatsMatrix of(final List<FloatsVector> vectors) {
+        final int columns = vectors.isEmpty() ? 0 : vectors.get(0).contents().length;
+        final float[] contents = new float[Math.multiplyExact(vectors.size(), columns)];
+        for (int row = 0; row < vectors.size(); row++) {
+            final float[] vector = vectors.get(row).contents();
+            if (vector.length != columns) {
+                throw new IllegalArgumentException("Vectors must have the same dimensions");
+            }
+            System.arraycopy(vector, 0, contents, row * columns, columns);
+        }
+        return new FloatsMatrix(contents, vectors.size(), columns);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public float[] contents() {
+        return contents;
+    }
+
+    public float get(final int row, final int column) {
+        return contents[index(row, column)];
+    }
+
+    public void set(final int row, final int column, final float value) {
+        contents[index(row, column)] = value;
+    }
+
+    /**
+     * @return a copy of the row as a vector
+     */
+    public FloatsVector row(final int row) {
+        Preconditions.checkElementIndex(row, rows);
+        return new FloatsVector(Arrays.copyOfRange(contents, row * columns, (row + 1) * columns));
+    }
+
+    /**
+     * @return this * vector, which has the dot product of each row with the vector as its components
+     * @throws IllegalArgumentException if the vector does not have {@link #getColumns()} components
+     */
+    public FloatsVector multiply(final FloatsVector vector) {
+        final float[] result = new float[rows];
+        multiplyInto(vector.contents(), result);
+        return new FloatsVector(result);
+    }
+
+    /**
+     * Writes this * vector into the destination without allocating
+     * @throws IllegalArgumentException if the vector does not have {@link #getColumns()} components or the destination
+     * does not have {@link #getRows()} components
+     */
+    public void multiplyInto(final float[] vector, final float[] destination) {
+        if (vector.length != columns || destination.length != rows) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        FloatKernels.dotProductRows(vector, 0, contents, 0, columns, rows, columns, destination, 0);
+    }
+
+    public FloatsMatrix multiply(final FloatsMatrix other) {
+        return multiply(other, false);
+    }
+
+    /**
+     * @return this * other
+     * @throws IllegalArgumentException if the columns of this do not match the rows of other
+     */
+    public FloatsMatrix multiply(final FloatsMatrix other, final boolean parallel) {
+        if (columns != other.rows) {
+            throw new IllegalArgumentException("Matrix dimensions do not match");
+        }
+        final FloatsMatrix result = new FloatsMatrix(rows, other.columns);
+        forEachRowBlock(parallel, (start, end) -> multiplyRows(other, result, start, end));
+        return result;
+    }
+
+    public FloatsMatrix multiplyTransposed(final FloatsMatrix other) {
+        return multiplyTransposed(other, false);
+    }
+
+    /**
+     * Scores every row of this against every row of other, which is the usual way to compare many queries (the rows of
+     * this) against many stored vectors (the rows of other).
+     * @return this * transpose(other), where element (i, j) is the dot product of row i of this with row j of other
+     * @throws IllegalArgumentException if the rows of this and other have different dimensions
+     */
+    public FloatsMatrix multiplyTransposed(final FloatsMatrix other, final boolean parallel) {
+        if (columns != other.columns) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        final FloatsMatrix result = new FloatsMatrix(rows, other.rows);
+        forEachRowBlock(parallel, (start, end) -> multiplyTransposedRows(other, result, start, end));
+        return result;
+    }
+
+    public FloatsMatrix transpose() {
+        final FloatsMatrix result = new FloatsMatrix(columns, rows);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                result.contents[column * rows + row] = contents[row * columns + column];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        for (int row = 0; row < rows; row++) {
+            if (row > 0) {
+                builder.append(", ");
+            }
+            builder.append(Arrays.toString(Arrays.copyOfRange(contents, row * columns, (row + 1) * columns)));
+        }
+        return builder.append(']').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FloatsMatrix that = (FloatsMatrix) o;
+        return rows == that.rows && columns == that.columns && Arrays.equals(contents, that.contents);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * rows + columns) + Arrays.hashCode(contents);
+    }
+
+    private void multiplyTransposedRows(final FloatsMatrix other, final FloatsMatrix result, final int start,
+                                        final int end) {
+        final int blockRows = blockRows(columns);
+        for (int block = 0; block < other.rows; block += blockRows) {
+            final int count = Math.min(blockRows, other.rows - block);
+            for (int row = start; row < end; row++) {
+                FloatKernels.dotProductRows(contents, row * columns, other.contents, block * columns, columns, count,
+                        columns, result.contents, row * other.rows + block);
+            }
+        }
+    }
+
+    private void multiplyRows(final FloatsMatrix other, final FloatsMatrix result, final int start, final int end) {
+        // Each result row is the sum of the rows of other weighted by a row of this, so the kernel runs along
+        // contiguous rows of other rather than down its columns, keeping a tile of result rows in registers over
+        // each block
+        final int blockRows = blockRows(other.columns);
+        for (int block = 0; block < other.rows; block += blockRows) {
+            final int blockEnd = Math.min(block + blockRows, other.rows);
+            FloatKernels.multiplyAdd(contents, start * columns + block, columns, other.contents, block * other.columns,
+                    other.columns, end - start, blockEnd - block, other.columns, result.contents,
+                    start * other.columns, other.columns);
+        }
+    }
+
+    private void forEachRowBlock(final boolean parallel, final IntBiConsumer action) {
+        if (!parallel || rows <= PARALLEL_ROWS) {
+            action.accept(0, rows);
+            return;
+        }
+        IntStream.range(0, (rows + PARALLEL_ROWS - 1) / PARALLEL_ROWS).parallel()
+                .forEach(block -> action.accept(block * PARALLEL_ROWS, Math.min(rows, (block + 1) * PARALLEL_ROWS)));
+    }
+
+    private int index(final int row, final int column) {
+        Preconditions.checkElementIndex(row, rows);
+        Preconditions.checkElementIndex(column, columns);
+        return row * columns + column;
+    }
+
+    /**
+     * @return how many rows of the given width fit in {@link #BLOCK_BYTES}, at least 4 so that the kernels can use a
+     * full tile
+     */
+    private static int blockRows(final int columns) {
+        return Math.max(4, BLOCK_BYTES / (Float.BYTES * Math.max(1, columns)));
+    }
+}
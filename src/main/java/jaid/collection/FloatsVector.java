@@ -1,126 +1,113 @@
 package jaid.collection;
 
 import com.google.common.base.Preconditions;
-import jdk.incubator.vector.FloatVector;
-import jdk.incubator.vector.VectorOperators;
 
 import java.util.Arrays;
 
 import static jaid.number.HashingUtil.compressHash;
-import static jdk.incubator.vector.FloatVector.SPECIES_256;
 
-public record FloatsVector(float[] contents) implements IVector {
+/**
+ * Dense vector of float components. The magnitude is computed lazily and cached, so that repeated cosine similarity
+ * calculations (such as every query against a {@link jaid.number.NearestVectorStore}) only need one dot product each.
+ * The cache is kept up to date by the methods of this class, so the array returned by {@link #contents()} must not be
+ * modified directly.
+ */
+public final class FloatsVector implements IVector {
+
+    private static final double UNKNOWN_MAGNITUDE = -1;
+
+    private final float[] contents;
+    /**
+     * Racy single check, recomputing the same value in more than one thread is harmless
+     */
+    private volatile double magnitude = UNKNOWN_MAGNITUDE;
 
     public FloatsVector(float[] contents) {
         this.contents = Preconditions.checkNotNull(contents);
     }
 
+    private FloatsVector(float[] contents, double magnitude) {
+        this.contents = contents;
+        this.magnitude = magnitude;
+    }
+
+    public float[] contents() {
+        return contents;
+    }
+
     @Override
     public double angleBetween(final IVector other) {
-        double dotProduct = normalize().dotProduct(other.normalize());
-        // Clamp to valid domain for acos
-        return Math.acos(Math.min(1.0, Math.max(-1.0, dotProduct)));
+        // Clamp to valid domain for acos, since rounding can give a cosine slightly outside [-1,1]
+        return Math.acos(Math.min(1.0, Math.max(-1.0, cosineSimilarity(other))));
     }
 
     @Override
     public <T extends IVector> double distance(final T other) {
-        // MSE * dimension = sum of squared differences
-        return Math.sqrt(meanSquaredError(other) * contents.length);
+        return Math.sqrt(squaredDistance(other));
     }
 
     @Override
-    public double dotProduct(final IVector comparedTo) {
-        if (!(comparedTo instanceof FloatsVector) || contents.length != ((FloatsVector) comparedTo).contents.length) {
-            throw new IllegalArgumentException();
-        }
-        // Use unrolled vector calculation based on https://richardstartin.github.io/posts/vector-api-dot-product
-        // This is much faster for large vectors than a Math.fma intrinsic, see DoublesVectorPerformanceTest
-        float[] left = contents;
-        float[] right = ((FloatsVector) comparedTo).contents;
-        int size = left.length;
-        int width = SPECIES_256.length();
-        // Handle case where array length is not a multiple of (width * 4)
-        int vectorizableLimit = size - (size % (width * 4));
-        // Multiple accumulators for better instruction-level parallelism
-        var sum1 = FloatVector.zero(SPECIES_256);
-        var sum2 = FloatVector.zero(SPECIES_256);
-        var sum3 = FloatVector.zero(SPECIES_256);
-        var sum4 = FloatVector.zero(SPECIES_256);
-        // Main vectorized loop with 4x unrolling
-        for (int i = 0; i < vectorizableLimit; i += width * 4) {
-            sum1 = FloatVector.fromArray(SPECIES_256, left, i)
-                    .fma(FloatVector.fromArray(SPECIES_256, right, i), sum1);
-            sum2 = FloatVector.fromArray(SPECIES_256, left, i + width)
-                    .fma(FloatVector.fromArray(SPECIES_256, right, i + width), sum2);
-            sum3 = FloatVector.fromArray(SPECIES_256, left, i + width * 2)
-                    .fma(FloatVector.fromArray(SPECIES_256, right, i + width * 2), sum3);
-            sum4 = FloatVector.fromArray(SPECIES_256, left, i + width * 3)
-                    .fma(FloatVector.fromArray(SPECIES_256, right, i + width * 3), sum4);
+    public <T extends IVector> double squaredDistance(final T other) {
+        if (other instanceof ForeignFloatsVector foreign) {
+            return foreign.squaredDistance(this);
         }
-        // Handle remaining elements
-        float remainderSum = 0;
-        for (int i = vectorizableLimit; i < size; i++) {
-            remainderSum += left[i] * right[i];
+        return FloatKernels.squaredDistance(contents, checkDimensions(other));
+    }
+
+    @Override
+    public double dotProduct(final IVector comparedTo) {
+        if (comparedTo instanceof ForeignFloatsVector foreign) {
+            return foreign.dotProduct(this);
         }
-        // Combine all sums
-        return sum1.reduceLanes(VectorOperators.ADD) +
-                sum2.reduceLanes(VectorOperators.ADD) +
-                sum3.reduceLanes(VectorOperators.ADD) +
-                sum4.reduceLanes(VectorOperators.ADD) +
-                remainderSum;
+        return FloatKernels.dotProduct(contents, checkDimensions(comparedTo));
     }
 
     @Override
     public double magnitude() {
-        double sum = 0;
-        for (int i = 0; i < contents.length; i++) {
-            sum += contents[i] * contents[i];
+        double result = magnitude;
+        if (result == UNKNOWN_MAGNITUDE) {
+            result = Math.sqrt(FloatKernels.sumOfSquares(contents));
+            magnitude = result;
         }
-        return Math.sqrt(sum);
+        return result;
+    }
+
+    @Override
+    public boolean isUnitNormalized() {
+        return magnitude == 1;
     }
 
     @Override
     public <T extends IVector> double meanSquaredError(final T other) {
-        if (!(other instanceof FloatsVector) || contents.length != ((FloatsVector)other).contents().length) {
-            throw new IllegalArgumentException("Vectors must have the same dimensions");
-        }
-        double sumSquaredDiff = 0;
-        for (int i = 0; i < contents.length; i++) {
-            double diff = contents[i] - ((FloatsVector)other).contents()[i];
-            sumSquaredDiff += diff * diff;
-        }
-        return sumSquaredDiff / contents.length;
+        return squaredDistance(other) / contents.length;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T extends IVector> T minus(T operand) {
+        final float[] right = checkDimensions(operand);
         final float[] newContents = new float[contents.length];
-        for (int i = 0; i < contents.length; i++) {
-            newContents[i] = contents[i] - ((FloatsVector)operand).contents[i];
-        }
+        FloatKernels.subtract(contents, right, newContents);
         return (T)new FloatsVector(newContents);
     }
 
     @Override
     public FloatsVector normalize() {
-        float magnitude = (float)Math.sqrt(this.dotProduct(this));
-        if (magnitude == 0) return this; // avoid division by zero for a zero vector
+        double magnitude = magnitude();
+        // avoid division by zero for a zero vector, and the copy for an already normalized vector
+        if (magnitude == 0 || magnitude == 1) return this;
 
         float[] normalizedContents = new float[this.contents.length];
-        for (int i = 0; i < this.contents.length; i++) {
-            normalizedContents[i] = this.contents[i] / magnitude;
-        }
-        return new FloatsVector(normalizedContents);
+        FloatKernels.scale(contents, (float) (1 / magnitude), normalizedContents);
+        return new FloatsVector(normalizedContents, 1);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T extends IVector> T plus(T operand) {
+        final float[] right = checkDimensions(operand);
         final float[] newContents = new float[contents.length];
-        for (int i = 0; i < contents.length; i++) {
-            newContents[i] = contents[i] + ((FloatsVector)operand).contents[i];
-        }
+        FloatKernels.add(contents, right, newContents);
         return (T)new FloatsVector(newContents);
     }
 
@@ -128,12 +115,52 @@ public record FloatsVector(float[] contents) implements IVector {
     @SuppressWarnings("unchecked")
     public <T extends IVector> T scale(final float amount) {
         final float[] newContents = new float[contents.length];
-        for (int i = 0; i < contents.length; i++) {
-            newContents[i] = contents[i] * amount;
-        }
+        FloatKernels.scale(contents, amount, newContents);
         return (T)new FloatsVector(newContents);
     }
 
+    @Override
+    public <T extends IVector> T addInto(final T operand, final T destination) {
+        FloatKernels.add(contents, checkDimensions(operand), checkDimensions(destination));
+        ((FloatsVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T subtractInto(final T operand, final T destination) {
+        FloatKernels.subtract(contents, checkDimensions(operand), checkDimensions(destination));
+        ((FloatsVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T scaleInto(final float amount, final T destination) {
+        FloatKernels.scale(contents, amount, checkDimensions(destination));
+        ((FloatsVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public void scaleInPlace(final float amount) {
+        FloatKernels.scale(contents, amount, contents);
+        magnitude = UNKNOWN_MAGNITUDE;
+    }
+
+    @Override
+    public void axpy(final float alpha, final IVector x) {
+        FloatKernels.axpy(alpha, checkDimensions(x), contents);
+        magnitude = UNKNOWN_MAGNITUDE;
+    }
+
+    @Override
+    public void normalizeInPlace() {
+        final double magnitude = magnitude();
+        if (magnitude != 0 && magnitude != 1) {
+            FloatKernels.scale(contents, (float) (1 / magnitude), contents);
+            this.magnitude = 1;
+        }
+    }
+
     @Override
     public int getSimHashBucket(byte bits) {
         // Shortcut - if we want every hash to be the same, then don't compute anything
@@ -173,4 +200,11 @@ public record FloatsVector(float[] contents) implements IVector {
     public int hashCode() {
         return Arrays.hashCode(contents);
     }
+
+    private float[] checkDimensions(final IVector other) {
+        if (!(other instanceof FloatsVector) || contents.length != ((FloatsVector) other).contents.length) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        return ((FloatsVector) other).contents;
+    }
 }
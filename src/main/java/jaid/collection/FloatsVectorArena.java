@@ -0,0 +1,236 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores float vectors which all have the same dimensions in large shared float[] slabs rather than one array per
+ * vector, which avoids an object header and array per vector, keeps the heap unfragmented, and lays vectors out
+ * contiguously so that scans such as {@link #dotProducts} run through memory in order. Allocating a vector is just an
+ * increment of the position in the current slab.
+ * Each vector has a stable id, and {@link FloatsVectorView}s refer to it by id, so views stay valid when
+ * {@link #compact()} moves vectors to fill the gaps left by {@link #remove}. This is not threadsafe, see
+ * {@link DoublesVectorArena} for doubles or {@link SegmentVectorArena} for off-heap storage.
+ */
+public final class FloatsVectorArena {
+
+    /**
+     * Target number of floats in each slab, 1MB
+     */
+    private static final int SLAB_FLOATS = 1 << 18;
+    private static final int REMOVED = -1;
+
+    private final int dimensions;
+    private final int vectorsPerSlab;
+    private final List<float[]> slabs = new ArrayList<>();
+    /**
+     * Position of each id, where position p is at offset (p % vectorsPerSlab) * dimensions of slab p / vectorsPerSlab
+     */
+    private final IntArrayList positions = new IntArrayList();
+    /**
+     * Id at each position up to {@link #end}, or {@link #REMOVED} for a gap
+     */
+    private final IntArrayList ids = new IntArrayList();
+    /**
+     * The next position to allocate
+     */
+    private int end;
+    private int size;
+
+    public FloatsVectorArena(final int dimensions) {
+        Preconditions.checkArgument(dimensions > 0);
+        this.dimensions = dimensions;
+        this.vectorsPerSlab = Math.max(1, SLAB_FLOATS / dimensions);
+    }
+
+    /**
+     * @return the id of a new zero vector
+     */
+    public int allocate() {
+        if (end == slabs.size() * vectorsPerSlab) {
+            slabs.add(new float[vectorsPerSlab * dimensions]);
+        }
+        final int id = positions.size();
+        positions.add(end);
+        ids.add(id);
+        end++;
+        size++;
+        return id;
+    }
+
+    /**
+     * @return the id of a new vector with a copy of the values
+     */
+    public int add(final float[] values) {
+        checkDimensions(values.length);
+        final int id = allocate();
+        System.arraycopy(values, 0, slab(id), offset(id), dimensions);
+        return id;
+    }
+
+    /**
+     * Appends count vectors stored one after another in values, copying as many as fit into each slab at once.
+     * @return the id of the first vector, the rest have consecutive ids
+     */
+    public int addAll(final float[] values, final int count) {
+        Preconditions.checkArgument(count >= 0 && values.length >= count * dimensions);
+        final int firstId = positions.size();
+        int copied = 0;
+        while (copied < count) {
+            if (end == slabs.size() * vectorsPerSlab) {
+                slabs.add(new float[vectorsPerSlab * dimensions]);
+            }
+            final int inSlab = end % vectorsPerSlab;
+            final int batch = Math.min(count - copied, vectorsPerSlab - inSlab);
+            System.arraycopy(values, copied * dimensions, slabs.get(end / vectorsPerSlab), inSlab * dimensions,
+                    batch * dimensions);
+            for (int i = 0; i < batch; i++) {
+                positions.add(end + i);
+                ids.add(positions.size() - 1);
+            }
+            end += batch;
+            copied += batch;
+        }
+        size += count;
+        return firstId;
+    }
+
+    /**
+     * @return a view of the vector with the id, which reads and writes the arena directly
+     */
+    public FloatsVectorView get(final int id) {
+        checkId(id);
+        return new FloatsVectorView(this, id);
+    }
+
+    /**
+     * @return a copy of the vector with the id
+     */
+    public FloatsVector copy(final int id) {
+        checkId(id);
+        final int offset = offset(id);
+        return new FloatsVector(Arrays.copyOfRange(slab(id), offset, offset + dimensions));
+    }
+
+    public boolean contains(final int id) {
+        return id >= 0 && id < positions.size() && positions.getInt(id) != REMOVED;
+    }
+
+    /**
+     * Leaves a gap where the vector was, which is reclaimed by the next {@link #compact()}
+     */
+    public boolean remove(final int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        ids.set(positions.getInt(id), REMOVED);
+        positions.set(id, REMOVED);
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves every vector down to fill the gaps left by removed vectors, keeping them in the same order, and drops any
+     * slabs which are no longer needed.
+     */
+    public void compact() {
+        int target = 0;
+        for (int position = 0; position < end; position++) {
+            final int id = ids.getInt(position);
+            if (id == REMOVED) {
+                continue;
+            }
+            if (target != position) {
+                System.arraycopy(slabs.get(position / vectorsPerSlab), (position % vectorsPerSlab) * dimensions,
+                        slabs.get(target / vectorsPerSlab), (target % vectorsPerSlab) * dimensions, dimensions);
+                ids.set(target, id);
+                positions.set(id, target);
+            }
+            target++;
+        }
+        ids.size(target);
+        end = target;
+        final int slabsNeeded = (end + vectorsPerSlab - 1) / vectorsPerSlab;
+        while (slabs.size() > slabsNeeded) {
+            slabs.remove(slabs.size() - 1);
+        }
+        // Clear the space freed in the last slab, since allocate() promises zero vectors
+        if (slabsNeeded > 0) {
+            Arrays.fill(slabs.get(slabsNeeded - 1), (end % vectorsPerSlab == 0 ? vectorsPerSlab : end % vectorsPerSlab)
+                    * dimensions, vectorsPerSlab * dimensions, 0);
+        }
+    }
+
+    /**
+     * Computes the dot product of the query with every vector in the arena, in order of position so that the slabs are
+     * read sequentially.
+     * @param results receives the dot product of the vector with id i at index i, and is left unchanged at the index of
+     * any removed vector
+     */
+    public void dotProducts(final float[] query, final float[] results) {
+        checkDimensions(query.length);
+        Preconditions.checkArgument(results.length >= positions.size());
+        final float[] scores = new float[vectorsPerSlab];
+        for (int slab = 0; slab < slabs.size(); slab++) {
+            final int first = slab * vectorsPerSlab;
+            final int count = Math.min(vectorsPerSlab, end - first);
+            FloatKernels.dotProductRows(query, 0, slabs.get(slab), 0, dimensions, count, dimensions, scores, 0);
+            for (int i = 0; i < count; i++) {
+                final int id = ids.getInt(first + i);
+                if (id != REMOVED) {
+                    results[id] = scores[i];
+                }
+            }
+        }
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return the number of vectors which have not been removed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return one more than the highest id allocated so far, the length needed for {@link #dotProducts} results
+     */
+    public int idLimit() {
+        return positions.size();
+    }
+
+    float[] slab(final int id) {
+        return slabs.get(position(id) / vectorsPerSlab);
+    }
+
+    int offset(final int id) {
+        return (position(id) % vectorsPerSlab) * dimensions;
+    }
+
+    private int position(final int id) {
+        final int position = positions.getInt(id);
+        if (position == REMOVED) {
+            throw new IllegalStateException("Vector " + id + " has been removed");
+        }
+        return position;
+    }
+
+    private void checkId(final int id) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException("No vector with id " + id);
+        }
+    }
+
+    private void checkDimensions(final int length) {
+        if (length != dimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+    }
+}
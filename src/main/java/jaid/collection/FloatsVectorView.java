@@ -0,0 +1,245 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+import static jaid.number.HashingUtil.compressHash;
+
+/**
+ * A vector stored in a {@link FloatsVectorArena}, which reads and writes the arena's slab directly rather than holding
+ * its own array. Views refer to the vector by id, so they stay valid when the arena is compacted, but not once the
+ * vector is removed. Operations which create a new vector, such as {@link #plus}, return a {@link FloatsVector} on the
+ * heap rather than growing the arena, while the methods such as {@link #addInto} write into an existing view.
+ * Operands can be other views (from any arena) or {@link FloatsVector}s of the same dimensions, but destinations must
+ * be views. The magnitude is not cached, since any view of the same id can change the components.
+ */
+public final class FloatsVectorView implements ForeignFloatsVector {
+
+    private final FloatsVectorArena arena;
+    private final int id;
+
+    FloatsVectorView(final FloatsVectorArena arena, final int id) {
+        this.arena = arena;
+        this.id = id;
+    }
+
+    public FloatsVectorArena arena() {
+        return arena;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public int dimensions() {
+        return arena.getDimensions();
+    }
+
+    public float get(final int index) {
+        Preconditions.checkElementIndex(index, dimensions());
+        return arena.slab(id)[arena.offset(id) + index];
+    }
+
+    public void set(final int index, final float value) {
+        Preconditions.checkElementIndex(index, dimensions());
+        arena.slab(id)[arena.offset(id) + index] = value;
+    }
+
+    public FloatsVector toFloatsVector() {
+        return arena.copy(id);
+    }
+
+    @Override
+    public double angleBetween(final IVector other) {
+        // Clamp to valid domain for acos
+        return Math.acos(Math.min(1.0, Math.max(-1.0, cosineSimilarity(other))));
+    }
+
+    @Override
+    public <T extends IVector> double distance(final T other) {
+        return Math.sqrt(squaredDistance(other));
+    }
+
+    @Override
+    public <T extends IVector> double squaredDistance(final T other) {
+        final int dimensions = dimensions();
+        return FloatKernels.squaredDistance(arena.slab(id), arena.offset(id), array(other, dimensions),
+                offset(other), dimensions);
+    }
+
+    @Override
+    public double dotProduct(final IVector comparedTo) {
+        final int dimensions = dimensions();
+        return FloatKernels.dotProduct(arena.slab(id), arena.offset(id), array(comparedTo, dimensions),
+                offset(comparedTo), dimensions);
+    }
+
+    @Override
+    public double magnitude() {
+        return Math.sqrt(FloatKernels.sumOfSquares(arena.slab(id), arena.offset(id), dimensions()));
+    }
+
+    @Override
+    public <T extends IVector> double meanSquaredError(final T other) {
+        return squaredDistance(other) / dimensions();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T minus(T operand) {
+        final int dimensions = dimensions();
+        final float[] result = new float[dimensions];
+        FloatKernels.subtract(arena.slab(id), arena.offset(id), array(operand, dimensions), offset(operand), result, 0,
+                dimensions);
+        return (T) new FloatsVector(result);
+    }
+
+    @Override
+    public FloatsVector normalize() {
+        final FloatsVector result = toFloatsVector();
+        result.normalizeInPlace();
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T plus(T operand) {
+        final int dimensions = dimensions();
+        final float[] result = new float[dimensions];
+        FloatKernels.add(arena.slab(id), arena.offset(id), array(operand, dimensions), offset(operand), result, 0,
+                dimensions);
+        return (T) new FloatsVector(result);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T scale(final float amount) {
+        final int dimensions = dimensions();
+        final float[] result = new float[dimensions];
+        FloatKernels.scale(arena.slab(id), arena.offset(id), amount, result, 0, dimensions);
+        return (T) new FloatsVector(result);
+    }
+
+    @Override
+    public <T extends IVector> T addInto(final T operand, final T destination) {
+        final int dimensions = dimensions();
+        FloatKernels.add(arena.slab(id), arena.offset(id), array(operand, dimensions), offset(operand),
+                destination(destination, dimensions), offset(destination), dimensions);
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T subtractInto(final T operand, final T destination) {
+        final int dimensions = dimensions();
+        FloatKernels.subtract(arena.slab(id), arena.offset(id), array(operand, dimensions), offset(operand),
+                destination(destination, dimensions), offset(destination), dimensions);
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T scaleInto(final float amount, final T destination) {
+        final int dimensions = dimensions();
+        FloatKernels.scale(arena.slab(id), arena.offset(id), amount, destination(destination, dimensions),
+                offset(destination), dimensions);
+        return destination;
+    }
+
+    @Override
+    public void scaleInPlace(final float amount) {
+        scaleInto(amount, this);
+    }
+
+    @Override
+    public void axpy(final float alpha, final IVector x) {
+        final int dimensions = dimensions();
+        FloatKernels.axpy(alpha, array(x, dimensions), offset(x), arena.slab(id), arena.offset(id), dimensions);
+    }
+
+    @Override
+    public void normalizeInPlace() {
+        final double magnitude = magnitude();
+        if (magnitude != 0) {
+            scaleInPlace((float) (1 / magnitude));
+        }
+    }
+
+    /**
+     * Gives the same bucket as a {@link FloatsVector} of the same values.
+     */
+    @Override
+    public int getSimHashBucket(byte bits) {
+        // Shortcut - if we want every hash to be the same, then don't compute anything
+        if (bits == 0) {
+            return 0;
+        }
+        final float[] slab = arena.slab(id);
+        final int offset = arena.offset(id);
+        int finalHash = 0;
+        for (int i = 0; i < dimensions(); i++) {
+            finalHash |= Float.floatToIntBits(slab[offset + i]);
+        }
+        return compressHash(bits, finalHash, (byte)32);
+    }
+
+    @Override
+    public String toString() {
+        return toFloatsVector().toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FloatsVectorView that = (FloatsVectorView) o;
+        final int offset = arena.offset(id);
+        final int thatOffset = that.arena.offset(that.id);
+        return Arrays.equals(arena.slab(id), offset, offset + dimensions(),
+                that.arena.slab(that.id), thatOffset, thatOffset + that.dimensions());
+    }
+
+    /**
+     * The same as the hash code of the equivalent {@link FloatsVector}.
+     */
+    @Override
+    public int hashCode() {
+        final float[] slab = arena.slab(id);
+        final int offset = arena.offset(id);
+        int result = 1;
+        for (int i = 0; i < dimensions(); i++) {
+            result = 31 * result + Float.floatToIntBits(slab[offset + i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the array holding the components of a view or {@link FloatsVector} with the given dimensions
+     */
+    private static float[] array(final IVector vector, final int dimensions) {
+        if (vector instanceof FloatsVectorView view && view.dimensions() == dimensions) {
+            return view.arena.slab(view.id);
+        } else if (vector instanceof FloatsVector dense && dense.contents().length == dimensions) {
+            return dense.contents();
+        }
+        throw new IllegalArgumentException("Vectors must have the same dimensions");
+    }
+
+    /**
+     * @return the slab holding the destination, which must be a view so that no {@link FloatsVector} is left with a
+     * stale cached magnitude
+     */
+    private static float[] destination(final IVector vector, final int dimensions) {
+        if (vector instanceof FloatsVectorView view && view.dimensions() == dimensions) {
+            return view.arena.slab(view.id);
+        }
+        throw new IllegalArgumentException("Vectors must have the same dimensions");
+    }
+
+    private static int offset(final IVector vector) {
+        return vector instanceof FloatsVectorView view ? view.arena.offset(view.id) : 0;
+    }
+}
@@ -0,0 +1,10 @@
+package jaid.collection;
+
+/**
+ * A vector of floats which are not held in a float[] of its own, which can compute its dot product and distance with a
+ * {@link FloatsVector} so that a {@link FloatsVector} compared with one hands the comparison over to it. This lets
+ * {@link FloatsVector} support {@link SegmentFloatsVector} without naming it, since that class needs preview features
+ * and loading it on a JVM started without them would fail.
+ */
+interface ForeignFloatsVector extends IVector {
+}
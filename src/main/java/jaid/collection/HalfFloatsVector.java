@@ -0,0 +1,256 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+import static jaid.number.HashingUtil.compressHash;
+
+/**
+ * Vector of IEEE 754 half precision (float16) components stored in a short[], which uses half the memory of a
+ * {@link FloatsVector} at the cost of only having around 3 significant decimal digits. Components are decoded to
+ * floats inside each kernel and all accumulation is done in float precision, so the results of arithmetic are only
+ * rounded back to half precision when a new {@link HalfFloatsVector} is produced.
+ */
+public record HalfFloatsVector(short[] contents) implements IVector {
+
+    /**
+     * Number of components decoded at a time into a float buffer before being passed to {@link FloatKernels}. The
+     * decode loop is simple enough for C2 to vectorise the half to float conversion on hardware that supports it.
+     */
+    private static final int DECODE_CHUNK = 128;
+
+    /**
+     * Buffers for the two operands decoded by {@link #dotProduct} and {@link #squaredDistance}, kept per thread so that
+     * neither allocates on each call
+     */
+    private static final ThreadLocal<float[][]> DECODE_BUFFERS =
+            ThreadLocal.withInitial(() -> new float[][]{new float[DECODE_CHUNK], new float[DECODE_CHUNK]});
+
+    public HalfFloatsVector(short[] contents) {
+        this.contents = Preconditions.checkNotNull(contents);
+    }
+
+    /**
+     * @return a new vector with each component rounded to the nearest half precision value
+     */
+    public static HalfFloatsVector of(final float[] values) {
+        final short[] contents = new short[values.length];
+        for (int i = 0; i < values.length; i++) {
+            contents[i] = Float.floatToFloat16(values[i]);
+        }
+        return new HalfFloatsVector(contents);
+    }
+
+    public float get(final int index) {
+        return Float.float16ToFloat(contents[index]);
+    }
+
+    public FloatsVector toFloatsVector() {
+        final float[] values = new float[contents.length];
+        decode(contents, 0, values, values.length);
+        return new FloatsVector(values);
+    }
+
+    @Override
+    public double angleBetween(final IVector other) {
+        // Clamp to valid domain for acos
+        return Math.acos(Math.min(1.0, Math.max(-1.0, cosineSimilarity(other))));
+    }
+
+    @Override
+    public <T extends IVector> double distance(final T other) {
+        return Math.sqrt(squaredDistance(other));
+    }
+
+    @Override
+    public <T extends IVector> double squaredDistance(final T other) {
+        return squaredDistance(checkDimensions(other));
+    }
+
+    @Override
+    public double dotProduct(final IVector comparedTo) {
+        final short[] right = checkDimensions(comparedTo);
+        final float[][] buffers = DECODE_BUFFERS.get();
+        final float[] leftBuffer = buffers[0];
+        final float[] rightBuffer = buffers[1];
+        float sum = 0;
+        for (int start = 0; start < contents.length; start += DECODE_CHUNK) {
+            final int length = Math.min(DECODE_CHUNK, contents.length - start);
+            decode(contents, start, leftBuffer, length);
+            decode(right, start, rightBuffer, length);
+            sum += FloatKernels.dotProduct(leftBuffer, 0, rightBuffer, 0, length);
+        }
+        return sum;
+    }
+
+    @Override
+    public double magnitude() {
+        return Math.sqrt(dotProduct(this));
+    }
+
+    @Override
+    public <T extends IVector> double meanSquaredError(final T other) {
+        return squaredDistance(other) / contents.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T minus(T operand) {
+        final short[] right = ((HalfFloatsVector) operand).contents;
+        final short[] newContents = new short[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            newContents[i] = Float.floatToFloat16(Float.float16ToFloat(contents[i]) - Float.float16ToFloat(right[i]));
+        }
+        return (T) new HalfFloatsVector(newContents);
+    }
+
+    @Override
+    public HalfFloatsVector normalize() {
+        float magnitude = (float) magnitude();
+        if (magnitude == 0) return this; // avoid division by zero for a zero vector
+
+        final short[] normalizedContents = new short[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            normalizedContents[i] = Float.floatToFloat16(Float.float16ToFloat(contents[i]) / magnitude);
+        }
+        return new HalfFloatsVector(normalizedContents);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T plus(T operand) {
+        final short[] right = ((HalfFloatsVector) operand).contents;
+        final short[] newContents = new short[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            newContents[i] = Float.floatToFloat16(Float.float16ToFloat(contents[i]) + Float.float16ToFloat(right[i]));
+        }
+        return (T) new HalfFloatsVector(newContents);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T scale(final float amount) {
+        final short[] newContents = new short[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            newContents[i] = Float.floatToFloat16(Float.float16ToFloat(contents[i]) * amount);
+        }
+        return (T) new HalfFloatsVector(newContents);
+    }
+
+    @Override
+    public <T extends IVector> T addInto(final T operand, final T destination) {
+        final short[] right = checkDimensions(operand);
+        final short[] out = checkDimensions(destination);
+        for (int i = 0; i < contents.length; i++) {
+            out[i] = Float.floatToFloat16(Float.float16ToFloat(contents[i]) + Float.float16ToFloat(right[i]));
+        }
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T subtractInto(final T operand, final T destination) {
+        final short[] right = checkDimensions(operand);
+        final short[] out = checkDimensions(destination);
+        for (int i = 0; i < contents.length; i++) {
+            out[i] = Float.floatToFloat16(Float.float16ToFloat(contents[i]) - Float.float16ToFloat(right[i]));
+        }
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T scaleInto(final float amount, final T destination) {
+        final short[] out = checkDimensions(destination);
+        for (int i = 0; i < contents.length; i++) {
+            out[i] = Float.floatToFloat16(Float.float16ToFloat(contents[i]) * amount);
+        }
+        return destination;
+    }
+
+    @Override
+    public void scaleInPlace(final float amount) {
+        scaleInto(amount, this);
+    }
+
+    @Override
+    public void axpy(final float alpha, final IVector x) {
+        final short[] xContents = checkDimensions(x);
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = Float.floatToFloat16(
+                    Math.fma(alpha, Float.float16ToFloat(xContents[i]), Float.float16ToFloat(contents[i])));
+        }
+    }
+
+    @Override
+    public void normalizeInPlace() {
+        final float magnitude = (float) magnitude();
+        if (magnitude != 0) {
+            scaleInto(1 / magnitude, this);
+        }
+    }
+
+    /**
+     * Hashes the decoded float bits, so this gives the same bucket as a {@link FloatsVector} of the same values.
+     */
+    @Override
+    public int getSimHashBucket(byte bits) {
+        // Shortcut - if we want every hash to be the same, then don't compute anything
+        if (bits == 0) {
+            return 0;
+        }
+        int finalHash = 0;
+        for (short content : contents) {
+            finalHash |= Float.floatToIntBits(Float.float16ToFloat(content));
+        }
+        return compressHash(bits, finalHash, (byte)32);
+    }
+
+    @Override
+    public String toString() {
+        return toFloatsVector().toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HalfFloatsVector that = (HalfFloatsVector) o;
+        return Arrays.equals(contents, that.contents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(contents);
+    }
+
+    private short[] checkDimensions(final IVector other) {
+        if (!(other instanceof HalfFloatsVector) || contents.length != ((HalfFloatsVector) other).contents.length) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        return ((HalfFloatsVector) other).contents;
+    }
+
+    private float squaredDistance(final short[] right) {
+        final float[][] buffers = DECODE_BUFFERS.get();
+        final float[] leftBuffer = buffers[0];
+        final float[] rightBuffer = buffers[1];
+        float sum = 0;
+        for (int start = 0; start < contents.length; start += DECODE_CHUNK) {
+            final int length = Math.min(DECODE_CHUNK, contents.length - start);
+            decode(contents, start, leftBuffer, length);
+            decode(right, start, rightBuffer, length);
+            sum += FloatKernels.squaredDistance(leftBuffer, 0, rightBuffer, 0, length);
+        }
+        return sum;
+    }
+
+    private static void decode(final short[] source, final int start, final float[] destination, final int length) {
+        for (int i = 0; i < length; i++) {
+            destination[i] = Float.float16ToFloat(source[start + i]);
+        }
+    }
+}
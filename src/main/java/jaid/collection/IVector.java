@@ -17,8 +17,38 @@ public interface IVector {
      */
     <T extends IVector> double distance(final T other);
 
+    /**
+     * The square of {@link #distance}, which is cheaper to compute and gives the same ordering when comparing distances.
+     * @throws IllegalArgumentException if vectors have different dimensions
+     */
+    <T extends IVector> double squaredDistance(final T other);
+
     double dotProduct(final IVector comparedTo);
 
+    /**
+     * The cosine of the angle between the vectors, which is the dot product divided by both magnitudes, without
+     * allocating normalized copies of either vector.
+     * @return the cosine similarity in range [-1,1], or 0 if either vector has a magnitude of 0
+     * @throws IllegalArgumentException if vectors have different dimensions or incompatible types
+     */
+    default double cosineSimilarity(final IVector other) {
+        final double dotProduct = dotProduct(other);
+        if (isUnitNormalized() && other.isUnitNormalized()) {
+            return dotProduct;
+        }
+        final double magnitudes = magnitude() * other.magnitude();
+        return magnitudes == 0 ? 0 : dotProduct / magnitudes;
+    }
+
+    /**
+     * @return true if this vector is known to have a magnitude of 1 (for example because it was produced by
+     * {@link #normalize()}), in which case cosine similarity is just the dot product. Implementations which do not
+     * track this can return false.
+     */
+    default boolean isUnitNormalized() {
+        return false;
+    }
+
     <T extends IVector> T minus(final T operand);
 
     /**
@@ -43,6 +73,64 @@ public interface IVector {
 
     <T extends IVector> T scale(final float amount);
 
+    /**
+     * Writes this + operand into the destination without allocating, where the destination may be this or the operand.
+     * Implementations which can't write in place return {@link #plus} instead, which is what this default does, so
+     * callers should use the returned vector.
+     * @return the destination, or a new vector if the implementation can't write in place
+     * @throws IllegalArgumentException if the vectors have different dimensions or incompatible types
+     */
+    default <T extends IVector> T addInto(final T operand, final T destination) {
+        return plus(operand);
+    }
+
+    /**
+     * Writes this - operand into the destination without allocating, where the destination may be this or the operand.
+     * By default returns {@link #minus} instead, in the same way as {@link #addInto}.
+     * @return the destination, or a new vector if the implementation can't write in place
+     * @throws IllegalArgumentException if the vectors have different dimensions or incompatible types
+     */
+    default <T extends IVector> T subtractInto(final T operand, final T destination) {
+        return minus(operand);
+    }
+
+    /**
+     * Writes this * amount into the destination without allocating, where the destination may be this.
+     * By default returns {@link #scale} instead, in the same way as {@link #addInto}.
+     * @return the destination, or a new vector if the implementation can't write in place
+     * @throws IllegalArgumentException if the vectors have different dimensions or incompatible types
+     */
+    default <T extends IVector> T scaleInto(final float amount, final T destination) {
+        return scale(amount);
+    }
+
+    /**
+     * Multiplies every component of this vector by the amount.
+     * @throws UnsupportedOperationException by default, for vectors which can only be scaled with {@link #scale}
+     */
+    default void scaleInPlace(final float amount) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be updated in place, use scale");
+    }
+
+    /**
+     * Adds alpha * x to this vector, the BLAS axpy operation used for centroid updates and gradient steps.
+     * @throws IllegalArgumentException if the vectors have different dimensions or incompatible types
+     * @throws UnsupportedOperationException by default, for vectors which can only be added with {@link #plus}
+     */
+    default void axpy(final float alpha, final IVector x) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " can't be updated in place, use plus");
+    }
+
+    /**
+     * Scales this vector to a magnitude of 1, leaving a zero vector unchanged.
+     * @throws UnsupportedOperationException by default, for vectors which can only be normalized with
+     * {@link #normalize}
+     */
+    default void normalizeInPlace() {
+        throw new UnsupportedOperationException(getClass().getSimpleName()
+                + " can't be updated in place, use normalize");
+    }
+
     /**
      * Allocates this vector to one of n buckets, where n is 2^bits.
      * @param bits the number of bits to be used for bucket allocation
@@ -1,17 +1,30 @@
 package jaid.collection;
 
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import jaid.number.GeometricRandom;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+
+import static jaid.collection.IntSkipLists.ABSENT;
 
 /**
- * Non threadsafe sorted collection of ints
+ * Non threadsafe sorted collection of ints. The navigation methods returning Integer box their result, so hot loops
+ * should use the OrAbsent variants returning a long, along with the primitive iterators and
+ * {@link #forEach(IntConsumer)}.
  */
 public class IntSkipList {
 
+    /**
+     * The exclusive upper bound of a {@link Range} which includes {@link Integer#MAX_VALUE}
+     */
+    private static final long UNBOUNDED = Integer.MAX_VALUE + 1L;
+
     /**
      * The value should not be higher than the maximum value produced by {@link GeometricRandom#nextByte}.
      */
@@ -28,10 +41,17 @@ public class IntSkipList {
     private final Node head = new Node(Integer.MIN_VALUE, new Node[MAX_LEVEL]);
 
     /**
-     * The forward array holds references to next nodes in the skiplist for every level.
+     * The forward array holds references to next nodes in the skiplist for every level up to the node's own, so that
+     * the half of the nodes which are only on the bottom level need just one reference.
      */
     private record Node(int value, Node[] forward) { }
 
+    /**
+     * Reused by every {@link #add} and {@link #remove} to hold the node that may need to be updated at each level,
+     * which is emptied again before they return so that it never keeps removed nodes reachable
+     */
+    private final Node[] update = new Node[MAX_LEVEL];
+
     /**
      * Current level of the skiplist.
      */
@@ -61,9 +81,9 @@ public class IntSkipList {
 
     /**
      * Adds the element with the specified value to this collection
+     * @return true if it was added, or false if it was already present
      */
-    public void add(int value) {
-        Node[] update = new Node[MAX_LEVEL];
+    public boolean add(int value) {
         Node x = head;
         for (int i = level; i >= 0; i--) {
             while (x.forward[i] != null && x.forward[i].value < value) {
@@ -86,20 +106,25 @@ public class IntSkipList {
                 level = newLevel;
             }
             // create and insert the new node
-            x = new Node(value, new Node[MAX_LEVEL]);
+            x = new Node(value, new Node[newLevel + 1]);
             for (int i = 0; i <= newLevel; i++) {
                 x.forward[i] = update[i].forward[i];
                 update[i].forward[i] = x;
             }
             size++;
+            releaseUpdate(level);
+            return true;
         }
+        releaseUpdate(level);
+        return false;
     }
 
     /**
      * Removes the element with the specified value from this collection
+     * @return true if it was removed, or false if it was not present
      */
-    public void remove(int value) {
-        Node[] update = new Node[MAX_LEVEL];
+    public boolean remove(int value) {
+        final int topLevel = level;
         Node x = head;
         for (int i = level; i >= 0; i--) {
             while (x.forward[i] != null && x.forward[i].value < value) {
@@ -121,7 +146,11 @@ public class IntSkipList {
                 level--;
             }
             size--;
+            releaseUpdate(topLevel);
+            return true;
         }
+        releaseUpdate(topLevel);
+        return false;
     }
 
     /**
@@ -129,13 +158,7 @@ public class IntSkipList {
      * or {@code null} if there is no such element.
      */
     public Integer lower(int value) {
-        Node x = head;
-        for (int i = level; i >= 0; i--) {
-            while (x.forward[i] != null && x.forward[i].value < value) {
-                x = x.forward[i];
-            }
-        }
-        return (x != head) ? x.value : null;
+        return boxed(lowerOrAbsent(value));
     }
 
     /**
@@ -143,13 +166,7 @@ public class IntSkipList {
      * or {@code null} if there is no such element.
      */
     public Integer floor(int value) {
-        Node x = head;
-        for (int i = level; i >= 0; i--) {
-            while (x.forward[i] != null && x.forward[i].value <= value) {
-                x = x.forward[i];
-            }
-        }
-        return (x != head) ? x.value : null;
+        return boxed(floorOrAbsent(value));
     }
 
     /**
@@ -157,13 +174,7 @@ public class IntSkipList {
      * or {@code null} if there is no such element.
      */
     public Integer ceiling(int value) {
-        Node x = head;
-        for (int i = level; i >= 0; i--) {
-            while (x.forward[i] != null && x.forward[i].value < value) {
-                x = x.forward[i];
-            }
-        }
-        return (x.forward[0] != null) ? x.forward[0].value : null;
+        return boxed(ceilingOrAbsent(value));
     }
 
     /**
@@ -171,21 +182,66 @@ public class IntSkipList {
      * or {@code null} if there is no such element.
      */
     public Integer higher(int value) {
-        Node x = head;
-        for (int i = level; i >= 0; i--) {
-            while (x.forward[i] != null && x.forward[i].value <= value) {
-                x = x.forward[i];
-            }
-        }
-        return (x.forward[0] != null) ? x.forward[0].value : null;
+        return boxed(higherOrAbsent(value));
     }
 
     /**
      * Removes and returns the first (smallest) element of the collection, or null if the collection is empty.
      */
     public Integer pollFirst() {
+        return boxed(pollFirstOrAbsent());
+    }
+
+    /**
+     * Removes and returns the last (largest) element of the collection, or null if the collection is empty.
+     */
+    public Integer pollLast() {
+        return boxed(pollLastOrAbsent());
+    }
+
+    /**
+     * Returns the greatest element strictly less than the given element, or {@link IntSkipLists#ABSENT} if there is no
+     * such element.
+     */
+    public long lowerOrAbsent(int value) {
+        Node x = predecessor(value, false);
+        return (x != head) ? x.value : ABSENT;
+    }
+
+    /**
+     * Returns the greatest element less than or equal to the given element, or {@link IntSkipLists#ABSENT} if there
+     * is no such element.
+     */
+    public long floorOrAbsent(int value) {
+        Node x = predecessor(value, true);
+        return (x != head) ? x.value : ABSENT;
+    }
+
+    /**
+     * Returns the least element greater than or equal to the given element, or {@link IntSkipLists#ABSENT} if there
+     * is no such element.
+     */
+    public long ceilingOrAbsent(int value) {
+        Node x = predecessor(value, false).forward[0];
+        return (x != null) ? x.value : ABSENT;
+    }
+
+    /**
+     * Returns the least element strictly greater than the given element, or {@link IntSkipLists#ABSENT} if there is no
+     * such element.
+     */
+    public long higherOrAbsent(int value) {
+        Node x = predecessor(value, true).forward[0];
+        return (x != null) ? x.value : ABSENT;
+    }
+
+    /**
+     * Removes and returns the first (smallest) element of the collection, or {@link IntSkipLists#ABSENT} if the
+     * collection is empty.
+     */
+    public long pollFirstOrAbsent() {
         if (isEmpty()) {
-            return null;
+            return ABSENT;
         }
         int first = head.forward[0].value;
         remove(first);
@@ -193,19 +249,14 @@ public class IntSkipList {
     }
 
     /**
-     * Removes and returns the last (largest) element of the collection, or null if the collection is empty.
+     * Removes and returns the last (largest) element of the collection, or {@link IntSkipLists#ABSENT} if the
+     * collection is empty.
      */
-    public Integer pollLast() {
+    public long pollLastOrAbsent() {
         if (isEmpty()) {
-            return null;
+            return ABSENT;
         }
-        Node x = head;
-        for (int i = level; i >= 0; i--) {
-            while (x.forward[i] != null) {
-                x = x.forward[i];
-            }
-        }
-        int last = x.value;
+        int last = last(head);
         remove(last);
         return last;
     }
@@ -220,6 +271,7 @@ public class IntSkipList {
 
     public void clear() {
         Arrays.fill(head.forward, null);
+        Arrays.fill(update, null);
         level = 0;
         size = 0;
     }
@@ -234,23 +286,201 @@ public class IntSkipList {
         return arr;
     }
 
-    public Iterator<Integer> iterator() {
-        return new Iterator<>() {
-            private Node current = head;
+    /**
+     * Passes each element to the consumer in ascending order
+     */
+    public void forEach(IntConsumer consumer) {
+        for (Node x = head.forward[0]; x != null; x = x.forward[0]) {
+            consumer.accept(x.value);
+        }
+    }
+
+    /**
+     * @return an iterator over the elements in ascending order, whose {@link IntIterator#nextInt()} doesn't box them
+     */
+    public IntIterator iterator() {
+        return new Range(Integer.MIN_VALUE, UNBOUNDED).iterator();
+    }
+
+    /**
+     * @return an iterator over the elements in descending order, which searches for each element in turn so takes
+     * logarithmic rather than constant time per element
+     */
+    public IntIterator descendingIterator() {
+        return new Range(Integer.MIN_VALUE, UNBOUNDED).descendingIterator();
+    }
+
+    /**
+     * @return a view of the elements from fromInclusive up to but excluding toExclusive, which reflects later changes
+     * to this collection
+     * @throws IllegalArgumentException if fromInclusive is greater than toExclusive
+     */
+    public Range subSet(int fromInclusive, int toExclusive) {
+        Preconditions.checkArgument(fromInclusive <= toExclusive, "fromInclusive is greater than toExclusive");
+        return new Range(fromInclusive, toExclusive);
+    }
+
+    /**
+     * A range of elements of the collection, as returned by {@link #subSet}. Every method searches the collection, so
+     * nothing is cached and the range always reflects the current contents.
+     */
+    public final class Range {
+
+        private final int fromInclusive;
+        /**
+         * A long so that a range can include {@link Integer#MAX_VALUE}
+         */
+        private final long toExclusive;
+
+        private Range(int fromInclusive, long toExclusive) {
+            this.fromInclusive = fromInclusive;
+            this.toExclusive = toExclusive;
+        }
+
+        public boolean contains(int value) {
+            return value >= fromInclusive && value < toExclusive && IntSkipList.this.contains(value);
+        }
 
-            @Override
-            public boolean hasNext() {
-                return current.forward[0] != null;
+        /**
+         * @return the smallest element in the range, or {@link IntSkipLists#ABSENT}
+         */
+        public long firstOrAbsent() {
+            long first = ceilingOrAbsent(fromInclusive);
+            return first != ABSENT && first < toExclusive ? first : ABSENT;
+        }
+
+        /**
+         * @return the largest element in the range, or {@link IntSkipLists#ABSENT}
+         */
+        public long lastOrAbsent() {
+            long last = toExclusive == UNBOUNDED ? floorOrAbsent(Integer.MAX_VALUE) : lowerOrAbsent((int) toExclusive);
+            return last != ABSENT && last >= fromInclusive ? last : ABSENT;
+        }
+
+        public boolean isEmpty() {
+            return firstOrAbsent() == ABSENT;
+        }
+
+        /**
+         * @return the number of elements in the range, which are counted so this takes linear time
+         */
+        public int size() {
+            int count = 0;
+            for (Node x = start(); x != null && x.value < toExclusive; x = x.forward[0]) {
+                count++;
             }
+            return count;
+        }
 
-            @Override
-            public Integer next() {
-                if (!hasNext()) {
-                    throw new NoSuchElementException();
+        public void forEach(IntConsumer consumer) {
+            for (Node x = start(); x != null && x.value < toExclusive; x = x.forward[0]) {
+                consumer.accept(x.value);
+            }
+        }
+
+        public int[] toArray() {
+            IntArrayList values = new IntArrayList();
+            forEach(values::add);
+            return values.toIntArray();
+        }
+
+        public IntIterator iterator() {
+            return new IntIterator() {
+                private Node next = start();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null && next.value < toExclusive;
                 }
-                current = current.forward[0];
-                return current.value;
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int value = next.value;
+                    next = next.forward[0];
+                    return value;
+                }
+            };
+        }
+
+        /**
+         * @return an iterator over the range in descending order, which searches for each element in turn so takes
+         * logarithmic rather than constant time per element
+         */
+        public IntIterator descendingIterator() {
+            return new IntIterator() {
+                private long next = lastOrAbsent();
+
+                @Override
+                public boolean hasNext() {
+                    return next != ABSENT;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int value = (int) next;
+                    long lower = lowerOrAbsent(value);
+                    next = lower != ABSENT && lower >= fromInclusive ? lower : ABSENT;
+                    return value;
+                }
+            };
+        }
+
+        /**
+         * @return the first node in the range, or a node beyond it or null if the range is empty
+         */
+        private Node start() {
+            return predecessor(fromInclusive, false).forward[0];
+        }
+    }
+
+    /**
+     * Drops the nodes held in {@link #update} up to the level, so that it doesn't keep removed nodes reachable
+     */
+    private void releaseUpdate(final int topLevel) {
+        Arrays.fill(update, 0, topLevel + 1, null);
+    }
+
+    /**
+     * @return the node holding the value, or null if there is none
+     */
+    @VisibleForTesting
+    Object node(final int value) {
+        final Node x = predecessor(value, false).forward[0];
+        return x != null && x.value == value ? x : null;
+    }
+
+    /**
+     * @return the last node with a value less than (or equal to if inclusive) the value, or the head if there is none
+     */
+    private Node predecessor(int value, boolean inclusive) {
+        Node x = head;
+        for (int i = level; i >= 0; i--) {
+            while (x.forward[i] != null && (x.forward[i].value < value || inclusive && x.forward[i].value == value)) {
+                x = x.forward[i];
             }
-        };
+        }
+        return x;
+    }
+
+    /**
+     * @return the value of the last node, which must not be the head
+     */
+    private int last(Node x) {
+        for (int i = level; i >= 0; i--) {
+            while (x.forward[i] != null) {
+                x = x.forward[i];
+            }
+        }
+        return x.value;
+    }
+
+    private static Integer boxed(long value) {
+        return value == ABSENT ? null : (int) value;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package jaid.collection;
+
+/**
+ * Constants shared by {@link IntSkipList}, {@link ConcurrentIntSkipList} and {@link CompactIntSkipList}, whose
+ * navigation methods ending in OrAbsent return a long so that they don't need to box a missing element as null.
+ */
+public final class IntSkipLists {
+
+    /**
+     * Returned when there is no element to return, which is outside the range of an int so can't be an element
+     */
+    public static final long ABSENT = Long.MIN_VALUE;
+
+    private IntSkipLists() {
+    }
+}
@@ -0,0 +1,211 @@
+package jaid.collection;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs the hot kernels (dot products, distances, sim hashing and the top k heap) at representative sizes until the JIT
+ * has finished compiling them, so that the first queries after startup don't run interpreted or C1 compiled Vector API
+ * code, which boxes every vector and is many times slower than the C2 compiled code. This can be called before
+ * accepting traffic, or in the background with readiness gated on {@link #isWarmedUp()}.
+ * Compilation is judged finished once every kernel has run well past the C2 compile thresholds and a few rounds in a
+ * row have passed without the JVM spending any more time compiling. Where the JVM doesn't report compilation time the
+ * kernels are just run for the minimum number of rounds.
+ */
+public final class KernelWarmUp {
+
+    private static final Logger log = LoggerFactory.getLogger(KernelWarmUp.class);
+
+    /**
+     * Typical embedding sizes, which are all multiples of every vector width, plus an odd size so that the tail loops
+     * are compiled too
+     */
+    private static final int[] DIMENSIONS = {101, 384, 768, 1024};
+    private static final int ROWS = 16;
+    private static final int CALLS_PER_ROUND = 500;
+    /**
+     * Enough rounds for every kernel to be called well over the default C2 threshold of 15000 invocations
+     */
+    private static final int MIN_ROUNDS = 40;
+    private static final int STABLE_ROUNDS = 3;
+    private static final Duration DEFAULT_MAX_TIME = Duration.ofSeconds(30);
+
+    private static volatile boolean warmedUp;
+    /**
+     * Accumulates results so that the JIT can't eliminate the kernel calls as dead code
+     */
+    private static volatile double sink;
+
+    private KernelWarmUp() {
+    }
+
+    /**
+     * Warms up for at most {@link #DEFAULT_MAX_TIME}
+     * @return true if compilation finished, false if the time ran out first
+     */
+    public static boolean warmUp() {
+        return warmUp(DEFAULT_MAX_TIME);
+    }
+
+    /**
+     * Blocks until the kernels have been compiled or the time runs out, which is safe to call from several threads
+     * and returns immediately once warm.
+     * @return true if compilation finished, false if the time ran out first
+     */
+    public static boolean warmUp(final Duration maxTime) {
+        final CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        return warmUp(maxTime, compiler != null && compiler.isCompilationTimeMonitoringSupported()
+                ? compiler::getTotalCompilationTime : null);
+    }
+
+    /**
+     * @param compilationMillis the total time the JVM has spent compiling, or null if it isn't known
+     */
+    @VisibleForTesting
+    static synchronized boolean warmUp(final Duration maxTime, final LongSupplier compilationMillis) {
+        if (warmedUp) {
+            return true;
+        }
+        final long start = System.nanoTime();
+        final int rounds = roundsToCompile(start + maxTime.toNanos(), compilationMillis);
+        if (rounds < 0) {
+            log.warn("Warm up of {} did not finish within {}", VectorSupport.describe(), maxTime);
+            return false;
+        }
+        warmedUp = true;
+        log.info("Warmed up {} in {} ms over {} rounds", VectorSupport.describe(),
+                (System.nanoTime() - start) / 1_000_000, rounds);
+        return true;
+    }
+
+    /**
+     * Runs rounds of the kernels until at least {@link #MIN_ROUNDS} have run and the compilation time hasn't changed
+     * for {@link #STABLE_ROUNDS} in a row, or just the minimum if the compilation time is null.
+     * @return the number of rounds run, or -1 if the deadline passed first
+     */
+    @VisibleForTesting
+    static int roundsToCompile(final long deadline, final LongSupplier compilationMillis) {
+        final Kernels[] kernels = new Kernels[DIMENSIONS.length];
+        final Random random = new Random(0);
+        for (int i = 0; i < kernels.length; i++) {
+            kernels[i] = new Kernels(DIMENSIONS[i], random);
+        }
+        long lastCompilationMillis = compilationMillis == null ? 0 : compilationMillis.getAsLong();
+        int rounds = 0;
+        int stableRounds = 0;
+        while (System.nanoTime() < deadline) {
+            double result = 0;
+            for (final Kernels kernel : kernels) {
+                result += kernel.run();
+            }
+            sink += result;
+            rounds++;
+            if (compilationMillis != null) {
+                final long total = compilationMillis.getAsLong();
+                stableRounds = total == lastCompilationMillis ? stableRounds + 1 : 0;
+                lastCompilationMillis = total;
+            }
+            if (rounds >= MIN_ROUNDS && (compilationMillis == null || stableRounds >= STABLE_ROUNDS)) {
+                return rounds;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true once a call to {@link #warmUp} has finished compiling the kernels, for readiness probes
+     */
+    public static boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    /**
+     * The inputs for every kernel at one size
+     */
+    private static final class Kernels {
+
+        private final float[] floats;
+        private final float[][] floatRows;
+        private final float[] floatMatrix;
+        private final float[] floatResults = new float[ROWS];
+        private final double[] doubles;
+        private final double[][] doubleRows;
+        private final double[] doubleMatrix;
+        private final double[] doubleResults = new double[ROWS];
+        private final FloatsVector[] vectors;
+        private final DoublesVector doublesVector;
+
+        Kernels(final int dimensions, final Random random) {
+            floats = randomFloats(dimensions, random);
+            floatRows = new float[ROWS][];
+            floatMatrix = new float[ROWS * dimensions];
+            doubles = new double[dimensions];
+            doubleRows = new double[ROWS][];
+            doubleMatrix = new double[ROWS * dimensions];
+            vectors = new FloatsVector[ROWS];
+            for (int r = 0; r < ROWS; r++) {
+                floatRows[r] = randomFloats(dimensions, random);
+                System.arraycopy(floatRows[r], 0, floatMatrix, r * dimensions, dimensions);
+                doubleRows[r] = new double[dimensions];
+                for (int i = 0; i < dimensions; i++) {
+                    doubleRows[r][i] = floatRows[r][i];
+                }
+                System.arraycopy(doubleRows[r], 0, doubleMatrix, r * dimensions, dimensions);
+                vectors[r] = new FloatsVector(floatRows[r]);
+            }
+            for (int i = 0; i < dimensions; i++) {
+                doubles[i] = floats[i];
+            }
+            doublesVector = new DoublesVector(doubles);
+        }
+
+        double run() {
+            final int dimensions = floats.length;
+            final FloatsVector query = new FloatsVector(floats);
+            double result = 0;
+            for (int call = 0; call < CALLS_PER_ROUND; call++) {
+                final float[] row = floatRows[call % ROWS];
+                result += FloatKernels.dotProduct(floats, row);
+                result += FloatKernels.squaredDistance(floats, row);
+                result += FloatKernels.sumOfSquares(row);
+                FloatKernels.dotProducts(floats, 0, floatRows, 0, dimensions, floatResults);
+                FloatKernels.dotProductRows(floats, 0, floatMatrix, 0, dimensions, ROWS, dimensions, floatResults, 0);
+                result += floatResults[call % ROWS];
+
+                final double[] doubleRow = doubleRows[call % ROWS];
+                result += DoubleKernels.dotProduct(doubles, doubleRow);
+                result += DoubleKernels.squaredDistance(doubles, doubleRow);
+                result += DoubleKernels.sumOfSquares(doubleRow);
+                DoubleKernels.dotProducts(doubles, 0, doubleRows, 0, dimensions, doubleResults);
+                DoubleKernels.dotProductRows(doubles, 0, doubleMatrix, 0, dimensions, ROWS, dimensions,
+                        doubleResults, 0);
+                result += doubleResults[call % ROWS];
+
+                // The paths taken by the vector stores: sim hashing, cosine similarity and the top k heap
+                final BoundedPriorityQueue pq = new BoundedPriorityQueue(ROWS / 2);
+                for (final FloatsVector vector : vectors) {
+                    pq.add(vector, vector.cosineSimilarity(query));
+                }
+                result += pq.lowestDotProduct();
+                result += vectors[call % ROWS].getSimHashBucket((byte) 16);
+                result += doublesVector.getSimHashBucket((byte) 16) + doublesVector.dotProduct(doublesVector);
+            }
+            return result;
+        }
+
+        private static float[] randomFloats(final int dimensions, final Random random) {
+            final float[] values = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                values[i] = (float) random.nextGaussian();
+            }
+            return values;
+        }
+    }
+}
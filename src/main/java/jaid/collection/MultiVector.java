@@ -0,0 +1,98 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A document represented by a bag of token vectors rather than a single vector, as used by late interaction models
+ * such as ColBERT. Documents are compared with {@link #maxSim}, which sums the best match among this document's tokens
+ * for each token of the query. Each query token is scored against every token here with a single
+ * {@link FloatKernels#dotProducts} call, which shares each load of the query token between several document tokens.
+ * The tokens are used directly rather than copied, and should not be modified.
+ */
+public final class MultiVector {
+
+    private final List<FloatsVector> tokens;
+    private final float[][] arrays;
+    private final int dimensions;
+
+    /**
+     * @throws IllegalArgumentException if there are no tokens or they have different dimensions
+     */
+    public MultiVector(final List<FloatsVector> tokens) {
+        Preconditions.checkArgument(!tokens.isEmpty(), "Need at least one token");
+        this.tokens = List.copyOf(tokens);
+        this.arrays = new float[tokens.size()][];
+        this.dimensions = tokens.get(0).contents().length;
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = tokens.get(i).contents();
+            if (arrays[i].length != dimensions) {
+                throw new IllegalArgumentException("Vectors must have the same dimensions");
+            }
+        }
+    }
+
+    public List<FloatsVector> tokens() {
+        return tokens;
+    }
+
+    public int size() {
+        return arrays.length;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return the sum over the query's tokens of the highest dot product with any token of this document
+     * @throws IllegalArgumentException if the tokens have different dimensions
+     */
+    public float maxSim(final MultiVector query) {
+        return maxSim(query, new float[arrays.length]);
+    }
+
+    /**
+     * Computes {@link #maxSim(MultiVector)} without allocating.
+     * @param scores scratch space for at least {@link #size()} scores
+     */
+    public float maxSim(final MultiVector query, final float[] scores) {
+        if (query.dimensions != dimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        float sum = 0;
+        for (final float[] queryToken : query.arrays) {
+            FloatKernels.dotProducts(queryToken, 0, arrays, 0, dimensions, scores);
+            float best = Float.NEGATIVE_INFINITY;
+            for (int t = 0; t < arrays.length; t++) {
+                best = Math.max(best, scores[t]);
+            }
+            sum += best;
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return tokens.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MultiVector that = (MultiVector) o;
+        return Arrays.deepEquals(arrays, that.arrays);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(arrays);
+    }
+}
@@ -0,0 +1,122 @@
+package jaid.collection;
+
+/**
+ * {@link DoubleKernels} implementation for when the Vector API is unavailable. The reductions use four independent
+ * {@link Math#fma} accumulators, which breaks the dependency chain between iterations much like the unrolled vector
+ * kernels do, and the element-wise loops are simple enough for C2 to auto-vectorise.
+ */
+final class ScalarDoubleKernels implements DoubleKernels.Implementation {
+
+    @Override
+    public int vectorBits() {
+        return 0;
+    }
+
+    @Override
+    public double dotProduct(final double[] left, final int leftOffset, final double[] right, final int rightOffset,
+                            final int length) {
+        double sum1 = 0;
+        double sum2 = 0;
+        double sum3 = 0;
+        double sum4 = 0;
+        final int unrolledLimit = length & ~3;
+        int i = 0;
+        for (; i < unrolledLimit; i += 4) {
+            sum1 = Math.fma(left[leftOffset + i], right[rightOffset + i], sum1);
+            sum2 = Math.fma(left[leftOffset + i + 1], right[rightOffset + i + 1], sum2);
+            sum3 = Math.fma(left[leftOffset + i + 2], right[rightOffset + i + 2], sum3);
+            sum4 = Math.fma(left[leftOffset + i + 3], right[rightOffset + i + 3], sum4);
+        }
+        for (; i < length; i++) {
+            sum1 = Math.fma(left[leftOffset + i], right[rightOffset + i], sum1);
+        }
+        return (sum1 + sum2) + (sum3 + sum4);
+    }
+
+    @Override
+    public void dotProducts(final double[] left, final int leftOffset, final double[][] rights, final int rightOffset,
+                            final int length, final double[] results) {
+        for (int r = 0; r < rights.length; r++) {
+            results[r] = dotProduct(left, leftOffset, rights[r], rightOffset, length);
+        }
+    }
+
+    @Override
+    public void dotProductRows(final double[] left, final int leftOffset, final double[] matrix, final int matrixOffset,
+                               final int stride, final int rows, final int length, final double[] results,
+                               final int resultsOffset) {
+        for (int r = 0; r < rows; r++) {
+            results[resultsOffset + r] = dotProduct(left, leftOffset, matrix, matrixOffset + r * stride, length);
+        }
+    }
+
+    @Override
+    public double sumOfSquares(final double[] values, final int offset, final int length) {
+        return dotProduct(values, offset, values, offset, length);
+    }
+
+    @Override
+    public double squaredDistance(final double[] left, final int leftOffset, final double[] right,
+                                  final int rightOffset, final int length) {
+        double sum1 = 0;
+        double sum2 = 0;
+        final int unrolledLimit = length & ~1;
+        int i = 0;
+        for (; i < unrolledLimit; i += 2) {
+            final double diff1 = left[leftOffset + i] - right[rightOffset + i];
+            final double diff2 = left[leftOffset + i + 1] - right[rightOffset + i + 1];
+            sum1 = Math.fma(diff1, diff1, sum1);
+            sum2 = Math.fma(diff2, diff2, sum2);
+        }
+        if (i < length) {
+            final double diff = left[leftOffset + i] - right[rightOffset + i];
+            sum1 = Math.fma(diff, diff, sum1);
+        }
+        return sum1 + sum2;
+    }
+
+    @Override
+    public void add(final double[] left, final int leftOffset, final double[] right, final int rightOffset,
+                    final double[] destination, final int destinationOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = left[leftOffset + i] + right[rightOffset + i];
+        }
+    }
+
+    @Override
+    public void subtract(final double[] left, final int leftOffset, final double[] right, final int rightOffset,
+                         final double[] destination, final int destinationOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = left[leftOffset + i] - right[rightOffset + i];
+        }
+    }
+
+    @Override
+    public void scale(final double[] source, final int sourceOffset, final double amount, final double[] destination,
+                      final int destinationOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = source[sourceOffset + i] * amount;
+        }
+    }
+
+    @Override
+    public void axpy(final double alpha, final double[] x, final int xOffset, final double[] y, final int yOffset,
+                     final int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] = Math.fma(alpha, x[xOffset + i], y[yOffset + i]);
+        }
+    }
+
+    @Override
+    public void multiplyAdd(final double[] left, final int leftOffset, final int leftStride, final double[] right,
+                            final int rightOffset, final int rightStride, final int rows, final int depth,
+                            final int columns, final double[] results, final int resultsOffset,
+                            final int resultsStride) {
+        for (int r = 0; r < rows; r++) {
+            for (int k = 0; k < depth; k++) {
+                axpy(left[leftOffset + r * leftStride + k], right, rightOffset + k * rightStride, results,
+                        resultsOffset + r * resultsStride, columns);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package jaid.collection;
+
+/**
+ * {@link FloatKernels} implementation for when the Vector API is unavailable. The reductions use four independent
+ * {@link Math#fma} accumulators, which breaks the dependency chain between iterations much like the unrolled vector
+ * kernels do, and the element-wise loops are simple enough for C2 to auto-vectorise.
+ */
+final class ScalarFloatKernels implements FloatKernels.Implementation {
+
+    @Override
+    public int vectorBits() {
+        return 0;
+    }
+
+    @Override
+    public float dotProduct(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                            final int length) {
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        float sum4 = 0;
+        final int unrolledLimit = length & ~3;
+        int i = 0;
+        for (; i < unrolledLimit; i += 4) {
+            sum1 = Math.fma(left[leftOffset + i], right[rightOffset + i], sum1);
+            sum2 = Math.fma(left[leftOffset + i + 1], right[rightOffset + i + 1], sum2);
+            sum3 = Math.fma(left[leftOffset + i + 2], right[rightOffset + i + 2], sum3);
+            sum4 = Math.fma(left[leftOffset + i + 3], right[rightOffset + i + 3], sum4);
+        }
+        for (; i < length; i++) {
+            sum1 = Math.fma(left[leftOffset + i], right[rightOffset + i], sum1);
+        }
+        return (sum1 + sum2) + (sum3 + sum4);
+    }
+
+    @Override
+    public void dotProducts(final float[] left, final int leftOffset, final float[][] rights, final int rightOffset,
+                            final int length, final float[] results) {
+        for (int r = 0; r < rights.length; r++) {
+            results[r] = dotProduct(left, leftOffset, rights[r], rightOffset, length);
+        }
+    }
+
+    @Override
+    public void dotProductRows(final float[] left, final int leftOffset, final float[] matrix, final int matrixOffset,
+                               final int stride, final int rows, final int length, final float[] results,
+                               final int resultsOffset) {
+        for (int r = 0; r < rows; r++) {
+            results[resultsOffset + r] = dotProduct(left, leftOffset, matrix, matrixOffset + r * stride, length);
+        }
+    }
+
+    @Override
+    public float sumOfSquares(final float[] values, final int offset, final int length) {
+        return dotProduct(values, offset, values, offset, length);
+    }
+
+    @Override
+    public float squaredDistance(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                                 final int length) {
+        float sum1 = 0;
+        float sum2 = 0;
+        final int unrolledLimit = length & ~1;
+        int i = 0;
+        for (; i < unrolledLimit; i += 2) {
+            final float diff1 = left[leftOffset + i] - right[rightOffset + i];
+            final float diff2 = left[leftOffset + i + 1] - right[rightOffset + i + 1];
+            sum1 = Math.fma(diff1, diff1, sum1);
+            sum2 = Math.fma(diff2, diff2, sum2);
+        }
+        if (i < length) {
+            final float diff = left[leftOffset + i] - right[rightOffset + i];
+            sum1 = Math.fma(diff, diff, sum1);
+        }
+        return sum1 + sum2;
+    }
+
+    @Override
+    public void add(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                    final float[] destination, final int destinationOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = left[leftOffset + i] + right[rightOffset + i];
+        }
+    }
+
+    @Override
+    public void subtract(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                         final float[] destination, final int destinationOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = left[leftOffset + i] - right[rightOffset + i];
+        }
+    }
+
+    @Override
+    public void scale(final float[] source, final int sourceOffset, final float amount, final float[] destination,
+                      final int destinationOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = source[sourceOffset + i] * amount;
+        }
+    }
+
+    @Override
+    public void axpy(final float alpha, final float[] x, final int xOffset, final float[] y, final int yOffset,
+                     final int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] = Math.fma(alpha, x[xOffset + i], y[yOffset + i]);
+        }
+    }
+
+    @Override
+    public void multiplyAdd(final float[] left, final int leftOffset, final int leftStride, final float[] right,
+                            final int rightOffset, final int rightStride, final int rows, final int depth,
+                            final int columns, final float[] results, final int resultsOffset,
+                            final int resultsStride) {
+        for (int r = 0; r < rows; r++) {
+            for (int k = 0; k < depth; k++) {
+                axpy(left[leftOffset + r * leftStride + k], right, rightOffset + k * rightStride, results,
+                        resultsOffset + r * resultsStride, columns);
+            }
+        }
+    }
+
+    @Override
+    public void combine(final float[][] terms, final int[] offsets, final float[] coefficients,
+                        final float[] destination, final int destinationOffset, final int length) {
+        for (int i = 0; i < length; i++) {
+            destination[destinationOffset + i] = combined(terms, offsets, coefficients, i);
+        }
+    }
+
+    @Override
+    public float combineDotProduct(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                   final float[] other, final int otherOffset, final int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum = Math.fma(combined(terms, offsets, coefficients, i), other[otherOffset + i], sum);
+        }
+        return sum;
+    }
+
+    @Override
+    public float combineSumOfSquares(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                     final int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            final float value = combined(terms, offsets, coefficients, i);
+            sum = Math.fma(value, value, sum);
+        }
+        return sum;
+    }
+
+    @Override
+    public void biasActivation(final float[] values, final int offset, final float[] bias, final int biasOffset,
+                               final int length, final Activation activation) {
+        for (int i = 0; i < length; i++) {
+            values[offset + i] = activation.apply(values[offset + i] + bias[biasOffset + i]);
+        }
+    }
+
+    @Override
+    public void activationGradient(final float[] outputs, final int outputsOffset, final float[] gradients,
+                                   final int gradientsOffset, final int length, final Activation activation) {
+        for (int i = 0; i < length; i++) {
+            gradients[gradientsOffset + i] *= activation.derivative(outputs[outputsOffset + i]);
+        }
+    }
+
+    private static float combined(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                  final int index) {
+        float value = 0;
+        for (int t = 0; t < terms.length; t++) {
+            value = Math.fma(coefficients[t], terms[t][offsets[t] + index], value);
+        }
+        return value;
+    }
+}
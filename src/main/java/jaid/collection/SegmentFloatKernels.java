@@ -0,0 +1,291 @@
+package jaid.collection;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * Kernels over floats stored in a {@link MemorySegment}, which may be off-heap or a mapped file, the equivalent of
+ * {@link FloatKernels} for {@link SegmentFloatsVector}. Offsets and lengths are in floats rather than bytes. Some
+ * kernels take a float[] as the other operand, since the Vector API can only load from heap segments backed by a
+ * byte[].
+ * The Vector API is only used when {@link FloatKernels} loaded its Vector API implementation, and the Vector API
+ * versions are in a nested class so that they are only linked in that case.
+ */
+public final class SegmentFloatKernels {
+
+    /**
+     * Floats are stored in native byte order and may be at any byte offset within a mapped file
+     */
+    static final ValueLayout.OfFloat LAYOUT = ValueLayout.JAVA_FLOAT_UNALIGNED;
+    private static final boolean SIMD = FloatKernels.implementation().vectorBits() > 0;
+
+    private SegmentFloatKernels() {
+    }
+
+    public static float dotProduct(final MemorySegment left, final long leftOffset, final MemorySegment right,
+                                   final long rightOffset, final int length) {
+        if (SIMD) {
+            return Simd.dotProduct(left, leftOffset, right, rightOffset, length);
+        }
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum = Math.fma(get(left, leftOffset + i), get(right, rightOffset + i), sum);
+        }
+        return sum;
+    }
+
+    public static float dotProduct(final MemorySegment left, final long leftOffset, final float[] right,
+                                   final int rightOffset, final int length) {
+        if (SIMD) {
+            return Simd.dotProduct(left, leftOffset, right, rightOffset, length);
+        }
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum = Math.fma(get(left, leftOffset + i), right[rightOffset + i], sum);
+        }
+        return sum;
+    }
+
+    public static float sumOfSquares(final MemorySegment values, final long offset, final int length) {
+        return dotProduct(values, offset, values, offset, length);
+    }
+
+    public static float squaredDistance(final MemorySegment left, final long leftOffset, final MemorySegment right,
+                                        final long rightOffset, final int length) {
+        if (SIMD) {
+            return Simd.squaredDistance(left, leftOffset, right, rightOffset, length);
+        }
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            final float diff = get(left, leftOffset + i) - get(right, rightOffset + i);
+            sum = Math.fma(diff, diff, sum);
+        }
+        return sum;
+    }
+
+    public static float squaredDistance(final MemorySegment left, final long leftOffset, final float[] right,
+                                        final int rightOffset, final int length) {
+        if (SIMD) {
+            return Simd.squaredDistance(left, leftOffset, right, rightOffset, length);
+        }
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            final float diff = get(left, leftOffset + i) - right[rightOffset + i];
+            sum = Math.fma(diff, diff, sum);
+        }
+        return sum;
+    }
+
+    /**
+     * destination = left + right
+     */
+    public static void add(final MemorySegment left, final MemorySegment right, final MemorySegment destination,
+                           final int length) {
+        if (SIMD) {
+            Simd.lanewise(left, right, destination, length, false);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            set(destination, i, get(left, i) + get(right, i));
+        }
+    }
+
+    /**
+     * destination = left - right
+     */
+    public static void subtract(final MemorySegment left, final MemorySegment right, final MemorySegment destination,
+                                final int length) {
+        if (SIMD) {
+            Simd.lanewise(left, right, destination, length, true);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            set(destination, i, get(left, i) - get(right, i));
+        }
+    }
+
+    /**
+     * destination = source * amount
+     */
+    public static void scale(final MemorySegment source, final float amount, final MemorySegment destination,
+                             final int length) {
+        if (SIMD) {
+            Simd.scale(source, amount, destination, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            set(destination, i, get(source, i) * amount);
+        }
+    }
+
+    /**
+     * y = alpha * x + y
+     */
+    public static void axpy(final float alpha, final MemorySegment x, final MemorySegment y, final int length) {
+        if (SIMD) {
+            Simd.axpy(alpha, x, y, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            set(y, i, Math.fma(alpha, get(x, i), get(y, i)));
+        }
+    }
+
+    static float get(final MemorySegment segment, final long index) {
+        return segment.getAtIndex(LAYOUT, index);
+    }
+
+    static void set(final MemorySegment segment, final long index, final float value) {
+        segment.setAtIndex(LAYOUT, index, value);
+    }
+
+    private static final class Simd {
+
+        private static final VectorSpecies<Float> SPECIES =
+                ((SimdFloatKernels) FloatKernels.implementation()).species();
+        private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+        static float dotProduct(final MemorySegment left, final long leftOffset, final MemorySegment right,
+                                final long rightOffset, final int length) {
+            final int width = SPECIES.length();
+            final int unrolledLimit = length - (length % (width * 2));
+            final long leftBytes = leftOffset * Float.BYTES;
+            final long rightBytes = rightOffset * Float.BYTES;
+            // Two accumulators since the loads from memory rather than the fma latency tend to be the bottleneck
+            var sum1 = FloatVector.zero(SPECIES);
+            var sum2 = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < unrolledLimit; i += width * 2) {
+                sum1 = load(left, leftBytes, i).fma(load(right, rightBytes, i), sum1);
+                sum2 = load(left, leftBytes, i + width).fma(load(right, rightBytes, i + width), sum2);
+            }
+            for (; i < SPECIES.loopBound(length); i += width) {
+                sum1 = load(left, leftBytes, i).fma(load(right, rightBytes, i), sum1);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                sum2 = load(left, leftBytes, i, mask).fma(load(right, rightBytes, i, mask), sum2);
+            }
+            return sum1.add(sum2).reduceLanes(VectorOperators.ADD);
+        }
+
+        static float dotProduct(final MemorySegment left, final long leftOffset, final float[] right,
+                                final int rightOffset, final int length) {
+            final int width = SPECIES.length();
+            final long leftBytes = leftOffset * Float.BYTES;
+            var sum = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < SPECIES.loopBound(length); i += width) {
+                sum = load(left, leftBytes, i)
+                        .fma(FloatVector.fromArray(SPECIES, right, rightOffset + i), sum);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                sum = load(left, leftBytes, i, mask)
+                        .fma(FloatVector.fromArray(SPECIES, right, rightOffset + i, mask), sum);
+            }
+            return sum.reduceLanes(VectorOperators.ADD);
+        }
+
+        static float squaredDistance(final MemorySegment left, final long leftOffset, final MemorySegment right,
+                                     final long rightOffset, final int length) {
+            final int width = SPECIES.length();
+            final long leftBytes = leftOffset * Float.BYTES;
+            final long rightBytes = rightOffset * Float.BYTES;
+            var sum = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < SPECIES.loopBound(length); i += width) {
+                final var diff = load(left, leftBytes, i).sub(load(right, rightBytes, i));
+                sum = diff.fma(diff, sum);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                final var diff = load(left, leftBytes, i, mask).sub(load(right, rightBytes, i, mask));
+                sum = diff.fma(diff, sum);
+            }
+            return sum.reduceLanes(VectorOperators.ADD);
+        }
+
+        static float squaredDistance(final MemorySegment left, final long leftOffset, final float[] right,
+                                     final int rightOffset, final int length) {
+            final int width = SPECIES.length();
+            final long leftBytes = leftOffset * Float.BYTES;
+            var sum = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < SPECIES.loopBound(length); i += width) {
+                final var diff = load(left, leftBytes, i)
+                        .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i));
+                sum = diff.fma(diff, sum);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                final var diff = load(left, leftBytes, i, mask)
+                        .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i, mask));
+                sum = diff.fma(diff, sum);
+            }
+            return sum.reduceLanes(VectorOperators.ADD);
+        }
+
+        static void lanewise(final MemorySegment left, final MemorySegment right, final MemorySegment destination,
+                             final int length, final boolean subtract) {
+            // Chosen here rather than by the caller so that the outer class never links Vector API types
+            final VectorOperators.Binary operator = subtract ? VectorOperators.SUB : VectorOperators.ADD;
+            final int width = SPECIES.length();
+            int i = 0;
+            for (; i < SPECIES.loopBound(length); i += width) {
+                load(left, 0, i).lanewise(operator, load(right, 0, i))
+                        .intoMemorySegment(destination, (long) i * Float.BYTES, ORDER);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                load(left, 0, i, mask).lanewise(operator, load(right, 0, i, mask))
+                        .intoMemorySegment(destination, (long) i * Float.BYTES, ORDER, mask);
+            }
+        }
+
+        static void scale(final MemorySegment source, final float amount, final MemorySegment destination,
+                          final int length) {
+            final int width = SPECIES.length();
+            int i = 0;
+            for (; i < SPECIES.loopBound(length); i += width) {
+                load(source, 0, i).mul(amount)
+                        .intoMemorySegment(destination, (long) i * Float.BYTES, ORDER);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                load(source, 0, i, mask).mul(amount)
+                        .intoMemorySegment(destination, (long) i * Float.BYTES, ORDER, mask);
+            }
+        }
+
+        static void axpy(final float alpha, final MemorySegment x, final MemorySegment y, final int length) {
+            final int width = SPECIES.length();
+            final var alphas = FloatVector.broadcast(SPECIES, alpha);
+            int i = 0;
+            for (; i < SPECIES.loopBound(length); i += width) {
+                load(x, 0, i).fma(alphas, load(y, 0, i))
+                        .intoMemorySegment(y, (long) i * Float.BYTES, ORDER);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                load(x, 0, i, mask).fma(alphas, load(y, 0, i, mask))
+                        .intoMemorySegment(y, (long) i * Float.BYTES, ORDER, mask);
+            }
+        }
+
+        private static FloatVector load(final MemorySegment segment, final long baseBytes, final int index) {
+            return FloatVector.fromMemorySegment(SPECIES, segment, baseBytes + (long) index * Float.BYTES, ORDER);
+        }
+
+        private static FloatVector load(final MemorySegment segment, final long baseBytes, final int index,
+                                        final VectorMask<Float> mask) {
+            return FloatVector.fromMemorySegment(SPECIES, segment, baseBytes + (long) index * Float.BYTES, ORDER, mask);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+
+import static jaid.collection.SegmentFloatKernels.LAYOUT;
+import static jaid.number.HashingUtil.compressHash;
+
+/**
+ * Vector of float components stored in a {@link MemorySegment} rather than a float[], so when the segment is off-heap
+ * there is no array for the garbage collector to track or copy. Instances are normally slices of a
+ * {@link SegmentVectorArena}, and can only be used until that arena is closed, after which any access throws an
+ * {@link IllegalStateException}. Operations which create a new vector, such as {@link #plus}, return a
+ * {@link FloatsVector} on the heap since the result is usually short-lived, while the methods such as {@link #addInto}
+ * write into a vector which already exists, which may be in an arena.
+ * Dot products and distances also accept a {@link FloatsVector}, and the magnitude is cached in the same way as
+ * {@link FloatsVector}.
+ */
+public final class SegmentFloatsVector implements ForeignFloatsVector {
+
+    private static final double UNKNOWN_MAGNITUDE = -1;
+
+    private final MemorySegment segment;
+    private final int dimensions;
+    /**
+     * Racy single check, recomputing the same value in more than one thread is harmless
+     */
+    private volatile double magnitude = UNKNOWN_MAGNITUDE;
+
+    /**
+     * @param segment the components in native byte order, which are used directly rather than copied
+     */
+    public SegmentFloatsVector(final MemorySegment segment) {
+        Preconditions.checkArgument(segment.byteSize() % Float.BYTES == 0, "Segment must contain whole floats");
+        this.segment = segment;
+        this.dimensions = Math.toIntExact(segment.byteSize() / Float.BYTES);
+    }
+
+    /**
+     * @return a vector with a copy of the values allocated from the arena
+     */
+    public static SegmentFloatsVector copyOf(final float[] values, final Arena arena) {
+        final MemorySegment segment = arena.allocate((long) values.length * Float.BYTES, Float.BYTES);
+        MemorySegment.copy(values, 0, segment, LAYOUT, 0, values.length);
+        return new SegmentFloatsVector(segment);
+    }
+
+    public MemorySegment segment() {
+        return segment;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public float get(final int index) {
+        Preconditions.checkElementIndex(index, dimensions);
+        return SegmentFloatKernels.get(segment, index);
+    }
+
+    public void set(final int index, final float value) {
+        Preconditions.checkElementIndex(index, dimensions);
+        SegmentFloatKernels.set(segment, index, value);
+        magnitude = UNKNOWN_MAGNITUDE;
+    }
+
+    public FloatsVector toFloatsVector() {
+        return new FloatsVector(segment.toArray(LAYOUT));
+    }
+
+    @Override
+    public double angleBetween(final IVector other) {
+        // Clamp to valid domain for acos
+        return Math.acos(Math.min(1.0, Math.max(-1.0, cosineSimilarity(other))));
+    }
+
+    @Override
+    public <T extends IVector> double distance(final T other) {
+        return Math.sqrt(squaredDistance(other));
+    }
+
+    @Override
+    public <T extends IVector> double squaredDistance(final T other) {
+        if (other instanceof FloatsVector dense && dense.contents().length == dimensions) {
+            return SegmentFloatKernels.squaredDistance(segment, 0, dense.contents(), 0, dimensions);
+        }
+        return SegmentFloatKernels.squaredDistance(segment, 0, checkDimensions(other), 0, dimensions);
+    }
+
+    /**
+     * Supports a {@link FloatsVector} as well as another segment vector.
+     */
+    @Override
+    public double dotProduct(final IVector comparedTo) {
+        if (comparedTo instanceof FloatsVector dense && dense.contents().length == dimensions) {
+            return SegmentFloatKernels.dotProduct(segment, 0, dense.contents(), 0, dimensions);
+        }
+        return SegmentFloatKernels.dotProduct(segment, 0, checkDimensions(comparedTo), 0, dimensions);
+    }
+
+    @Override
+    public double magnitude() {
+        double result = magnitude;
+        if (result == UNKNOWN_MAGNITUDE) {
+            result = Math.sqrt(SegmentFloatKernels.sumOfSquares(segment, 0, dimensions));
+            magnitude = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isUnitNormalized() {
+        return magnitude == 1;
+    }
+
+    @Override
+    public <T extends IVector> double meanSquaredError(final T other) {
+        return squaredDistance(other) / dimensions;
+    }
+
+    /**
+     * @return a {@link FloatsVector} on the heap
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T minus(T operand) {
+        final float[] result = segment.toArray(LAYOUT);
+        FloatKernels.subtract(result, checkDimensions(operand).toArray(LAYOUT), result);
+        return (T) new FloatsVector(result);
+    }
+
+    /**
+     * @return a {@link FloatsVector} on the heap
+     */
+    @Override
+    public FloatsVector normalize() {
+        final FloatsVector result = toFloatsVector();
+        result.normalizeInPlace();
+        return result;
+    }
+
+    /**
+     * @return a {@link FloatsVector} on the heap
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T plus(T operand) {
+        final float[] result = segment.toArray(LAYOUT);
+        FloatKernels.add(result, checkDimensions(operand).toArray(LAYOUT), result);
+        return (T) new FloatsVector(result);
+    }
+
+    /**
+     * @return a {@link FloatsVector} on the heap
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T scale(final float amount) {
+        final float[] result = segment.toArray(LAYOUT);
+        FloatKernels.scale(result, amount, result);
+        return (T) new FloatsVector(result);
+    }
+
+    @Override
+    public <T extends IVector> T addInto(final T operand, final T destination) {
+        SegmentFloatKernels.add(segment, checkDimensions(operand), checkDimensions(destination), dimensions);
+        ((SegmentFloatsVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T subtractInto(final T operand, final T destination) {
+        SegmentFloatKernels.subtract(segment, checkDimensions(operand), checkDimensions(destination), dimensions);
+        ((SegmentFloatsVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public <T extends IVector> T scaleInto(final float amount, final T destination) {
+        SegmentFloatKernels.scale(segment, amount, checkDimensions(destination), dimensions);
+        ((SegmentFloatsVector) destination).magnitude = UNKNOWN_MAGNITUDE;
+        return destination;
+    }
+
+    @Override
+    public void scaleInPlace(final float amount) {
+        SegmentFloatKernels.scale(segment, amount, segment, dimensions);
+        magnitude = UNKNOWN_MAGNITUDE;
+    }
+
+    @Override
+    public void axpy(final float alpha, final IVector x) {
+        SegmentFloatKernels.axpy(alpha, checkDimensions(x), segment, dimensions);
+        magnitude = UNKNOWN_MAGNITUDE;
+    }
+
+    @Override
+    public void normalizeInPlace() {
+        final double magnitude = magnitude();
+        if (magnitude != 0 && magnitude != 1) {
+            SegmentFloatKernels.scale(segment, (float) (1 / magnitude), segment, dimensions);
+            this.magnitude = 1;
+        }
+    }
+
+    /**
+     * Gives the same bucket as a {@link FloatsVector} of the same values.
+     */
+    @Override
+    public int getSimHashBucket(byte bits) {
+        // Shortcut - if we want every hash to be the same, then don't compute anything
+        if (bits == 0) {
+            return 0;
+        }
+        int finalHash = 0;
+        for (int i = 0; i < dimensions; i++) {
+            finalHash |= Float.floatToIntBits(SegmentFloatKernels.get(segment, i));
+        }
+        return compressHash(bits, finalHash, (byte)32);
+    }
+
+    @Override
+    public String toString() {
+        return toFloatsVector().toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SegmentFloatsVector that = (SegmentFloatsVector) o;
+        return segment.mismatch(that.segment) == -1;
+    }
+
+    /**
+     * The same as the hash code of the equivalent {@link FloatsVector}.
+     */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < dimensions; i++) {
+            result = 31 * result + Float.floatToIntBits(SegmentFloatKernels.get(segment, i));
+        }
+        return result;
+    }
+
+    private MemorySegment checkDimensions(final IVector other) {
+        if (!(other instanceof SegmentFloatsVector) || dimensions != ((SegmentFloatsVector) other).dimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        return ((SegmentFloatsVector) other).segment;
+    }
+}
@@ -0,0 +1,180 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap storage for {@link SegmentFloatsVector}s which all have the same dimensions. Vectors are allocated by
+ * bumping an offset within large slabs, so each one costs no more than its components, and all of them are freed
+ * together when the arena is closed. Once closed, any vector from the arena throws {@link IllegalStateException} when
+ * used, rather than reading freed memory. Allocating vectors is not threadsafe, but the memory of a shared arena can be
+ * read and written from any thread.
+ * The vectors can be written to a file with {@link #write} and mapped back without copying with {@link #map}, the file
+ * is simply the components of each vector in turn in native byte order.
+ */
+public final class SegmentVectorArena implements AutoCloseable {
+
+    /**
+     * Size of each slab of vectors allocated from the underlying arena
+     */
+    private static final long SLAB_BYTES = 4 << 20;
+
+    private final Arena arena;
+    private final int dimensions;
+    private final long vectorBytes;
+    private final int vectorsPerSlab;
+    private final List<MemorySegment> slabs = new ArrayList<>();
+    /**
+     * Whether the vectors are mapped from a file, in which case no more can be allocated
+     */
+    private final boolean mapped;
+    private int size;
+
+    /**
+     * Creates an arena whose vectors can be read and written from any thread, although vectors must only be allocated
+     * from one thread at a time
+     */
+    public SegmentVectorArena(final int dimensions) {
+        this(dimensions, Arena.ofShared());
+    }
+
+    /**
+     * @param arena the arena to allocate slabs from, which is closed when this is closed
+     */
+    public SegmentVectorArena(final int dimensions, final Arena arena) {
+        this(dimensions, arena, false);
+    }
+
+    private SegmentVectorArena(final int dimensions, final Arena arena, final boolean mapped) {
+        Preconditions.checkArgument(dimensions > 0);
+        this.arena = arena;
+        this.dimensions = dimensions;
+        this.vectorBytes = (long) dimensions * Float.BYTES;
+        this.vectorsPerSlab = (int) Math.max(1, SLAB_BYTES / vectorBytes);
+        this.mapped = mapped;
+    }
+
+    /**
+     * Maps a file written by {@link #write} without copying it, the vectors stay valid until the arena is closed.
+     * @param writable true to allow the mapped vectors to be updated in place, which writes through to the file
+     */
+    public static SegmentVectorArena map(final Path file, final int dimensions, final boolean writable)
+            throws IOException {
+        final Arena arena = Arena.ofShared();
+        final SegmentVectorArena result = new SegmentVectorArena(dimensions, arena, true);
+        try (FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            final long bytes = channel.size();
+            Preconditions.checkArgument(bytes % result.vectorBytes == 0, "File is not a whole number of vectors");
+            final MemorySegment segment = channel.map(writable ? FileChannel.MapMode.READ_WRITE
+                    : FileChannel.MapMode.READ_ONLY, 0, bytes, arena);
+            result.slabs.add(segment);
+            result.size = Math.toIntExact(bytes / result.vectorBytes);
+        } catch (final IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * @return a new zero vector
+     * @throws UnsupportedOperationException if the vectors are mapped from a file
+     */
+    public SegmentFloatsVector allocate() {
+        if (mapped) {
+            throw new UnsupportedOperationException("Cannot allocate in a mapped arena");
+        }
+        final int offsetInSlab = size % vectorsPerSlab;
+        if (offsetInSlab == 0) {
+            // Aligned for the widest vector loads, so vectors of a multiple of 16 floats are all aligned
+            slabs.add(arena.allocate(vectorsPerSlab * vectorBytes, 64));
+        }
+        size++;
+        return new SegmentFloatsVector(slabs.get(slabs.size() - 1).asSlice(offsetInSlab * vectorBytes, vectorBytes));
+    }
+
+    /**
+     * @return a new vector with a copy of the values
+     */
+    public SegmentFloatsVector add(final float[] values) {
+        checkDimensions(values.length);
+        final SegmentFloatsVector vector = allocate();
+        MemorySegment.copy(values, 0, vector.segment(), SegmentFloatKernels.LAYOUT, 0, dimensions);
+        return vector;
+    }
+
+    /**
+     * @return a new vector with a copy of the components of a {@link FloatsVector} or {@link SegmentFloatsVector}
+     */
+    public SegmentFloatsVector add(final IVector vector) {
+        if (vector instanceof FloatsVector floats) {
+            return add(floats.contents());
+        } else if (vector instanceof SegmentFloatsVector segmentVector) {
+            checkDimensions(segmentVector.dimensions());
+            final SegmentFloatsVector copy = allocate();
+            copy.segment().copyFrom(segmentVector.segment());
+            return copy;
+        }
+        throw new IllegalArgumentException("Unsupported vector type " + vector.getClass());
+    }
+
+    /**
+     * @return the vector allocated at the index, in order of allocation
+     */
+    public SegmentFloatsVector get(final int index) {
+        Preconditions.checkElementIndex(index, size);
+        final MemorySegment slab = mapped ? slabs.get(0) : slabs.get(index / vectorsPerSlab);
+        final long offset = mapped ? index * vectorBytes : (index % vectorsPerSlab) * vectorBytes;
+        return new SegmentFloatsVector(slab.asSlice(offset, vectorBytes));
+    }
+
+    /**
+     * Writes every vector to the file in order of allocation, replacing any existing contents
+     */
+    public void write(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            int remaining = size;
+            for (final MemorySegment slab : slabs) {
+                final int count = Math.min(remaining, mapped ? size : vectorsPerSlab);
+                final var buffer = slab.asSlice(0, count * vectorBytes).asByteBuffer();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                remaining -= count;
+            }
+        }
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Frees (or unmaps) every vector in the arena
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    private void checkDimensions(final int length) {
+        if (length != dimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package jaid.collection;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link DoubleKernels} implementation using the Vector API, with the widest species the hardware prefers unless
+ * {@link VectorSupport#configuredBits()} asks for a narrower one. This is only ever loaded reflectively by
+ * {@link VectorSupport}, since linking it requires the jdk.incubator.vector module.
+ */
+final class SimdDoubleKernels implements DoubleKernels.Implementation {
+
+    /**
+     * Static final so that the JIT treats the species as a constant and compiles the kernels to plain vector
+     * instructions.
+     */
+    static final VectorSpecies<Double> SPECIES = chooseSpecies();
+
+    private static VectorSpecies<Double> chooseSpecies() {
+        final int bits = VectorSupport.vectorBits(DoubleVector.SPECIES_PREFERRED.vectorBitSize());
+        return VectorSpecies.of(double.class, VectorShape.forBitSize(bits));
+    }
+
+    @Override
+    public int vectorBits() {
+        return SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public double dotProduct(final double[] left, final int leftOffset, final double[] right, final int rightOffset,
+                            final int length) {
+        // Use unrolled vector calculation based on https://richardstartin.github.io/posts/vector-api-dot-product
+        // This is much faster for large vectors than a Math.fma intrinsic, see DoublesVectorPerformanceTest
+        final int width = SPECIES.length();
+        // Handle case where array length is not a multiple of (width * 4)
+        final int unrolledLimit = length - (length % (width * 4));
+        // Multiple accumulators for better instruction-level parallelism
+        var sum1 = DoubleVector.zero(SPECIES);
+        var sum2 = DoubleVector.zero(SPECIES);
+        var sum3 = DoubleVector.zero(SPECIES);
+        var sum4 = DoubleVector.zero(SPECIES);
+        // Main vectorized loop with 4x unrolling
+        int i = 0;
+        for (; i < unrolledLimit; i += width * 4) {
+            sum1 = DoubleVector.fromArray(SPECIES, left, leftOffset + i)
+                    .fma(DoubleVector.fromArray(SPECIES, right, rightOffset + i), sum1);
+            sum2 = DoubleVector.fromArray(SPECIES, left, leftOffset + i + width)
+                    .fma(DoubleVector.fromArray(SPECIES, right, rightOffset + i + width), sum2);
+            sum3 = DoubleVector.fromArray(SPECIES, left, leftOffset + i + width * 2)
+                    .fma(DoubleVector.fromArray(SPECIES, right, rightOffset + i + width * 2), sum3);
+            sum4 = DoubleVector.fromArray(SPECIES, left, leftOffset + i + width * 3)
+                    .fma(DoubleVector.fromArray(SPECIES, right, rightOffset + i + width * 3), sum4);
+        }
+        // Handle remaining whole vectors, then a final masked vector where the inactive lanes load as zero
+        for (; i < SPECIES.loopBound(length); i += width) {
+            sum1 = DoubleVector.fromArray(SPECIES, left, leftOffset + i)
+                    .fma(DoubleVector.fromArray(SPECIES, right, rightOffset + i), sum1);
+        }
+        if (i < length) {
+            final VectorMask<Double> mask = SPECIES.indexInRange(i, length);
+            sum2 = DoubleVector.fromArray(SPECIES, left, leftOffset + i, mask)
+                    .fma(DoubleVector.fromArray(SPECIES, right, rightOffset + i, mask), sum2);
+        }
+        // Combine all sums
+        return sum1.add(sum2).add(sum3.add(sum4)).reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public void dotProducts(final double[] left, final int leftOffset, final double[][] rights, final int rightOffset,
+                            final int length, final double[] results) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int r = 0;
+        // Four rights at a time, so that every load of the left values feeds four fmas
+        for (; r + 4 <= rights.length; r += 4) {
+            final double[] right1 = rights[r];
+            final double[] right2 = rights[r + 1];
+            final double[] right3 = rights[r + 2];
+            final double[] right4 = rights[r + 3];
+            var sum1 = DoubleVector.zero(SPECIES);
+            var sum2 = DoubleVector.zero(SPECIES);
+            var sum3 = DoubleVector.zero(SPECIES);
+            var sum4 = DoubleVector.zero(SPECIES);
+            int i = 0;
+            for (; i < vectorizableLimit; i += width) {
+                final var values = DoubleVector.fromArray(SPECIES, left, leftOffset + i);
+                sum1 = values.fma(DoubleVector.fromArray(SPECIES, right1, rightOffset + i), sum1);
+                sum2 = values.fma(DoubleVector.fromArray(SPECIES, right2, rightOffset + i), sum2);
+                sum3 = values.fma(DoubleVector.fromArray(SPECIES, right3, rightOffset + i), sum3);
+                sum4 = values.fma(DoubleVector.fromArray(SPECIES, right4, rightOffset + i), sum4);
+            }
+            if (i < length) {
+                final VectorMask<Double> mask = SPECIES.indexInRange(i, length);
+                final var values = DoubleVector.fromArray(SPECIES, left, leftOffset + i, mask);
+                sum1 = values.fma(DoubleVector.fromArray(SPECIES, right1, rightOffset + i, mask), sum1);
+                sum2 = values.fma(DoubleVector.fromArray(SPECIES, right2, rightOffset + i, mask), sum2);
+                sum3 = values.fma(DoubleVector.fromArray(SPECIES, right3, rightOffset + i, mask), sum3);
+                sum4 = values.fma(DoubleVector.fromArray(SPECIES, right4, rightOffset + i, mask), sum4);
+            }
+            results[r] = sum1.reduceLanes(VectorOperators.ADD);
+            results[r + 1] = sum2.reduceLanes(VectorOperators.ADD);
+            results[r + 2] = sum3.reduceLanes(VectorOperators.ADD);
+            results[r + 3] = sum4.reduceLanes(VectorOperators.ADD);
+        }
+        for (; r < rights.length; r++) {
+            results[r] = dotProduct(left, leftOffset, rights[r], rightOffset, length);
+        }
+    }
+
+    @Override
+    public void dotProductRows(final double[] left, final int leftOffset, final double[] matrix, final int matrixOffset,
+                               final int stride, final int rows, final int length, final double[] results,
+                               final int resultsOffset) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int r = 0;
+        // A 1x4 register tile, each load of the left values feeds an fma for four rows of the matrix
+        for (; r + 4 <= rows; r += 4) {
+            final int offset1 = matrixOffset + r * stride;
+            final int offset2 = offset1 + stride;
+            final int offset3 = offset2 + stride;
+            final int offset4 = offset3 + stride;
+            var sum1 = DoubleVector.zero(SPECIES);
+            var sum2 = DoubleVector.zero(SPECIES);
+            var sum3 = DoubleVector.zero(SPECIES);
+            var sum4 = DoubleVector.zero(SPECIES);
+            int i = 0;
+            for (; i < vectorizableLimit; i += width) {
+                final var values = DoubleVector.fromArray(SPECIES, left, leftOffset + i);
+                sum1 = values.fma(DoubleVector.fromArray(SPECIES, matrix, offset1 + i), sum1);
+                sum2 = values.fma(DoubleVector.fromArray(SPECIES, matrix, offset2 + i), sum2);
+                sum3 = values.fma(DoubleVector.fromArray(SPECIES, matrix, offset3 + i), sum3);
+                sum4 = values.fma(DoubleVector.fromArray(SPECIES, matrix, offset4 + i), sum4);
+            }
+            if (i < length) {
+                final VectorMask<Double> mask = SPECIES.indexInRange(i, length);
+                final var values = DoubleVector.fromArray(SPECIES, left, leftOffset + i, mask);
+                sum1 = values.fma(DoubleVector.fromArray(SPECIES, matrix, offset1 + i, mask), sum1);
+                sum2 = values.fma(DoubleVector.fromArray(SPECIES, matrix, offset2 + i, mask), sum2);
+                sum3 = values.fma(DoubleVector.fromArray(SPECIES, matrix, offset3 + i, mask), sum3);
+                sum4 = values.fma(DoubleVector.fromArray(SPECIES, matrix, offset4 + i, mask), sum4);
+            }
+            results[resultsOffset + r] = sum1.reduceLanes(VectorOperators.ADD);
+            results[resultsOffset + r + 1] = sum2.reduceLanes(VectorOperators.ADD);
+            results[resultsOffset + r + 2] = sum3.reduceLanes(VectorOperators.ADD);
+            results[resultsOffset + r + 3] = sum4.reduceLanes(VectorOperators.ADD);
+        }
+        for (; r < rows; r++) {
+            results[resultsOffset + r] = dotProduct(left, leftOffset, matrix, matrixOffset + r * stride, length);
+        }
+    }
+
+    @Override
+    public double sumOfSquares(final double[] values, final int offset, final int length) {
+        final int width = SPECIES.length();
+        final int unrolledLimit = length - (length % (width * 4));
+        var sum1 = DoubleVector.zero(SPECIES);
+        var sum2 = DoubleVector.zero(SPECIES);
+        var sum3 = DoubleVector.zero(SPECIES);
+        var sum4 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < unrolledLimit; i += width * 4) {
+            final var v1 = DoubleVector.fromArray(SPECIES, values, offset + i);
+            final var v2 = DoubleVector.fromArray(SPECIES, values, offset + i + width);
+            final var v3 = DoubleVector.fromArray(SPECIES, values, offset + i + width * 2);
+            final var v4 = DoubleVector.fromArray(SPECIES, values, offset + i + width * 3);
+            sum1 = v1.fma(v1, sum1);
+            sum2 = v2.fma(v2, sum2);
+            sum3 = v3.fma(v3, sum3);
+            sum4 = v4.fma(v4, sum4);
+        }
+        for (; i < SPECIES.loopBound(length); i += width) {
+            final var v = DoubleVector.fromArray(SPECIES, values, offset + i);
+            sum1 = v.fma(v, sum1);
+        }
+        if (i < length) {
+            final var v = DoubleVector.fromArray(SPECIES, values, offset + i, SPECIES.indexInRange(i, length));
+            sum2 = v.fma(v, sum2);
+        }
+        return sum1.add(sum2).add(sum3.add(sum4)).reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public double squaredDistance(final double[] left, final int leftOffset, final double[] right,
+                                  final int rightOffset, final int length) {
+        final int width = SPECIES.length();
+        final int unrolledLimit = length - (length % (width * 4));
+        var sum1 = DoubleVector.zero(SPECIES);
+        var sum2 = DoubleVector.zero(SPECIES);
+        var sum3 = DoubleVector.zero(SPECIES);
+        var sum4 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i < unrolledLimit; i += width * 4) {
+            final var diff1 = DoubleVector.fromArray(SPECIES, left, leftOffset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, right, rightOffset + i));
+            final var diff2 = DoubleVector.fromArray(SPECIES, left, leftOffset + i + width)
+                    .sub(DoubleVector.fromArray(SPECIES, right, rightOffset + i + width));
+            final var diff3 = DoubleVector.fromArray(SPECIES, left, leftOffset + i + width * 2)
+                    .sub(DoubleVector.fromArray(SPECIES, right, rightOffset + i + width * 2));
+            final var diff4 = DoubleVector.fromArray(SPECIES, left, leftOffset + i + width * 3)
+                    .sub(DoubleVector.fromArray(SPECIES, right, rightOffset + i + width * 3));
+            sum1 = diff1.fma(diff1, sum1);
+            sum2 = diff2.fma(diff2, sum2);
+            sum3 = diff3.fma(diff3, sum3);
+            sum4 = diff4.fma(diff4, sum4);
+        }
+        for (; i < SPECIES.loopBound(length); i += width) {
+            final var diff = DoubleVector.fromArray(SPECIES, left, leftOffset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, right, rightOffset + i));
+            sum1 = diff.fma(diff, sum1);
+        }
+        if (i < length) {
+            final VectorMask<Double> mask = SPECIES.indexInRange(i, length);
+            final var diff = DoubleVector.fromArray(SPECIES, left, leftOffset + i, mask)
+                    .sub(DoubleVector.fromArray(SPECIES, right, rightOffset + i, mask));
+            sum2 = diff.fma(diff, sum2);
+        }
+        return sum1.add(sum2).add(sum3.add(sum4)).reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public void add(final double[] left, final int leftOffset, final double[] right, final int rightOffset,
+                    final double[] destination, final int destinationOffset, final int length) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < vectorizableLimit; i += width) {
+            DoubleVector.fromArray(SPECIES, left, leftOffset + i)
+                    .add(DoubleVector.fromArray(SPECIES, right, rightOffset + i))
+                    .intoArray(destination, destinationOffset + i);
+        }
+        if (i < length) {
+            // Masking the final partial vector avoids a separate scalar loop for the tail
+            final VectorMask<Double> mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, left, leftOffset + i, mask)
+                    .add(DoubleVector.fromArray(SPECIES, right, rightOffset + i, mask))
+                    .intoArray(destination, destinationOffset + i, mask);
+        }
+    }
+
+    @Override
+    public void subtract(final double[] left, final int leftOffset, final double[] right, final int rightOffset,
+                         final double[] destination, final int destinationOffset, final int length) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < vectorizableLimit; i += width) {
+            DoubleVector.fromArray(SPECIES, left, leftOffset + i)
+                    .sub(DoubleVector.fromArray(SPECIES, right, rightOffset + i))
+                    .intoArray(destination, destinationOffset + i);
+        }
+        if (i < length) {
+            final VectorMask<Double> mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, left, leftOffset + i, mask)
+                    .sub(DoubleVector.fromArray(SPECIES, right, rightOffset + i, mask))
+                    .intoArray(destination, destinationOffset + i, mask);
+        }
+    }
+
+    @Override
+    public void scale(final double[] source, final int sourceOffset, final double amount, final double[] destination,
+                      final int destinationOffset, final int length) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < vectorizableLimit; i += width) {
+            DoubleVector.fromArray(SPECIES, source, sourceOffset + i)
+                    .mul(amount)
+                    .intoArray(destination, destinationOffset + i);
+        }
+        if (i < length) {
+            final VectorMask<Double> mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, source, sourceOffset + i, mask)
+                    .mul(amount)
+                    .intoArray(destination, destinationOffset + i, mask);
+        }
+    }
+
+    @Override
+    public void axpy(final double alpha, final double[] x, final int xOffset, final double[] y, final int yOffset,
+                     final int length) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        final var alphas = DoubleVector.broadcast(SPECIES, alpha);
+        int i = 0;
+        for (; i < vectorizableLimit; i += width) {
+            DoubleVector.fromArray(SPECIES, x, xOffset + i)
+                    .fma(alphas, DoubleVector.fromArray(SPECIES, y, yOffset + i))
+                    .intoArray(y, yOffset + i);
+        }
+        if (i < length) {
+            final VectorMask<Double> mask = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, x, xOffset + i, mask)
+                    .fma(alphas, DoubleVector.fromArray(SPECIES, y, yOffset + i, mask))
+                    .intoArray(y, yOffset + i, mask);
+        }
+    }
+
+    @Override
+    public void multiplyAdd(final double[] left, final int leftOffset, final int leftStride, final double[] right,
+                            final int rightOffset, final int rightStride, final int rows, final int depth,
+                            final int columns, final double[] results, final int resultsOffset,
+                            final int resultsStride) {
+        final int width = SPECIES.length();
+        int r = 0;
+        // A 4x2 register tile of result vectors is loaded once, accumulated over the whole depth with each load of
+        // the right values feeding four rows, and stored once
+        for (; r + 4 <= rows; r += 4) {
+            final int left1 = leftOffset + r * leftStride;
+            final int left2 = left1 + leftStride;
+            final int left3 = left2 + leftStride;
+            final int left4 = left3 + leftStride;
+            final int results1 = resultsOffset + r * resultsStride;
+            final int results2 = results1 + resultsStride;
+            final int results3 = results2 + resultsStride;
+            final int results4 = results3 + resultsStride;
+            int j = 0;
+            for (; j + 2 * width <= columns; j += 2 * width) {
+                var sum11 = DoubleVector.fromArray(SPECIES, results, results1 + j);
+                var sum12 = DoubleVector.fromArray(SPECIES, results, results1 + j + width);
+                var sum21 = DoubleVector.fromArray(SPECIES, results, results2 + j);
+                var sum22 = DoubleVector.fromArray(SPECIES, results, results2 + j + width);
+                var sum31 = DoubleVector.fromArray(SPECIES, results, results3 + j);
+                var sum32 = DoubleVector.fromArray(SPECIES, results, results3 + j + width);
+                var sum41 = DoubleVector.fromArray(SPECIES, results, results4 + j);
+                var sum42 = DoubleVector.fromArray(SPECIES, results, results4 + j + width);
+                for (int k = 0; k < depth; k++) {
+                    final int offset = rightOffset + k * rightStride + j;
+                    final var values1 = DoubleVector.fromArray(SPECIES, right, offset);
+                    final var values2 = DoubleVector.fromArray(SPECIES, right, offset + width);
+                    final var alpha1 = DoubleVector.broadcast(SPECIES, left[left1 + k]);
+                    sum11 = values1.fma(alpha1, sum11);
+                    sum12 = values2.fma(alpha1, sum12);
+                    final var alpha2 = DoubleVector.broadcast(SPECIES, left[left2 + k]);
+                    sum21 = values1.fma(alpha2, sum21);
+                    sum22 = values2.fma(alpha2, sum22);
+                    final var alpha3 = DoubleVector.broadcast(SPECIES, left[left3 + k]);
+                    sum31 = values1.fma(alpha3, sum31);
+                    sum32 = values2.fma(alpha3, sum32);
+                    final var alpha4 = DoubleVector.broadcast(SPECIES, left[left4 + k]);
+                    sum41 = values1.fma(alpha4, sum41);
+                    sum42 = values2.fma(alpha4, sum42);
+                }
+                sum11.intoArray(results, results1 + j);
+                sum12.intoArray(results, results1 + j + width);
+                sum21.intoArray(results, results2 + j);
+                sum22.intoArray(results, results2 + j + width);
+                sum31.intoArray(results, results3 + j);
+                sum32.intoArray(results, results3 + j + width);
+                sum41.intoArray(results, results4 + j);
+                sum42.intoArray(results, results4 + j + width);
+            }
+            // The remaining columns a single, possibly masked, vector at a time
+            for (; j < columns; j += width) {
+                final VectorMask<Double> mask = SPECIES.indexInRange(j, columns);
+                var sum1 = DoubleVector.fromArray(SPECIES, results, results1 + j, mask);
+                var sum2 = DoubleVector.fromArray(SPECIES, results, results2 + j, mask);
+                var sum3 = DoubleVector.fromArray(SPECIES, results, results3 + j, mask);
+                var sum4 = DoubleVector.fromArray(SPECIES, results, results4 + j, mask);
+                for (int k = 0; k < depth; k++) {
+                    final var values = DoubleVector.fromArray(SPECIES, right, rightOffset + k * rightStride + j, mask);
+                    sum1 = values.fma(DoubleVector.broadcast(SPECIES, left[left1 + k]), sum1);
+                    sum2 = values.fma(DoubleVector.broadcast(SPECIES, left[left2 + k]), sum2);
+                    sum3 = values.fma(DoubleVector.broadcast(SPECIES, left[left3 + k]), sum3);
+                    sum4 = values.fma(DoubleVector.broadcast(SPECIES, left[left4 + k]), sum4);
+                }
+                sum1.intoArray(results, results1 + j, mask);
+                sum2.intoArray(results, results2 + j, mask);
+                sum3.intoArray(results, results3 + j, mask);
+                sum4.intoArray(results, results4 + j, mask);
+            }
+        }
+        for (; r < rows; r++) {
+            for (int k = 0; k < depth; k++) {
+                axpy(left[leftOffset + r * leftStride + k], right, rightOffset + k * rightStride, results,
+                        resultsOffset + r * resultsStride, columns);
+            }
+        }
+    }
+}
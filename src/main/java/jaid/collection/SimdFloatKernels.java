@@ -0,0 +1,528 @@
+package jaid.collection;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link FloatKernels} implementation using the Vector API, with the widest species the hardware prefers unless
+ * {@link VectorSupport#configuredBits()} asks for a narrower one. This is only ever loaded reflectively by
+ * {@link VectorSupport}, since linking it requires the jdk.incubator.vector module.
+ */
+final class SimdFloatKernels implements FloatKernels.Implementation {
+
+    /**
+     * Static final so that the JIT treats the species as a constant and compiles the kernels to plain vector
+     * instructions.
+     */
+    static final VectorSpecies<Float> SPECIES = chooseSpecies();
+
+    private static VectorSpecies<Float> chooseSpecies() {
+        final int bits = VectorSupport.vectorBits(FloatVector.SPECIES_PREFERRED.vectorBitSize());
+        return VectorSpecies.of(float.class, VectorShape.forBitSize(bits));
+    }
+
+    /**
+     * @return the species used, for other Vector API kernels to match
+     */
+    VectorSpecies<Float> species() {
+        return SPECIES;
+    }
+
+    @Override
+    public int vectorBits() {
+        return SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public float dotProduct(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                            final int length) {
+        // Use unrolled vector calculation based on https://richardstartin.github.io/posts/vector-api-dot-product
+        // This is much faster for large vectors than a Math.fma intrinsic, see DoublesVectorPerformanceTest
+        final int width = SPECIES.length();
+        // Handle case where array length is not a multiple of (width * 4)
+        final int unrolledLimit = length - (length % (width * 4));
+        // Multiple accumulators for better instruction-level parallelism
+        var sum1 = FloatVector.zero(SPECIES);
+        var sum2 = FloatVector.zero(SPECIES);
+        var sum3 = FloatVector.zero(SPECIES);
+        var sum4 = FloatVector.zero(SPECIES);
+        // Main vectorized loop with 4x unrolling
+        int i = 0;
+        for (; i < unrolledLimit; i += width * 4) {
+            sum1 = FloatVector.fromArray(SPECIES, left, leftOffset + i)
+                    .fma(FloatVector.fromArray(SPECIES, right, rightOffset + i), sum1);
+            sum2 = FloatVector.fromArray(SPECIES, left, leftOffset + i + width)
+                    .fma(FloatVector.fromArray(SPECIES, right, rightOffset + i + width), sum2);
+            sum3 = FloatVector.fromArray(SPECIES, left, leftOffset + i + width * 2)
+                    .fma(FloatVector.fromArray(SPECIES, right, rightOffset + i + width * 2), sum3);
+            sum4 = FloatVector.fromArray(SPECIES, left, leftOffset + i + width * 3)
+                    .fma(FloatVector.fromArray(SPECIES, right, rightOffset + i + width * 3), sum4);
+        }
+        // Handle remaining whole vectors, then a final masked vector where the inactive lanes load as zero
+        for (; i < SPECIES.loopBound(length); i += width) {
+            sum1 = FloatVector.fromArray(SPECIES, left, leftOffset + i)
+                    .fma(FloatVector.fromArray(SPECIES, right, rightOffset + i), sum1);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            sum2 = FloatVector.fromArray(SPECIES, left, leftOffset + i, mask)
+                    .fma(FloatVector.fromArray(SPECIES, right, rightOffset + i, mask), sum2);
+        }
+        // Combine all sums
+        return sum1.add(sum2).add(sum3.add(sum4)).reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public void dotProducts(final float[] left, final int leftOffset, final float[][] rights, final int rightOffset,
+                            final int length, final float[] results) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int r = 0;
+        // Four rights at a time, so that every load of the left values feeds four fmas
+        for (; r + 4 <= rights.length; r += 4) {
+            final float[] right1 = rights[r];
+            final float[] right2 = rights[r + 1];
+            final float[] right3 = rights[r + 2];
+            final float[] right4 = rights[r + 3];
+            var sum1 = FloatVector.zero(SPECIES);
+            var sum2 = FloatVector.zero(SPECIES);
+            var sum3 = FloatVector.zero(SPECIES);
+            var sum4 = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < vectorizableLimit; i += width) {
+                final var values = FloatVector.fromArray(SPECIES, left, leftOffset + i);
+                sum1 = values.fma(FloatVector.fromArray(SPECIES, right1, rightOffset + i), sum1);
+                sum2 = values.fma(FloatVector.fromArray(SPECIES, right2, rightOffset + i), sum2);
+                sum3 = values.fma(FloatVector.fromArray(SPECIES, right3, rightOffset + i), sum3);
+                sum4 = values.fma(FloatVector.fromArray(SPECIES, right4, rightOffset + i), sum4);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                final var values = FloatVector.fromArray(SPECIES, left, leftOffset + i, mask);
+                sum1 = values.fma(FloatVector.fromArray(SPECIES, right1, rightOffset + i, mask), sum1);
+                sum2 = values.fma(FloatVector.fromArray(SPECIES, right2, rightOffset + i, mask), sum2);
+                sum3 = values.fma(FloatVector.fromArray(SPECIES, right3, rightOffset + i, mask), sum3);
+                sum4 = values.fma(FloatVector.fromArray(SPECIES, right4, rightOffset + i, mask), sum4);
+            }
+            results[r] = sum1.reduceLanes(VectorOperators.ADD);
+            results[r + 1] = sum2.reduceLanes(VectorOperators.ADD);
+            results[r + 2] = sum3.reduceLanes(VectorOperators.ADD);
+            results[r + 3] = sum4.reduceLanes(VectorOperators.ADD);
+        }
+        for (; r < rights.length; r++) {
+            results[r] = dotProduct(left, leftOffset, rights[r], rightOffset, length);
+        }
+    }
+
+    @Override
+    public void dotProductRows(final float[] left, final int leftOffset, final float[] matrix, final int matrixOffset,
+                               final int stride, final int rows, final int length, final float[] results,
+                               final int resultsOffset) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int r = 0;
+        // A 1x4 register tile, each load of the left values feeds an fma for four rows of the matrix
+        for (; r + 4 <= rows; r += 4) {
+            final int offset1 = matrixOffset + r * stride;
+            final int offset2 = offset1 + stride;
+            final int offset3 = offset2 + stride;
+            final int offset4 = offset3 + stride;
+            var sum1 = FloatVector.zero(SPECIES);
+            var sum2 = FloatVector.zero(SPECIES);
+            var sum3 = FloatVector.zero(SPECIES);
+            var sum4 = FloatVector.zero(SPECIES);
+            int i = 0;
+            for (; i < vectorizableLimit; i += width) {
+                final var values = FloatVector.fromArray(SPECIES, left, leftOffset + i);
+                sum1 = values.fma(FloatVector.fromArray(SPECIES, matrix, offset1 + i), sum1);
+                sum2 = values.fma(FloatVector.fromArray(SPECIES, matrix, offset2 + i), sum2);
+                sum3 = values.fma(FloatVector.fromArray(SPECIES, matrix, offset3 + i), sum3);
+                sum4 = values.fma(FloatVector.fromArray(SPECIES, matrix, offset4 + i), sum4);
+            }
+            if (i < length) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+                final var values = FloatVector.fromArray(SPECIES, left, leftOffset + i, mask);
+                sum1 = values.fma(FloatVector.fromArray(SPECIES, matrix, offset1 + i, mask), sum1);
+                sum2 = values.fma(FloatVector.fromArray(SPECIES, matrix, offset2 + i, mask), sum2);
+                sum3 = values.fma(FloatVector.fromArray(SPECIES, matrix, offset3 + i, mask), sum3);
+                sum4 = values.fma(FloatVector.fromArray(SPECIES, matrix, offset4 + i, mask), sum4);
+            }
+            results[resultsOffset + r] = sum1.reduceLanes(VectorOperators.ADD);
+            results[resultsOffset + r + 1] = sum2.reduceLanes(VectorOperators.ADD);
+            results[resultsOffset + r + 2] = sum3.reduceLanes(VectorOperators.ADD);
+            results[resultsOffset + r + 3] = sum4.reduceLanes(VectorOperators.ADD);
+        }
+        for (; r < rows; r++) {
+            results[resultsOffset + r] = dotProduct(left, leftOffset, matrix, matrixOffset + r * stride, length);
+        }
+    }
+
+    @Override
+    public float sumOfSquares(final float[] values, final int offset, final int length) {
+        final int width = SPECIES.length();
+        final int unrolledLimit = length - (length % (width * 4));
+        var sum1 = FloatVector.zero(SPECIES);
+        var sum2 = FloatVector.zero(SPECIES);
+        var sum3 = FloatVector.zero(SPECIES);
+        var sum4 = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < unrolledLimit; i += width * 4) {
+            final var v1 = FloatVector.fromArray(SPECIES, values, offset + i);
+            final var v2 = FloatVector.fromArray(SPECIES, values, offset + i + width);
+            final var v3 = FloatVector.fromArray(SPECIES, values, offset + i + width * 2);
+            final var v4 = FloatVector.fromArray(SPECIES, values, offset + i + width * 3);
+            sum1 = v1.fma(v1, sum1);
+            sum2 = v2.fma(v2, sum2);
+            sum3 = v3.fma(v3, sum3);
+            sum4 = v4.fma(v4, sum4);
+        }
+        for (; i < SPECIES.loopBound(length); i += width) {
+            final var v = FloatVector.fromArray(SPECIES, values, offset + i);
+            sum1 = v.fma(v, sum1);
+        }
+        if (i < length) {
+            final var v = FloatVector.fromArray(SPECIES, values, offset + i, SPECIES.indexInRange(i, length));
+            sum2 = v.fma(v, sum2);
+        }
+        return sum1.add(sum2).add(sum3.add(sum4)).reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public float squaredDistance(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                                 final int length) {
+        final int width = SPECIES.length();
+        final int unrolledLimit = length - (length % (width * 4));
+        var sum1 = FloatVector.zero(SPECIES);
+        var sum2 = FloatVector.zero(SPECIES);
+        var sum3 = FloatVector.zero(SPECIES);
+        var sum4 = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < unrolledLimit; i += width * 4) {
+            final var diff1 = FloatVector.fromArray(SPECIES, left, leftOffset + i)
+                    .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i));
+            final var diff2 = FloatVector.fromArray(SPECIES, left, leftOffset + i + width)
+                    .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i + width));
+            final var diff3 = FloatVector.fromArray(SPECIES, left, leftOffset + i + width * 2)
+                    .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i + width * 2));
+            final var diff4 = FloatVector.fromArray(SPECIES, left, leftOffset + i + width * 3)
+                    .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i + width * 3));
+            sum1 = diff1.fma(diff1, sum1);
+            sum2 = diff2.fma(diff2, sum2);
+            sum3 = diff3.fma(diff3, sum3);
+            sum4 = diff4.fma(diff4, sum4);
+        }
+        for (; i < SPECIES.loopBound(length); i += width) {
+            final var diff = FloatVector.fromArray(SPECIES, left, leftOffset + i)
+                    .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i));
+            sum1 = diff.fma(diff, sum1);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            final var diff = FloatVector.fromArray(SPECIES, left, leftOffset + i, mask)
+                    .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i, mask));
+            sum2 = diff.fma(diff, sum2);
+        }
+        return sum1.add(sum2).add(sum3.add(sum4)).reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public void add(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                    final float[] destination, final int destinationOffset, final int length) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < vectorizableLimit; i += width) {
+            FloatVector.fromArray(SPECIES, left, leftOffset + i)
+                    .add(FloatVector.fromArray(SPECIES, right, rightOffset + i))
+                    .intoArray(destination, destinationOffset + i);
+        }
+        if (i < length) {
+            // Masking the final partial vector avoids a separate scalar loop for the tail
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            FloatVector.fromArray(SPECIES, left, leftOffset + i, mask)
+                    .add(FloatVector.fromArray(SPECIES, right, rightOffset + i, mask))
+                    .intoArray(destination, destinationOffset + i, mask);
+        }
+    }
+
+    @Override
+    public void subtract(final float[] left, final int leftOffset, final float[] right, final int rightOffset,
+                         final float[] destination, final int destinationOffset, final int length) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < vectorizableLimit; i += width) {
+            FloatVector.fromArray(SPECIES, left, leftOffset + i)
+                    .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i))
+                    .intoArray(destination, destinationOffset + i);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            FloatVector.fromArray(SPECIES, left, leftOffset + i, mask)
+                    .sub(FloatVector.fromArray(SPECIES, right, rightOffset + i, mask))
+                    .intoArray(destination, destinationOffset + i, mask);
+        }
+    }
+
+    @Override
+    public void scale(final float[] source, final int sourceOffset, final float amount, final float[] destination,
+                      final int destinationOffset, final int length) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < vectorizableLimit; i += width) {
+            FloatVector.fromArray(SPECIES, source, sourceOffset + i)
+                    .mul(amount)
+                    .intoArray(destination, destinationOffset + i);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            FloatVector.fromArray(SPECIES, source, sourceOffset + i, mask)
+                    .mul(amount)
+                    .intoArray(destination, destinationOffset + i, mask);
+        }
+    }
+
+    @Override
+    public void axpy(final float alpha, final float[] x, final int xOffset, final float[] y, final int yOffset,
+                     final int length) {
+        final int width = SPECIES.length();
+        final int vectorizableLimit = SPECIES.loopBound(length);
+        final var alphas = FloatVector.broadcast(SPECIES, alpha);
+        int i = 0;
+        for (; i < vectorizableLimit; i += width) {
+            FloatVector.fromArray(SPECIES, x, xOffset + i)
+                    .fma(alphas, FloatVector.fromArray(SPECIES, y, yOffset + i))
+                    .intoArray(y, yOffset + i);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            FloatVector.fromArray(SPECIES, x, xOffset + i, mask)
+                    .fma(alphas, FloatVector.fromArray(SPECIES, y, yOffset + i, mask))
+                    .intoArray(y, yOffset + i, mask);
+        }
+    }
+
+    @Override
+    public void multiplyAdd(final float[] left, final int leftOffset, final int leftStride, final float[] right,
+                            final int rightOffset, final int rightStride, final int rows, final int depth,
+                            final int columns, final float[] results, final int resultsOffset,
+                            final int resultsStride) {
+        final int width = SPECIES.length();
+        int r = 0;
+        // A 4x2 register tile of result vectors is loaded once, accumulated over the whole depth with each load of
+        // the right values feeding four rows, and stored once
+        for (; r + 4 <= rows; r += 4) {
+            final int left1 = leftOffset + r * leftStride;
+            final int left2 = left1 + leftStride;
+            final int left3 = left2 + leftStride;
+            final int left4 = left3 + leftStride;
+            final int results1 = resultsOffset + r * resultsStride;
+            final int results2 = results1 + resultsStride;
+            final int results3 = results2 + resultsStride;
+            final int results4 = results3 + resultsStride;
+            int j = 0;
+            for (; j + 2 * width <= columns; j += 2 * width) {
+                var sum11 = FloatVector.fromArray(SPECIES, results, results1 + j);
+                var sum12 = FloatVector.fromArray(SPECIES, results, results1 + j + width);
+                var sum21 = FloatVector.fromArray(SPECIES, results, results2 + j);
+                var sum22 = FloatVector.fromArray(SPECIES, results, results2 + j + width);
+                var sum31 = FloatVector.fromArray(SPECIES, results, results3 + j);
+                var sum32 = FloatVector.fromArray(SPECIES, results, results3 + j + width);
+                var sum41 = FloatVector.fromArray(SPECIES, results, results4 + j);
+                var sum42 = FloatVector.fromArray(SPECIES, results, results4 + j + width);
+                for (int k = 0; k < depth; k++) {
+                    final int offset = rightOffset + k * rightStride + j;
+                    final var values1 = FloatVector.fromArray(SPECIES, right, offset);
+                    final var values2 = FloatVector.fromArray(SPECIES, right, offset + width);
+                    final var alpha1 = FloatVector.broadcast(SPECIES, left[left1 + k]);
+                    sum11 = values1.fma(alpha1, sum11);
+                    sum12 = values2.fma(alpha1, sum12);
+                    final var alpha2 = FloatVector.broadcast(SPECIES, left[left2 + k]);
+                    sum21 = values1.fma(alpha2, sum21);
+                    sum22 = values2.fma(alpha2, sum22);
+                    final var alpha3 = FloatVector.broadcast(SPECIES, left[left3 + k]);
+                    sum31 = values1.fma(alpha3, sum31);
+                    sum32 = values2.fma(alpha3, sum32);
+                    final var alpha4 = FloatVector.broadcast(SPECIES, left[left4 + k]);
+                    sum41 = values1.fma(alpha4, sum41);
+                    sum42 = values2.fma(alpha4, sum42);
+                }
+                sum11.intoArray(results, results1 + j);
+                sum12.intoArray(results, results1 + j + width);
+                sum21.intoArray(results, results2 + j);
+                sum22.intoArray(results, results2 + j + width);
+                sum31.intoArray(results, results3 + j);
+                sum32.intoArray(results, results3 + j + width);
+                sum41.intoArray(results, results4 + j);
+                sum42.intoArray(results, results4 + j + width);
+            }
+            // The remaining columns a single, possibly masked, vector at a time
+            for (; j < columns; j += width) {
+                final VectorMask<Float> mask = SPECIES.indexInRange(j, columns);
+                var sum1 = FloatVector.fromArray(SPECIES, results, results1 + j, mask);
+                var sum2 = FloatVector.fromArray(SPECIES, results, results2 + j, mask);
+                var sum3 = FloatVector.fromArray(SPECIES, results, results3 + j, mask);
+                var sum4 = FloatVector.fromArray(SPECIES, results, results4 + j, mask);
+                for (int k = 0; k < depth; k++) {
+                    final var values = FloatVector.fromArray(SPECIES, right, rightOffset + k * rightStride + j, mask);
+                    sum1 = values.fma(FloatVector.broadcast(SPECIES, left[left1 + k]), sum1);
+                    sum2 = values.fma(FloatVector.broadcast(SPECIES, left[left2 + k]), sum2);
+                    sum3 = values.fma(FloatVector.broadcast(SPECIES, left[left3 + k]), sum3);
+                    sum4 = values.fma(FloatVector.broadcast(SPECIES, left[left4 + k]), sum4);
+                }
+                sum1.intoArray(results, results1 + j, mask);
+                sum2.intoArray(results, results2 + j, mask);
+                sum3.intoArray(results, results3 + j, mask);
+                sum4.intoArray(results, results4 + j, mask);
+            }
+        }
+        for (; r < rows; r++) {
+            for (int k = 0; k < depth; k++) {
+                axpy(left[leftOffset + r * leftStride + k], right, rightOffset + k * rightStride, results,
+                        resultsOffset + r * resultsStride, columns);
+            }
+        }
+    }
+
+    @Override
+    public void combine(final float[][] terms, final int[] offsets, final float[] coefficients,
+                        final float[] destination, final int destinationOffset, final int length) {
+        final int width = SPECIES.length();
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += width) {
+            combined(terms, offsets, coefficients, i).intoArray(destination, destinationOffset + i);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            combined(terms, offsets, coefficients, i, mask).intoArray(destination, destinationOffset + i, mask);
+        }
+    }
+
+    @Override
+    public float combineDotProduct(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                   final float[] other, final int otherOffset, final int length) {
+        final int width = SPECIES.length();
+        var sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += width) {
+            sum = combined(terms, offsets, coefficients, i)
+                    .fma(FloatVector.fromArray(SPECIES, other, otherOffset + i), sum);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            sum = combined(terms, offsets, coefficients, i, mask)
+                    .fma(FloatVector.fromArray(SPECIES, other, otherOffset + i, mask), sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public float combineSumOfSquares(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                     final int length) {
+        final int width = SPECIES.length();
+        var sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += width) {
+            final var value = combined(terms, offsets, coefficients, i);
+            sum = value.fma(value, sum);
+        }
+        if (i < length) {
+            final var value = combined(terms, offsets, coefficients, i, SPECIES.indexInRange(i, length));
+            sum = value.fma(value, sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public void biasActivation(final float[] values, final int offset, final float[] bias, final int biasOffset,
+                               final int length, final Activation activation) {
+        final int width = SPECIES.length();
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += width) {
+            activate(FloatVector.fromArray(SPECIES, values, offset + i)
+                    .add(FloatVector.fromArray(SPECIES, bias, biasOffset + i)), activation)
+                    .intoArray(values, offset + i);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            activate(FloatVector.fromArray(SPECIES, values, offset + i, mask)
+                    .add(FloatVector.fromArray(SPECIES, bias, biasOffset + i, mask)), activation)
+                    .intoArray(values, offset + i, mask);
+        }
+    }
+
+    @Override
+    public void activationGradient(final float[] outputs, final int outputsOffset, final float[] gradients,
+                                   final int gradientsOffset, final int length, final Activation activation) {
+        if (activation == Activation.IDENTITY) {
+            return;
+        }
+        final int width = SPECIES.length();
+        int i = 0;
+        for (; i < SPECIES.loopBound(length); i += width) {
+            derivative(FloatVector.fromArray(SPECIES, outputs, outputsOffset + i),
+                    FloatVector.fromArray(SPECIES, gradients, gradientsOffset + i), activation)
+                    .intoArray(gradients, gradientsOffset + i);
+        }
+        if (i < length) {
+            final VectorMask<Float> mask = SPECIES.indexInRange(i, length);
+            derivative(FloatVector.fromArray(SPECIES, outputs, outputsOffset + i, mask),
+                    FloatVector.fromArray(SPECIES, gradients, gradientsOffset + i, mask), activation)
+                    .intoArray(gradients, gradientsOffset + i, mask);
+        }
+    }
+
+    /**
+     * Applies the activation lane-wise, using the Vector API's exp and tanh which compile to short vector math library
+     * routines rather than a call per element
+     */
+    private static FloatVector activate(final FloatVector values, final Activation activation) {
+        return switch (activation) {
+            case IDENTITY -> values;
+            case RELU -> values.max(0f);
+            case SIGMOID -> FloatVector.broadcast(SPECIES, 1f).div(values.neg().lanewise(VectorOperators.EXP).add(1f));
+            case TANH -> values.lanewise(VectorOperators.TANH);
+        };
+    }
+
+    /**
+     * @return the gradients multiplied by the derivative of the activation which produced the outputs
+     */
+    private static FloatVector derivative(final FloatVector outputs, final FloatVector gradients,
+                                          final Activation activation) {
+        return switch (activation) {
+            case IDENTITY -> gradients;
+            case RELU -> FloatVector.zero(SPECIES).blend(gradients, outputs.compare(VectorOperators.GT, 0f));
+            case SIGMOID -> gradients.mul(outputs.mul(outputs.neg().add(1f)));
+            case TANH -> gradients.mul(outputs.mul(outputs).neg().add(1f));
+        };
+    }
+
+    /**
+     * @return the combination of the terms for one vector of elements starting at index, which stays in a register
+     * rather than being written to a temporary array
+     */
+    private static FloatVector combined(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                        final int index) {
+        var value = FloatVector.zero(SPECIES);
+        for (int t = 0; t < terms.length; t++) {
+            value = FloatVector.fromArray(SPECIES, terms[t], offsets[t] + index)
+                    .fma(FloatVector.broadcast(SPECIES, coefficients[t]), value);
+        }
+        return value;
+    }
+
+    private static FloatVector combined(final float[][] terms, final int[] offsets, final float[] coefficients,
+                                        final int index, final VectorMask<Float> mask) {
+        var value = FloatVector.zero(SPECIES);
+        for (int t = 0; t < terms.length; t++) {
+            value = FloatVector.fromArray(SPECIES, terms[t], offsets[t] + index, mask)
+                    .fma(FloatVector.broadcast(SPECIES, coefficients[t]), value);
+        }
+        return value;
+    }
+}
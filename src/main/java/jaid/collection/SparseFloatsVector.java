@@ -0,0 +1,370 @@
+package jaid.collection;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+
+import static jaid.number.HashingUtil.compressHash;
+
+/**
+ * A vector where most components are zero, stored as the sorted indices of the non-zero components and their values.
+ * Operations between two sparse vectors merge their index lists, so their cost depends on the number of non-zero
+ * components rather than the number of dimensions.
+ * @param indices strictly ascending indices of the non-zero components
+ * @param values value of the component at the same position in indices
+ * @param dimensions total number of dimensions including the zero components
+ */
+public record SparseFloatsVector(int[] indices, float[] values, int dimensions) implements IVector {
+
+    public SparseFloatsVector(int[] indices, float[] values, int dimensions) {
+        this.indices = Preconditions.checkNotNull(indices);
+        this.values = Preconditions.checkNotNull(values);
+        this.dimensions = dimensions;
+        Preconditions.checkArgument(indices.length == values.length, "Indices and values must have the same length");
+        for (int i = 0; i < indices.length; i++) {
+            Preconditions.checkArgument(indices[i] >= 0 && indices[i] < dimensions, "Index out of range");
+            Preconditions.checkArgument(i == 0 || indices[i] > indices[i - 1], "Indices must be strictly ascending");
+        }
+    }
+
+    /**
+     * @return a sparse vector containing the non-zero components of the dense values
+     */
+    public static SparseFloatsVector of(final float[] dense) {
+        int nonZero = 0;
+        for (float value : dense) {
+            if (value != 0) {
+                nonZero++;
+            }
+        }
+        final int[] indices = new int[nonZero];
+        final float[] values = new float[nonZero];
+        int position = 0;
+        for (int i = 0; i < dense.length; i++) {
+            if (dense[i] != 0) {
+                indices[position] = i;
+                values[position++] = dense[i];
+            }
+        }
+        return new SparseFloatsVector(indices, values, dense.length);
+    }
+
+    /**
+     * @return the number of stored (non-zero) components
+     */
+    public int nonZeroCount() {
+        return indices.length;
+    }
+
+    public FloatsVector toFloatsVector() {
+        final float[] dense = new float[dimensions];
+        for (int i = 0; i < indices.length; i++) {
+            dense[indices[i]] = values[i];
+        }
+        return new FloatsVector(dense);
+    }
+
+    @Override
+    public double angleBetween(final IVector other) {
+        // Clamp to valid domain for acos
+        return Math.acos(Math.min(1.0, Math.max(-1.0, cosineSimilarity(other))));
+    }
+
+    @Override
+    public <T extends IVector> double distance(final T other) {
+        return Math.sqrt(squaredDistance(other));
+    }
+
+    @Override
+    public <T extends IVector> double squaredDistance(final T other) {
+        return squaredDistance(checkDimensions(other));
+    }
+
+    /**
+     * Supports a dense {@link FloatsVector} as well as another sparse vector, in which case only the components at
+     * {@link #indices} are read from it.
+     */
+    @Override
+    public double dotProduct(final IVector comparedTo) {
+        if (comparedTo instanceof FloatsVector dense && dense.contents().length == dimensions) {
+            final float[] denseContents = dense.contents();
+            double sum = 0;
+            for (int i = 0; i < indices.length; i++) {
+                sum += values[i] * denseContents[indices[i]];
+            }
+            return sum;
+        }
+        if (!(comparedTo instanceof SparseFloatsVector) || dimensions != ((SparseFloatsVector) comparedTo).dimensions) {
+            throw new IllegalArgumentException();
+        }
+        final SparseFloatsVector other = (SparseFloatsVector) comparedTo;
+        final int[] otherIndices = other.indices;
+        double sum = 0;
+        int left = 0;
+        int right = 0;
+        // Merge the two sorted index lists, only matching indices contribute to the sum
+        while (left < indices.length && right < otherIndices.length) {
+            final int leftIndex = indices[left];
+            final int rightIndex = otherIndices[right];
+            if (leftIndex == rightIndex) {
+                sum += values[left++] * other.values[right++];
+            } else if (leftIndex < rightIndex) {
+                left++;
+            } else {
+                right++;
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public double magnitude() {
+        double sum = 0;
+        for (float value : values) {
+            sum += value * value;
+        }
+        return Math.sqrt(sum);
+    }
+
+    @Override
+    public <T extends IVector> double meanSquaredError(final T other) {
+        return squaredDistance(other) / dimensions;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T minus(T operand) {
+        return (T) merge(checkDimensions(operand), -1);
+    }
+
+    @Override
+    public SparseFloatsVector normalize() {
+        float magnitude = (float) magnitude();
+        if (magnitude == 0) return this; // avoid division by zero for a zero vector
+
+        final float[] normalizedValues = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            normalizedValues[i] = values[i] / magnitude;
+        }
+        return new SparseFloatsVector(indices, normalizedValues, dimensions);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T plus(T operand) {
+        return (T) merge(checkDimensions(operand), 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T scale(final float amount) {
+        final float[] newValues = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            newValues[i] = values[i] * amount;
+        }
+        return (T) new SparseFloatsVector(indices, newValues, dimensions);
+    }
+
+    /**
+     * Only supported when the destination has the same indices as the union of this and the operand, since otherwise
+     * the result would need a different sparsity pattern to the destination. The destination's values are overwritten.
+     * @throws UnsupportedOperationException if the destination has different indices
+     */
+    @Override
+    public <T extends IVector> T addInto(final T operand, final T destination) {
+        return mergeInto(checkDimensions(operand), checkDimensions(destination), 1, destination);
+    }
+
+    /**
+     * Has the same restriction on the destination as {@link #addInto}.
+     */
+    @Override
+    public <T extends IVector> T subtractInto(final T operand, final T destination) {
+        return mergeInto(checkDimensions(operand), checkDimensions(destination), -1, destination);
+    }
+
+    /**
+     * @throws UnsupportedOperationException unless the destination has the same indices as this vector
+     */
+    @Override
+    public <T extends IVector> T scaleInto(final float amount, final T destination) {
+        final SparseFloatsVector out = checkDimensions(destination);
+        if (!Arrays.equals(indices, out.indices)) {
+            throw new UnsupportedOperationException("Destination must have the same indices");
+        }
+        for (int i = 0; i < values.length; i++) {
+            out.values[i] = values[i] * amount;
+        }
+        return destination;
+    }
+
+    @Override
+    public void scaleInPlace(final float amount) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= amount;
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException unless every index of x is already one of this vector's indices
+     */
+    @Override
+    public void axpy(final float alpha, final IVector x) {
+        final SparseFloatsVector other = checkDimensions(x);
+        int position = 0;
+        for (int i = 0; i < other.indices.length; i++) {
+            while (position < indices.length && indices[position] < other.indices[i]) {
+                position++;
+            }
+            if (position == indices.length || indices[position] != other.indices[i]) {
+                throw new UnsupportedOperationException("Index " + other.indices[i] + " is not present in this vector");
+            }
+            values[position] = Math.fma(alpha, other.values[i], values[position]);
+        }
+    }
+
+    @Override
+    public void normalizeInPlace() {
+        final float magnitude = (float) magnitude();
+        if (magnitude != 0) {
+            scaleInPlace(1 / magnitude);
+        }
+    }
+
+    /**
+     * Zero components contribute no bits, so this gives the same bucket as the equivalent dense {@link FloatsVector}.
+     */
+    @Override
+    public int getSimHashBucket(byte bits) {
+        // Shortcut - if we want every hash to be the same, then don't compute anything
+        if (bits == 0) {
+            return 0;
+        }
+        int finalHash = 0;
+        for (float value : values) {
+            finalHash |= Float.floatToIntBits(value);
+        }
+        return compressHash(bits, finalHash, (byte)32);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < indices.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(indices[i]).append('=').append(values[i]);
+        }
+        return builder.append("}/").append(dimensions).toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SparseFloatsVector that = (SparseFloatsVector) o;
+        return dimensions == that.dimensions && Arrays.equals(indices, that.indices) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * dimensions + Arrays.hashCode(indices)) + Arrays.hashCode(values);
+    }
+
+    private SparseFloatsVector checkDimensions(final IVector other) {
+        if (!(other instanceof SparseFloatsVector) || dimensions != ((SparseFloatsVector) other).dimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        return (SparseFloatsVector) other;
+    }
+
+    private double squaredDistance(final SparseFloatsVector other) {
+        double sum = 0;
+        int left = 0;
+        int right = 0;
+        while (left < indices.length || right < other.indices.length) {
+            final int leftIndex = left < indices.length ? indices[left] : Integer.MAX_VALUE;
+            final int rightIndex = right < other.indices.length ? other.indices[right] : Integer.MAX_VALUE;
+            final double diff;
+            if (leftIndex == rightIndex) {
+                diff = values[left++] - other.values[right++];
+            } else if (leftIndex < rightIndex) {
+                diff = values[left++];
+            } else {
+                diff = other.values[right++];
+            }
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Writes this + sign * other into out's values, where out may be this or other, without allocating
+     */
+    private <T extends IVector> T mergeInto(final SparseFloatsVector other, final SparseFloatsVector out,
+                                            final float sign, final T destination) {
+        if (!isUnion(other, out.indices)) {
+            throw new UnsupportedOperationException("Destination must have the indices of both vectors");
+        }
+        int left = 0;
+        int right = 0;
+        // Each value is read before the same position is written, so out can be either input
+        for (int position = 0; position < out.indices.length; position++) {
+            final int index = out.indices[position];
+            final float leftValue = left < indices.length && indices[left] == index ? values[left++] : 0;
+            final float rightValue = right < other.indices.length && other.indices[right] == index
+                    ? other.values[right++] : 0;
+            out.values[position] = leftValue + sign * rightValue;
+        }
+        return destination;
+    }
+
+    /**
+     * @return true if the indices are exactly the union of this vector's and the other's indices
+     */
+    private boolean isUnion(final SparseFloatsVector other, final int[] union) {
+        int left = 0;
+        int right = 0;
+        for (final int index : union) {
+            final boolean inLeft = left < indices.length && indices[left] == index;
+            final boolean inRight = right < other.indices.length && other.indices[right] == index;
+            if (!inLeft && !inRight) {
+                return false;
+            }
+            left += inLeft ? 1 : 0;
+            right += inRight ? 1 : 0;
+        }
+        return left == indices.length && right == other.indices.length;
+    }
+
+    /**
+     * @return this + sign * other, keeping the union of both index lists
+     */
+    private SparseFloatsVector merge(final SparseFloatsVector other, final float sign) {
+        final int[] newIndices = new int[indices.length + other.indices.length];
+        final float[] newValues = new float[newIndices.length];
+        int left = 0;
+        int right = 0;
+        int position = 0;
+        while (left < indices.length || right < other.indices.length) {
+            final int leftIndex = left < indices.length ? indices[left] : Integer.MAX_VALUE;
+            final int rightIndex = right < other.indices.length ? other.indices[right] : Integer.MAX_VALUE;
+            if (leftIndex == rightIndex) {
+                newIndices[position] = leftIndex;
+                newValues[position++] = values[left++] + sign * other.values[right++];
+            } else if (leftIndex < rightIndex) {
+                newIndices[position] = leftIndex;
+                newValues[position++] = values[left++];
+            } else {
+                newIndices[position] = rightIndex;
+                newValues[position++] = sign * other.values[right++];
+            }
+        }
+        return new SparseFloatsVector(Arrays.copyOf(newIndices, position), Arrays.copyOf(newValues, position), dimensions);
+    }
+}
@@ -0,0 +1,156 @@
+package jaid.collection;
+
+import java.util.Arrays;
+
+/**
+ * A lazy chain of element-wise {@link #plus}, {@link #minus} and {@link #scale} operations over float vectors, which is
+ * only evaluated by a terminal operation such as {@link #dotProduct}, {@link #magnitude} or {@link #materialize}. For
+ * example {@code VectorExpr.of(a).minus(b).scale(s).dotProduct(q)} makes one pass over a, b and q, rather than the
+ * three passes and two temporary arrays of {@code a.minus(b).scale(s).dotProduct(q)}.
+ * Any such chain is a weighted sum of its vectors, so an expression is just the vectors and their coefficients, and is
+ * evaluated with {@link FloatKernels#combine} and the related kernels, which keep each element of the sum in a
+ * register. Expressions are immutable, and read the vectors when evaluated rather than when built.
+ * The vectors can be {@link FloatsVector}s or {@link FloatsVectorView}s, but an expression over views must be evaluated
+ * before their arena is compacted.
+ */
+public final class VectorExpr {
+
+    private final float[][] terms;
+    private final int[] offsets;
+    private final float[] coefficients;
+    private final int dimensions;
+
+    private VectorExpr(final float[][] terms, final int[] offsets, final float[] coefficients, final int dimensions) {
+        this.terms = terms;
+        this.offsets = offsets;
+        this.coefficients = coefficients;
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the vector is not a {@link FloatsVector} or {@link FloatsVectorView}
+     */
+    public static VectorExpr of(final IVector vector) {
+        if (vector instanceof FloatsVector dense) {
+            return new VectorExpr(new float[][]{dense.contents()}, new int[]{0}, new float[]{1},
+                    dense.contents().length);
+        } else if (vector instanceof FloatsVectorView view) {
+            return new VectorExpr(new float[][]{view.arena().slab(view.id())},
+                    new int[]{view.arena().offset(view.id())}, new float[]{1}, view.dimensions());
+        }
+        throw new IllegalArgumentException("Unsupported vector type " + vector.getClass());
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public VectorExpr plus(final IVector operand) {
+        return plus(of(operand));
+    }
+
+    public VectorExpr plus(final VectorExpr operand) {
+        return combine(operand, 1);
+    }
+
+    public VectorExpr minus(final IVector operand) {
+        return minus(of(operand));
+    }
+
+    public VectorExpr minus(final VectorExpr operand) {
+        return combine(operand, -1);
+    }
+
+    public VectorExpr scale(final float amount) {
+        final float[] scaled = coefficients.clone();
+        for (int t = 0; t < scaled.length; t++) {
+            scaled[t] *= amount;
+        }
+        return new VectorExpr(terms, offsets, scaled, dimensions);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the vectors have different dimensions or incompatible types
+     */
+    public double dotProduct(final IVector other) {
+        if (other instanceof FloatsVector dense && dense.contents().length == dimensions) {
+            return FloatKernels.combineDotProduct(terms, offsets, coefficients, dense.contents(), 0, dimensions);
+        } else if (other instanceof FloatsVectorView view && view.dimensions() == dimensions) {
+            return FloatKernels.combineDotProduct(terms, offsets, coefficients, view.arena().slab(view.id()),
+                    view.arena().offset(view.id()), dimensions);
+        }
+        throw new IllegalArgumentException("Vectors must have the same dimensions");
+    }
+
+    public double sumOfSquares() {
+        return FloatKernels.combineSumOfSquares(terms, offsets, coefficients, dimensions);
+    }
+
+    public double magnitude() {
+        return Math.sqrt(sumOfSquares());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the vectors have different dimensions or incompatible types
+     */
+    public double squaredDistance(final IVector other) {
+        return minus(other).sumOfSquares();
+    }
+
+    /**
+     * @return a new vector with the value of the expression
+     */
+    public FloatsVector materialize() {
+        final float[] result = new float[dimensions];
+        FloatKernels.combine(terms, offsets, coefficients, result, 0, dimensions);
+        return new FloatsVector(result);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (int t = 0; t < terms.length; t++) {
+            if (t > 0) {
+                builder.append(" + ");
+            }
+            builder.append(coefficients[t]).append(" * ")
+                    .append(Arrays.toString(Arrays.copyOfRange(terms[t], offsets[t], offsets[t] + dimensions)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return this + sign * other, with the coefficients of any vector in both added together so that it is only read
+     * once
+     */
+    private VectorExpr combine(final VectorExpr other, final float sign) {
+        if (other.dimensions != dimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        float[][] newTerms = Arrays.copyOf(terms, terms.length + other.terms.length);
+        int[] newOffsets = Arrays.copyOf(offsets, newTerms.length);
+        float[] newCoefficients = Arrays.copyOf(coefficients, newTerms.length);
+        int size = terms.length;
+        for (int o = 0; o < other.terms.length; o++) {
+            final float coefficient = sign * other.coefficients[o];
+            int t = 0;
+            while (t < size && !(newTerms[t] == other.terms[o] && newOffsets[t] == other.offsets[o])) {
+                t++;
+            }
+            if (t < size) {
+                newCoefficients[t] += coefficient;
+            } else {
+                newTerms[size] = other.terms[o];
+                newOffsets[size] = other.offsets[o];
+                newCoefficients[size] = coefficient;
+                size++;
+            }
+        }
+        if (size < newTerms.length) {
+            newTerms = Arrays.copyOf(newTerms, size);
+            newOffsets = Arrays.copyOf(newOffsets, size);
+            newCoefficients = Arrays.copyOf(newCoefficients, size);
+        }
+        return new VectorExpr(newTerms, newOffsets, newCoefficients, dimensions);
+    }
+}
@@ -0,0 +1,80 @@
+package jaid.collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Supplier;
+
+/**
+ * Decides once at startup whether the kernels in {@link FloatKernels} and {@link DoubleKernels}, and the other Vector
+ * API code such as {@link jaid.number.MinHash}, use the incubating Vector API, and at what width. The Vector API is
+ * only used when the jdk.incubator.vector module has been added to the JVM (with --add-modules=jdk.incubator.vector),
+ * otherwise scalar kernels built on {@link Math#fma} are used so that the library can still be deployed where that flag
+ * cannot be set.
+ * The choice can be overridden with system properties:
+ * <ul>
+ *     <li>jaid.vector.disable=true uses the scalar kernels even when the module is present</li>
+ *     <li>jaid.vector.bits=128|256|512 limits the vector width, by default the widest width the hardware supports
+ *     is used (for example 512 bits on AVX-512)</li>
+ * </ul>
+ * Classes using the Vector API are only ever loaded reflectively through {@link #create}, or are nested classes only
+ * touched once {@link #isEnabled()} is true, so that nothing else needs the module to be present to link.
+ */
+public final class VectorSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorSupport.class);
+
+    private static final boolean ENABLED = !Boolean.getBoolean("jaid.vector.disable")
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    private static final int CONFIGURED_BITS = Integer.getInteger("jaid.vector.bits", 0);
+
+    private VectorSupport() {
+    }
+
+    /**
+     * @return true if the Vector API kernels are in use
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return the vector width requested with jaid.vector.bits, or 0 to use the preferred width of the hardware
+     */
+    public static int configuredBits() {
+        return CONFIGURED_BITS;
+    }
+
+    /**
+     * @param preferredBits the widest vectors the hardware supports for the element type
+     * @return the vector width every Vector API kernel should use, the configured width if it is narrower than
+     * preferredBits and otherwise preferredBits, since wider vectors than the hardware supports would be emulated
+     * very slowly
+     */
+    public static int vectorBits(final int preferredBits) {
+        return CONFIGURED_BITS <= 0 || CONFIGURED_BITS >= preferredBits ? preferredBits : CONFIGURED_BITS;
+    }
+
+    /**
+     * @return a description of the kernels in use, for logging at startup
+     */
+    public static String describe() {
+        return ENABLED ? "Vector API kernels with " + FloatKernels.implementation().vectorBits() + " bit vectors"
+                : "scalar kernels";
+    }
+
+    /**
+     * Instantiates the named Vector API backed class if the Vector API is enabled, otherwise (or if it cannot be
+     * loaded) returns the scalar fallback.
+     */
+    static <T> T create(final String simdClassName, final Class<T> type, final Supplier<T> scalar) {
+        if (ENABLED) {
+            try {
+                return type.cast(Class.forName(simdClassName).getDeclaredConstructor().newInstance());
+            } catch (final ReflectiveOperationException | LinkageError e) {
+                log.warn("Falling back to scalar kernels, could not load " + simdClassName, e);
+            }
+        }
+        return scalar.get();
+    }
+}
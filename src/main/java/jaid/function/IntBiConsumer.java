@@ -0,0 +1,21 @@
+package jaid.function;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Represents an operation that accepts two {@code int}-valued arguments and returns no result. This is the
+ * {@code (int, int)} specialization of {@link BiConsumer}.
+ *
+ * @see BiConsumer
+ */
+@FunctionalInterface
+public interface IntBiConsumer {
+
+    /**
+     * Performs this operation on the given arguments.
+     *
+     * @param first the first input argument
+     * @param second the second input argument
+     */
+    void accept(int first, int second);
+}
@@ -0,0 +1,23 @@
+package jaid.function;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Represents an operation that accepts two {@code int}-valued arguments and a {@code float}-valued argument, and
+ * returns no result, such as a pair of indices and their score. This is a primitive specialization of a three argument
+ * {@link BiConsumer}.
+ *
+ * @see BiConsumer
+ */
+@FunctionalInterface
+public interface IntIntFloatConsumer {
+
+    /**
+     * Performs this operation on the given arguments.
+     *
+     * @param first the first input argument
+     * @param second the second input argument
+     * @param value the third input argument
+     */
+    void accept(int first, int second, float value);
+}
@@ -0,0 +1,213 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.IVector;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Asynchronous facade over a {@link NearestVectorStore}, so that callers with their own event loop never block on a
+ * query. Queries run on virtual threads by default (or a given executor), with at most a fixed number scanning at
+ * once and a bounded number waiting behind them. Any query beyond that is rejected immediately with a
+ * {@link RejectedExecutionException}, so that a spike in traffic sheds load instead of building an ever longer queue.
+ * Each query has a deadline, after which its future completes with a {@link TimeoutException}, and a query which is
+ * still waiting is skipped or one which is scanning stops mid-bucket. Cancelling the future stops the query in the same
+ * way. Queries can run concurrently with each other, while {@link #add} and {@link #remove} wait for exclusive access.
+ */
+public class AsyncVectorStore implements AutoCloseable {
+
+    private final NearestVectorStore store;
+    private final ExecutorService executor;
+    /**
+     * Whether the executor was created here, and so should be shut down by {@link #close()}
+     */
+    private final boolean ownsExecutor;
+    private final Semaphore running;
+    private final int maxInFlight;
+    private final Duration defaultTimeout;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private AsyncVectorStore(final NearestVectorStore store, final ExecutorService executor,
+                             final boolean ownsExecutor, final int maxConcurrent, final int maxQueued,
+                             final Duration defaultTimeout) {
+        this.store = store;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.running = new Semaphore(maxConcurrent);
+        this.maxInFlight = maxConcurrent + maxQueued;
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public void add(final IVector vector) {
+        lock.writeLock().lock();
+        try {
+            store.add(vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(final IVector vector) {
+        lock.writeLock().lock();
+        try {
+            return store.remove(vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Queries with the default timeout
+     */
+    public CompletableFuture<List<IVector>> query(final IVector queryVector, final int k) {
+        return query(queryVector, k, defaultTimeout);
+    }
+
+    /**
+     * @return a future of the k nearest vectors, which completes exceptionally with a
+     * {@link RejectedExecutionException} if too many queries are already in flight, or a {@link TimeoutException} if
+     * the query is not finished within the timeout
+     */
+    public CompletableFuture<List<IVector>> query(final IVector queryVector, final int k, final Duration timeout) {
+        final CompletableFuture<List<IVector>> result = new CompletableFuture<>();
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException("Too many queries in flight"));
+            return result;
+        }
+        result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        try {
+            executor.execute(() -> run(queryVector, k, result));
+        } catch (final RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of queries waiting or running
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of queries rejected since this was created
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Shuts down the executor if it was created by this facade, leaving the store intact
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private void run(final IVector queryVector, final int k, final CompletableFuture<List<IVector>> result) {
+        try {
+            running.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            inFlight.decrementAndGet();
+            result.completeExceptionally(e);
+            return;
+        }
+        try {
+            // Timed out or cancelled while waiting for a permit
+            if (result.isDone()) {
+                return;
+            }
+            lock.readLock().lock();
+            try {
+                result.complete(store.query(queryVector, k, result::isDone));
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (final CancellationException e) {
+            // The future has already been completed by the timeout or cancellation which stopped the scan
+        } catch (final RuntimeException e) {
+            result.completeExceptionally(e);
+        } finally {
+            running.release();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public static Builder builder(final NearestVectorStore store) {
+        return new Builder(store);
+    }
+
+    public static class Builder {
+        private final NearestVectorStore store;
+        private ExecutorService executor;
+        private int maxConcurrent = Runtime.getRuntime().availableProcessors();
+        private int maxQueued = 1024;
+        private Duration defaultTimeout = Duration.ofSeconds(1);
+
+        private Builder(final NearestVectorStore store) {
+            this.store = Preconditions.checkNotNull(store);
+        }
+
+        /**
+         * The executor to run queries on, which is not shut down by {@link #close()}, rather than one virtual thread
+         * per query
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * The most queries which can scan at once, which defaults to the number of processors since scans are CPU
+         * bound
+         */
+        public Builder maxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+            return this;
+        }
+
+        /**
+         * The most queries which can wait for one of the {@link #maxConcurrent} slots, beyond which queries are
+         * rejected
+         */
+        public Builder maxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+            return this;
+        }
+
+        public Builder defaultTimeout(Duration defaultTimeout) {
+            this.defaultTimeout = defaultTimeout;
+            return this;
+        }
+
+        public AsyncVectorStore build() {
+            Preconditions.checkArgument(maxConcurrent > 0 && maxQueued >= 0 && defaultTimeout.isPositive());
+            final boolean ownsExecutor = executor == null;
+            return new AsyncVectorStore(store, ownsExecutor ? Executors.newVirtualThreadPerTaskExecutor() : executor,
+                    ownsExecutor, maxConcurrent, maxQueued, defaultTimeout);
+        }
+    }
+}
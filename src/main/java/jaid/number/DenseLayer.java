@@ -0,0 +1,143 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.Activation;
+import jaid.collection.FloatKernels;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A fully connected layer of a {@link FeedForwardNetwork}, working on batches of rows packed into a single float[].
+ * The weights are kept one row per output so that the forward pass for each input row is a single
+ * {@link FloatKernels#dotProductRows} call followed by the bias and activation fused into one pass, and the backward
+ * pass is built from {@link FloatKernels#axpy} calls along the same rows.
+ */
+public class DenseLayer {
+
+    private final int inputs;
+    private final int outputs;
+    /**
+     * Row-major, with the weights into output o at o * inputs
+     */
+    private final float[] weights;
+    private final float[] bias;
+    private final Activation activation;
+
+    /**
+     * Initialises the weights uniformly at random with Glorot scaling, and the bias to zero
+     */
+    public DenseLayer(final int inputs, final int outputs, final Activation activation, final Random random) {
+        this(inputs, outputs, randomWeights(inputs, outputs, random), new float[outputs], activation);
+    }
+
+    /**
+     * Uses the given weights and bias directly rather than copying them
+     * @param weights outputs rows of inputs weights
+     */
+    public DenseLayer(final int inputs, final int outputs, final float[] weights, final float[] bias,
+                      final Activation activation) {
+        Preconditions.checkArgument(inputs > 0 && outputs > 0);
+        Preconditions.checkArgument(weights.length == inputs * outputs && bias.length == outputs,
+                "Weights and bias don't match the layer size");
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.weights = weights;
+        this.bias = bias;
+        this.activation = Preconditions.checkNotNull(activation);
+    }
+
+    /**
+     * @param input batch rows of {@link #getInputs()} values
+     * @param output receives batch rows of {@link #getOutputs()} activations
+     */
+    public void forward(final float[] input, final int batch, final float[] output) {
+        for (int b = 0; b < batch; b++) {
+            FloatKernels.dotProductRows(input, b * inputs, weights, 0, inputs, outputs, inputs, output, b * outputs);
+            FloatKernels.biasActivation(output, b * outputs, bias, 0, outputs, activation);
+        }
+    }
+
+    /**
+     * Accumulates the gradients of this layer's parameters for a batch, and computes the gradient of its input.
+     * @param input the input to {@link #forward}
+     * @param output the output of {@link #forward}
+     * @param outputGradient the gradient of the loss with respect to the output, which is overwritten with the gradient
+     * before the activation
+     * @param inputGradient receives the gradient with respect to the input, or null if it isn't needed (such as for the
+     * first layer)
+     * @param gradients accumulates the gradients of the weights and bias, from {@link #newGradients()}
+     */
+    public void backward(final float[] input, final float[] output, final float[] outputGradient, final int batch,
+                         final float[] inputGradient, final Gradients gradients) {
+        if (inputGradient != null) {
+            Arrays.fill(inputGradient, 0, batch * inputs, 0);
+        }
+        for (int b = 0; b < batch; b++) {
+            final int outputOffset = b * outputs;
+            FloatKernels.activationGradient(output, outputOffset, outputGradient, outputOffset, outputs, activation);
+            FloatKernels.add(gradients.bias, 0, outputGradient, outputOffset, gradients.bias, 0, outputs);
+            for (int o = 0; o < outputs; o++) {
+                final float gradient = outputGradient[outputOffset + o];
+                if (gradient != 0) {
+                    FloatKernels.axpy(gradient, input, b * inputs, gradients.weights, o * inputs, inputs);
+                    if (inputGradient != null) {
+                        FloatKernels.axpy(gradient, weights, o * inputs, inputGradient, b * inputs, inputs);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a gradient descent step and resets the gradients for the next batch
+     */
+    public void update(final Gradients gradients, final float learningRate) {
+        FloatKernels.axpy(-learningRate, gradients.weights, 0, weights, 0, weights.length);
+        FloatKernels.axpy(-learningRate, gradients.bias, 0, bias, 0, outputs);
+        Arrays.fill(gradients.weights, 0);
+        Arrays.fill(gradients.bias, 0);
+    }
+
+    public Gradients newGradients() {
+        return new Gradients(new float[weights.length], new float[outputs]);
+    }
+
+    public int getInputs() {
+        return inputs;
+    }
+
+    public int getOutputs() {
+        return outputs;
+    }
+
+    public Activation getActivation() {
+        return activation;
+    }
+
+    /**
+     * @return the weights, one row per output, which are used directly rather than copied
+     */
+    public float[] getWeights() {
+        return weights;
+    }
+
+    public float[] getBias() {
+        return bias;
+    }
+
+    private static float[] randomWeights(final int inputs, final int outputs, final Random random) {
+        final float limit = (float) Math.sqrt(6.0 / (inputs + outputs));
+        final float[] weights = new float[inputs * outputs];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (random.nextFloat() * 2 - 1) * limit;
+        }
+        return weights;
+    }
+
+    /**
+     * The gradients of a layer's weights and bias accumulated over a batch
+     */
+    public record Gradients(float[] weights, float[] bias) {
+    }
+}
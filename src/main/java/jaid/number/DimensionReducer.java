@@ -0,0 +1,269 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.DoubleKernels;
+import jaid.collection.DoublesMatrix;
+import jaid.collection.DoublesVector;
+import jaid.collection.FloatsMatrix;
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.EigenDecomposition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Linear projection of {@link IVector}s into a lower number of dimensions, so that dot products and sim hashes can be
+ * computed on 128-256 components rather than the 1000+ that embedding models tend to produce. The projection is a
+ * fixed row-major (outputDimensions x inputDimensions) matrix, created either from a seeded random source (which
+ * approximately preserves dot products according to the Johnson-Lindenstrauss lemma) or fitted from a sample of
+ * vectors using PCA (which preserves as much of the sample as possible in the fewest dimensions).
+ * Instances are immutable and threadsafe, see {@link ReducedVectorStore} for using this in front of a
+ * {@link NearestVectorStore}.
+ */
+public class DimensionReducer {
+
+    /**
+     * Extra directions to track during the randomised PCA, which improves the accuracy of the smallest components
+     */
+    private static final int PCA_OVERSAMPLING = 10;
+    /**
+     * Number of power iterations to use in the randomised PCA, each one sharpens the separation of the components
+     */
+    private static final int PCA_POWER_ITERATIONS = 2;
+
+    private final int inputDimensions;
+    private final int outputDimensions;
+    private final FloatsMatrix floatComponents;
+    private final DoublesMatrix doubleComponents;
+
+    private DimensionReducer(final int inputDimensions, final int outputDimensions, final double[] components) {
+        this.inputDimensions = inputDimensions;
+        this.outputDimensions = outputDimensions;
+        this.doubleComponents = new DoublesMatrix(components, outputDimensions, inputDimensions);
+        final float[] floats = new float[components.length];
+        for (int i = 0; i < components.length; i++) {
+            floats[i] = (float) components[i];
+        }
+        this.floatComponents = new FloatsMatrix(floats, outputDimensions, inputDimensions);
+    }
+
+    /**
+     * Projects onto dense random gaussian directions, scaled so that the expected dot product is unchanged.
+     */
+    public static DimensionReducer gaussian(final int inputDimensions, final int outputDimensions, final long seed) {
+        checkDimensions(inputDimensions, outputDimensions);
+        final Random random = new Random(seed);
+        final double scale = 1 / Math.sqrt(outputDimensions);
+        final double[] components = new double[inputDimensions * outputDimensions];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = random.nextGaussian() * scale;
+        }
+        return new DimensionReducer(inputDimensions, outputDimensions, components);
+    }
+
+    /**
+     * Projects onto sparse random directions as described by Achlioptas (each entry is +√3 or -√3 with probability
+     * 1/6 each and otherwise 0), which is as accurate as {@link #gaussian} but cheaper to generate.
+     */
+    public static DimensionReducer sparse(final int inputDimensions, final int outputDimensions, final long seed) {
+        checkDimensions(inputDimensions, outputDimensions);
+        final Random random = new Random(seed);
+        final double value = Math.sqrt(3.0 / outputDimensions);
+        final double[] components = new double[inputDimensions * outputDimensions];
+        for (int i = 0; i < components.length; i++) {
+            final int draw = random.nextInt(6);
+            components[i] = draw == 0 ? value : draw == 1 ? -value : 0;
+        }
+        return new DimensionReducer(inputDimensions, outputDimensions, components);
+    }
+
+    /**
+     * Fits the principal components of the sample using randomised PCA (Halko, Martinsson and Tropp), so that the
+     * cost is linear in the sample size and dimensions rather than the cubic cost of a full eigen decomposition.
+     * The components are taken from the uncentred second moment of the sample, since centring would change the dot
+     * products that {@link NearestVectorStore} ranks by.
+     * @param sample {@link FloatsVector}s or {@link DoublesVector}s which all have the same dimensions
+     * @param seed source of the random starting directions
+     */
+    public static DimensionReducer pca(final List<? extends IVector> sample, final int outputDimensions, final long seed) {
+        Preconditions.checkArgument(!sample.isEmpty(), "Cannot fit an empty sample");
+        final double[][] rows = new double[sample.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = toDoubles(sample.get(i));
+        }
+        final int inputDimensions = rows[0].length;
+        checkDimensions(inputDimensions, outputDimensions);
+        for (final double[] row : rows) {
+            Preconditions.checkArgument(row.length == inputDimensions, "Vectors must have the same dimensions");
+        }
+        final int tracked = Math.min(inputDimensions, outputDimensions + PCA_OVERSAMPLING);
+        final Random random = new Random(seed);
+        // Columns of the subspace being iterated towards the dominant eigenvectors of the second moment matrix
+        double[][] basis = new double[tracked][inputDimensions];
+        for (final double[] column : basis) {
+            for (int i = 0; i < inputDimensions; i++) {
+                column[i] = random.nextGaussian();
+            }
+        }
+        orthonormalise(basis);
+        for (int iteration = 0; iteration < PCA_POWER_ITERATIONS + 1; iteration++) {
+            // basis = Xᵀ(X basis), never materialising the (inputDimensions x inputDimensions) second moment matrix
+            final double[][] scores = multiply(rows, basis);
+            final double[][] next = new double[tracked][inputDimensions];
+            for (int j = 0; j < tracked; j++) {
+                for (int i = 0; i < rows.length; i++) {
+                    axpy(scores[j][i], rows[i], next[j]);
+                }
+            }
+            basis = next;
+            orthonormalise(basis);
+        }
+        // Small (tracked x tracked) problem whose eigenvectors rotate the basis onto the principal components
+        final double[][] scores = multiply(rows, basis);
+        final double[][] small = new double[tracked][tracked];
+        for (int a = 0; a < tracked; a++) {
+            for (int b = a; b < tracked; b++) {
+                small[a][b] = dot(scores[a], scores[b]);
+                small[b][a] = small[a][b];
+            }
+        }
+        final EigenDecomposition eigen = new EigenDecomposition(new Array2DRowRealMatrix(small, false));
+        final double[] eigenvalues = eigen.getRealEigenvalues();
+        final Integer[] order = new Integer[tracked];
+        for (int i = 0; i < tracked; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (l, r) -> Double.compare(eigenvalues[r], eigenvalues[l]));
+        final double[] components = new double[outputDimensions * inputDimensions];
+        for (int row = 0; row < outputDimensions; row++) {
+            final double[] rotation = eigen.getEigenvector(order[row]).toArray();
+            final int offset = row * inputDimensions;
+            for (int j = 0; j < tracked; j++) {
+                for (int i = 0; i < inputDimensions; i++) {
+                    components[offset + i] += rotation[j] * basis[j][i];
+                }
+            }
+        }
+        return new DimensionReducer(inputDimensions, outputDimensions, components);
+    }
+
+    public int getInputDimensions() {
+        return inputDimensions;
+    }
+
+    public int getOutputDimensions() {
+        return outputDimensions;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the vector is not a {@link FloatsVector} or {@link DoublesVector} with
+     * {@link #getInputDimensions()} components
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> T project(final T vector) {
+        if (vector instanceof FloatsVector floats) {
+            checkInput(floats.contents().length);
+            return (T) floatComponents.multiply(floats);
+        } else if (vector instanceof DoublesVector doubles) {
+            checkInput(doubles.contents().length);
+            return (T) doubleComponents.multiply(doubles);
+        }
+        throw new IllegalArgumentException("Unsupported vector type " + vector.getClass());
+    }
+
+    /**
+     * Projects a batch of vectors, runs of {@link FloatsVector}s are projected with a single matrix-matrix product so
+     * that each load of the projection matrix is shared between several of them.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends IVector> List<T> project(final List<T> vectors) {
+        final List<T> results = new ArrayList<>(vectors.size());
+        int i = 0;
+        while (i < vectors.size()) {
+            int end = i;
+            while (end < vectors.size() && vectors.get(end) instanceof FloatsVector) {
+                end++;
+            }
+            if (end - i > 1) {
+                final FloatsMatrix projected = FloatsMatrix.of((List<FloatsVector>) vectors.subList(i, end))
+                        .multiplyTransposed(floatComponents);
+                for (int row = 0; row < projected.getRows(); row++) {
+                    results.add((T) projected.row(row));
+                }
+                i = end;
+            } else {
+                results.add(project(vectors.get(i)));
+                i++;
+            }
+        }
+        return results;
+    }
+
+    private void checkInput(final int dimensions) {
+        if (dimensions != inputDimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+    }
+
+    private static void checkDimensions(final int inputDimensions, final int outputDimensions) {
+        Preconditions.checkArgument(inputDimensions > 0);
+        Preconditions.checkArgument(outputDimensions > 0 && outputDimensions <= inputDimensions,
+                "Output dimensions must be in range [1, input dimensions]");
+    }
+
+    private static double[] toDoubles(final IVector vector) {
+        if (vector instanceof DoublesVector doubles) {
+            return doubles.contents();
+        } else if (vector instanceof FloatsVector floats) {
+            final double[] result = new double[floats.contents().length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = floats.contents()[i];
+            }
+            return result;
+        }
+        throw new IllegalArgumentException("Unsupported vector type " + vector.getClass());
+    }
+
+    /**
+     * @return (columns x rows) matrix of the dot products of every row with every column
+     */
+    private static double[][] multiply(final double[][] rows, final double[][] columns) {
+        final double[][] result = new double[columns.length][rows.length];
+        for (int j = 0; j < columns.length; j++) {
+            for (int i = 0; i < rows.length; i++) {
+                result[j][i] = dot(rows[i], columns[j]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Modified Gram-Schmidt, replacing any column that becomes degenerate with zeros. The power iterations make the
+     * columns close to linearly dependent, so each one is orthogonalised twice to avoid losing orthogonality.
+     */
+    private static void orthonormalise(final double[][] columns) {
+        for (int j = 0; j < columns.length; j++) {
+            for (int pass = 0; pass < 2; pass++) {
+                for (int p = 0; p < j; p++) {
+                    axpy(-dot(columns[p], columns[j]), columns[p], columns[j]);
+                }
+            }
+            final double norm = Math.sqrt(dot(columns[j], columns[j]));
+            for (int i = 0; i < columns[j].length; i++) {
+                columns[j][i] = norm > 1e-12 ? columns[j][i] / norm : 0;
+            }
+        }
+    }
+
+    private static double dot(final double[] left, final double[] right) {
+        return DoubleKernels.dotProduct(left, right);
+    }
+
+    private static void axpy(final double alpha, final double[] x, final double[] y) {
+        DoubleKernels.axpy(alpha, x, y);
+    }
+}
@@ -0,0 +1,114 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.Activation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A small multi-layer perceptron of {@link DenseLayer}s, for scoring many rows of features at once such as re-ranking
+ * the candidates of a query. Every row of a batch is packed into one float[] so that a batch runs through each layer
+ * with a few kernel calls per row and no per-row allocation. Predictions only read the network so can be made
+ * concurrently, while training is not threadsafe.
+ */
+public class FeedForwardNetwork {
+
+    private final List<DenseLayer> layers;
+
+    /**
+     * @throws IllegalArgumentException if the outputs of each layer don't match the inputs of the next
+     */
+    public FeedForwardNetwork(final List<DenseLayer> layers) {
+        Preconditions.checkArgument(!layers.isEmpty(), "Need at least one layer");
+        for (int i = 1; i < layers.size(); i++) {
+            Preconditions.checkArgument(layers.get(i - 1).getOutputs() == layers.get(i).getInputs(),
+                    "Layer %s has %s outputs but the next layer has %s inputs", i - 1,
+                    layers.get(i - 1).getOutputs(), layers.get(i).getInputs());
+        }
+        this.layers = List.copyOf(layers);
+    }
+
+    /**
+     * Creates a randomly initialised network
+     * @param sizes the number of features, then the size of each hidden layer, then the number of outputs
+     */
+    public static FeedForwardNetwork create(final Random random, final Activation hidden, final Activation output,
+                                            final int... sizes) {
+        Preconditions.checkArgument(sizes.length >= 2, "Need at least the input and output sizes");
+        final List<DenseLayer> layers = new ArrayList<>(sizes.length - 1);
+        for (int i = 1; i < sizes.length; i++) {
+            layers.add(new DenseLayer(sizes[i - 1], sizes[i], i == sizes.length - 1 ? output : hidden, random));
+        }
+        return new FeedForwardNetwork(layers);
+    }
+
+    /**
+     * @param features batch rows of {@link #getInputs()} features
+     * @return batch rows of {@link #getOutputs()} outputs
+     */
+    public float[] predict(final float[] features, final int batch) {
+        checkBatch(features, batch, getInputs());
+        float[] activations = features;
+        for (final DenseLayer layer : layers) {
+            final float[] next = new float[batch * layer.getOutputs()];
+            layer.forward(activations, batch, next);
+            activations = next;
+        }
+        return activations;
+    }
+
+    /**
+     * Takes one gradient descent step on the mean squared error of the batch
+     * @param targets batch rows of {@link #getOutputs()} targets
+     * @return the mean squared error of the batch before the step
+     */
+    public float train(final float[] features, final float[] targets, final int batch, final float learningRate) {
+        checkBatch(features, batch, getInputs());
+        checkBatch(targets, batch, getOutputs());
+        final float[][] activations = new float[layers.size() + 1][];
+        activations[0] = features;
+        for (int i = 0; i < layers.size(); i++) {
+            activations[i + 1] = new float[batch * layers.get(i).getOutputs()];
+            layers.get(i).forward(activations[i], batch, activations[i + 1]);
+        }
+
+        final float[] outputs = activations[layers.size()];
+        final int count = batch * getOutputs();
+        float[] gradient = new float[count];
+        double loss = 0;
+        for (int i = 0; i < count; i++) {
+            final float error = outputs[i] - targets[i];
+            loss += error * error;
+            gradient[i] = 2 * error / count;
+        }
+
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            final DenseLayer layer = layers.get(i);
+            final float[] inputGradient = i == 0 ? null : new float[batch * layer.getInputs()];
+            final DenseLayer.Gradients gradients = layer.newGradients();
+            layer.backward(activations[i], activations[i + 1], gradient, batch, inputGradient, gradients);
+            layer.update(gradients, learningRate);
+            gradient = inputGradient;
+        }
+        return (float) (loss / count);
+    }
+
+    public int getInputs() {
+        return layers.get(0).getInputs();
+    }
+
+    public int getOutputs() {
+        return layers.get(layers.size() - 1).getOutputs();
+    }
+
+    public List<DenseLayer> getLayers() {
+        return layers;
+    }
+
+    private static void checkBatch(final float[] rows, final int batch, final int width) {
+        Preconditions.checkArgument(batch >= 0 && rows.length >= batch * width,
+                "Need %s rows of %s values but there are only %s values", batch, width, rows.length);
+    }
+}
@@ -0,0 +1,447 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.DoublesVector;
+import jaid.collection.FloatKernels;
+import jaid.collection.FloatsMatrix;
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+import jaid.function.IntBiConsumer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * K-means clustering of {@link FloatsVector}s, {@link DoublesVector}s or the rows of a {@link FloatsMatrix}, with
+ * k-means++ seeding followed by either full (Lloyd) iterations or mini-batch updates (Sculley, "Web-scale k-means
+ * clustering"). The centroids are kept in one contiguous row-major array, so the distances from a vector to every
+ * centroid are found with a single {@link FloatKernels#dotProductRows} call, using
+ * |x - c|² = |x|² - 2x·c + |c|². Vectors are assigned in chunks over the common ForkJoin pool, each thread summing
+ * its vectors into its own centroid accumulators which are merged once per iteration, so nothing is allocated per
+ * vector.
+ * Clustering is done in single precision, {@link DoublesVector}s are converted to floats first. Instances are
+ * immutable and threadsafe, and are created with {@link #builder()}.
+ */
+public class KMeans {
+
+    /**
+     * Vectors assigned by each task when assigning in parallel
+     */
+    private static final int CHUNK_SIZE = 1024;
+    /**
+     * Seeding only looks at a random sample of this many vectors per cluster, since k-means++ needs a pass over the
+     * sample for every centroid
+     */
+    private static final int SEEDING_SAMPLE_PER_CLUSTER = 64;
+
+    private final int clusters;
+    private final int maxIterations;
+    private final double tolerance;
+    private final int batchSize;
+    private final int patience;
+    private final long seed;
+    private final boolean parallel;
+
+    private KMeans(final int clusters, final int maxIterations, final double tolerance, final int batchSize,
+                   final int patience, final long seed, final boolean parallel) {
+        this.clusters = clusters;
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+        this.batchSize = batchSize;
+        this.patience = patience;
+        this.seed = seed;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param vectors {@link FloatsVector}s or {@link DoublesVector}s which all have the same dimensions, at least as
+     * many as the number of clusters
+     */
+    public Clustering fit(final List<? extends IVector> vectors) {
+        final float[][] arrays = new float[vectors.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = toFloats(vectors.get(i));
+            if (arrays[i].length != arrays[0].length) {
+                throw new IllegalArgumentException("Vectors must have the same dimensions");
+            }
+        }
+        return fit(arrays, new int[arrays.length], arrays.length == 0 ? 0 : arrays[0].length);
+    }
+
+    /**
+     * Clusters the rows of the matrix without copying them
+     */
+    public Clustering fit(final FloatsMatrix matrix) {
+        final float[][] arrays = new float[matrix.getRows()][];
+        final int[] offsets = new int[arrays.length];
+        Arrays.fill(arrays, matrix.contents());
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = i * matrix.getColumns();
+        }
+        return fit(arrays, offsets, matrix.getColumns());
+    }
+
+    private Clustering fit(final float[][] arrays, final int[] offsets, final int dimensions) {
+        Preconditions.checkArgument(arrays.length >= clusters, "Need at least as many vectors as clusters");
+        final Data data = new Data(arrays, offsets, dimensions);
+        final Random random = new Random(seed);
+        final float[] centroids = seed(data, random);
+        final boolean miniBatch = batchSize > 0 && batchSize < data.size;
+        final int[] assignments = new int[data.size];
+        Arrays.fill(assignments, -1);
+        int iterations = 0;
+        boolean converged = false;
+        if (miniBatch) {
+            final long[] totalCounts = new long[clusters];
+            final int[] batch = new int[batchSize];
+            // Exponentially weighted average of the inertia per vector of each batch, as used by scikit-learn
+            final double smoothing = Math.min(1, 2.0 * batchSize / (data.size + 1));
+            double averageInertia = Double.NaN;
+            double bestInertia = Double.POSITIVE_INFINITY;
+            int withoutImprovement = 0;
+            while (iterations < maxIterations && !converged) {
+                iterations++;
+                for (int i = 0; i < batchSize; i++) {
+                    batch[i] = random.nextInt(data.size);
+                }
+                final Accumulator accumulator = assign(data, centroids, batch, batchSize, null);
+                final double shift = updateMiniBatch(centroids, accumulator, totalCounts, dimensions);
+                final double batchInertia = accumulator.inertia / batchSize;
+                averageInertia = Double.isNaN(averageInertia) ? batchInertia
+                        : averageInertia * (1 - smoothing) + batchInertia * smoothing;
+                if (averageInertia < bestInertia) {
+                    bestInertia = averageInertia;
+                    withoutImprovement = 0;
+                } else {
+                    withoutImprovement++;
+                }
+                converged = shift <= tolerance * tolerance || withoutImprovement >= patience;
+            }
+        } else {
+            while (iterations < maxIterations && !converged) {
+                iterations++;
+                final Accumulator accumulator = assign(data, centroids, null, data.size, assignments);
+                final double shift = updateLloyd(centroids, accumulator, dimensions);
+                converged = accumulator.changed == 0 || shift <= tolerance * tolerance;
+            }
+        }
+        final Accumulator last = assign(data, centroids, null, data.size, assignments);
+        return new Clustering(new FloatsMatrix(centroids, clusters, dimensions), assignments, last.inertia, iterations,
+                converged);
+    }
+
+    /**
+     * Picks each centroid from a random sample with probability proportional to its squared distance from the
+     * nearest centroid picked so far (Arthur and Vassilvitskii, "k-means++: The Advantages of Careful Seeding").
+     */
+    private float[] seed(final Data data, final Random random) {
+        final int dimensions = data.dimensions;
+        final int sampleSize = (int) Math.min(data.size, (long) clusters * SEEDING_SAMPLE_PER_CLUSTER);
+        final int[] sample = sampleWithoutReplacement(data.size, sampleSize, random);
+        final float[] centroids = new float[clusters * dimensions];
+        final double[] distances = new double[sampleSize];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        int chosen = sample[random.nextInt(sampleSize)];
+        for (int c = 0; c < clusters; c++) {
+            System.arraycopy(data.arrays[chosen], data.offsets[chosen], centroids, c * dimensions, dimensions);
+            final int centroid = c;
+            forEachChunk(sampleSize, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    final int index = sample[i];
+                    distances[i] = Math.min(distances[i], FloatKernels.squaredDistance(data.arrays[index],
+                            data.offsets[index], centroids, centroid * dimensions, dimensions));
+                }
+            });
+            if (c + 1 < clusters) {
+                double total = 0;
+                for (final double distance : distances) {
+                    total += distance;
+                }
+                double target = random.nextDouble() * total;
+                int next = 0;
+                // Falls back to the last vector if rounding leaves the target just above the total
+                while (next < sampleSize - 1 && (target -= distances[next]) >= 0) {
+                    next++;
+                }
+                chosen = sample[next];
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * Assigns each of the first count vectors of indices (or every vector if indices is null) to its nearest
+     * centroid, summing them into per-thread accumulators.
+     * @param assignments if not null, receives the nearest centroid of each vector, and is used to count how many
+     * vectors changed cluster
+     */
+    private Accumulator assign(final Data data, final float[] centroids, final int[] indices, final int count,
+                               final int[] assignments) {
+        final int dimensions = data.dimensions;
+        final float[] centroidNorms = new float[clusters];
+        for (int c = 0; c < clusters; c++) {
+            centroidNorms[c] = FloatKernels.sumOfSquares(centroids, c * dimensions, dimensions);
+        }
+        final IntStream chunks = IntStream.range(0, (count + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        return (parallel ? chunks.parallel() : chunks).collect(() -> new Accumulator(clusters, dimensions),
+                (accumulator, chunk) -> {
+                    final int end = Math.min(count, (chunk + 1) * CHUNK_SIZE);
+                    for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                        final int index = indices == null ? i : indices[i];
+                        accumulator.add(data, index, centroids, centroidNorms, assignments);
+                    }
+                }, Accumulator::merge);
+    }
+
+    /**
+     * Moves each centroid to the mean of its vectors, leaving any centroid without vectors where it is.
+     * @return the largest squared distance moved by any centroid
+     */
+    private double updateLloyd(final float[] centroids, final Accumulator accumulator, final int dimensions) {
+        double shift = 0;
+        final float[] previous = new float[dimensions];
+        for (int c = 0; c < clusters; c++) {
+            if (accumulator.counts[c] > 0) {
+                System.arraycopy(centroids, c * dimensions, previous, 0, dimensions);
+                FloatKernels.scale(accumulator.sums, c * dimensions, 1f / accumulator.counts[c], centroids,
+                        c * dimensions, dimensions);
+                shift = Math.max(shift, FloatKernels.squaredDistance(previous, 0, centroids, c * dimensions,
+                        dimensions));
+            }
+        }
+        return shift;
+    }
+
+    /**
+     * Moves each centroid towards the mean of its vectors in the batch, with a learning rate of the number of vectors
+     * in the batch over the number assigned to it in every batch so far, so each centroid is the running mean of all
+     * the vectors ever assigned to it.
+     * @return the largest squared distance moved by any centroid
+     */
+    private double updateMiniBatch(final float[] centroids, final Accumulator accumulator, final long[] totalCounts,
+                                   final int dimensions) {
+        double shift = 0;
+        final float[] previous = new float[dimensions];
+        for (int c = 0; c < clusters; c++) {
+            final long count = accumulator.counts[c];
+            if (count > 0) {
+                totalCounts[c] += count;
+                System.arraycopy(centroids, c * dimensions, previous, 0, dimensions);
+                // centroid = centroid * (1 - count / total) + sum / total
+                FloatKernels.scale(centroids, c * dimensions, 1 - (float) count / totalCounts[c], centroids,
+                        c * dimensions, dimensions);
+                FloatKernels.axpy(1f / totalCounts[c], accumulator.sums, c * dimensions, centroids, c * dimensions,
+                        dimensions);
+                shift = Math.max(shift, FloatKernels.squaredDistance(previous, 0, centroids, c * dimensions,
+                        dimensions));
+            }
+        }
+        return shift;
+    }
+
+    private void forEachChunk(final int count, final IntBiConsumer action) {
+        final IntStream chunks = IntStream.range(0, (count + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        (parallel ? chunks.parallel() : chunks)
+                .forEach(chunk -> action.accept(chunk * CHUNK_SIZE, Math.min(count, (chunk + 1) * CHUNK_SIZE)));
+    }
+
+    private static int[] sampleWithoutReplacement(final int size, final int count, final Random random) {
+        final int[] indices = IntStream.range(0, size).toArray();
+        // Partial Fisher-Yates shuffle, so the sample is the first count indices
+        for (int i = 0; i < count; i++) {
+            final int swap = i + random.nextInt(size - i);
+            final int index = indices[swap];
+            indices[swap] = indices[i];
+            indices[i] = index;
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * @return the index of the centroid nearest to the vector at the offset, with its squared distance in the first
+     * element of scores
+     */
+    private static int nearest(final float[] vector, final int offset, final int dimensions, final float[] centroids,
+                               final float[] centroidNorms, final float[] scores) {
+        FloatKernels.dotProductRows(vector, offset, centroids, 0, dimensions, centroidNorms.length, dimensions, scores,
+                0);
+        int best = 0;
+        float bestScore = Float.POSITIVE_INFINITY;
+        for (int c = 0; c < centroidNorms.length; c++) {
+            // |x - c|² without the |x|² term, which is the same for every centroid
+            final float score = centroidNorms[c] - 2 * scores[c];
+            if (score < bestScore) {
+                bestScore = score;
+                best = c;
+            }
+        }
+        scores[0] = Math.max(0, bestScore + FloatKernels.sumOfSquares(vector, offset, dimensions));
+        return best;
+    }
+
+    private static float[] toFloats(final IVector vector) {
+        if (vector instanceof FloatsVector floats) {
+            return floats.contents();
+        } else if (vector instanceof DoublesVector doubles) {
+            final float[] result = new float[doubles.contents().length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (float) doubles.contents()[i];
+            }
+            return result;
+        }
+        throw new IllegalArgumentException("Unsupported vector type " + vector.getClass());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int clusters = 8;
+        private int maxIterations = 100;
+        private double tolerance = 1e-4;
+        private int batchSize = 0;
+        private int patience = 10;
+        private long seed = 0;
+        private boolean parallel = true;
+
+        public Builder clusters(int clusters) {
+            this.clusters = clusters;
+            return this;
+        }
+
+        /**
+         * The most full or mini-batch iterations to run before stopping without converging
+         */
+        public Builder maxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+
+        /**
+         * Iterations stop once no centroid moves further than this distance
+         */
+        public Builder tolerance(double tolerance) {
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * The number of vectors sampled for each mini-batch update, or 0 (the default) to use every vector in every
+         * iteration
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Mini-batch iterations stop early once the smoothed inertia of the batches has not improved for this many
+         * batches in a row
+         */
+        public Builder patience(int patience) {
+            this.patience = patience;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Whether to assign vectors using the common ForkJoin pool, the default
+         */
+        public Builder parallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        public KMeans build() {
+            Preconditions.checkArgument(clusters > 0, "Need at least one cluster");
+            Preconditions.checkArgument(maxIterations > 0 && tolerance >= 0 && batchSize >= 0 && patience > 0);
+            return new KMeans(clusters, maxIterations, tolerance, batchSize, patience, seed, parallel);
+        }
+    }
+
+    /**
+     * The result of {@link #fit}.
+     * @param centroids the centre of each cluster as a row
+     * @param assignments the cluster of each vector, in the order they were given
+     * @param inertia the sum of the squared distances from each vector to the centroid of its cluster
+     * @param iterations the number of full or mini-batch iterations run
+     * @param converged false if iterations stopped because they reached the maximum
+     */
+    public record Clustering(FloatsMatrix centroids, int[] assignments, double inertia, int iterations,
+                             boolean converged) {
+
+        /**
+         * @return the cluster whose centroid is nearest to the vector, which need not be one that was clustered
+         */
+        public int assign(final IVector vector) {
+            final float[] values = toFloats(vector);
+            final int dimensions = centroids.getColumns();
+            if (values.length != dimensions) {
+                throw new IllegalArgumentException("Vectors must have the same dimensions");
+            }
+            final float[] centroidNorms = new float[centroids.getRows()];
+            for (int c = 0; c < centroidNorms.length; c++) {
+                centroidNorms[c] = FloatKernels.sumOfSquares(centroids.contents(), c * dimensions, dimensions);
+            }
+            return nearest(values, 0, dimensions, centroids.contents(), centroidNorms, new float[centroidNorms.length]);
+        }
+    }
+
+    /**
+     * The vectors being clustered, where vector i has dimensions components starting at offsets[i] in arrays[i]
+     */
+    private record Data(float[][] arrays, int[] offsets, int dimensions, int size) {
+
+        Data(final float[][] arrays, final int[] offsets, final int dimensions) {
+            this(arrays, offsets, dimensions, arrays.length);
+        }
+    }
+
+    /**
+     * Sums of the vectors assigned to each centroid by one thread
+     */
+    private static final class Accumulator {
+
+        private final float[] sums;
+        private final long[] counts;
+        private final float[] scores;
+        private double inertia;
+        private int changed;
+
+        Accumulator(final int clusters, final int dimensions) {
+            this.sums = new float[clusters * dimensions];
+            this.counts = new long[clusters];
+            this.scores = new float[clusters];
+        }
+
+        void add(final Data data, final int index, final float[] centroids, final float[] centroidNorms,
+                 final int[] assignments) {
+            final int dimensions = data.dimensions;
+            final int cluster = nearest(data.arrays[index], data.offsets[index], dimensions, centroids, centroidNorms,
+                    scores);
+            inertia += scores[0];
+            counts[cluster]++;
+            FloatKernels.axpy(1, data.arrays[index], data.offsets[index], sums, cluster * dimensions, dimensions);
+            if (assignments != null && assignments[index] != cluster) {
+                assignments[index] = cluster;
+                changed++;
+            }
+        }
+
+        void merge(final Accumulator other) {
+            FloatKernels.add(sums, 0, other.sums, 0, sums, 0, sums.length);
+            for (int c = 0; c < counts.length; c++) {
+                counts[c] += other.counts[c];
+            }
+            inertia += other.inertia;
+            changed += other.changed;
+        }
+    }
+}
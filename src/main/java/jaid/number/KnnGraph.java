@@ -0,0 +1,140 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.os.FileIO;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The k nearest neighbours of every vector in a set, as built by {@link NNDescent}. Neighbours are stored in a single
+ * int[] of k entries per vector, nearest first, along with their distances, so a graph of a million vectors with 16
+ * neighbours each is two arrays of 64MB rather than millions of objects. The graph can be saved with {@link #write}
+ * and loaded with {@link #read}, the file is the number of vectors and k as ints followed by the neighbours and then
+ * the distances, all little endian.
+ */
+public final class KnnGraph {
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    /**
+     * Largest byte[] that JVMs reliably allocate, a few bytes short of Integer.MAX_VALUE for the array header
+     */
+    private static final int MAX_BYTES = Integer.MAX_VALUE - 8;
+
+    private final int size;
+    private final int k;
+    private final int[] neighbours;
+    private final float[] distances;
+
+    /**
+     * @param neighbours the k neighbours of each vector in turn, nearest first, which are used directly rather than
+     * copied
+     * @param distances the distance to each of the neighbours
+     */
+    public KnnGraph(final int size, final int k, final int[] neighbours, final float[] distances) {
+        Preconditions.checkArgument(size >= 0 && k >= 0);
+        Preconditions.checkArgument(neighbours.length == (long) size * k && distances.length == (long) size * k,
+                "Must have k neighbours and distances for each vector");
+        this.size = size;
+        this.k = k;
+        this.neighbours = neighbours;
+        this.distances = distances;
+    }
+
+    /**
+     * @return the number of vectors in the graph
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of neighbours of each vector
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @return the neighbour of the vector at the rank, where rank 0 is the nearest
+     */
+    public int neighbour(final int vector, final int rank) {
+        return neighbours[index(vector, rank)];
+    }
+
+    public float distance(final int vector, final int rank) {
+        return distances[index(vector, rank)];
+    }
+
+    /**
+     * @return a copy of the neighbours of the vector, nearest first
+     */
+    public int[] neighbours(final int vector) {
+        Preconditions.checkElementIndex(vector, size);
+        return Arrays.copyOfRange(neighbours, vector * k, (vector + 1) * k);
+    }
+
+    /**
+     * @throws IllegalStateException if the graph is too large to serialise into a single byte[]
+     */
+    public byte[] toBytes() {
+        final long bytes = HEADER_BYTES + (long) size * k * (Integer.BYTES + Float.BYTES);
+        if (bytes > MAX_BYTES) {
+            throw new IllegalStateException("Graph of " + bytes + " bytes is too large for a byte[]");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(size).putInt(k);
+        buffer.asIntBuffer().put(neighbours);
+        buffer.position(HEADER_BYTES + neighbours.length * Integer.BYTES);
+        buffer.asFloatBuffer().put(distances);
+        return buffer.array();
+    }
+
+    public static KnnGraph fromBytes(final byte[] bytes) {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        final int size = buffer.getInt();
+        final int k = buffer.getInt();
+        Preconditions.checkArgument(bytes.length == HEADER_BYTES + (long) size * k * (Integer.BYTES + Float.BYTES),
+                "Not a serialised graph");
+        final int[] neighbours = new int[size * k];
+        final float[] distances = new float[size * k];
+        buffer.asIntBuffer().get(neighbours);
+        buffer.position(HEADER_BYTES + neighbours.length * Integer.BYTES);
+        buffer.asFloatBuffer().get(distances);
+        return new KnnGraph(size, k, neighbours, distances);
+    }
+
+    public void write(final String fileName) {
+        FileIO.writeBytes(fileName, toBytes());
+    }
+
+    public static KnnGraph read(final File file) {
+        return fromBytes(FileIO.readBytes(file));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        KnnGraph that = (KnnGraph) o;
+        return size == that.size && k == that.k && Arrays.equals(neighbours, that.neighbours)
+                && Arrays.equals(distances, that.distances);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * size + k) + Arrays.hashCode(neighbours);
+    }
+
+    private int index(final int vector, final int rank) {
+        Preconditions.checkElementIndex(vector, size);
+        Preconditions.checkElementIndex(rank, k);
+        return vector * k + rank;
+    }
+}
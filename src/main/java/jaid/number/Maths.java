@@ -41,7 +41,7 @@ public class Maths {
     }
 
     public static double sigmoid(final double value) {
-        return 1 / (1 + StrictMath.exp(-value));
+        return 1 / (1 + Math.exp(-value));
     }
 
     public static double sigmoidDerivative(final double value) {
@@ -0,0 +1,167 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.VectorSupport;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates MinHash signatures of sets of ints (such as hashed tokens or shingles), where the fraction of equal
+ * positions in two signatures is an unbiased estimate of the Jaccard similarity of the two sets. Each position uses
+ * its own hash function from a multiply-add family with a xorshift-multiply finaliser, and the hash functions are
+ * evaluated several at a time in Vector API lanes so that the minimums are kept in registers across the whole set
+ * (or one at a time when {@link VectorSupport#isEnabled()} is false).
+ * Instances are immutable and threadsafe, see {@link MinHashLshIndex} for searching signatures.
+ */
+public class MinHash {
+
+    /**
+     * Multiplier from the murmur3 finaliser, used to spread the high bits of each hash back into the low bits
+     */
+    private static final int FINALISER_MULTIPLIER = 0x85ebca6b;
+
+    private final int numHashes;
+    /**
+     * Odd random multipliers and random offsets for each hash function, padded up to a whole number of vector lanes
+     */
+    private final int[] multipliers;
+    private final int[] offsets;
+
+    public MinHash(final int numHashes, final long seed) {
+        Preconditions.checkArgument(numHashes > 0);
+        this.numHashes = numHashes;
+        final int lanes = VectorSupport.isEnabled() ? Simd.SPECIES.length() : 1;
+        final int padded = (numHashes + lanes - 1) / lanes * lanes;
+        final Random random = new Random(seed);
+        multipliers = new int[padded];
+        offsets = new int[padded];
+        for (int i = 0; i < padded; i++) {
+            multipliers[i] = random.nextInt() | 1;
+            offsets[i] = random.nextInt();
+        }
+    }
+
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    /**
+     * @param elements members of the set, duplicates do not affect the signature
+     * @return the minimum hash of the elements for each of the hash functions, all {@link Integer#MAX_VALUE} if the
+     * set is empty
+     */
+    public int[] signature(final int[] elements) {
+        final int[] signature = VectorSupport.isEnabled() ? Simd.signature(elements, multipliers, offsets)
+                : scalarSignature(elements, multipliers, offsets);
+        return numHashes == signature.length ? signature : Arrays.copyOf(signature, numHashes);
+    }
+
+    /**
+     * @return the hashes of every overlapping run of shingleLength characters in the text, or of the whole text if it
+     * is shorter than that
+     */
+    public static int[] shingles(final CharSequence text, final int shingleLength) {
+        Preconditions.checkArgument(shingleLength > 0);
+        if (text.length() <= shingleLength) {
+            return new int[]{text.toString().hashCode()};
+        }
+        // Polynomial rolling hash, which is the same as String.hashCode of each shingle
+        int power = 1;
+        for (int i = 0; i < shingleLength - 1; i++) {
+            power *= 31;
+        }
+        final int[] hashes = new int[text.length() - shingleLength + 1];
+        int hash = 0;
+        for (int i = 0; i < shingleLength; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        hashes[0] = hash;
+        for (int i = shingleLength; i < text.length(); i++) {
+            hash = 31 * (hash - power * text.charAt(i - shingleLength)) + text.charAt(i);
+            hashes[i - shingleLength + 1] = hash;
+        }
+        return hashes;
+    }
+
+    /**
+     * @return the estimated Jaccard similarity of the two sets, the fraction of positions where the signatures agree
+     */
+    public static double similarity(final int[] signature1, final int[] signature2) {
+        Preconditions.checkArgument(signature1.length == signature2.length, "Signatures must have the same length");
+        final int equal = VectorSupport.isEnabled() ? Simd.countEqual(signature1, signature2)
+                : scalarCountEqual(signature1, signature2, 0);
+        return (double) equal / signature1.length;
+    }
+
+    private static int[] scalarSignature(final int[] elements, final int[] multipliers, final int[] offsets) {
+        final int[] signature = new int[multipliers.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (final int element : elements) {
+            for (int h = 0; h < multipliers.length; h++) {
+                int hash = multipliers[h] * element + offsets[h];
+                hash = (hash ^ (hash >>> 16)) * FINALISER_MULTIPLIER;
+                hash ^= hash >>> 13;
+                signature[h] = Math.min(signature[h], hash);
+            }
+        }
+        return signature;
+    }
+
+    private static int scalarCountEqual(final int[] signature1, final int[] signature2, final int start) {
+        int equal = 0;
+        for (int i = start; i < signature1.length; i++) {
+            if (signature1[i] == signature2[i]) {
+                equal++;
+            }
+        }
+        return equal;
+    }
+
+    /**
+     * Vector API versions of the kernels, in a nested class so that it is only linked when the Vector API is enabled
+     */
+    private static final class Simd {
+
+        /**
+         * The same width as the float and double kernels, so that jaid.vector.bits limits every Vector API path
+         */
+        static final VectorSpecies<Integer> SPECIES = VectorSpecies.of(int.class,
+                VectorShape.forBitSize(VectorSupport.vectorBits(IntVector.SPECIES_PREFERRED.vectorBitSize())));
+
+        static int[] signature(final int[] elements, final int[] multipliers, final int[] offsets) {
+            final int[] signature = new int[multipliers.length];
+            final int width = SPECIES.length();
+            for (int h = 0; h < multipliers.length; h += width) {
+                final var multiplier = IntVector.fromArray(SPECIES, multipliers, h);
+                final var offset = IntVector.fromArray(SPECIES, offsets, h);
+                var min = IntVector.broadcast(SPECIES, Integer.MAX_VALUE);
+                for (final int element : elements) {
+                    var hash = multiplier.mul(element).add(offset);
+                    hash = hash.lanewise(VectorOperators.XOR, hash.lanewise(VectorOperators.LSHR, 16))
+                            .mul(FINALISER_MULTIPLIER);
+                    hash = hash.lanewise(VectorOperators.XOR, hash.lanewise(VectorOperators.LSHR, 13));
+                    min = min.min(hash);
+                }
+                min.intoArray(signature, h);
+            }
+            return signature;
+        }
+
+        static int countEqual(final int[] signature1, final int[] signature2) {
+            final int width = SPECIES.length();
+            final int vectorizableLimit = SPECIES.loopBound(signature1.length);
+            int equal = 0;
+            for (int i = 0; i < vectorizableLimit; i += width) {
+                equal += IntVector.fromArray(SPECIES, signature1, i)
+                        .eq(IntVector.fromArray(SPECIES, signature2, i))
+                        .trueCount();
+            }
+            return equal + scalarCountEqual(signature1, signature2, vectorizableLimit);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import jaid.function.IntBiConsumer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locality sensitive hashing index of {@link MinHash} signatures using banding. Each signature is split into bands of
+ * rows, and two signatures become candidates if they are identical in at least one band, which happens with
+ * probability 1 - (1 - s^rows)^bands for sets with Jaccard similarity s. More rows per band raises the similarity at
+ * which that probability rises steeply (roughly (1/bands)^(1/rows)), while more bands lowers it.
+ * Lookups only touch one bucket per band, so they do not depend on the number of indexed signatures except through
+ * the number of candidates returned. Signatures are identified by the sequential id returned from {@link #add}.
+ */
+public class MinHashLshIndex {
+
+    private final int bands;
+    private final int rows;
+    /**
+     * For each band, the ids of the signatures with each band hash
+     */
+    private final List<Long2ObjectOpenHashMap<IntArrayList>> buckets;
+    private final List<int[]> signatures = new ArrayList<>();
+
+    /**
+     * @param bands number of bands, where bands * rows must be the length of the signatures that will be added
+     */
+    public MinHashLshIndex(final int bands, final int rows) {
+        Preconditions.checkArgument(bands > 0 && rows > 0);
+        this.bands = bands;
+        this.rows = rows;
+        this.buckets = new ArrayList<>(bands);
+        for (int i = 0; i < bands; i++) {
+            buckets.add(new Long2ObjectOpenHashMap<>());
+        }
+    }
+
+    /**
+     * @return the id of the signature
+     */
+    public int add(final int[] signature) {
+        checkSignature(signature);
+        final int id = signatures.size();
+        signatures.add(signature);
+        for (int band = 0; band < bands; band++) {
+            buckets.get(band).computeIfAbsent(bandHash(signature, band), k -> new IntArrayList(1)).add(id);
+        }
+        return id;
+    }
+
+    /**
+     * @return ids of every signature sharing at least one band with the query
+     */
+    public IntSet candidates(final int[] signature) {
+        checkSignature(signature);
+        final IntSet candidates = new IntOpenHashSet();
+        for (int band = 0; band < bands; band++) {
+            final IntArrayList bucket = buckets.get(band).get(bandHash(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @return ids of the candidates whose estimated Jaccard similarity with the query is at least the threshold
+     */
+    public IntList nearDuplicates(final int[] signature, final double threshold) {
+        final IntList results = new IntArrayList();
+        candidates(signature).forEach(id -> {
+            if (MinHash.similarity(signature, signatures.get(id)) >= threshold) {
+                results.add(id);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Passes every pair of ids (lower id first) sharing at least one band to the consumer exactly once.
+     */
+    public void forEachCandidatePair(final IntBiConsumer consumer) {
+        final IntSet seen = new IntOpenHashSet();
+        for (int id = 0; id < signatures.size(); id++) {
+            seen.clear();
+            for (int band = 0; band < bands; band++) {
+                final IntArrayList bucket = buckets.get(band).get(bandHash(signatures.get(id), band));
+                for (int i = 0; i < bucket.size(); i++) {
+                    final int other = bucket.getInt(i);
+                    // Each pair is only reported from its lower id, and only once however many bands it shares
+                    if (other > id && seen.add(other)) {
+                        consumer.accept(id, other);
+                    }
+                }
+            }
+        }
+    }
+
+    public int[] getSignature(final int id) {
+        return signatures.get(id);
+    }
+
+    public int size() {
+        return signatures.size();
+    }
+
+    public void clear() {
+        buckets.forEach(Long2ObjectOpenHashMap::clear);
+        signatures.clear();
+    }
+
+    private long bandHash(final int[] signature, final int band) {
+        long hash = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            hash = hash * 0x9E3779B97F4A7C15L + signature[i];
+        }
+        return hash;
+    }
+
+    private void checkSignature(final int[] signature) {
+        Preconditions.checkArgument(signature.length == bands * rows, "Signature length must be bands * rows");
+    }
+}
@@ -0,0 +1,127 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import it.unimi.dsi.fastutil.objects.Reference2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+import jaid.collection.MultiVector;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Late interaction search over {@link MultiVector} documents. Every token of every document is indexed in a
+ * {@link NearestVectorStore} ranked by dot product, and a query probes it with each of its own tokens to find candidate
+ * documents which have at least one token close to some query token. Only those candidates are then scored exactly with
+ * {@link MultiVector#maxSim}, so the cost of a query depends on the number of probes rather than the number of
+ * documents. Like {@link NearestVectorStore} this is not threadsafe.
+ */
+public class MultiVectorStore {
+
+    private final NearestVectorStore tokens = new NearestVectorStore(false);
+    /**
+     * The document of each token in {@link #tokens}, by identity since different documents may have equal tokens. A
+     * token instance belongs to at most one document, see {@link #add}
+     */
+    private final Map<IVector, MultiVector> documents = new Reference2ReferenceOpenHashMap<>();
+    private final int probesPerToken;
+    private int size;
+    private int maxDocumentSize;
+
+    public MultiVectorStore() {
+        this(10);
+    }
+
+    /**
+     * @param probesPerToken how many of the nearest indexed tokens each query token finds, where more probes find more
+     * candidates at the cost of scoring them
+     */
+    public MultiVectorStore(final int probesPerToken) {
+        Preconditions.checkArgument(probesPerToken > 0, "Need at least one probe per token");
+        this.probesPerToken = probesPerToken;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the same token instance appears twice in the document or is already a token
+     * of an added document, since each token can only lead back to one document
+     */
+    public void add(final MultiVector document) {
+        final Set<IVector> added = new ReferenceOpenHashSet<>(document.size());
+        for (final FloatsVector token : document.tokens()) {
+            Preconditions.checkArgument(!documents.containsKey(token) && added.add(token),
+                    "Token instance is already indexed, tokens cannot be shared between documents");
+        }
+        for (final FloatsVector token : document.tokens()) {
+            tokens.add(token);
+            documents.put(token, document);
+        }
+        maxDocumentSize = Math.max(maxDocumentSize, document.size());
+        size++;
+    }
+
+    /**
+     * @return true if this exact document (rather than an equal one) was removed
+     */
+    public boolean remove(final MultiVector document) {
+        for (final FloatsVector token : document.tokens()) {
+            if (documents.get(token) != document) {
+                return false;
+            }
+        }
+        for (final FloatsVector token : document.tokens()) {
+            documents.remove(token);
+            tokens.removeIdentical(token);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @return up to k documents with the highest {@link MultiVector#maxSim} with the query, best first, from among those
+     * with a token found by probing with the query's tokens
+     */
+    public List<MultiVector> query(final MultiVector query, final int k) {
+        final ReferenceLinkedOpenHashSet<MultiVector> candidates = new ReferenceLinkedOpenHashSet<>();
+        for (final FloatsVector queryToken : query.tokens()) {
+            for (final IVector token : tokens.query(queryToken, probesPerToken)) {
+                final MultiVector document = documents.get(token);
+                if (document != null) {
+                    candidates.add(document);
+                }
+            }
+        }
+        final float[] scratch = new float[maxDocumentSize];
+        final List<Scored> scored = new ArrayList<>(candidates.size());
+        for (final MultiVector candidate : candidates) {
+            scored.add(new Scored(candidate, candidate.maxSim(query, scratch)));
+        }
+        scored.sort(Comparator.comparingDouble(Scored::score).reversed());
+        final List<MultiVector> results = new ArrayList<>(Math.min(k, scored.size()));
+        for (int i = 0; i < k && i < scored.size(); i++) {
+            results.add(scored.get(i).document());
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of documents
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        tokens.clear();
+        documents.clear();
+        size = 0;
+        maxDocumentSize = 0;
+    }
+
+    private record Scored(MultiVector document, float score) {
+    }
+}
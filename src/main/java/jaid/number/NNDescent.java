@@ -0,0 +1,450 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.DoublesVector;
+import jaid.collection.FloatKernels;
+import jaid.collection.FloatsMatrix;
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Builds an approximate {@link KnnGraph} of a set of vectors with NN-Descent (Dong, Charikar and Li, "Efficient
+ * K-Nearest Neighbor Graph Construction for Generic Similarity Measures"), which starts from random neighbours and
+ * repeatedly compares the neighbours of each vector's neighbours, on the basis that a neighbour of a neighbour is
+ * likely to also be a neighbour. This typically reaches over 90% recall after comparing a small fraction of all pairs.
+ * Each vector's current neighbours are a bounded max-heap in shared int[] and float[] arrays, so no objects are created
+ * per neighbour. Each iteration samples the neighbours which are new since the last iteration, and then runs the local
+ * joins of every vector in parallel, with lock striping guarding the heaps.
+ * Vectors can be {@link FloatsVector}s, {@link DoublesVector}s (converted to floats) or the rows of a
+ * {@link FloatsMatrix}, compared by squared Euclidean distance or by cosine distance (1 - cosine similarity). Instances
+ * are immutable and threadsafe, and are created with {@link #builder()}.
+ */
+public class NNDescent {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    private final int k;
+    private final boolean cosine;
+    private final double sampleRate;
+    private final double delta;
+    private final int maxIterations;
+    private final long seed;
+    private final boolean parallel;
+
+    private NNDescent(final int k, final boolean cosine, final double sampleRate, final double delta,
+                      final int maxIterations, final long seed, final boolean parallel) {
+        this.k = k;
+        this.cosine = cosine;
+        this.sampleRate = sampleRate;
+        this.delta = delta;
+        this.maxIterations = maxIterations;
+        this.seed = seed;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param vectors {@link FloatsVector}s or {@link DoublesVector}s which all have the same dimensions, more of them
+     * than the number of neighbours
+     */
+    public KnnGraph buildGraph(final List<? extends IVector> vectors) {
+        final float[][] arrays = new float[vectors.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = toFloats(vectors.get(i));
+            if (arrays[i].length != arrays[0].length) {
+                throw new IllegalArgumentException("Vectors must have the same dimensions");
+            }
+        }
+        return buildGraph(arrays, new int[arrays.length], arrays.length == 0 ? 0 : arrays[0].length);
+    }
+
+    /**
+     * Builds the graph of the rows of the matrix
+     */
+    public KnnGraph buildGraph(final FloatsMatrix matrix) {
+        final float[][] arrays = new float[matrix.getRows()][];
+        final int[] offsets = new int[arrays.length];
+        Arrays.fill(arrays, matrix.contents());
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = i * matrix.getColumns();
+        }
+        return buildGraph(arrays, offsets, matrix.getColumns());
+    }
+
+    private KnnGraph buildGraph(final float[][] arrays, final int[] offsets, final int dimensions) {
+        Preconditions.checkArgument(arrays.length > k, "Need more vectors than neighbours");
+        final Heaps heaps = new Heaps(normalizedIfCosine(arrays, offsets, dimensions), dimensions);
+        initialise(heaps);
+        final int size = arrays.length;
+        final int sampleSize = Math.max(1, (int) (sampleRate * k));
+        final Random random = new Random(seed);
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            final int[][] newCandidates = new int[size][];
+            final int[][] oldCandidates = new int[size][];
+            sampleCandidates(heaps, sampleSize, random, newCandidates, oldCandidates);
+            final IntStream vectors = IntStream.range(0, size);
+            final long updates = (parallel ? vectors.parallel() : vectors)
+                    .mapToLong(v -> localJoin(heaps, newCandidates[v], oldCandidates[v]))
+                    .sum();
+            if (updates <= delta * size * k) {
+                break;
+            }
+        }
+        return heaps.toGraph();
+    }
+
+    /**
+     * Starts each vector with k distinct random neighbours
+     */
+    private void initialise(final Heaps heaps) {
+        final IntStream vectors = IntStream.range(0, heaps.size);
+        (parallel ? vectors.parallel() : vectors).forEach(v -> {
+            // Seeded per vector so that the result does not depend on which thread initialises which vector
+            final Random random = new Random(seed * 31 + v);
+            int added = 0;
+            while (added < k) {
+                final int other = random.nextInt(heaps.size);
+                if (other != v && heaps.push(v, other, heaps.distance(v, other))) {
+                    added++;
+                }
+            }
+        });
+    }
+
+    /**
+     * Fills the candidates of each vector: up to sampleSize of its neighbours which are new since the last iteration
+     * (which are then marked as old) and all of its old neighbours, each joined by a sample of up to sampleSize of the
+     * vectors which have it as a new or old candidate.
+     */
+    private void sampleCandidates(final Heaps heaps, final int sampleSize, final Random random,
+                                  final int[][] newCandidates, final int[][] oldCandidates) {
+        final int size = heaps.size;
+        final int[] newBuffer = new int[k];
+        final int[] oldBuffer = new int[k];
+        for (int v = 0; v < size; v++) {
+            int newCount = 0;
+            int oldCount = 0;
+            for (int r = 0; r < k; r++) {
+                if (heaps.isNew[v * k + r]) {
+                    newBuffer[newCount++] = r;
+                } else {
+                    oldBuffer[oldCount++] = heaps.neighbours[v * k + r];
+                }
+            }
+            // Partial Fisher-Yates shuffle to pick which of the new neighbours to join this time
+            final int sampled = Math.min(newCount, sampleSize);
+            for (int i = 0; i < sampled; i++) {
+                final int swap = i + random.nextInt(newCount - i);
+                final int rank = newBuffer[swap];
+                newBuffer[swap] = newBuffer[i];
+                newBuffer[i] = rank;
+                heaps.isNew[v * k + rank] = false;
+                newBuffer[i] = heaps.neighbours[v * k + rank];
+            }
+            newCandidates[v] = Arrays.copyOf(newBuffer, sampled);
+            oldCandidates[v] = Arrays.copyOf(oldBuffer, oldCount);
+        }
+        final int[][] reverseNew = reverse(newCandidates, sampleSize, random);
+        final int[][] reverseOld = reverse(oldCandidates, sampleSize, random);
+        for (int v = 0; v < size; v++) {
+            newCandidates[v] = union(newCandidates[v], reverseNew[v]);
+            oldCandidates[v] = union(oldCandidates[v], reverseOld[v]);
+        }
+    }
+
+    /**
+     * Compares every pair of new candidates, and every new candidate with every old candidate, offering each as a
+     * neighbour of the other.
+     * @return the number of times a neighbour was replaced
+     */
+    private static long localJoin(final Heaps heaps, final int[] newCandidates, final int[] oldCandidates) {
+        long updates = 0;
+        for (int i = 0; i < newCandidates.length; i++) {
+            final int first = newCandidates[i];
+            for (int j = i + 1; j < newCandidates.length; j++) {
+                updates += join(heaps, first, newCandidates[j]);
+            }
+            for (final int second : oldCandidates) {
+                if (second != first) {
+                    updates += join(heaps, first, second);
+                }
+            }
+        }
+        return updates;
+    }
+
+    private static int join(final Heaps heaps, final int first, final int second) {
+        final float distance = heaps.distance(first, second);
+        int updates = 0;
+        // The unlocked reads of the furthest neighbour can only be stale by being too far, which is checked again
+        // under the lock, so they never skip a real improvement
+        if (distance < heaps.furthest(first) && heaps.push(first, second, distance)) {
+            updates++;
+        }
+        if (distance < heaps.furthest(second) && heaps.push(second, first, distance)) {
+            updates++;
+        }
+        return updates;
+    }
+
+    /**
+     * @return for each vector, a random sample of up to sampleSize of the vectors which have it as a candidate
+     */
+    private static int[][] reverse(final int[][] candidates, final int sampleSize, final Random random) {
+        final int[][] samples = new int[candidates.length][sampleSize];
+        final int[] seen = new int[candidates.length];
+        for (int v = 0; v < candidates.length; v++) {
+            for (final int candidate : candidates[v]) {
+                // Reservoir sampling, so every vector with the candidate is equally likely to be kept
+                final int index = seen[candidate] < sampleSize ? seen[candidate] : random.nextInt(seen[candidate] + 1);
+                if (index < sampleSize) {
+                    samples[candidate][index] = v;
+                }
+                seen[candidate]++;
+            }
+        }
+        for (int v = 0; v < samples.length; v++) {
+            if (seen[v] < sampleSize) {
+                samples[v] = Arrays.copyOf(samples[v], seen[v]);
+            }
+        }
+        return samples;
+    }
+
+    private static int[] union(final int[] first, final int[] second) {
+        final int[] result = Arrays.copyOf(first, first.length + second.length);
+        int size = first.length;
+        for (final int value : second) {
+            boolean present = false;
+            for (int i = 0; i < first.length && !present; i++) {
+                present = first[i] == value;
+            }
+            if (!present) {
+                result[size++] = value;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @return the vectors as they are for Euclidean distance, or unit length copies for cosine distance
+     */
+    private Vectors normalizedIfCosine(final float[][] arrays, final int[] offsets, final int dimensions) {
+        if (!cosine) {
+            return new Vectors(arrays, offsets);
+        }
+        final float[][] normalized = new float[arrays.length][dimensions];
+        for (int i = 0; i < arrays.length; i++) {
+            final float magnitude = (float) Math.sqrt(FloatKernels.sumOfSquares(arrays[i], offsets[i], dimensions));
+            if (magnitude != 0) {
+                FloatKernels.scale(arrays[i], offsets[i], 1 / magnitude, normalized[i], 0, dimensions);
+            }
+        }
+        return new Vectors(normalized, new int[arrays.length]);
+    }
+
+    private static float[] toFloats(final IVector vector) {
+        if (vector instanceof FloatsVector floats) {
+            return floats.contents();
+        } else if (vector instanceof DoublesVector doubles) {
+            final float[] result = new float[doubles.contents().length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (float) doubles.contents()[i];
+            }
+            return result;
+        }
+        throw new IllegalArgumentException("Unsupported vector type " + vector.getClass());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private int k = 10;
+        private boolean cosine = false;
+        private double sampleRate = 0.5;
+        private double delta = 0.001;
+        private int maxIterations = 20;
+        private long seed = 0;
+        private boolean parallel = true;
+
+        /**
+         * The number of neighbours to find for each vector
+         */
+        public Builder k(int k) {
+            this.k = k;
+            return this;
+        }
+
+        /**
+         * Whether to compare vectors by cosine distance rather than squared Euclidean distance
+         */
+        public Builder cosine(boolean cosine) {
+            this.cosine = cosine;
+            return this;
+        }
+
+        /**
+         * The fraction of each vector's k neighbours to join in each iteration, lower values do less work in each
+         * iteration but may need more iterations
+         */
+        public Builder sampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+            return this;
+        }
+
+        /**
+         * Iterations stop once fewer than this fraction of the n * k neighbours change in an iteration
+         */
+        public Builder delta(double delta) {
+            this.delta = delta;
+            return this;
+        }
+
+        public Builder maxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Whether to run the local joins using the common ForkJoin pool, the default
+         */
+        public Builder parallel(boolean parallel) {
+            this.parallel = parallel;
+            return this;
+        }
+
+        public NNDescent build() {
+            Preconditions.checkArgument(k > 0, "Need at least one neighbour");
+            Preconditions.checkArgument(sampleRate > 0 && sampleRate <= 1, "Sample rate must be in range (0, 1]");
+            Preconditions.checkArgument(delta >= 0 && maxIterations > 0);
+            return new NNDescent(k, cosine, sampleRate, delta, maxIterations, seed, parallel);
+        }
+    }
+
+    /**
+     * Vector i has its components starting at offsets[i] in arrays[i]
+     */
+    private record Vectors(float[][] arrays, int[] offsets) {
+    }
+
+    /**
+     * A max-heap of the k nearest neighbours found so far for each vector, ordered by distance so that the furthest is
+     * at the root and is the one replaced by a nearer neighbour
+     */
+    private final class Heaps {
+
+        private final Vectors vectors;
+        private final int dimensions;
+        private final int size;
+        private final int[] neighbours;
+        private final float[] distances;
+        /**
+         * Whether each neighbour has been added since it was last sampled for a local join
+         */
+        private final boolean[] isNew;
+        private final Object[] locks;
+
+        Heaps(final Vectors vectors, final int dimensions) {
+            this.vectors = vectors;
+            this.dimensions = dimensions;
+            this.size = vectors.arrays.length;
+            this.neighbours = new int[size * k];
+            this.distances = new float[size * k];
+            this.isNew = new boolean[size * k];
+            Arrays.fill(distances, Float.POSITIVE_INFINITY);
+            Arrays.fill(neighbours, -1);
+            this.locks = new Object[Math.min(size, LOCK_STRIPES)];
+            for (int i = 0; i < locks.length; i++) {
+                locks[i] = new Object();
+            }
+        }
+
+        float distance(final int first, final int second) {
+            if (cosine) {
+                return 1 - FloatKernels.dotProduct(vectors.arrays[first], vectors.offsets[first],
+                        vectors.arrays[second], vectors.offsets[second], dimensions);
+            }
+            return FloatKernels.squaredDistance(vectors.arrays[first], vectors.offsets[first],
+                    vectors.arrays[second], vectors.offsets[second], dimensions);
+        }
+
+        float furthest(final int vector) {
+            return distances[vector * k];
+        }
+
+        /**
+         * Replaces the furthest neighbour of the vector with the new one if it is nearer and not already a neighbour
+         * @return whether the neighbour was added
+         */
+        boolean push(final int vector, final int neighbour, final float distance) {
+            final int base = vector * k;
+            synchronized (locks[vector % locks.length]) {
+                if (distance >= distances[base]) {
+                    return false;
+                }
+                for (int r = 0; r < k; r++) {
+                    if (neighbours[base + r] == neighbour) {
+                        return false;
+                    }
+                }
+                // Sift the new neighbour down from the root
+                int index = 0;
+                while (true) {
+                    final int left = 2 * index + 1;
+                    if (left >= k) {
+                        break;
+                    }
+                    final int right = left + 1;
+                    final int child = right < k && distances[base + right] > distances[base + left] ? right : left;
+                    if (distances[base + child] <= distance) {
+                        break;
+                    }
+                    neighbours[base + index] = neighbours[base + child];
+                    distances[base + index] = distances[base + child];
+                    isNew[base + index] = isNew[base + child];
+                    index = child;
+                }
+                neighbours[base + index] = neighbour;
+                distances[base + index] = distance;
+                isNew[base + index] = true;
+                return true;
+            }
+        }
+
+        /**
+         * @return the graph with each vector's neighbours sorted nearest first
+         */
+        KnnGraph toGraph() {
+            final int[] sortedNeighbours = new int[neighbours.length];
+            final float[] sortedDistances = new float[distances.length];
+            for (int v = 0; v < size; v++) {
+                final int base = v * k;
+                // Insertion sort, since k is small
+                for (int r = 0; r < k; r++) {
+                    final int neighbour = neighbours[base + r];
+                    final float distance = distances[base + r];
+                    int index = r;
+                    while (index > 0 && sortedDistances[base + index - 1] > distance) {
+                        sortedNeighbours[base + index] = sortedNeighbours[base + index - 1];
+                        sortedDistances[base + index] = sortedDistances[base + index - 1];
+                        index--;
+                    }
+                    sortedNeighbours[base + index] = neighbour;
+                    sortedDistances[base + index] = distance;
+                }
+            }
+            return new KnnGraph(size, k, sortedNeighbours, sortedDistances);
+        }
+    }
+}
@@ -1,27 +1,37 @@
 package jaid.number;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import it.unimi.dsi.fastutil.ints.Int2ByteAVLTreeMap;
 import it.unimi.dsi.fastutil.ints.Int2ByteMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import jaid.collection.BoundedPriorityQueue;
 import jaid.collection.IVector;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 
 import static java.util.Collections.emptyList;
 
 /**
  * Buckets {@link jaid.collection.IVector}s by their similarity hash for efficient K-NN searches, with a small
  * search space this extremely simple implementation should be able to outperform more advanced vector DBs and indexes.
- * The search halting condition is determined by the closeness of the dot product to the query, so unless you want the
- * vectors magnitude to influence similarity all vectors should be normalised first so that the dot product becomes the
- * cosine similarity.
+ * Results are ranked by cosine similarity to the query, which uses the magnitudes cached by the vectors so there is no
+ * need to normalise them first. If the magnitude of the vectors should influence similarity then construct the store
+ * with cosine set to false to rank by the raw dot product instead.
  * This is likely not suitable for sparse vectors, it is heavily dependent on the sim hash without any techniques like
- * minhash signatures.
+ * minhash signatures, see {@link SparseVectorStore} instead (or {@link MinHash} for sets).
+ * The thresholds for the bucket size are a fixed guess, so {@link #enableTuning} can instead pick it from the observed
+ * scan time and recall of queries. Changes to the bucket size are then applied a little at a time by each
+ * {@link #add} and {@link #remove}, with queries searching both the old and new buckets in the meantime.
  */
 public class NearestVectorStore {
 
@@ -32,19 +42,50 @@ public class NearestVectorStore {
             10_000, (byte)0,
             100_000, (byte)4,
             Integer.MAX_VALUE, (byte)16);
+    /**
+     * How many vectors to score between checks of whether to stop a query
+     */
+    private static final int STOP_CHECK_INTERVAL = 256;
+    /**
+     * How many vectors each {@link #add} or {@link #remove} moves into the new buckets while rebucketing
+     */
+    private static final int REBUCKET_STEP = 1024;
     private final Int2ByteAVLTreeMap thresholds;
-    private final Int2ReferenceMap<List<IVector>> vectors = new Int2ReferenceArrayMap<>();
+    private Int2ReferenceMap<List<IVector>> vectors = new Int2ReferenceArrayMap<>();
+    /**
+     * The buckets still being moved out of while rebucketing, hashed with {@link #rebucketingExponent}, or null
+     */
+    private Int2ReferenceMap<List<IVector>> rebucketing;
+    private byte rebucketingExponent;
+    /**
+     * Picks the bucket size instead of {@link #thresholds} if tuning is enabled, otherwise null
+     */
+    private Tuner tuner;
+    /**
+     * Whether results are ranked by {@link IVector#cosineSimilarity} rather than {@link IVector#dotProduct}
+     */
+    private final boolean cosine;
     private int size;
     private byte bucketSizeExponent;
 
     public NearestVectorStore() {
-        this(DEFAULT_BUCKET_THRESHOLDS);
+        this(true);
+    }
+
+    public NearestVectorStore(final boolean cosine) {
+        this(DEFAULT_BUCKET_THRESHOLDS, cosine);
     }
 
     @VisibleForTesting
     NearestVectorStore(final Map<Integer, Byte> thresholds) {
+        this(thresholds, true);
+    }
+
+    @VisibleForTesting
+    NearestVectorStore(final Map<Integer, Byte> thresholds, final boolean cosine) {
         // Need to ensure this is sorted ascending
         this.thresholds = new Int2ByteAVLTreeMap(thresholds);
+        this.cosine = cosine;
         updateBuckets();
     }
 
@@ -54,27 +95,93 @@ public class NearestVectorStore {
         vectors.computeIfAbsent(vector.getSimHashBucket(bucketSizeExponent), k -> new ArrayList<>()).add(vector);
     }
 
+    /**
+     * Removes one vector equal to the given one
+     * @return true if a vector was removed
+     */
     public boolean remove(final IVector vector) {
-        int simBucket = vector.getSimHashBucket(bucketSizeExponent);
-        List<IVector> vectorsAtHash = vectors.get(simBucket);
-        if (vectorsAtHash != null) {
-            boolean removed = vectorsAtHash.remove(vector);
+        return remove(vector, false);
+    }
 
-            if (vectorsAtHash.isEmpty()) {
-                vectors.remove(simBucket);
-            }
+    /**
+     * Removes this exact vector, rather than any equal one
+     * @return true if the vector was removed
+     */
+    public boolean removeIdentical(final IVector vector) {
+        return remove(vector, true);
+    }
+
+    private boolean remove(final IVector vector, final boolean identical) {
+        final boolean removed = remove(vectors, vector.getSimHashBucket(bucketSizeExponent), vector, identical)
+                || rebucketing != null
+                && remove(rebucketing, vector.getSimHashBucket(rebucketingExponent), vector, identical);
+        if (removed) {
             size -= 1;
             updateBuckets();
-            return removed;
         }
-        return false;
+        return removed;
     }
 
     public List<IVector> query(final IVector queryVector, final int k) {
-        // Sort results by their dot product, dropping any that are too low
+        return query(queryVector, k, null);
+    }
+
+    /**
+     * Queries as {@link #query(IVector, int)}, but checks every {@link #STOP_CHECK_INTERVAL} vectors whether to give
+     * up on the scan, such as when the caller's deadline has passed.
+     * @param stop returns true to abandon the query, or null to always finish it
+     * @throws CancellationException if the query was abandoned
+     */
+    public List<IVector> query(final IVector queryVector, final int k, final BooleanSupplier stop) {
+        final Tuner tuner = this.tuner;
+        final long start = tuner == null ? 0 : System.nanoTime();
+        // Sort results by their similarity, dropping any that are too low
         final BoundedPriorityQueue pq = new BoundedPriorityQueue(k);
-        vectors.getOrDefault(queryVector.getSimHashBucket(bucketSizeExponent), emptyList()).forEach(v -> pq.add(v, v.dotProduct(queryVector)));
-        return pq.toList();
+        int scanned = scan(vectors.getOrDefault(queryVector.getSimHashBucket(bucketSizeExponent), emptyList()),
+                queryVector, pq, stop, 0);
+        if (rebucketing != null) {
+            scanned = scan(rebucketing.getOrDefault(queryVector.getSimHashBucket(rebucketingExponent), emptyList()),
+                    queryVector, pq, stop, scanned);
+        }
+        final List<IVector> results = pq.toList();
+        if (tuner != null) {
+            tuner.record(this, queryVector, k, results, scanned, System.nanoTime() - start);
+        }
+        return results;
+    }
+
+    /**
+     * Picks the bucket size from the queries made from now on rather than from the thresholds. Every
+     * {@link Tuner#TUNE_INTERVAL} queries the bucket size is changed to the smallest which is predicted to keep the
+     * average scan time within its target, or the largest which keeps the recall sampled by comparing some queries to a
+     * search of every bucket above its target. Given both the scan time target takes priority.
+     * The change is applied a little at a time by each {@link #add} and {@link #remove}, or all at once by
+     * {@link #rebucket()}, since queries don't change the buckets so that they can be made concurrently.
+     * @param scanTarget the average time to spend scanning a query's buckets, or null for no target
+     * @param recallTarget the fraction of the true k nearest which queries should find, or 0 for no target
+     */
+    public void enableTuning(final Duration scanTarget, final double recallTarget) {
+        Preconditions.checkArgument(scanTarget != null || recallTarget > 0, "Need a scan time or recall target");
+        Preconditions.checkArgument(scanTarget == null || !scanTarget.isNegative());
+        Preconditions.checkArgument(recallTarget >= 0 && recallTarget <= 1);
+        tuner = new Tuner(scanTarget == null ? Long.MAX_VALUE : scanTarget.toNanos(), recallTarget,
+                bucketSizeExponent);
+    }
+
+    /**
+     * Finishes moving the vectors into the bucket size picked by tuning, rather than waiting for further adds and
+     * removes to do so
+     */
+    public void rebucket() {
+        if (tuner != null) {
+            // Once to finish any change in progress, and again if tuning has since picked another size
+            rebucket(tuner.targetExponent, Integer.MAX_VALUE);
+            rebucket(tuner.targetExponent, Integer.MAX_VALUE);
+        }
+    }
+
+    public boolean isCosine() {
+        return cosine;
     }
 
     public byte getBucketSizeExponent() {
@@ -87,12 +194,128 @@ public class NearestVectorStore {
 
     public void clear() {
         vectors.clear();
+        rebucketing = null;
         size = 0;
+        if (tuner != null) {
+            tuner = new Tuner(tuner.targetNanos, tuner.targetRecall, (byte)0);
+            bucketSizeExponent = 0;
+        }
         updateBuckets();
     }
 
+    private int scan(final List<IVector> bucket, final IVector queryVector, final BoundedPriorityQueue pq,
+                     final BooleanSupplier stop, int scanned) {
+        for (final IVector vector : bucket) {
+            scanned++;
+            if (stop != null && scanned % STOP_CHECK_INTERVAL == 0 && stop.getAsBoolean()) {
+                throw new CancellationException("Query stopped");
+            }
+            pq.add(vector, score(vector, queryVector));
+        }
+        return scanned;
+    }
+
+    private double score(final IVector vector, final IVector queryVector) {
+        return cosine ? vector.cosineSimilarity(queryVector) : vector.dotProduct(queryVector);
+    }
+
+    /**
+     * @return the k nearest from every bucket, to measure the recall of {@link #query}
+     */
+    private List<IVector> exactQuery(final IVector queryVector, final int k) {
+        final BoundedPriorityQueue pq = new BoundedPriorityQueue(k);
+        for (final List<IVector> bucket : vectors.values()) {
+            scan(bucket, queryVector, pq, null, 0);
+        }
+        if (rebucketing != null) {
+            for (final List<IVector> bucket : rebucketing.values()) {
+                scan(bucket, queryVector, pq, null, 0);
+            }
+        }
+        return pq.toList();
+    }
+
+    private static boolean remove(final Int2ReferenceMap<List<IVector>> buckets, final int simBucket,
+                                  final IVector vector, final boolean identical) {
+        final List<IVector> vectorsAtHash = buckets.get(simBucket);
+        if (vectorsAtHash == null) {
+            return false;
+        }
+        if (!(identical ? removeIdentical(vectorsAtHash, vector) : vectorsAtHash.remove(vector))) {
+            return false;
+        }
+        if (vectorsAtHash.isEmpty()) {
+            buckets.remove(simBucket);
+        }
+        return true;
+    }
+
+    private static boolean removeIdentical(final List<IVector> vectors, final IVector vector) {
+        for (int i = 0; i < vectors.size(); i++) {
+            if (vectors.get(i) == vector) {
+                vectors.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves up to maxMoves vectors from {@link #rebucketing} into {@link #vectors}, first starting to rebucket if the
+     * exponent differs from the current one
+     */
+    private void rebucket(final byte exponent, final int maxMoves) {
+        if (rebucketing == null) {
+            if (exponent == bucketSizeExponent) {
+                return;
+            }
+            rebucketing = vectors;
+            rebucketingExponent = bucketSizeExponent;
+            vectors = new Int2ReferenceArrayMap<>();
+            bucketSizeExponent = exponent;
+        }
+        int moved = 0;
+        final ObjectIterator<Int2ReferenceMap.Entry<List<IVector>>> buckets =
+                rebucketing.int2ReferenceEntrySet().iterator();
+        while (moved < maxMoves && buckets.hasNext()) {
+            final List<IVector> bucket = buckets.next().getValue();
+            // Take from the end of the bucket, so that a bucket larger than the step is moved over several steps
+            final List<IVector> moving = bucket.subList(Math.max(0, bucket.size() - (maxMoves - moved)), bucket.size());
+            for (final IVector vector : moving) {
+                vectors.computeIfAbsent(vector.getSimHashBucket(bucketSizeExponent), b -> new ArrayList<>())
+                        .add(vector);
+            }
+            moved += moving.size();
+            moving.clear();
+            if (bucket.isEmpty()) {
+                buckets.remove();
+            }
+        }
+        if (rebucketing.isEmpty()) {
+            rebucketing = null;
+        }
+    }
+
+    /**
+     * @return the number of vectors still to be moved into the new buckets
+     */
+    @VisibleForTesting
+    int pendingRebucketing() {
+        int pending = 0;
+        if (rebucketing != null) {
+            for (final List<IVector> bucket : rebucketing.values()) {
+                pending += bucket.size();
+            }
+        }
+        return pending;
+    }
+
     @VisibleForTesting
     protected void updateBuckets() {
+        if (tuner != null) {
+            rebucket(tuner.targetExponent, REBUCKET_STEP);
+            return;
+        }
         // thresholds are sorted ascending, so find the first one that applies
         final byte oldBucketSizeExponent = bucketSizeExponent;
         for (final Int2ByteMap.Entry entry : thresholds.int2ByteEntrySet()) {
@@ -112,4 +335,100 @@ public class NearestVectorStore {
             vectors.putAll(newVectors);
         }
     }
+
+    /**
+     * Measures queries to pick the bucket size exponent for {@link #enableTuning}. Queries can be made concurrently, so
+     * the measurements are only approximate as a query may be counted towards the next interval.
+     */
+    private static final class Tuner {
+
+        /**
+         * The most bits tuning will use for buckets, matching the largest default threshold
+         */
+        private static final byte MAX_BITS = 16;
+        private static final int TUNE_INTERVAL = 256;
+        /**
+         * How often a query is compared to a search of every bucket, which is as slow as a brute force search
+         */
+        private static final int RECALL_SAMPLE_INTERVAL = 32;
+
+        private final long targetNanos;
+        private final double targetRecall;
+        private final AtomicLong count = new AtomicLong();
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder scanned = new LongAdder();
+        private final LongAdder scanNanos = new LongAdder();
+        private final LongAdder found = new LongAdder();
+        private final LongAdder expected = new LongAdder();
+        private volatile byte targetExponent;
+        /**
+         * The lowest exponent at which recall was below its target, and the number of vectors at the time since more
+         * or fewer vectors change the recall of each exponent
+         */
+        private byte recallCeiling = MAX_BITS + 1;
+        private int recallCeilingSize;
+
+        Tuner(final long targetNanos, final double targetRecall, final byte targetExponent) {
+            this.targetNanos = targetNanos;
+            this.targetRecall = targetRecall;
+            this.targetExponent = targetExponent;
+        }
+
+        void record(final NearestVectorStore store, final IVector queryVector, final int k,
+                    final List<IVector> results, final int scannedVectors, final long nanos) {
+            queries.increment();
+            scanned.add(scannedVectors);
+            scanNanos.add(nanos);
+            final long n = count.incrementAndGet();
+            if (targetRecall > 0 && n % RECALL_SAMPLE_INTERVAL == 0) {
+                final List<IVector> exact = store.exactQuery(queryVector, k);
+                found.add(exact.stream().filter(results::contains).count());
+                expected.add(exact.size());
+            }
+            if (n % TUNE_INTERVAL == 0) {
+                tune(store.bucketSizeExponent, store.size);
+            }
+        }
+
+        private synchronized void tune(final byte current, final int size) {
+            final long queryCount = queries.sumThenReset();
+            final long scannedCount = scanned.sumThenReset();
+            final long nanos = scanNanos.sumThenReset();
+            final long foundCount = found.sumThenReset();
+            final long expectedCount = expected.sumThenReset();
+            if (queryCount == 0) {
+                return;
+            }
+            int floor = 0;
+            if (targetNanos != Long.MAX_VALUE && scannedCount > 0) {
+                // Predict each exponent's scan time by assuming each extra bit halves the vectors scanned
+                final double nanosPerVector = nanos / (double) scannedCount;
+                final double averageScanned = scannedCount / (double) queryCount;
+                floor = MAX_BITS;
+                for (int bits = 0; bits < MAX_BITS; bits++) {
+                    final double predicted = nanosPerVector
+                            * Math.min(size, Math.scalb(averageScanned, current - bits));
+                    if (predicted <= targetNanos) {
+                        floor = bits;
+                        break;
+                    }
+                }
+            }
+            int next = floor;
+            if (targetRecall > 0) {
+                if (recallCeiling <= MAX_BITS && (size >= 2 * recallCeilingSize || 2 * size <= recallCeilingSize)) {
+                    recallCeiling = MAX_BITS + 1;
+                }
+                next = current;
+                if (expectedCount > 0 && foundCount < targetRecall * expectedCount) {
+                    recallCeiling = current;
+                    recallCeilingSize = size;
+                    next = current - 1;
+                } else if (expectedCount > 0 && current + 1 < recallCeiling) {
+                    next = current + 1;
+                }
+            }
+            targetExponent = (byte) Math.max(0, Math.min(MAX_BITS, Math.max(next, floor)));
+        }
+    }
 }
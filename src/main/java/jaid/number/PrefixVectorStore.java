@@ -0,0 +1,180 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.BoundedPriorityQueue;
+import jaid.collection.FloatKernels;
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Coarse to fine K-NN search for embeddings trained so that their leading dimensions are already a good approximation
+ * of the whole vector, such as Matryoshka embeddings. Every vector is first scored on just its first prefix dimensions,
+ * which are packed together so that they can all be scored by a single {@link FloatKernels#dotProductRows} call, and
+ * only a shortlist of the best of them is then rescored on every dimension. With a quarter of the dimensions in the
+ * prefix the scan reads a quarter of the memory, and the shortlist only needs to be a few times larger than k to find
+ * nearly the same results as a full scan.
+ * Unlike {@link NearestVectorStore} every vector is scanned rather than just those in the query's bucket, so this is
+ * exact apart from the vectors whose prefixes score too low to make the shortlist. Like {@link NearestVectorStore}
+ * this is not threadsafe.
+ */
+public class PrefixVectorStore {
+
+    private final int dimensions;
+    private final int prefixDimensions;
+    private final int shortlistFactor;
+    private final boolean cosine;
+    private final List<FloatsVector> vectors = new ArrayList<>();
+    /**
+     * The prefixes of {@link #vectors}, packed in the same order
+     */
+    private float[] prefixes;
+    /**
+     * The inverse magnitude of each prefix, or 0 for an all zero prefix, so that prefix scores are cosine similarities
+     */
+    private float[] inversePrefixMagnitudes;
+
+    private PrefixVectorStore(final int dimensions, final int prefixDimensions, final int shortlistFactor,
+                              final boolean cosine) {
+        this.dimensions = dimensions;
+        this.prefixDimensions = prefixDimensions;
+        this.shortlistFactor = shortlistFactor;
+        this.cosine = cosine;
+        this.prefixes = new float[16 * prefixDimensions];
+        this.inversePrefixMagnitudes = new float[16];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the vector doesn't have this store's dimensions
+     */
+    public void add(final FloatsVector vector) {
+        final float[] contents = vector.contents();
+        if (contents.length != dimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        final int index = vectors.size();
+        if (index == inversePrefixMagnitudes.length) {
+            inversePrefixMagnitudes = Arrays.copyOf(inversePrefixMagnitudes, index * 2);
+            prefixes = Arrays.copyOf(prefixes, index * 2 * prefixDimensions);
+        }
+        System.arraycopy(contents, 0, prefixes, index * prefixDimensions, prefixDimensions);
+        final float sumOfSquares = FloatKernels.sumOfSquares(contents, 0, prefixDimensions);
+        inversePrefixMagnitudes[index] = sumOfSquares == 0 ? 0 : (float) (1 / Math.sqrt(sumOfSquares));
+        vectors.add(vector);
+    }
+
+    /**
+     * Removes the vector by moving the last vector into its place
+     */
+    public boolean remove(final FloatsVector vector) {
+        final int index = vectors.indexOf(vector);
+        if (index < 0) {
+            return false;
+        }
+        final int last = vectors.size() - 1;
+        vectors.set(index, vectors.get(last));
+        vectors.remove(last);
+        System.arraycopy(prefixes, last * prefixDimensions, prefixes, index * prefixDimensions, prefixDimensions);
+        inversePrefixMagnitudes[index] = inversePrefixMagnitudes[last];
+        return true;
+    }
+
+    /**
+     * @return the k vectors most similar to the query on every dimension, from among the k * shortlistFactor most
+     * similar on the prefix dimensions
+     * @throws IllegalArgumentException if the query doesn't have this store's dimensions
+     */
+    public List<IVector> query(final FloatsVector queryVector, final int k) {
+        final float[] query = queryVector.contents();
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("Vectors must have the same dimensions");
+        }
+        final int size = vectors.size();
+        final float[] scores = new float[size];
+        FloatKernels.dotProductRows(query, 0, prefixes, 0, prefixDimensions, size, prefixDimensions, scores, 0);
+
+        final BoundedPriorityQueue shortlist = new BoundedPriorityQueue((int) Math.min((long) k * shortlistFactor,
+                Integer.MAX_VALUE));
+        for (int i = 0; i < size; i++) {
+            final float score = cosine ? scores[i] * inversePrefixMagnitudes[i] : scores[i];
+            if (!shortlist.isFull() || score > shortlist.lowestDotProduct()) {
+                shortlist.add(vectors.get(i), score);
+            }
+        }
+        final BoundedPriorityQueue pq = new BoundedPriorityQueue(k);
+        for (final IVector vector : shortlist.toList()) {
+            pq.add(vector, cosine ? vector.cosineSimilarity(queryVector) : vector.dotProduct(queryVector));
+        }
+        return pq.toList();
+    }
+
+    public boolean isCosine() {
+        return cosine;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public int getPrefixDimensions() {
+        return prefixDimensions;
+    }
+
+    public int size() {
+        return vectors.size();
+    }
+
+    public void clear() {
+        vectors.clear();
+    }
+
+    public static Builder builder(final int dimensions) {
+        return new Builder(dimensions);
+    }
+
+    public static class Builder {
+        private final int dimensions;
+        private int prefixDimensions;
+        private int shortlistFactor = 4;
+        private boolean cosine = true;
+
+        private Builder(final int dimensions) {
+            this.dimensions = dimensions;
+            this.prefixDimensions = Math.max(1, dimensions / 4);
+        }
+
+        /**
+         * How many leading dimensions every vector is scored on, which defaults to a quarter of them
+         */
+        public Builder prefixDimensions(int prefixDimensions) {
+            this.prefixDimensions = prefixDimensions;
+            return this;
+        }
+
+        /**
+         * How many times k vectors are rescored on every dimension, where a larger shortlist makes up for a prefix
+         * which approximates the whole vector less well
+         */
+        public Builder shortlistFactor(int shortlistFactor) {
+            this.shortlistFactor = shortlistFactor;
+            return this;
+        }
+
+        /**
+         * Whether results are ranked by cosine similarity (the default) or by the raw dot product
+         */
+        public Builder cosine(boolean cosine) {
+            this.cosine = cosine;
+            return this;
+        }
+
+        public PrefixVectorStore build() {
+            Preconditions.checkArgument(dimensions > 0 && prefixDimensions > 0 && prefixDimensions <= dimensions);
+            Preconditions.checkArgument(shortlistFactor > 0);
+            return new PrefixVectorStore(dimensions, prefixDimensions, shortlistFactor, cosine);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.BoundedPriorityQueue;
+import jaid.collection.IVector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link NearestVectorStore} which indexes and searches vectors after they have been projected by a
+ * {@link DimensionReducer}, so that both the sim hashing and the dot products are done in the reduced space. Queries
+ * return the original full dimension vectors, and can optionally be rescored on the full dimensions by over-fetching
+ * candidates from the reduced space, which recovers most of the recall lost in the projection.
+ */
+public class ReducedVectorStore {
+
+    private final DimensionReducer reducer;
+    private final NearestVectorStore store;
+    /**
+     * How many times k candidates to fetch from the reduced space before rescoring them on the full dimensions, or 1
+     * to not rescore at all
+     */
+    private final int rescoreMultiplier;
+    /**
+     * Maps each reduced vector in {@link #store} to the originals which projected to it
+     */
+    private final Map<IVector, List<IVector>> originals = new HashMap<>();
+    private int size;
+
+    public ReducedVectorStore(final DimensionReducer reducer) {
+        this(reducer, new NearestVectorStore(), 1);
+    }
+
+    public ReducedVectorStore(final DimensionReducer reducer, final int rescoreMultiplier) {
+        this(reducer, new NearestVectorStore(), rescoreMultiplier);
+    }
+
+    public ReducedVectorStore(final DimensionReducer reducer, final NearestVectorStore store, final int rescoreMultiplier) {
+        Preconditions.checkArgument(rescoreMultiplier >= 1);
+        this.reducer = reducer;
+        this.store = store;
+        this.rescoreMultiplier = rescoreMultiplier;
+    }
+
+    public void add(final IVector vector) {
+        final IVector reduced = reducer.project(vector);
+        final List<IVector> existing = originals.computeIfAbsent(reduced, k -> new ArrayList<>(1));
+        if (existing.isEmpty()) {
+            store.add(reduced);
+        }
+        existing.add(vector);
+        size++;
+    }
+
+    public boolean remove(final IVector vector) {
+        final IVector reduced = reducer.project(vector);
+        final List<IVector> existing = originals.get(reduced);
+        if (existing == null || !existing.remove(vector)) {
+            return false;
+        }
+        if (existing.isEmpty()) {
+            originals.remove(reduced);
+            store.remove(reduced);
+        }
+        size--;
+        return true;
+    }
+
+    public List<IVector> query(final IVector queryVector, final int k) {
+        final IVector reducedQuery = reducer.project(queryVector);
+        final List<IVector> candidates = store.query(reducedQuery, k * rescoreMultiplier);
+        if (rescoreMultiplier == 1) {
+            final List<IVector> results = new ArrayList<>(k);
+            for (final IVector candidate : candidates) {
+                for (final IVector original : originals.get(candidate)) {
+                    if (results.size() < k) {
+                        results.add(original);
+                    }
+                }
+            }
+            return results;
+        }
+        final BoundedPriorityQueue pq = new BoundedPriorityQueue(k);
+        final boolean cosine = store.isCosine();
+        for (final IVector candidate : candidates) {
+            for (final IVector original : originals.get(candidate)) {
+                pq.add(original, cosine ? original.cosineSimilarity(queryVector) : original.dotProduct(queryVector));
+            }
+        }
+        return pq.toList();
+    }
+
+    public DimensionReducer getReducer() {
+        return reducer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        store.clear();
+        originals.clear();
+        size = 0;
+    }
+}
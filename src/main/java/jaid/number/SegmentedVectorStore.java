@@ -0,0 +1,217 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.BoundedPriorityQueue;
+import jaid.collection.IVector;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps only the vectors added within a retention period, for streams where only recent vectors matter. Vectors are
+ * added to a small active {@link NearestVectorStore} segment, which is sealed once it is old or large enough and a new
+ * one started. A sealed segment is dropped as a whole once its newest vector is older than the retention period, so
+ * expiry never needs to find and remove individual vectors. Queries search every live segment and merge their results
+ * into a single top k.
+ * Since segments are only dropped whole, vectors can be kept for up to the segment duration beyond the retention
+ * period, so the segment duration should be a small fraction of it. Like {@link NearestVectorStore} this is not
+ * threadsafe.
+ */
+public class SegmentedVectorStore {
+
+    private final long retentionMillis;
+    private final long segmentMillis;
+    private final int maxSegmentSize;
+    private final boolean cosine;
+    private final Clock clock;
+    /**
+     * Sealed segments, oldest first
+     */
+    private final Deque<Segment> sealed = new ArrayDeque<>();
+    private Segment active;
+    private int size;
+
+    private SegmentedVectorStore(final long retentionMillis, final long segmentMillis, final int maxSegmentSize,
+                                 final boolean cosine, final Clock clock) {
+        this.retentionMillis = retentionMillis;
+        this.segmentMillis = segmentMillis;
+        this.maxSegmentSize = maxSegmentSize;
+        this.cosine = cosine;
+        this.clock = clock;
+    }
+
+    public void add(final IVector vector) {
+        final long now = clock.millis();
+        expire(now);
+        if (active != null && (active.store.size() >= maxSegmentSize || now - active.createdMillis >= segmentMillis)) {
+            sealed.addLast(active);
+            active = null;
+        }
+        if (active == null) {
+            active = new Segment(new NearestVectorStore(cosine), now);
+        }
+        active.store.add(vector);
+        active.newestMillis = now;
+        size++;
+    }
+
+    /**
+     * Removes a vector before it expires, which searches every segment so is much slower than letting it expire
+     */
+    public boolean remove(final IVector vector) {
+        if (active != null && active.store.remove(vector)) {
+            size--;
+            return true;
+        }
+        for (final Segment segment : sealed) {
+            if (segment.store.remove(vector)) {
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the k vectors most similar to the query from every segment which has not expired
+     */
+    public List<IVector> query(final IVector queryVector, final int k) {
+        expire(clock.millis());
+        if (sealed.isEmpty()) {
+            return active == null ? List.of() : active.store.query(queryVector, k);
+        }
+        final BoundedPriorityQueue pq = new BoundedPriorityQueue(k);
+        final Iterator<Segment> segments = sealed.descendingIterator();
+        if (active != null) {
+            addResults(active, queryVector, k, pq);
+        }
+        while (segments.hasNext()) {
+            addResults(segments.next(), queryVector, k, pq);
+        }
+        return pq.toList();
+    }
+
+    /**
+     * Drops every segment whose newest vector was added longer ago than the retention period. This is done
+     * automatically by {@link #add} and {@link #query}, but can be called to release memory between them.
+     */
+    public void expire() {
+        expire(clock.millis());
+    }
+
+    public boolean isCosine() {
+        return cosine;
+    }
+
+    /**
+     * @return the number of vectors in segments which have not been dropped, which may include some older than the
+     * retention period
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of live segments, including the active one
+     */
+    public int getSegmentCount() {
+        return sealed.size() + (active == null ? 0 : 1);
+    }
+
+    public void clear() {
+        sealed.clear();
+        active = null;
+        size = 0;
+    }
+
+    private void expire(final long now) {
+        final long cutoff = now - retentionMillis;
+        while (!sealed.isEmpty() && sealed.peekFirst().newestMillis < cutoff) {
+            size -= sealed.pollFirst().store.size();
+        }
+        if (sealed.isEmpty() && active != null && active.newestMillis < cutoff) {
+            size -= active.store.size();
+            active = null;
+        }
+    }
+
+    private void addResults(final Segment segment, final IVector queryVector, final int k,
+                            final BoundedPriorityQueue pq) {
+        for (final IVector vector : segment.store.query(queryVector, k)) {
+            pq.add(vector, cosine ? vector.cosineSimilarity(queryVector) : vector.dotProduct(queryVector));
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Duration retention = Duration.ofHours(1);
+        private Duration segmentDuration = Duration.ofMinutes(5);
+        private int maxSegmentSize = 10_000;
+        private boolean cosine = true;
+        private Clock clock = Clock.systemUTC();
+
+        /**
+         * How long vectors are kept after being added
+         */
+        public Builder retention(Duration retention) {
+            this.retention = retention;
+            return this;
+        }
+
+        /**
+         * The longest time vectors are added to a segment before it is sealed
+         */
+        public Builder segmentDuration(Duration segmentDuration) {
+            this.segmentDuration = segmentDuration;
+            return this;
+        }
+
+        /**
+         * The most vectors added to a segment before it is sealed, which keeps the active segment small enough to be
+         * searched with a single bucket
+         */
+        public Builder maxSegmentSize(int maxSegmentSize) {
+            this.maxSegmentSize = maxSegmentSize;
+            return this;
+        }
+
+        /**
+         * Whether results are ranked by cosine similarity (the default) or by the raw dot product
+         */
+        public Builder cosine(boolean cosine) {
+            this.cosine = cosine;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public SegmentedVectorStore build() {
+            Preconditions.checkArgument(!retention.isNegative() && segmentDuration.isPositive() && maxSegmentSize > 0);
+            return new SegmentedVectorStore(retention.toMillis(), segmentDuration.toMillis(), maxSegmentSize, cosine,
+                    Preconditions.checkNotNull(clock));
+        }
+    }
+
+    private static final class Segment {
+
+        private final NearestVectorStore store;
+        private final long createdMillis;
+        private long newestMillis;
+
+        Segment(final NearestVectorStore store, final long createdMillis) {
+            this.store = store;
+            this.createdMillis = createdMillis;
+            this.newestMillis = createdMillis;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package jaid.number;
+
+import com.google.common.base.Preconditions;
+import jaid.collection.FloatKernels;
+import jaid.collection.FloatsMatrix;
+import jaid.function.IntIntFloatConsumer;
+
+import java.util.stream.IntStream;
+
+/**
+ * Finds every pair of rows of a {@link FloatsMatrix} whose cosine similarity (or dot product) is at least a threshold,
+ * for example to find near duplicates among a set of embeddings. The rows are split into tiles small enough that a pair
+ * of tiles stays in cache, and each pair of tiles is scored with {@link FloatKernels#dotProductRows}.
+ * Before scoring a pair of tiles, an upper bound on any score between them is found from the norms of their rows and
+ * the cone (a central direction and the largest angle from it) containing each tile's rows, so pairs of tiles which
+ * cannot contain a match are skipped. The bounds are only tight when each tile's rows are similar to each other, so
+ * ordering the rows so that similar ones are together (for example by their {@link KMeans} cluster) can skip most of
+ * the work.
+ */
+public final class SimilarityJoin {
+
+    /**
+     * Target size of a tile of rows, so that the rows of two tiles fit in an L2 cache together
+     */
+    private static final int TILE_BYTES = 128 * 1024;
+    /**
+     * Allowance in radians for rounding in the tile cones, so that no matching pair is ever skipped
+     */
+    private static final double ANGLE_SLACK = 0.01;
+
+    private SimilarityJoin() {
+    }
+
+    /**
+     * Calls the consumer with (i, j, similarity) for every pair of rows i < j with a cosine similarity of at least the
+     * threshold, in no particular order. Rows with a magnitude of 0 have a similarity of 0 with every row.
+     * @param parallel whether to score tiles using the common ForkJoin pool, in which case the consumer is called from
+     * several threads at once
+     */
+    public static void cosine(final FloatsMatrix vectors, final float threshold, final boolean parallel,
+                              final IntIntFloatConsumer consumer) {
+        final int columns = vectors.getColumns();
+        final float[] normalized = vectors.contents().clone();
+        for (int row = 0; row < vectors.getRows(); row++) {
+            final float magnitude = (float) Math.sqrt(FloatKernels.sumOfSquares(normalized, row * columns, columns));
+            if (magnitude != 0) {
+                FloatKernels.scale(normalized, row * columns, 1 / magnitude, normalized, row * columns, columns);
+            }
+        }
+        join(new FloatsMatrix(normalized, vectors.getRows(), columns), threshold, parallel, consumer);
+    }
+
+    /**
+     * Calls the consumer with (i, j, dot product) for every pair of rows i < j with a dot product of at least the
+     * threshold, in no particular order.
+     * @param parallel whether to score tiles using the common ForkJoin pool, in which case the consumer is called from
+     * several threads at once
+     */
+    public static void dotProduct(final FloatsMatrix vectors, final float threshold, final boolean parallel,
+                                  final IntIntFloatConsumer consumer) {
+        join(vectors, threshold, parallel, consumer);
+    }
+
+    private static void join(final FloatsMatrix vectors, final float threshold, final boolean parallel,
+                             final IntIntFloatConsumer consumer) {
+        Preconditions.checkArgument(vectors.getColumns() > 0, "Vectors must have at least one dimension");
+        final int rows = vectors.getRows();
+        final int tileRows = Math.max(4, TILE_BYTES / (Float.BYTES * vectors.getColumns()));
+        final Tile[] tiles = new Tile[(rows + tileRows - 1) / tileRows];
+        for (int t = 0; t < tiles.length; t++) {
+            tiles[t] = new Tile(vectors, t * tileRows, Math.min(rows, (t + 1) * tileRows));
+        }
+        final IntStream tileIndices = IntStream.range(0, tiles.length);
+        (parallel ? tileIndices.parallel() : tileIndices).forEach(t -> {
+            final float[] scores = new float[tileRows];
+            for (int other = t; other < tiles.length; other++) {
+                if (tiles[t].upperBound(tiles[other]) >= threshold) {
+                    scoreTiles(vectors, tiles[t], tiles[other], threshold, scores, consumer);
+                }
+            }
+        });
+    }
+
+    private static void scoreTiles(final FloatsMatrix vectors, final Tile tile, final Tile other,
+                                   final float threshold, final float[] scores, final IntIntFloatConsumer consumer) {
+        final float[] contents = vectors.contents();
+        final int columns = vectors.getColumns();
+        for (int row = tile.start; row < tile.end; row++) {
+            // Within a tile only score the pairs after the row, so each pair is found once
+            final int first = tile == other ? row + 1 : other.start;
+            final int count = other.end - first;
+            if (count <= 0) {
+                continue;
+            }
+            FloatKernels.dotProductRows(contents, row * columns, contents, first * columns, columns, count, columns,
+                    scores, 0);
+            for (int i = 0; i < count; i++) {
+                if (scores[i] >= threshold) {
+                    consumer.accept(row, first + i, scores[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The bounds of a range of consecutive rows
+     */
+    private static final class Tile {
+
+        private final int start;
+        private final int end;
+        /**
+         * Unit vector in the mean direction of the rows, or null if there is none
+         */
+        private final float[] centre;
+        /**
+         * Largest angle between the centre and any row with a magnitude above 0
+         */
+        private final double radius;
+        private final double minimumNorm;
+        private final double maximumNorm;
+
+        Tile(final FloatsMatrix vectors, final int start, final int end) {
+            this.start = start;
+            this.end = end;
+            final float[] contents = vectors.contents();
+            final int columns = vectors.getColumns();
+            final double[] norms = new double[end - start];
+            final float[] sum = new float[columns];
+            double minimumNorm = Double.POSITIVE_INFINITY;
+            double maximumNorm = 0;
+            for (int row = start; row < end; row++) {
+                final double norm = Math.sqrt(FloatKernels.sumOfSquares(contents, row * columns, columns));
+                norms[row - start] = norm;
+                minimumNorm = Math.min(minimumNorm, norm);
+                maximumNorm = Math.max(maximumNorm, norm);
+                if (norm > 0) {
+                    FloatKernels.axpy((float) (1 / norm), contents, row * columns, sum, 0, columns);
+                }
+            }
+            this.minimumNorm = minimumNorm;
+            this.maximumNorm = maximumNorm;
+            final double sumNorm = Math.sqrt(FloatKernels.sumOfSquares(sum));
+            if (sumNorm == 0) {
+                this.centre = null;
+                this.radius = Math.PI;
+                return;
+            }
+            FloatKernels.scale(sum, (float) (1 / sumNorm), sum);
+            double radius = 0;
+            for (int row = start; row < end; row++) {
+                if (norms[row - start] > 0) {
+                    final double cosine = FloatKernels.dotProduct(contents, row * columns, sum, 0, columns)
+                            / norms[row - start];
+                    radius = Math.max(radius, Math.acos(Math.min(1, Math.max(-1, cosine))));
+                }
+            }
+            this.centre = sum;
+            this.radius = radius;
+        }
+
+        /**
+         * @return a score at least as high as that of any pair of rows from this and the other tile
+         */
+        double upperBound(final Tile other) {
+            double gap = -1;
+            if (centre != null && other.centre != null) {
+                final double cosine = FloatKernels.dotProduct(centre, other.centre);
+                gap = Math.acos(Math.min(1, Math.max(-1, cosine))) - radius - other.radius - ANGLE_SLACK;
+            }
+            if (gap <= 0) {
+                // The cones overlap, so the best case is two parallel rows with the largest norms
+                return maximumNorm * other.maximumNorm;
+            }
+            final double cosine = Math.cos(gap);
+            // A negative cosine is least negative for the rows with the smallest norms
+            return cosine >= 0 ? cosine * maximumNorm * other.maximumNorm : cosine * minimumNorm * other.minimumNorm;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package jaid.number;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import jaid.collection.BoundedPriorityQueue;
+import jaid.collection.IVector;
+import jaid.collection.SparseFloatsVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inverted index of {@link SparseFloatsVector}s for exact top-k dot product searches, suitable for BM25 or SPLADE
+ * style vectors with tens of thousands of dimensions but only a few hundred non-zero components each, where
+ * {@link NearestVectorStore} would not work well. Each dimension has a posting list of the vectors that have a non-zero
+ * component in it, stored as primitive arrays sorted by vector id.
+ * Queries use the WAND algorithm (Broder et al.), which keeps an upper bound on the score each posting list can
+ * contribute and skips any vector that cannot beat the current top-k without scoring it.
+ * Removed vectors are left in the posting lists and skipped during queries, and the upper bounds are not tightened.
+ */
+public class SparseVectorStore {
+
+    private final Int2ObjectOpenHashMap<PostingList> postings = new Int2ObjectOpenHashMap<>();
+    /**
+     * Vectors by id, where removed vectors are replaced with null
+     */
+    private final List<SparseFloatsVector> vectors = new ArrayList<>();
+    private int size;
+
+    public void add(final SparseFloatsVector vector) {
+        final int id = vectors.size();
+        vectors.add(vector);
+        for (int i = 0; i < vector.indices().length; i++) {
+            postings.computeIfAbsent(vector.indices()[i], k -> new PostingList()).add(id, vector.values()[i]);
+        }
+        size++;
+    }
+
+    public boolean remove(final SparseFloatsVector vector) {
+        // Any copy of the vector must be in every one of its posting lists, so only the shortest needs searching
+        PostingList shortest = null;
+        for (final int index : vector.indices()) {
+            final PostingList list = postings.get(index);
+            if (list == null) {
+                return false;
+            }
+            if (shortest == null || list.size < shortest.size) {
+                shortest = list;
+            }
+        }
+        final int candidates = shortest == null ? vectors.size() : shortest.size;
+        for (int i = 0; i < candidates; i++) {
+            final int id = shortest == null ? i : shortest.ids[i];
+            if (vector.equals(vectors.get(id))) {
+                vectors.set(id, null);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<IVector> query(final SparseFloatsVector queryVector, final int k) {
+        final BoundedPriorityQueue pq = new BoundedPriorityQueue(k);
+        final List<Cursor> cursorList = new ArrayList<>(queryVector.nonZeroCount());
+        for (int i = 0; i < queryVector.indices().length; i++) {
+            final PostingList list = postings.get(queryVector.indices()[i]);
+            if (list != null) {
+                cursorList.add(new Cursor(list, queryVector.values()[i]));
+            }
+        }
+        final Cursor[] cursors = cursorList.toArray(new Cursor[0]);
+        Arrays.sort(cursors, (a, b) -> Integer.compare(a.id(), b.id()));
+        while (true) {
+            // Find the pivot, the first cursor at which the summed upper bounds could beat the current top-k
+            final double threshold = pq.isFull() ? pq.lowestDotProduct() : Double.NEGATIVE_INFINITY;
+            double bound = 0;
+            int pivot = -1;
+            for (int i = 0; i < cursors.length && cursors[i].id() != Integer.MAX_VALUE; i++) {
+                bound += cursors[i].upperBound;
+                if (bound > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot == -1) {
+                break;
+            }
+            final int pivotId = cursors[pivot].id();
+            if (cursors[0].id() == pivotId) {
+                // Every cursor up to the pivot is on the same vector, so score it fully
+                double score = 0;
+                int moved = 0;
+                while (moved < cursors.length && cursors[moved].id() == pivotId) {
+                    score += cursors[moved].score();
+                    cursors[moved].advanceTo(pivotId + 1);
+                    moved++;
+                }
+                final SparseFloatsVector vector = vectors.get(pivotId);
+                if (vector != null) {
+                    pq.add(vector, score);
+                }
+                resort(cursors, moved);
+            } else {
+                // No vector before the pivot can make the top-k, so skip the preceding cursors ahead to it
+                int moved = 0;
+                while (cursors[moved].id() < pivotId) {
+                    cursors[moved].advanceTo(pivotId);
+                    moved++;
+                }
+                resort(cursors, moved);
+            }
+        }
+        return pq.toList();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        postings.clear();
+        vectors.clear();
+        size = 0;
+    }
+
+    /**
+     * Restores the ordering by current id after the first moved cursors have advanced, using an insertion sort since
+     * the remaining cursors are still in order.
+     */
+    private static void resort(final Cursor[] cursors, final int moved) {
+        for (int i = moved - 1; i >= 0; i--) {
+            final Cursor cursor = cursors[i];
+            int j = i + 1;
+            while (j < cursors.length && cursors[j].id() < cursor.id()) {
+                cursors[j - 1] = cursors[j];
+                j++;
+            }
+            cursors[j - 1] = cursor;
+        }
+    }
+
+    /**
+     * Ids and weights of the vectors with a non-zero component in one dimension, in ascending id order.
+     */
+    private static class PostingList {
+        int[] ids = new int[4];
+        float[] weights = new float[4];
+        int size;
+        float maxWeight = Float.NEGATIVE_INFINITY;
+        float minWeight = Float.POSITIVE_INFINITY;
+
+        void add(final int id, final float weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ids[size] = id;
+            weights[size++] = weight;
+            maxWeight = Math.max(maxWeight, weight);
+            minWeight = Math.min(minWeight, weight);
+        }
+    }
+
+    /**
+     * Position within a posting list during a query.
+     */
+    private static class Cursor {
+        final PostingList list;
+        final float queryWeight;
+        /**
+         * The most this dimension can add to any vector's score. Vectors missing from the list contribute 0, so this
+         * is never negative.
+         */
+        final double upperBound;
+        int position;
+
+        Cursor(final PostingList list, final float queryWeight) {
+            this.list = list;
+            this.queryWeight = queryWeight;
+            this.upperBound = Math.max(0, Math.max(queryWeight * list.maxWeight, queryWeight * list.minWeight));
+        }
+
+        int id() {
+            return position < list.size ? list.ids[position] : Integer.MAX_VALUE;
+        }
+
+        double score() {
+            return queryWeight * list.weights[position];
+        }
+
+        /**
+         * Moves to the first entry with an id of at least target, galloping then binary searching
+         */
+        void advanceTo(final int target) {
+            int step = 1;
+            int low = position;
+            int high = position;
+            while (high < list.size && list.ids[high] < target) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, list.size);
+            final int found = Arrays.binarySearch(list.ids, low, high, target);
+            position = found >= 0 ? found : -found - 1;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package jaid.collection;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static jaid.collection.IntSkipLists.ABSENT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactIntSkipListTest {
+
+    @Test
+    public void testAddAndRemove() {
+        CompactIntSkipList list = new CompactIntSkipList();
+        assertThat(list.isEmpty()).isTrue();
+
+        assertThat(list.add(5)).isTrue();
+        assertThat(list.add(10)).isTrue();
+        assertThat(list.add(10)).isFalse();
+        assertThat(list.contains(5)).isTrue();
+        assertThat(list.contains(10)).isTrue();
+        assertThat(list.contains(15)).isFalse();
+        assertThat(list.size()).isEqualTo(2);
+        assertThat(list.toArray()).containsExactly(5, 10);
+
+        assertThat(list.remove(5)).isTrue();
+        assertThat(list.remove(5)).isFalse();
+        assertThat(list.toArray()).containsExactly(10);
+        assertThat(list.pollLastOrAbsent()).isEqualTo(10);
+        assertThat(list.pollFirstOrAbsent()).isEqualTo(ABSENT);
+        assertThat(list.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testMatchesTreeSet() {
+        Random random = new Random(3);
+        CompactIntSkipList list = new CompactIntSkipList(4);
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                assertThat(list.remove(value)).isEqualTo(expected.remove(value));
+            } else {
+                assertThat(list.add(value)).isEqualTo(expected.add(value));
+            }
+            int probe = random.nextInt(2200) - 1100;
+            assertThat(list.contains(probe)).isEqualTo(expected.contains(probe));
+            assertThat(list.lowerOrAbsent(probe)).isEqualTo(orAbsent(expected.lower(probe)));
+            assertThat(list.floorOrAbsent(probe)).isEqualTo(orAbsent(expected.floor(probe)));
+            assertThat(list.ceilingOrAbsent(probe)).isEqualTo(orAbsent(expected.ceiling(probe)));
+            assertThat(list.higherOrAbsent(probe)).isEqualTo(orAbsent(expected.higher(probe)));
+        }
+        assertThat(list.size()).isEqualTo(expected.size());
+        assertThat(list.toArray()).containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+
+        IntIterator iterator = list.iterator();
+        for (int value : expected) {
+            assertThat(iterator.nextInt()).isEqualTo(value);
+        }
+        assertThat(iterator.hasNext()).isFalse();
+    }
+
+    @Test
+    public void testReusesRemovedNodes() {
+        CompactIntSkipList list = new CompactIntSkipList();
+        for (int i = 0; i < 10_000; i++) {
+            list.add(i);
+        }
+        int allocated = list.allocatedInts();
+        // Around 4 ints per element, rather than a node object with a forward array
+        assertThat(allocated).isLessThan(10_000 * 6);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10_000; i++) {
+                list.remove(i);
+            }
+            for (int i = 0; i < 10_000; i++) {
+                list.add(i);
+            }
+        }
+        // Nodes on more levels than any removed node need new blocks, but there are few of them
+        assertThat(list.allocatedInts()).isLessThan(allocated + 10_000);
+        assertThat(list.size()).isEqualTo(10_000);
+    }
+
+    @Test
+    public void testExtremeValues() {
+        CompactIntSkipList list = new CompactIntSkipList();
+        list.add(Integer.MAX_VALUE);
+        list.add(Integer.MIN_VALUE);
+        assertThat(list.toArray()).containsExactly(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        assertThat(list.floorOrAbsent(Integer.MIN_VALUE)).isEqualTo(Integer.MIN_VALUE);
+        assertThat(list.lowerOrAbsent(Integer.MIN_VALUE)).isEqualTo(ABSENT);
+        assertThat(list.higherOrAbsent(Integer.MAX_VALUE)).isEqualTo(ABSENT);
+    }
+
+    private static long orAbsent(Integer value) {
+        return value == null ? ABSENT : value;
+    }
+}
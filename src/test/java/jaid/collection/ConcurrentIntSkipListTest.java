@@ -0,0 +1,160 @@
+package jaid.collection;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static jaid.collection.IntSkipLists.ABSENT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentIntSkipListTest {
+
+    @Test
+    public void testAddAndRemove() {
+        ConcurrentIntSkipList list = new ConcurrentIntSkipList();
+        assertThat(list.isEmpty()).isTrue();
+
+        assertThat(list.add(5)).isTrue();
+        assertThat(list.add(10)).isTrue();
+        assertThat(list.add(5)).isFalse();
+        assertThat(list.contains(5)).isTrue();
+        assertThat(list.contains(10)).isTrue();
+        assertThat(list.contains(15)).isFalse();
+        assertThat(list.size()).isEqualTo(2);
+        assertThat(list.toArray()).containsExactly(5, 10);
+
+        assertThat(list.remove(5)).isTrue();
+        assertThat(list.remove(5)).isFalse();
+        assertThat(list.contains(5)).isFalse();
+        assertThat(list.toArray()).containsExactly(10);
+        list.clear();
+        assertThat(list.isEmpty()).isTrue();
+        assertThat(list.size()).isZero();
+    }
+
+    @Test
+    public void testExtremeValues() {
+        ConcurrentIntSkipList list = new ConcurrentIntSkipList();
+        list.add(Integer.MAX_VALUE);
+        list.add(Integer.MIN_VALUE);
+        list.add(0);
+        assertThat(list.toArray()).containsExactly(Integer.MIN_VALUE, 0, Integer.MAX_VALUE);
+        assertThat(list.contains(Integer.MIN_VALUE)).isTrue();
+        assertThat(list.floorOrAbsent(Integer.MIN_VALUE)).isEqualTo(Integer.MIN_VALUE);
+        assertThat(list.ceilingOrAbsent(Integer.MAX_VALUE)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(list.lowerOrAbsent(Integer.MIN_VALUE)).isEqualTo(ABSENT);
+        assertThat(list.higherOrAbsent(Integer.MAX_VALUE)).isEqualTo(ABSENT);
+    }
+
+    @Test
+    public void testNavigation() {
+        ConcurrentIntSkipList list = new ConcurrentIntSkipList();
+        for (int i = 0; i < 100; i += 10) {
+            list.add(i);
+        }
+        assertThat(list.ceilingOrAbsent(15)).isEqualTo(20);
+        assertThat(list.ceilingOrAbsent(20)).isEqualTo(20);
+        assertThat(list.higherOrAbsent(20)).isEqualTo(30);
+        assertThat(list.floorOrAbsent(15)).isEqualTo(10);
+        assertThat(list.floorOrAbsent(10)).isEqualTo(10);
+        assertThat(list.lowerOrAbsent(10)).isEqualTo(0);
+        assertThat(list.lowerOrAbsent(0)).isEqualTo(ABSENT);
+        assertThat(list.ceilingOrAbsent(91)).isEqualTo(ABSENT);
+        assertThat(list.firstOrAbsent()).isEqualTo(0);
+        assertThat(list.pollFirstOrAbsent()).isEqualTo(0);
+        assertThat(list.firstOrAbsent()).isEqualTo(10);
+
+        IntIterator iterator = list.iterator();
+        List<Integer> values = new ArrayList<>();
+        while (iterator.hasNext()) {
+            values.add(iterator.nextInt());
+        }
+        assertThat(values).containsExactly(10, 20, 30, 40, 50, 60, 70, 80, 90);
+    }
+
+    @Test
+    public void testConcurrentAddAndRemove() throws Exception {
+        ConcurrentIntSkipList list = new ConcurrentIntSkipList();
+        int threads = 8;
+        int perThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // Interleave the threads' values so they contend for the same neighbours
+                    for (int i = 0; i < perThread; i++) {
+                        list.add(i * threads + thread);
+                    }
+                    for (int i = 0; i < perThread; i += 2) {
+                        assertThat(list.remove(i * threads + thread)).isTrue();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int[] expected = IntStream.range(0, threads * perThread)
+                .filter(value -> (value / threads) % 2 == 1)
+                .toArray();
+        assertThat(list.toArray()).containsExactly(expected);
+        assertThat(list.size()).isEqualTo(expected.length);
+    }
+
+    @Test
+    public void testConcurrentContention() throws Exception {
+        // Every thread adds and removes the same small range, so only one of them can win each add or remove
+        ConcurrentIntSkipList list = new ConcurrentIntSkipList();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int[] net = new int[64];
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    int[] changes = new int[net.length];
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        int value = random.nextInt(net.length);
+                        if (random.nextBoolean()) {
+                            changes[value] += list.add(value) ? 1 : 0;
+                        } else {
+                            changes[value] -= list.remove(value) ? 1 : 0;
+                        }
+                    }
+                    return changes;
+                }));
+            }
+            for (Future<int[]> future : futures) {
+                int[] changes = future.get();
+                for (int i = 0; i < net.length; i++) {
+                    net[i] += changes[i];
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // Successful adds and removes of each value must alternate, so each value is present exactly when the net
+        // count is one
+        int[] expected = IntStream.range(0, net.length).filter(i -> net[i] == 1).toArray();
+        assertThat(IntStream.of(net).allMatch(n -> n == 0 || n == 1)).isTrue();
+        assertThat(list.toArray()).containsExactly(expected);
+        assertThat(list.size()).isEqualTo(expected.length);
+    }
+}
@@ -8,6 +8,7 @@ import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
 import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
@@ -38,6 +39,9 @@ public class DoublesVectorPerformanceTest {
         final FmaIntrinsicDoublesVector[] normalisedSecondFma = new FmaIntrinsicDoublesVector[vectorSizes.length];
         final MultipleDoublesVector[] normalisedFirstMultiply = new MultipleDoublesVector[vectorSizes.length];
         final MultipleDoublesVector[] normalisedSecondMultiply = new MultipleDoublesVector[vectorSizes.length];
+        final DoublesVector[] storedRows = new DoublesVector[1000];
+        DoublesMatrix storedMatrix;
+        DoublesVector query;
 
         @Setup(Level.Trial)
         public void trialSetup() {
@@ -49,6 +53,11 @@ public class DoublesVectorPerformanceTest {
                 normalisedFirstMultiply[i] = new MultipleDoublesVector(generate(() -> random.nextDouble()).limit(vectorSizes[i]).toArray());
                 normalisedSecondMultiply[i] = new MultipleDoublesVector(generate(() -> random.nextDouble()).limit(vectorSizes[i]).toArray());
             }
+            for (int i = 0; i < storedRows.length; i++) {
+                storedRows[i] = new DoublesVector(generate(() -> random.nextDouble()).limit(768).toArray());
+            }
+            storedMatrix = DoublesMatrix.of(Arrays.asList(storedRows));
+            query = new DoublesVector(generate(() -> random.nextDouble()).limit(768).toArray());
         }
     }
 
@@ -67,6 +76,20 @@ public class DoublesVectorPerformanceTest {
         }
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void scoreStoredRowsSeparately(TestState testState, Blackhole resultConsumer) {
+        for (DoublesVector row : testState.storedRows) {
+            resultConsumer.consume(row.dotProduct(testState.query));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void scoreStoredRowsWithMatrix(TestState testState, Blackhole resultConsumer) {
+        resultConsumer.consume(testState.storedMatrix.multiply(testState.query));
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.AverageTime)
     public void normalisedFmaDotProductSmall(TestState testState, Blackhole resultConsumer) {
@@ -97,6 +120,78 @@ public class DoublesVectorPerformanceTest {
         }
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void magnitudeAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirst[i].magnitude());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void meanSquaredErrorAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirst[i].meanSquaredError(testState.normalisedSecond[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void distanceAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirst[i].distance(testState.normalisedSecond[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void squaredDistanceAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirst[i].squaredDistance(testState.normalisedSecond[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void multiplySquaredDistanceAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirstMultiply[i].squaredDistance(testState.normalisedSecondMultiply[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void plusAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirst[i].plus(testState.normalisedSecond[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void minusAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirst[i].minus(testState.normalisedSecond[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void scaleAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirst[i].scale(0.5f));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public void normalizeAll(TestState testState, Blackhole resultConsumer) {
+        for (int i = 0; i < testState.vectorSizes.length; i++) {
+            resultConsumer.consume(testState.normalisedFirst[i].normalize());
+        }
+    }
+
     /**
      * To run from IntelliJ the jmh plugin must be installed first.
      */
@@ -133,6 +228,15 @@ public class DoublesVectorPerformanceTest {
             }
             return sum;
         }
+
+        public double squaredDistance(final MultipleDoublesVector comparedTo) {
+            double sum = 0;
+            for (int i = 0; i < contents.length; i++) {
+                double diff = contents[i] - comparedTo.contents[i];
+                sum += diff * diff;
+            }
+            return sum;
+        }
     }
 }
 
@@ -3,7 +3,10 @@ package jaid.collection;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -131,4 +134,109 @@ public class DoublesVectorTest {
         double expected = Math.sqrt(2*2 + 3*3 + 6*6 + 8*8); // √(4 + 9 + 36 + 64) = √113
         assertThat(magnitude).isEqualTo(expected);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testAddIntoAndSubtractInto() {
+        DoublesVector v1 = new DoublesVector(new double[]{1.0, 2.0, 3.0, 4.0, 5.0});
+        DoublesVector v2 = new DoublesVector(new double[]{0.5, 0.5, 0.5, 0.5, 0.5});
+        DoublesVector destination = new DoublesVector(new double[5]);
+        assertThat(v1.addInto(v2, destination)).isSameAs(destination);
+        assertThat(destination.contents()).containsExactly(1.5, 2.5, 3.5, 4.5, 5.5);
+        v1.subtractInto(v2, destination);
+        assertThat(destination.contents()).containsExactly(0.5, 1.5, 2.5, 3.5, 4.5);
+        // The destination can be one of the operands
+        v1.addInto(v2, v1);
+        assertThat(v1.contents()).containsExactly(1.5, 2.5, 3.5, 4.5, 5.5);
+        assertThatThrownBy(() -> v1.addInto(v2, new DoublesVector(new double[4])))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("dimensions");
+    }
+
+    @Test
+    public void testInPlaceScaleAndAxpy() {
+        // Long enough to cover both the full vector lanes and the masked tail
+        double[] values = new double[11];
+        double[] ones = new double[11];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+            ones[i] = 1;
+        }
+        DoublesVector vector = new DoublesVector(values);
+        vector.scaleInPlace(2f);
+        vector.axpy(-3f, new DoublesVector(ones));
+        for (int i = 0; i < values.length; i++) {
+            assertThat(vector.contents()[i]).isEqualTo(2.0 * i - 3);
+        }
+        DoublesVector scaled = vector.scaleInto(0.5f, new DoublesVector(new double[11]));
+        assertThat(scaled.contents()[10]).isEqualTo(8.5);
+    }
+
+    @Test
+    public void testNormalizeInPlace() {
+        DoublesVector vector = new DoublesVector(new double[]{3.0, 4.0});
+        vector.normalizeInPlace();
+        assertThat(vector.contents()[0]).isCloseTo(0.6, within(1e-12));
+        assertThat(vector.contents()[1]).isCloseTo(0.8, within(1e-12));
+        DoublesVector zero = new DoublesVector(new double[]{0.0, 0.0});
+        zero.normalizeInPlace();
+        assertThat(zero.contents()).containsExactly(0.0, 0.0);
+    }
+
+    @Test
+    public void testKernelsMatchScalarForAllLengths() {
+        // Covers the unrolled loop, the single vector loop and the masked tail
+        Random random = new Random(42);
+        for (int length = 0; length < 40; length++) {
+            double[] left = random.doubles(length).toArray();
+            double[] right = random.doubles(length).toArray();
+            double dot = 0;
+            double squares = 0;
+            double squaredDistance = 0;
+            for (int i = 0; i < length; i++) {
+                dot += left[i] * right[i];
+                squares += left[i] * left[i];
+                squaredDistance += (left[i] - right[i]) * (left[i] - right[i]);
+            }
+            DoublesVector v1 = new DoublesVector(left);
+            DoublesVector v2 = new DoublesVector(right);
+            assertThat(v1.dotProduct(v2)).isCloseTo(dot, within(1e-9));
+            assertThat(v1.magnitude()).isCloseTo(Math.sqrt(squares), within(1e-9));
+            assertThat(v1.squaredDistance(v2)).isCloseTo(squaredDistance, within(1e-9));
+        }
+    }
+
+    @Test
+    public void testCachedMagnitudeFollowsUpdates() {
+        DoublesVector vector = new DoublesVector(new double[]{3.0, 4.0});
+        assertThat(vector.magnitude()).isEqualTo(5.0);
+        vector.scaleInPlace(2);
+        assertThat(vector.magnitude()).isEqualTo(10.0);
+        vector.axpy(-1, new DoublesVector(new double[]{6.0, 8.0}));
+        assertThat(vector.magnitude()).isZero();
+        new DoublesVector(new double[]{0.0, 2.0}).addInto(new DoublesVector(new double[]{0.0, 1.0}), vector);
+        assertThat(vector.magnitude()).isEqualTo(3.0);
+    }
+
+    @Test
+    public void testNormalizeMarksUnitVector() {
+        DoublesVector vector = new DoublesVector(new double[]{3.0, 4.0});
+        assertThat(vector.isUnitNormalized()).isFalse();
+        DoublesVector normalized = vector.normalize();
+        assertThat(normalized.isUnitNormalized()).isTrue();
+        assertThat(normalized.normalize()).isSameAs(normalized);
+        vector.normalizeInPlace();
+        assertThat(vector.isUnitNormalized()).isTrue();
+        vector.scaleInPlace(2);
+        assertThat(vector.isUnitNormalized()).isFalse();
+    }
+
+    @Test
+    public void testCosineSimilarity() {
+        DoublesVector v1 = new DoublesVector(new double[]{1.0, 0.0});
+        DoublesVector v2 = new DoublesVector(new double[]{5.0, 5.0});
+        assertThat(v1.cosineSimilarity(v2)).isCloseTo(Math.sqrt(0.5), within(1e-12));
+        assertThat(v1.cosineSimilarity(v2)).isCloseTo(v1.normalize().dotProduct(v2.normalize()), within(1e-12));
+        assertThat(v1.angleBetween(v2)).isCloseTo(Math.PI / 4, within(1e-12));
+        assertThat(v1.cosineSimilarity(new DoublesVector(new double[2]))).isZero();
+    }
+}
@@ -0,0 +1,98 @@
+package jaid.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class FloatsMatrixTest {
+
+    private static final Random RANDOM = new Random(1234);
+
+    @Test
+    public void testMultiplyVectorMatchesDotProducts() {
+        // Row counts cover whole 4 row tiles plus the leftover rows, and lengths cover the masked tail
+        for (int rows = 1; rows < 11; rows++) {
+            for (int columns = 1; columns < 40; columns += 3) {
+                List<FloatsVector> vectors = randomVectors(rows, columns);
+                FloatsVector query = randomVectors(1, columns).get(0);
+                FloatsVector result = FloatsMatrix.of(vectors).multiply(query);
+                for (int row = 0; row < rows; row++) {
+                    assertThat(result.contents()[row]).isCloseTo((float) vectors.get(row).dotProduct(query),
+                            within(1e-4f));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMultiplyTransposedScoresEveryPair() {
+        List<FloatsVector> queries = randomVectors(70, 33);
+        List<FloatsVector> stored = randomVectors(2050, 33);
+        FloatsMatrix queryMatrix = FloatsMatrix.of(queries);
+        FloatsMatrix storedMatrix = FloatsMatrix.of(stored);
+        FloatsMatrix scores = queryMatrix.multiplyTransposed(storedMatrix);
+        assertThat(scores.getRows()).isEqualTo(70);
+        assertThat(scores.getColumns()).isEqualTo(2050);
+        for (int q = 0; q < queries.size(); q += 7) {
+            for (int s = 0; s < stored.size(); s += 13) {
+                assertThat(scores.get(q, s)).isCloseTo((float) queries.get(q).dotProduct(stored.get(s)), within(1e-4f));
+            }
+        }
+        assertThat(queryMatrix.multiplyTransposed(storedMatrix, true)).isEqualTo(scores);
+    }
+
+    @Test
+    public void testMultiply() {
+        FloatsMatrix left = new FloatsMatrix(new float[]{1, 2, 3, 4, 5, 6}, 2, 3);
+        FloatsMatrix right = new FloatsMatrix(new float[]{7, 8, 9, 10, 11, 12}, 3, 2);
+        assertThat(left.multiply(right)).isEqualTo(new FloatsMatrix(new float[]{58, 64, 139, 154}, 2, 2));
+        assertThat(left.multiply(right)).isEqualTo(left.multiplyTransposed(right.transpose()));
+
+        FloatsMatrix large = FloatsMatrix.of(randomVectors(130, 20));
+        FloatsMatrix other = FloatsMatrix.of(randomVectors(20, 9));
+        FloatsMatrix product = large.multiply(other, true);
+        FloatsMatrix expected = large.multiplyTransposed(other.transpose());
+        for (int i = 0; i < product.contents().length; i++) {
+            assertThat(product.contents()[i]).isCloseTo(expected.contents()[i], within(1e-4f));
+        }
+    }
+
+    @Test
+    public void testDimensionsChecked() {
+        FloatsMatrix matrix = new FloatsMatrix(2, 3);
+        assertThatThrownBy(() -> matrix.multiply(new FloatsVector(new float[2])))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> matrix.multiply(new FloatsMatrix(2, 3)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FloatsMatrix.of(List.of(new FloatsVector(new float[2]), new FloatsVector(new float[3]))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("dimensions");
+    }
+
+    @Test
+    public void testDoublesMatrix() {
+        DoublesMatrix matrix = DoublesMatrix.of(List.of(new DoublesVector(new double[]{1, 2}),
+                new DoublesVector(new double[]{3, 4})));
+        assertThat(matrix.multiply(new DoublesVector(new double[]{1, 1})).contents()).containsExactly(3, 7);
+        assertThat(matrix.multiplyTransposed(matrix)).isEqualTo(new DoublesMatrix(new double[]{5, 11, 11, 25}, 2, 2));
+        assertThat(matrix.multiply(matrix)).isEqualTo(new DoublesMatrix(new double[]{7, 10, 15, 22}, 2, 2));
+    }
+
+    private static List<FloatsVector> randomVectors(final int count, final int dimensions) {
+        List<FloatsVector> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] contents = new float[dimensions];
+            for (int j = 0; j < dimensions; j++) {
+                contents[j] = RANDOM.nextFloat() - 0.5f;
+            }
+            vectors.add(new FloatsVector(contents));
+        }
+        return vectors;
+    }
+}
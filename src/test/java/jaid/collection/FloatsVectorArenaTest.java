@@ -0,0 +1,124 @@
+package jaid.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class FloatsVectorArenaTest {
+
+    private static final Random RANDOM = new Random(36);
+
+    @Test
+    public void testViewsMatchFloatsVector() {
+        for (int length = 1; length < 40; length++) {
+            FloatsVectorArena arena = new FloatsVectorArena(length);
+            FloatsVector dense1 = randomVector(length);
+            FloatsVector dense2 = randomVector(length);
+            FloatsVectorView v1 = arena.get(arena.add(dense1.contents()));
+            FloatsVectorView v2 = arena.get(arena.add(dense2.contents()));
+            assertThat(v1.dotProduct(v2)).isCloseTo(dense1.dotProduct(dense2), within(1e-4));
+            assertThat(v1.dotProduct(dense2)).isCloseTo(dense1.dotProduct(dense2), within(1e-4));
+            assertThat(dense1.dotProduct(v2)).isCloseTo(dense1.dotProduct(dense2), within(1e-4));
+            assertThat(v1.squaredDistance(v2)).isCloseTo(dense1.squaredDistance(dense2), within(1e-4));
+            assertThat(v1.magnitude()).isCloseTo(dense1.magnitude(), within(1e-4));
+            assertThat(((FloatsVector) v1.<IVector>plus(v2)).contents())
+                    .containsExactly(((FloatsVector) dense1.plus(dense2)).contents(), within(1e-6f));
+            assertThat(((FloatsVector) v1.<IVector>minus(v2)).contents())
+                    .containsExactly(((FloatsVector) dense1.minus(dense2)).contents(), within(1e-6f));
+            assertThat(v1.normalize().magnitude()).isCloseTo(1, within(1e-5));
+            assertThat(v1.getSimHashBucket((byte) 8)).isEqualTo(dense1.getSimHashBucket((byte) 8));
+            assertThat(v1.hashCode()).isEqualTo(dense1.hashCode());
+            // Results are on the heap rather than in the arena
+            assertThat(arena.size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testInPlaceUpdatesWriteThroughToArena() {
+        FloatsVectorArena arena = new FloatsVectorArena(2);
+        FloatsVectorView vector = arena.get(arena.add(new float[]{3, 4}));
+        vector.axpy(1, new FloatsVector(new float[]{3, 4}));
+        assertThat(arena.get(vector.id()).magnitude()).isEqualTo(10);
+        vector.normalizeInPlace();
+        assertThat(arena.copy(vector.id()).contents()).containsExactly(new float[]{0.6f, 0.8f}, within(1e-6f));
+        assertThatThrownBy(() -> vector.addInto(vector, new FloatsVector(new float[2])))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testBulkAppendAcrossSlabsAndDotProducts() {
+        // Large enough that each slab only holds a few hundred vectors
+        final int dimensions = 1000;
+        final int count = 700;
+        FloatsVectorArena arena = new FloatsVectorArena(dimensions);
+        float[] values = new float[dimensions * count];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = RANDOM.nextFloat();
+        }
+        assertThat(arena.addAll(values, count)).isEqualTo(0);
+        assertThat(arena.size()).isEqualTo(count);
+
+        FloatsVector query = randomVector(dimensions);
+        float[] results = new float[arena.idLimit()];
+        arena.dotProducts(query.contents(), results);
+        for (int id = 0; id < count; id++) {
+            assertThat((double) results[id]).isCloseTo(query.dotProduct(arena.get(id)), within(1e-2));
+        }
+    }
+
+    @Test
+    public void testCompactKeepsViewsValid() {
+        FloatsVectorArena arena = new FloatsVectorArena(3);
+        for (int i = 0; i < 10; i++) {
+            arena.add(new float[]{i, i, i});
+        }
+        FloatsVectorView last = arena.get(9);
+        for (int id = 0; id < 10; id += 2) {
+            assertThat(arena.remove(id)).isTrue();
+        }
+        assertThat(arena.remove(0)).isFalse();
+        arena.compact();
+
+        assertThat(arena.size()).isEqualTo(5);
+        assertThat(last.toFloatsVector().contents()).containsExactly(9, 9, 9);
+        for (int id = 1; id < 10; id += 2) {
+            assertThat(arena.copy(id).contents()).containsExactly(id, id, id);
+        }
+        assertThat(arena.contains(4)).isFalse();
+        assertThatThrownBy(() -> arena.get(4)).isInstanceOf(IllegalArgumentException.class);
+
+        // New vectors reuse the space freed by compaction and start as zero vectors
+        int id = arena.allocate();
+        assertThat(id).isEqualTo(10);
+        assertThat(arena.copy(id).contents()).containsExactly(0, 0, 0);
+    }
+
+    @Test
+    public void testDoublesArena() {
+        DoublesVectorArena arena = new DoublesVectorArena(3);
+        DoublesVector dense = new DoublesVector(new double[]{1, 2, 3});
+        DoublesVectorView view = arena.get(arena.add(dense.contents()));
+        arena.remove(arena.add(new double[]{4, 5, 6}));
+        DoublesVectorView other = arena.get(arena.add(new double[]{7, 8, 9}));
+        arena.compact();
+
+        assertThat(view.dotProduct(other)).isEqualTo(50);
+        assertThat(dense.dotProduct(other)).isEqualTo(50);
+        assertThat(view.hashCode()).isEqualTo(dense.hashCode());
+        double[] results = new double[arena.idLimit()];
+        arena.dotProducts(dense.contents(), results);
+        assertThat(results).containsExactly(14, 0, 50);
+    }
+
+    private static FloatsVector randomVector(final int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = RANDOM.nextFloat() * 2 - 1;
+        }
+        return new FloatsVector(values);
+    }
+}
@@ -0,0 +1,76 @@
+package jaid.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static jaid.collection.IVectorTestUtil.generateRandomVector;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class HalfFloatsVectorTest {
+
+    private static final Random RANDOM = new Random(4444);
+
+    @Test
+    public void testRoundTrip() {
+        HalfFloatsVector vector = HalfFloatsVector.of(new float[]{1.0f, -2.5f, 0.125f, 65504f});
+        assertThat(vector.toFloatsVector().contents()).containsExactly(1.0f, -2.5f, 0.125f, 65504f);
+        assertThat(vector.get(1)).isEqualTo(-2.5f);
+    }
+
+    @Test
+    public void testDotProductMatchesFloats() {
+        // Cover lengths shorter than, equal to and spanning several decode chunks
+        for (int dims : new int[]{3, 8, 128, 300, 1536}) {
+            FloatsVector floats = generateRandomVector(dims, RANDOM);
+            FloatsVector other = generateRandomVector(dims, RANDOM);
+            HalfFloatsVector halves = HalfFloatsVector.of(floats.contents());
+            HalfFloatsVector otherHalves = HalfFloatsVector.of(other.contents());
+            // Compare against the exact dot product of the rounded values
+            double expected = halves.toFloatsVector().dotProduct(otherHalves.toFloatsVector());
+            assertThat(halves.dotProduct(otherHalves)).isCloseTo(expected, within(1e-3));
+            assertThat(halves.dotProduct(otherHalves)).isCloseTo(floats.dotProduct(other), within(0.05));
+        }
+    }
+
+    @Test
+    public void testDistance() {
+        HalfFloatsVector v1 = HalfFloatsVector.of(new float[]{1.0f, 2.0f, 3.0f});
+        HalfFloatsVector v2 = HalfFloatsVector.of(new float[]{4.0f, 5.0f, 6.0f});
+        assertThat(v1.distance(v2)).isCloseTo(Math.sqrt(27), within(1e-6));
+        assertThat(v1.meanSquaredError(v2)).isEqualTo(9.0);
+        assertThat(v1.distance(v1)).isZero();
+    }
+
+    @Test
+    public void testDistanceDifferentDimensions() {
+        HalfFloatsVector v1 = HalfFloatsVector.of(new float[]{1.0f, 2.0f});
+        HalfFloatsVector v2 = HalfFloatsVector.of(new float[]{1.0f, 2.0f, 3.0f});
+        assertThatThrownBy(() -> v1.distance(v2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("dimensions");
+    }
+
+    @Test
+    public void testArithmetic() {
+        HalfFloatsVector v1 = HalfFloatsVector.of(new float[]{1.0f, 2.0f, 3.0f});
+        HalfFloatsVector v2 = HalfFloatsVector.of(new float[]{0.5f, 0.5f, 0.5f});
+        HalfFloatsVector sum = v1.plus(v2);
+        HalfFloatsVector difference = v1.minus(v2);
+        HalfFloatsVector scaled = v1.scale(2f);
+        assertThat(sum.toFloatsVector().contents()).containsExactly(1.5f, 2.5f, 3.5f);
+        assertThat(difference.toFloatsVector().contents()).containsExactly(0.5f, 1.5f, 2.5f);
+        assertThat(scaled.toFloatsVector().contents()).containsExactly(2f, 4f, 6f);
+        assertThat(HalfFloatsVector.of(new float[]{3f, 4f}).normalize().magnitude()).isCloseTo(1, within(1e-3));
+    }
+
+    @Test
+    public void testSimHashMatchesFloats() {
+        for (int i = 0; i < 100; i++) {
+            HalfFloatsVector halves = HalfFloatsVector.of(generateRandomVector(20, RANDOM).contents());
+            assertThat(halves.getSimHashBucket((byte) 8)).isEqualTo(halves.toFloatsVector().getSimHashBucket((byte) 8));
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package jaid.collection;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
 import org.junit.jupiter.api.Test;
 
+import java.lang.ref.WeakReference;
 import java.util.Iterator;
+import java.util.function.IntConsumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -19,6 +24,7 @@ public class IntSkipListTest {
 
         list.add(5);
         list.add(10);
+        assertThat(list.add(10)).isFalse();
         assertThat(list.contains(5)).isTrue();
         assertThat(list.contains(10)).isTrue();
         assertThat(list.contains(15)).isFalse();
@@ -29,11 +35,12 @@ public class IntSkipListTest {
         assertArrayEquals(new int[]{5, 10}, list.toArray());
 
         list.remove(5);
+        assertThat(list.remove(5)).isFalse();
         assertThat(list.contains(5)).isFalse();
         assertThat(list.contains(10)).isTrue();
         assertThat(list.size()).isEqualTo(1);
         assertArrayEquals(new int[]{10}, list.toArray());
-        list.remove(10);
+        assertThat(list.remove(10)).isTrue();
         assertThat(list.contains(5)).isFalse();
         assertThat(list.contains(10)).isFalse();
         assertThat(list.size()).isEqualTo(0);
@@ -96,4 +103,102 @@ public class IntSkipListTest {
         assertThat(list.size()).isEqualTo(499_999);
         assertThat(list.pollFirst()).isEqualTo(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPrimitiveNavigation() {
+        IntSkipList list = new IntSkipList();
+        for (int i = 0; i < 100; i += 10) {
+            list.add(i);
+        }
+        assertThat(list.lowerOrAbsent(10)).isEqualTo(0);
+        assertThat(list.lowerOrAbsent(0)).isEqualTo(IntSkipLists.ABSENT);
+        assertThat(list.floorOrAbsent(15)).isEqualTo(10);
+        assertThat(list.ceilingOrAbsent(15)).isEqualTo(20);
+        assertThat(list.ceilingOrAbsent(91)).isEqualTo(IntSkipLists.ABSENT);
+        assertThat(list.higherOrAbsent(20)).isEqualTo(30);
+        assertThat(list.pollFirstOrAbsent()).isEqualTo(0);
+        assertThat(list.pollLastOrAbsent()).isEqualTo(90);
+
+        list.add(Integer.MIN_VALUE);
+        assertThat(list.floorOrAbsent(Integer.MIN_VALUE)).isEqualTo(Integer.MIN_VALUE);
+        assertThat(list.lower(Integer.MIN_VALUE)).isNull();
+
+        list.clear();
+        assertThat(list.pollFirstOrAbsent()).isEqualTo(IntSkipLists.ABSENT);
+        assertThat(list.pollLast()).isNull();
+    }
+
+    @Test
+    public void testPrimitiveIteration() {
+        IntSkipList list = new IntSkipList();
+        list.add(7);
+        list.add(3);
+        list.add(5);
+        list.add(Integer.MAX_VALUE);
+
+        IntArrayList ascending = new IntArrayList();
+        list.iterator().forEachRemaining((IntConsumer) ascending::add);
+        assertThat(ascending.toIntArray()).containsExactly(3, 5, 7, Integer.MAX_VALUE);
+
+        IntArrayList consumed = new IntArrayList();
+        list.forEach(consumed::add);
+        assertThat(consumed.toIntArray()).containsExactly(ascending.toIntArray());
+
+        IntIterator descending = list.descendingIterator();
+        assertThat(descending.nextInt()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(descending.nextInt()).isEqualTo(7);
+        assertThat(descending.nextInt()).isEqualTo(5);
+        assertThat(descending.nextInt()).isEqualTo(3);
+        assertFalse(descending.hasNext());
+    }
+
+    @Test
+    public void testSubSet() {
+        IntSkipList list = new IntSkipList();
+        for (int i = 0; i < 20; i++) {
+            list.add(i * 2);
+        }
+        IntSkipList.Range range = list.subSet(5, 12);
+        assertArrayEquals(new int[]{6, 8, 10}, range.toArray());
+        assertThat(range.size()).isEqualTo(3);
+        assertThat(range.firstOrAbsent()).isEqualTo(6);
+        assertThat(range.lastOrAbsent()).isEqualTo(10);
+        assertThat(range.contains(8)).isTrue();
+        assertThat(range.contains(12)).isFalse();
+        assertThat(range.contains(2)).isFalse();
+
+        IntIterator descending = range.descendingIterator();
+        assertThat(descending.nextInt()).isEqualTo(10);
+        assertThat(descending.nextInt()).isEqualTo(8);
+        assertThat(descending.nextInt()).isEqualTo(6);
+        assertFalse(descending.hasNext());
+
+        // The view reflects later changes
+        list.add(11);
+        list.remove(6);
+        assertArrayEquals(new int[]{8, 10, 11}, range.toArray());
+
+        IntSkipList.Range empty = list.subSet(41, 41);
+        assertThat(empty.isEmpty()).isTrue();
+        assertThat(empty.iterator().hasNext()).isFalse();
+        assertThat(empty.descendingIterator().hasNext()).isFalse();
+        assertThatThrownBy(() -> list.subSet(3, 2)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testClearReleasesNodes() throws InterruptedException {
+        IntSkipList list = new IntSkipList();
+        for (int i = 0; i < 10_000; i++) {
+            list.add(i);
+        }
+        // The last add searched past the node before this one, so a stale search path would keep it reachable
+        WeakReference<Object> last = new WeakReference<>(list.node(9_999));
+        assertThat(last.get()).isNotNull();
+        list.clear();
+        for (int i = 0; i < 20 && last.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(last.get()).isNull();
+    }
+}
@@ -0,0 +1,44 @@
+package jaid.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KernelWarmUpTest {
+
+    @Test
+    public void testWarmUpReportsCompletion() {
+        assertThat(KernelWarmUp.warmUp(Duration.ZERO)).isFalse();
+        assertThat(KernelWarmUp.isWarmedUp()).isFalse();
+
+        // Without a compilation time only the minimum rounds are run, so this always finishes
+        assertThat(KernelWarmUp.warmUp(Duration.ofMinutes(5), null)).isTrue();
+        assertThat(KernelWarmUp.isWarmedUp()).isTrue();
+        // Once warm later calls return straight away
+        assertThat(KernelWarmUp.warmUp(Duration.ZERO)).isTrue();
+    }
+
+    @Test
+    public void testWaitsForCompilationToStop() {
+        // Compilation carries on until the 50th round, so the 53rd is the third in a row without any
+        AtomicLong calls = new AtomicLong();
+        long deadline = System.nanoTime() + Duration.ofMinutes(5).toNanos();
+        assertThat(KernelWarmUp.roundsToCompile(deadline, () -> Math.min(calls.getAndIncrement(), 50))).isEqualTo(53);
+    }
+
+    @Test
+    public void testRunsMinimumRoundsWhenCompilationStopsEarly() {
+        long deadline = System.nanoTime() + Duration.ofMinutes(5).toNanos();
+        assertThat(KernelWarmUp.roundsToCompile(deadline, () -> 7)).isEqualTo(40);
+    }
+
+    @Test
+    public void testGivesUpAtDeadline() {
+        AtomicLong calls = new AtomicLong();
+        long deadline = System.nanoTime() + Duration.ofMillis(200).toNanos();
+        assertThat(KernelWarmUp.roundsToCompile(deadline, calls::getAndIncrement)).isEqualTo(-1);
+    }
+}
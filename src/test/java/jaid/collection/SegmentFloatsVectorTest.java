@@ -0,0 +1,111 @@
+package jaid.collection;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class SegmentFloatsVectorTest {
+
+    private static final Random RANDOM = new Random(99);
+
+    @Test
+    public void testMatchesFloatsVector() {
+        try (Arena arena = Arena.ofConfined()) {
+            // Lengths cover the unrolled loop, the single vector loop and the masked tail
+            for (int length = 1; length < 70; length++) {
+                FloatsVector dense1 = randomVector(length);
+                FloatsVector dense2 = randomVector(length);
+                SegmentFloatsVector v1 = SegmentFloatsVector.copyOf(dense1.contents(), arena);
+                SegmentFloatsVector v2 = SegmentFloatsVector.copyOf(dense2.contents(), arena);
+                assertThat(v1.dotProduct(v2)).isCloseTo(dense1.dotProduct(dense2), within(1e-4));
+                assertThat(v1.dotProduct(dense2)).isCloseTo(dense1.dotProduct(dense2), within(1e-4));
+                assertThat(dense1.dotProduct(v2)).isCloseTo(dense1.dotProduct(dense2), within(1e-4));
+                assertThat(v1.squaredDistance(v2)).isCloseTo(dense1.squaredDistance(dense2), within(1e-4));
+                assertThat(v1.squaredDistance(dense2)).isCloseTo(dense1.squaredDistance(dense2), within(1e-4));
+                assertThat(v1.magnitude()).isCloseTo(dense1.magnitude(), within(1e-4));
+                assertThat(((FloatsVector) v1.<IVector>plus(v2)).contents())
+                        .containsExactly(((FloatsVector) dense1.plus(dense2)).contents(), within(1e-6f));
+                assertThat(((FloatsVector) v1.<IVector>minus(v2)).contents())
+                        .containsExactly(((FloatsVector) dense1.minus(dense2)).contents(), within(1e-6f));
+                assertThat(v1.getSimHashBucket((byte) 8)).isEqualTo(dense1.getSimHashBucket((byte) 8));
+                assertThat(v1.hashCode()).isEqualTo(dense1.hashCode());
+            }
+        }
+    }
+
+    @Test
+    public void testInPlaceUpdates() {
+        try (Arena arena = Arena.ofConfined()) {
+            SegmentFloatsVector vector = SegmentFloatsVector.copyOf(new float[]{3, 4}, arena);
+            assertThat(vector.magnitude()).isEqualTo(5);
+            vector.axpy(1, SegmentFloatsVector.copyOf(new float[]{3, 4}, arena));
+            assertThat(vector.magnitude()).isEqualTo(10);
+            vector.normalizeInPlace();
+            assertThat(vector.isUnitNormalized()).isTrue();
+            assertThat(vector.get(0)).isCloseTo(0.6f, within(1e-6f));
+            vector.set(0, 0);
+            assertThat(vector.magnitude()).isCloseTo(0.8, within(1e-6));
+        }
+    }
+
+    @Test
+    public void testArenaAllocatesAcrossSlabs() {
+        SegmentVectorArena arena = new SegmentVectorArena(300_000);
+        FloatsVector first = randomVector(300_000);
+        FloatsVector second = randomVector(300_000);
+        SegmentFloatsVector firstCopy = arena.add(first);
+        arena.add(second);
+        assertThat(arena.size()).isEqualTo(2);
+        assertThat(arena.get(0)).isEqualTo(firstCopy);
+        assertThat(arena.get(1).toFloatsVector()).isEqualTo(second);
+        arena.close();
+        assertThatThrownBy(firstCopy::magnitude).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testWriteAndMap(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("vectors.bin");
+        FloatsVector[] vectors = new FloatsVector[100];
+        try (SegmentVectorArena arena = new SegmentVectorArena(17)) {
+            for (int i = 0; i < vectors.length; i++) {
+                vectors[i] = randomVector(17);
+                arena.add(vectors[i]);
+            }
+            arena.write(file);
+        }
+        try (SegmentVectorArena mapped = SegmentVectorArena.map(file, 17, false)) {
+            assertThat(mapped.size()).isEqualTo(vectors.length);
+            for (int i = 0; i < vectors.length; i++) {
+                assertThat(mapped.get(i).toFloatsVector()).isEqualTo(vectors[i]);
+            }
+            assertThatThrownBy(mapped::allocate).isInstanceOf(UnsupportedOperationException.class);
+        }
+    }
+
+    @Test
+    public void testDimensionsChecked() {
+        try (SegmentVectorArena arena = new SegmentVectorArena(3)) {
+            assertThatThrownBy(() -> arena.add(new float[2])).isInstanceOf(IllegalArgumentException.class);
+            SegmentFloatsVector vector = arena.allocate();
+            assertThatThrownBy(() -> vector.dotProduct(new FloatsVector(new float[2])))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("dimensions");
+        }
+    }
+
+    private static FloatsVector randomVector(final int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = RANDOM.nextFloat() - 0.5f;
+        }
+        return new FloatsVector(values);
+    }
+}
@@ -0,0 +1,101 @@
+package jaid.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class SparseFloatsVectorTest {
+
+    private static final Random RANDOM = new Random(4444);
+
+    @Test
+    public void testMatchesDense() {
+        for (int run = 0; run < 100; run++) {
+            float[] dense1 = randomSparseArray(200);
+            float[] dense2 = randomSparseArray(200);
+            SparseFloatsVector v1 = SparseFloatsVector.of(dense1);
+            SparseFloatsVector v2 = SparseFloatsVector.of(dense2);
+            FloatsVector d1 = new FloatsVector(dense1);
+            FloatsVector d2 = new FloatsVector(dense2);
+            assertThat(v1.dotProduct(v2)).isCloseTo(d1.dotProduct(d2), within(1e-4));
+            assertThat(v1.dotProduct(d2)).isCloseTo(d1.dotProduct(d2), within(1e-4));
+            assertThat(v1.distance(v2)).isCloseTo(d1.distance(d2), within(1e-4));
+            assertThat(v1.meanSquaredError(v2)).isCloseTo(d1.meanSquaredError(d2), within(1e-4));
+            assertThat(v1.magnitude()).isCloseTo(d1.magnitude(), within(1e-4));
+            assertThat(((SparseFloatsVector) v1.plus(v2)).toFloatsVector()).isEqualTo(d1.plus(d2));
+            assertThat(((SparseFloatsVector) v1.minus(v2)).toFloatsVector()).isEqualTo(d1.minus(d2));
+            assertThat(v1.getSimHashBucket((byte) 8)).isEqualTo(d1.getSimHashBucket((byte) 8));
+        }
+    }
+
+    @Test
+    public void testScaleAndNormalize() {
+        SparseFloatsVector vector = new SparseFloatsVector(new int[]{2, 7}, new float[]{3, 4}, 10);
+        SparseFloatsVector scaled = vector.scale(2);
+        assertThat(scaled.indices()).containsExactly(2, 7);
+        assertThat(scaled.values()).containsExactly(6, 8);
+        assertThat(vector.normalize().magnitude()).isCloseTo(1, within(1e-6));
+    }
+
+    @Test
+    public void testInPlaceOperations() {
+        SparseFloatsVector vector = new SparseFloatsVector(new int[]{2, 7}, new float[]{3, 4}, 10);
+        vector.axpy(2, new SparseFloatsVector(new int[]{7}, new float[]{1}, 10));
+        assertThat(vector.values()).containsExactly(3, 6);
+        vector.scaleInPlace(0.5f);
+        assertThat(vector.values()).containsExactly(1.5f, 3);
+        assertThatThrownBy(() -> vector.axpy(1, new SparseFloatsVector(new int[]{3}, new float[]{1}, 10)))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    public void testIntoDestination() {
+        SparseFloatsVector left = new SparseFloatsVector(new int[]{1, 4}, new float[]{1, 2}, 10);
+        SparseFloatsVector right = new SparseFloatsVector(new int[]{4, 6}, new float[]{3, 5}, 10);
+        // The destination's existing values are overwritten
+        SparseFloatsVector destination = new SparseFloatsVector(new int[]{1, 4, 6}, new float[]{9, 9, 9}, 10);
+        assertThat(left.addInto(right, destination)).isSameAs(destination);
+        assertThat(destination.values()).containsExactly(1, 5, 5);
+        left.subtractInto(right, destination);
+        assertThat(destination.values()).containsExactly(1, -1, -5);
+
+        SparseFloatsVector superset = new SparseFloatsVector(new int[]{1, 4, 6}, new float[]{1, 2, 3}, 10);
+        superset.subtractInto(left, superset);
+        assertThat(superset.values()).containsExactly(0, 0, 3);
+        assertThatThrownBy(() -> left.addInto(right, left)).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(left.values()).containsExactly(1, 2);
+    }
+
+    @Test
+    public void testInvalidIndices() {
+        assertThatThrownBy(() -> new SparseFloatsVector(new int[]{3, 2}, new float[]{1, 1}, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SparseFloatsVector(new int[]{10}, new float[]{1}, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SparseFloatsVector(new int[]{1}, new float[]{1, 2}, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testDifferentDimensions() {
+        SparseFloatsVector v1 = new SparseFloatsVector(new int[]{1}, new float[]{1}, 10);
+        SparseFloatsVector v2 = new SparseFloatsVector(new int[]{1}, new float[]{1}, 11);
+        assertThatThrownBy(() -> v1.distance(v2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("dimensions");
+    }
+
+    static float[] randomSparseArray(final int dims) {
+        float[] dense = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            if (RANDOM.nextInt(10) == 0) {
+                dense[i] = RANDOM.nextFloat();
+            }
+        }
+        return dense;
+    }
+}
@@ -0,0 +1,71 @@
+package jaid.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class VectorExprTest {
+
+    private static final Random RANDOM = new Random(37);
+
+    @Test
+    public void testMatchesEagerOperations() {
+        // Lengths cover the vector loop and the masked tail
+        for (int length = 1; length < 40; length++) {
+            FloatsVector a = randomVector(length);
+            FloatsVector b = randomVector(length);
+            FloatsVector c = randomVector(length);
+            FloatsVector q = randomVector(length);
+            FloatsVector eager = ((FloatsVector) ((FloatsVector) a.minus(b)).scale(0.5f)).plus(c);
+            VectorExpr lazy = VectorExpr.of(a).minus(b).scale(0.5f).plus(c);
+
+            assertThat(lazy.materialize().contents()).containsExactly(eager.contents(), within(1e-5f));
+            assertThat(lazy.dotProduct(q)).isCloseTo(eager.dotProduct(q), within(1e-4));
+            assertThat(lazy.magnitude()).isCloseTo(eager.magnitude(), within(1e-4));
+            assertThat(lazy.squaredDistance(q)).isCloseTo(eager.squaredDistance(q), within(1e-4));
+        }
+    }
+
+    @Test
+    public void testRepeatedVectorsAreMerged() {
+        FloatsVector a = new FloatsVector(new float[]{1, 2, 3});
+        FloatsVector b = new FloatsVector(new float[]{1, 1, 1});
+        VectorExpr expr = VectorExpr.of(a).plus(b).minus(VectorExpr.of(a).scale(2));
+
+        assertThat(expr.materialize().contents()).containsExactly(0, -1, -2);
+        assertThat(expr.toString()).isEqualTo("-1.0 * [1.0, 2.0, 3.0] + 1.0 * [1.0, 1.0, 1.0]");
+    }
+
+    @Test
+    public void testArenaViews() {
+        FloatsVectorArena arena = new FloatsVectorArena(2);
+        FloatsVectorView a = arena.get(arena.add(new float[]{1, 2}));
+        FloatsVectorView b = arena.get(arena.add(new float[]{3, 5}));
+
+        assertThat(VectorExpr.of(b).minus(a).dotProduct(b)).isEqualTo(21);
+        assertThat(VectorExpr.of(b).minus(new FloatsVector(new float[]{3, 1})).magnitude()).isEqualTo(4);
+    }
+
+    @Test
+    public void testDimensionsMustMatch() {
+        VectorExpr expr = VectorExpr.of(new FloatsVector(new float[]{1, 2}));
+        assertThatThrownBy(() -> expr.plus(new FloatsVector(new float[]{1, 2, 3})))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> expr.dotProduct(new FloatsVector(new float[]{1})))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> VectorExpr.of(new DoublesVector(new double[]{1, 2})))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static FloatsVector randomVector(final int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = RANDOM.nextFloat() * 2 - 1;
+        }
+        return new FloatsVector(values);
+    }
+}
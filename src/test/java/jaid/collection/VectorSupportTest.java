@@ -0,0 +1,147 @@
+package jaid.collection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class VectorSupportTest {
+
+    private final FloatKernels.Implementation scalarFloats = new ScalarFloatKernels();
+    private final DoubleKernels.Implementation scalarDoubles = new ScalarDoubleKernels();
+
+    @Test
+    public void testDescribe() {
+        assertThat(VectorSupport.describe()).isNotEmpty();
+        if (VectorSupport.isEnabled()) {
+            assertThat(FloatKernels.implementation().vectorBits()).isGreaterThanOrEqualTo(64);
+        } else {
+            assertThat(FloatKernels.implementation()).isInstanceOf(ScalarFloatKernels.class);
+        }
+    }
+
+    @Test
+    public void testVectorBitsNeverExceedsPreferred() {
+        if (VectorSupport.configuredBits() <= 0) {
+            assertThat(VectorSupport.vectorBits(256)).isEqualTo(256);
+        } else {
+            assertThat(VectorSupport.vectorBits(VectorSupport.configuredBits() / 2))
+                    .isEqualTo(VectorSupport.configuredBits() / 2);
+            assertThat(VectorSupport.vectorBits(1024)).isEqualTo(VectorSupport.configuredBits());
+        }
+    }
+
+    @Test
+    public void testFloatKernelsMatchScalar() {
+        // Offsets and lengths cover the unrolled loop, the single vector loop and the masked tail
+        Random random = new Random(42);
+        for (int length = 0; length < 70; length++) {
+            float[] left = randomFloats(random, length + 3);
+            float[] right = randomFloats(random, length + 5);
+            assertThat(FloatKernels.dotProduct(left, 3, right, 5, length))
+                    .isCloseTo(scalarFloats.dotProduct(left, 3, right, 5, length), within(1e-4f));
+            assertThat(FloatKernels.sumOfSquares(left, 3, length))
+                    .isCloseTo(scalarFloats.sumOfSquares(left, 3, length), within(1e-4f));
+            assertThat(FloatKernels.squaredDistance(left, 3, right, 5, length))
+                    .isCloseTo(scalarFloats.squaredDistance(left, 3, right, 5, length), within(1e-4f));
+
+            float[] y = randomFloats(random, length + 1);
+            float[] expected = y.clone();
+            scalarFloats.axpy(0.5f, left, 3, expected, 1, length);
+            FloatKernels.axpy(0.5f, left, 3, y, 1, length);
+            assertThat(y).containsExactly(expected, within(1e-6f));
+        }
+    }
+
+    @Test
+    public void testDotProductsMatchesSeparateDotProducts() {
+        Random random = new Random(7);
+        for (int rightCount = 0; rightCount < 10; rightCount++) {
+            float[] left = randomFloats(random, 40);
+            float[][] rights = new float[rightCount][];
+            for (int r = 0; r < rightCount; r++) {
+                rights[r] = randomFloats(random, 35);
+            }
+            float[] results = new float[rightCount];
+            FloatKernels.dotProducts(left, 5, rights, 0, 35, results);
+            for (int r = 0; r < rightCount; r++) {
+                assertThat(results[r]).isCloseTo(scalarFloats.dotProduct(left, 5, rights[r], 0, 35), within(1e-4f));
+            }
+        }
+    }
+
+    @Test
+    public void testMultiplyAddMatchesScalar() {
+        // Rows and columns cover the full 4x2 tile, the single vector and masked columns and the leftover rows, with
+        // strides wider than the blocks and non-zero offsets
+        Random random = new Random(11);
+        for (int rows = 0; rows < 10; rows++) {
+            for (int columns = 0; columns < 40; columns += 3) {
+                int depth = 7;
+                float[] left = randomFloats(random, 2 + rows * (depth + 1));
+                float[] right = randomFloats(random, 3 + depth * (columns + 2));
+                float[] results = randomFloats(random, 1 + rows * (columns + 3));
+                float[] expected = results.clone();
+                scalarFloats.multiplyAdd(left, 2, depth + 1, right, 3, columns + 2, rows, depth, columns, expected,
+                        1, columns + 3);
+                FloatKernels.multiplyAdd(left, 2, depth + 1, right, 3, columns + 2, rows, depth, columns, results, 1,
+                        columns + 3);
+                assertThat(results).containsExactly(expected, within(1e-5f));
+
+                double[] doubleLeft = random.doubles(2 + rows * (depth + 1)).toArray();
+                double[] doubleRight = random.doubles(3 + depth * (columns + 2)).toArray();
+                double[] doubleResults = random.doubles(1 + rows * (columns + 3)).toArray();
+                double[] doubleExpected = doubleResults.clone();
+                scalarDoubles.multiplyAdd(doubleLeft, 2, depth + 1, doubleRight, 3, columns + 2, rows, depth, columns,
+                        doubleExpected, 1, columns + 3);
+                DoubleKernels.multiplyAdd(doubleLeft, 2, depth + 1, doubleRight, 3, columns + 2, rows, depth, columns,
+                        doubleResults, 1, columns + 3);
+                assertThat(doubleResults).containsExactly(doubleExpected, within(1e-12));
+            }
+        }
+    }
+
+    @Test
+    public void testActivationKernelsMatchScalar() {
+        Random random = new Random(9);
+        for (Activation activation : Activation.values()) {
+            for (int length = 0; length < 40; length++) {
+                float[] values = randomFloats(random, length + 2);
+                float[] bias = randomFloats(random, length + 1);
+                float[] expected = values.clone();
+                scalarFloats.biasActivation(expected, 2, bias, 1, length, activation);
+                FloatKernels.biasActivation(values, 2, bias, 1, length, activation);
+                assertThat(values).containsExactly(expected, within(1e-5f));
+
+                float[] gradients = randomFloats(random, length + 3);
+                float[] expectedGradients = gradients.clone();
+                scalarFloats.activationGradient(values, 2, expectedGradients, 3, length, activation);
+                FloatKernels.activationGradient(values, 2, gradients, 3, length, activation);
+                assertThat(gradients).containsExactly(expectedGradients, within(1e-5f));
+            }
+        }
+    }
+
+    @Test
+    public void testDoubleKernelsMatchScalar() {
+        Random random = new Random(42);
+        for (int length = 0; length < 40; length++) {
+            double[] left = random.doubles(length + 2).toArray();
+            double[] right = random.doubles(length).toArray();
+            assertThat(DoubleKernels.dotProduct(left, 2, right, 0, length))
+                    .isCloseTo(scalarDoubles.dotProduct(left, 2, right, 0, length), within(1e-12));
+            assertThat(DoubleKernels.squaredDistance(left, 2, right, 0, length))
+                    .isCloseTo(scalarDoubles.squaredDistance(left, 2, right, 0, length), within(1e-12));
+        }
+    }
+
+    private static float[] randomFloats(final Random random, final int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextFloat() - 0.5f;
+        }
+        return values;
+    }
+}
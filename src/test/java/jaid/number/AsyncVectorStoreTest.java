@@ -0,0 +1,120 @@
+package jaid.number;
+
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncVectorStoreTest {
+
+    private final NearestVectorStore store = new NearestVectorStore();
+
+    @Test
+    void testQueriesOnVirtualThreads() throws Exception {
+        FloatsVector near = new FloatsVector(new float[]{1, 0.1f});
+        try (AsyncVectorStore async = AsyncVectorStore.builder(store).build()) {
+            async.add(near);
+            async.add(new FloatsVector(new float[]{-1, 0}));
+            List<IVector> results = async.query(new FloatsVector(new float[]{1, 0}), 1).get(10, TimeUnit.SECONDS);
+            assertThat(results).containsExactly(near);
+        }
+    }
+
+    @Test
+    void testShedsLoadBeyondQueueLimit() {
+        HeldExecutor executor = new HeldExecutor();
+        AsyncVectorStore async = AsyncVectorStore.builder(store).executor(executor).maxConcurrent(1).maxQueued(1)
+                .defaultTimeout(Duration.ofMinutes(1)).build();
+        FloatsVector query = new FloatsVector(new float[]{1, 0});
+        CompletableFuture<List<IVector>> first = async.query(query, 1);
+        CompletableFuture<List<IVector>> second = async.query(query, 1);
+        CompletableFuture<List<IVector>> third = async.query(query, 1);
+
+        assertThat(third).isCompletedExceptionally();
+        assertThatThrownBy(third::get).hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(async.getRejectedCount()).isEqualTo(1);
+        executor.runAll();
+        assertThat(first).isCompleted();
+        assertThat(second).isCompleted();
+        assertThat(async.getInFlight()).isZero();
+    }
+
+    @Test
+    void testDeadlineSkipsWaitingQuery() {
+        HeldExecutor executor = new HeldExecutor();
+        AsyncVectorStore async = AsyncVectorStore.builder(store).executor(executor).build();
+        CompletableFuture<List<IVector>> result = async.query(new FloatsVector(new float[]{1, 0}), 1,
+                Duration.ofMillis(10));
+
+        assertThatThrownBy(() -> result.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        executor.runAll();
+        assertThat(async.getInFlight()).isZero();
+    }
+
+    @Test
+    void testStopAbandonsScan() {
+        for (int i = 0; i < 1000; i++) {
+            store.add(new FloatsVector(new float[]{i, 1}));
+        }
+        assertThatThrownBy(() -> store.query(new FloatsVector(new float[]{1, 0}), 1, () -> true))
+                .isInstanceOf(CancellationException.class);
+        assertThat(store.query(new FloatsVector(new float[]{1, 0}), 1, () -> false)).hasSize(1);
+    }
+
+    /**
+     * Holds tasks until {@link #runAll()}, so tests can control when queries run
+     */
+    private static class HeldExecutor extends AbstractExecutorService {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        void runAll() {
+            tasks.forEach(Runnable::run);
+            tasks.clear();
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return tasks;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package jaid.number;
+
+import jaid.collection.DoublesVector;
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static jaid.collection.IVectorTestUtil.generateRandomVector;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+class DimensionReducerTest {
+
+    private static final Random RANDOM = new Random(4444);
+
+    @Test
+    void randomProjectionsPreserveDotProducts() {
+        for (DimensionReducer reducer : List.of(DimensionReducer.gaussian(1536, 256, 1),
+                DimensionReducer.sparse(1536, 256, 1))) {
+            for (int i = 0; i < 20; i++) {
+                FloatsVector v1 = generateRandomVector(1536, RANDOM).normalize();
+                FloatsVector v2 = v1.plus(generateRandomVector(1536, RANDOM).scale(0.02f)).normalize();
+                FloatsVector reduced1 = reducer.project(v1);
+                FloatsVector reduced2 = reducer.project(v2);
+                assertThat(reduced1.contents()).hasSize(256);
+                assertThat(reduced1.dotProduct(reduced2)).isCloseTo(v1.dotProduct(v2), within(0.3));
+            }
+        }
+    }
+
+    @Test
+    void pcaRecoversLowRankSample() {
+        // Every sample vector lies in the span of three directions, so three components lose nothing
+        List<FloatsVector> directions = List.of(generateRandomVector(20, RANDOM), generateRandomVector(20, RANDOM),
+                generateRandomVector(20, RANDOM));
+        List<IVector> sample = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            FloatsVector v = directions.get(0).scale(RANDOM.nextFloat() * 3);
+            v = v.plus(directions.get(1).scale(RANDOM.nextFloat() * 2));
+            v = v.plus(directions.get(2).scale(RANDOM.nextFloat()));
+            sample.add(v);
+        }
+        DimensionReducer reducer = DimensionReducer.pca(sample, 3, 1);
+        for (int i = 0; i < sample.size() - 1; i++) {
+            IVector reduced1 = reducer.project(sample.get(i));
+            IVector reduced2 = reducer.project(sample.get(i + 1));
+            assertThat(reduced1.dotProduct(reduced2)).isCloseTo(sample.get(i).dotProduct(sample.get(i + 1)), within(1e-3));
+        }
+    }
+
+    @Test
+    void batchMatchesSingleProjection() {
+        DimensionReducer reducer = DimensionReducer.gaussian(67, 16, 7);
+        List<IVector> vectors = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            vectors.add(generateRandomVector(67, RANDOM));
+        }
+        vectors.add(new DoublesVector(new double[67]));
+        List<IVector> projected = reducer.project(vectors);
+        assertThat(projected).hasSize(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            IVector single = reducer.project(vectors.get(i));
+            assertThat(projected.get(i).distance(single)).isCloseTo(0, within(1e-4));
+        }
+    }
+
+    @Test
+    void wrongDimensions() {
+        DimensionReducer reducer = DimensionReducer.gaussian(10, 4, 7);
+        assertThatThrownBy(() -> reducer.project(generateRandomVector(11, RANDOM)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("dimensions");
+        assertThatThrownBy(() -> DimensionReducer.gaussian(10, 11, 7)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reducedStoreQuery() {
+        ReducedVectorStore store = new ReducedVectorStore(DimensionReducer.gaussian(512, 64, 3), 4);
+        List<FloatsVector> vectors = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            FloatsVector vector = generateRandomVector(512, RANDOM).normalize();
+            vectors.add(vector);
+            store.add(vector);
+        }
+        assertThat(store.size()).isEqualTo(100);
+        for (FloatsVector vector : vectors) {
+            assertThat(store.query(vector, 1)).containsExactly(vector);
+        }
+        assertThat(store.remove(vectors.get(0))).isTrue();
+        assertThat(store.remove(vectors.get(0))).isFalse();
+        assertThat(store.query(vectors.get(0), 1)).doesNotContain(vectors.get(0));
+        assertThat(store.size()).isEqualTo(99);
+    }
+}
@@ -0,0 +1,120 @@
+package jaid.number;
+
+import jaid.collection.Activation;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class FeedForwardNetworkTest {
+
+    private final Random random = new Random(5);
+
+    @Test
+    public void testForwardMatchesNaive() {
+        int inputs = 37;
+        int outputs = 9;
+        int batch = 4;
+        DenseLayer layer = new DenseLayer(inputs, outputs, Activation.TANH, random);
+        for (int o = 0; o < outputs; o++) {
+            layer.getBias()[o] = random.nextFloat() - 0.5f;
+        }
+        float[] input = randomFloats(batch * inputs);
+        float[] output = new float[batch * outputs];
+        layer.forward(input, batch, output);
+        for (int b = 0; b < batch; b++) {
+            for (int o = 0; o < outputs; o++) {
+                double sum = layer.getBias()[o];
+                for (int i = 0; i < inputs; i++) {
+                    sum += input[b * inputs + i] * layer.getWeights()[o * inputs + i];
+                }
+                assertThat(output[b * outputs + o]).isCloseTo((float) Math.tanh(sum), within(1e-4f));
+            }
+        }
+    }
+
+    @Test
+    public void testBackwardMatchesFiniteDifferences() {
+        int inputs = 6;
+        int outputs = 3;
+        int batch = 2;
+        DenseLayer layer = new DenseLayer(inputs, outputs, Activation.SIGMOID, random);
+        float[] input = randomFloats(batch * inputs);
+        float[] output = new float[batch * outputs];
+        layer.forward(input, batch, output);
+        // The loss is the sum of the outputs, so its gradient with respect to each output is 1
+        float[] outputGradient = new float[batch * outputs];
+        Arrays.fill(outputGradient, 1);
+        float[] inputGradient = new float[batch * inputs];
+        DenseLayer.Gradients gradients = layer.newGradients();
+        layer.backward(input, output, outputGradient, batch, inputGradient, gradients);
+
+        float epsilon = 1e-2f;
+        for (int w = 0; w < layer.getWeights().length; w++) {
+            float original = layer.getWeights()[w];
+            layer.getWeights()[w] = original + epsilon;
+            double plus = sum(layer, input, batch);
+            layer.getWeights()[w] = original - epsilon;
+            double minus = sum(layer, input, batch);
+            layer.getWeights()[w] = original;
+            assertThat((double) gradients.weights()[w]).isCloseTo((plus - minus) / (2 * epsilon), within(1e-3));
+        }
+        for (int i = 0; i < input.length; i++) {
+            float original = input[i];
+            input[i] = original + epsilon;
+            double plus = sum(layer, input, batch);
+            input[i] = original - epsilon;
+            double minus = sum(layer, input, batch);
+            input[i] = original;
+            assertThat((double) inputGradient[i]).isCloseTo((plus - minus) / (2 * epsilon), within(1e-3));
+        }
+    }
+
+    @Test
+    public void testLearnsXor() {
+        FeedForwardNetwork network = FeedForwardNetwork.create(random, Activation.TANH, Activation.SIGMOID, 2, 8, 1);
+        float[] features = {0, 0, 0, 1, 1, 0, 1, 1};
+        float[] targets = {0, 1, 1, 0};
+        float initialLoss = network.train(features, targets, 4, 0);
+        float loss = initialLoss;
+        for (int epoch = 0; epoch < 5000; epoch++) {
+            loss = network.train(features, targets, 4, 2f);
+        }
+        assertThat(loss).isLessThan(initialLoss / 10);
+        float[] predictions = network.predict(features, 4);
+        for (int i = 0; i < targets.length; i++) {
+            assertThat(predictions[i]).isCloseTo(targets[i], within(0.2f));
+        }
+    }
+
+    @Test
+    public void testRejectsMismatchedLayers() {
+        assertThatThrownBy(() -> new FeedForwardNetwork(List.of(new DenseLayer(4, 3, Activation.RELU, random),
+                new DenseLayer(2, 1, Activation.IDENTITY, random)))).isInstanceOf(IllegalArgumentException.class);
+        FeedForwardNetwork network = FeedForwardNetwork.create(random, Activation.RELU, Activation.IDENTITY, 4, 1);
+        assertThatThrownBy(() -> network.predict(new float[7], 2)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double sum(DenseLayer layer, float[] input, int batch) {
+        float[] output = new float[batch * layer.getOutputs()];
+        layer.forward(input, batch, output);
+        double sum = 0;
+        for (float value : output) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private float[] randomFloats(int length) {
+        float[] values = new float[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,106 @@
+package jaid.number;
+
+import jaid.collection.DoublesVector;
+import jaid.collection.FloatsMatrix;
+import jaid.collection.FloatsVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class KMeansTest {
+
+    private static final int DIMENSIONS = 16;
+    private static final int CLUSTERS = 5;
+
+    @Test
+    public void testFindsWellSeparatedClusters() {
+        List<FloatsVector> vectors = blobs(2000, new Random(1));
+        KMeans.Clustering clustering = KMeans.builder().clusters(CLUSTERS).seed(3).build().fit(vectors);
+
+        assertThat(clustering.converged()).isTrue();
+        assertSeparated(clustering.assignments());
+        // Every vector is within noise of its centroid
+        assertThat(clustering.inertia() / vectors.size()).isLessThan(DIMENSIONS * 0.02);
+        assertThat(clustering.assign(vectors.get(7))).isEqualTo(clustering.assignments()[7]);
+    }
+
+    @Test
+    public void testMiniBatchMatchesFullBatch() {
+        List<FloatsVector> vectors = blobs(5000, new Random(2));
+        KMeans.Clustering full = KMeans.builder().clusters(CLUSTERS).seed(4).parallel(false).build().fit(vectors);
+        KMeans.Clustering miniBatch = KMeans.builder().clusters(CLUSTERS).seed(4).batchSize(256).build().fit(vectors);
+
+        assertSeparated(miniBatch.assignments());
+        assertThat(miniBatch.inertia()).isLessThan(full.inertia() * 1.05);
+    }
+
+    @Test
+    public void testMatrixAndDoublesInputsGiveTheSameClustering() {
+        List<FloatsVector> vectors = blobs(500, new Random(5));
+        List<DoublesVector> doubles = new ArrayList<>();
+        for (FloatsVector vector : vectors) {
+            double[] values = new double[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                values[i] = vector.contents()[i];
+            }
+            doubles.add(new DoublesVector(values));
+        }
+        KMeans kMeans = KMeans.builder().clusters(CLUSTERS).seed(6).parallel(false).build();
+
+        KMeans.Clustering fromList = kMeans.fit(vectors);
+        assertThat(kMeans.fit(FloatsMatrix.of(vectors)).assignments()).containsExactly(fromList.assignments());
+        assertThat(kMeans.fit(doubles).assignments()).containsExactly(fromList.assignments());
+    }
+
+    @Test
+    public void testValidation() {
+        assertThatThrownBy(() -> KMeans.builder().clusters(0).build()).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KMeans.builder().clusters(3).build().fit(blobs(2, new Random(7))))
+                .isInstanceOf(IllegalArgumentException.class);
+        // A longer vector is rejected as well as a shorter one
+        List<FloatsVector> mismatched = new ArrayList<>(blobs(4, new Random(8)));
+        mismatched.add(new FloatsVector(new float[DIMENSIONS + 1]));
+        assertThatThrownBy(() -> KMeans.builder().clusters(2).build().fit(mismatched))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Vectors must have the same dimensions");
+    }
+
+    /**
+     * Vectors are generated round robin from CLUSTERS well separated centres, so vector i belongs with i % CLUSTERS
+     */
+    private static List<FloatsVector> blobs(final int count, final Random random) {
+        float[][] centres = new float[CLUSTERS][DIMENSIONS];
+        for (float[] centre : centres) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                centre[i] = random.nextFloat() * 20 - 10;
+            }
+        }
+        List<FloatsVector> vectors = new ArrayList<>();
+        for (int v = 0; v < count; v++) {
+            float[] values = new float[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                values[i] = centres[v % CLUSTERS][i] + (float) random.nextGaussian() * 0.1f;
+            }
+            vectors.add(new FloatsVector(values));
+        }
+        return vectors;
+    }
+
+    private static void assertSeparated(final int[] assignments) {
+        Set<Integer> clusters = new HashSet<>();
+        for (int centre = 0; centre < CLUSTERS; centre++) {
+            clusters.add(assignments[centre]);
+            for (int v = centre; v < assignments.length; v += CLUSTERS) {
+                assertThat(assignments[v]).isEqualTo(assignments[centre]);
+            }
+        }
+        assertThat(clusters).hasSize(CLUSTERS);
+    }
+}
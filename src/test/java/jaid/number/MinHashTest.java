@@ -0,0 +1,70 @@
+package jaid.number;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MinHashTest {
+
+    private static final Random RANDOM = new Random(4444);
+
+    @Test
+    void similarityEstimatesJaccard() {
+        MinHash minHash = new MinHash(500, 1);
+        // Sets of 1000 elements sharing 600, for a Jaccard similarity of 600 / 1400
+        int[] set1 = IntStream.range(0, 1000).toArray();
+        int[] set2 = IntStream.range(400, 1400).toArray();
+        double similarity = MinHash.similarity(minHash.signature(set1), minHash.signature(set2));
+        assertThat(similarity).isCloseTo(600.0 / 1400, within(0.07));
+        assertThat(MinHash.similarity(minHash.signature(set1), minHash.signature(set1))).isEqualTo(1.0);
+    }
+
+    @Test
+    void signatureIgnoresOrderAndDuplicates() {
+        MinHash minHash = new MinHash(13, 1);
+        int[] signature = minHash.signature(new int[]{5, 3, 9, 3});
+        assertThat(signature).hasSize(13);
+        assertThat(minHash.signature(new int[]{9, 5, 3})).containsExactly(signature);
+        assertThat(minHash.signature(new int[0])).containsOnly(Integer.MAX_VALUE);
+    }
+
+    @Test
+    void shinglesMatchStringHashCode() {
+        int[] shingles = MinHash.shingles("abcdef", 3);
+        assertThat(shingles).containsExactly("abc".hashCode(), "bcd".hashCode(), "cde".hashCode(), "def".hashCode());
+        assertThat(MinHash.shingles("ab", 3)).containsExactly("ab".hashCode());
+    }
+
+    @Test
+    void lshFindsNearDuplicates() {
+        MinHash minHash = new MinHash(128, 7);
+        MinHashLshIndex index = new MinHashLshIndex(32, 4);
+        int[] original = RANDOM.ints(300).toArray();
+        int[] nearDuplicate = Arrays.copyOf(original, 300);
+        for (int i = 0; i < 10; i++) {
+            nearDuplicate[i] = RANDOM.nextInt();
+        }
+        int originalId = index.add(minHash.signature(original));
+        int duplicateId = index.add(minHash.signature(nearDuplicate));
+        for (int i = 0; i < 200; i++) {
+            index.add(minHash.signature(RANDOM.ints(300).toArray()));
+        }
+        assertThat(index.size()).isEqualTo(202);
+        assertThat(index.nearDuplicates(minHash.signature(original), 0.8).toIntArray())
+                .containsExactlyInAnyOrder(originalId, duplicateId);
+
+        IntList pairs = new IntArrayList();
+        index.forEachCandidatePair((first, second) -> {
+            pairs.add(first);
+            pairs.add(second);
+        });
+        assertThat(pairs.toIntArray()).containsExactly(originalId, duplicateId);
+    }
+}
@@ -0,0 +1,134 @@
+package jaid.number;
+
+import jaid.collection.FloatsVector;
+import jaid.collection.MultiVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class MultiVectorStoreTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void testMaxSim() {
+        MultiVector document = new MultiVector(List.of(new FloatsVector(new float[]{1, 0}),
+                new FloatsVector(new float[]{0, 2})));
+        MultiVector query = new MultiVector(List.of(new FloatsVector(new float[]{1, 1}),
+                new FloatsVector(new float[]{3, -1})));
+        // max(1, 2) + max(3, -2)
+        assertThat(document.maxSim(query)).isEqualTo(5f);
+    }
+
+    @Test
+    public void testMaxSimMatchesNaive() {
+        MultiVector document = randomDocument(13, 67);
+        MultiVector query = randomDocument(5, 67);
+        double expected = 0;
+        for (FloatsVector queryToken : query.tokens()) {
+            double best = Double.NEGATIVE_INFINITY;
+            for (FloatsVector token : document.tokens()) {
+                best = Math.max(best, token.dotProduct(queryToken));
+            }
+            expected += best;
+        }
+        assertThat((double) document.maxSim(query)).isCloseTo(expected, within(1e-3));
+    }
+
+    @Test
+    public void testRejectsMismatchedDimensions() {
+        assertThatThrownBy(() -> new MultiVector(List.of(new FloatsVector(new float[]{1, 0}),
+                new FloatsVector(new float[]{1, 0, 0})))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> randomDocument(2, 4).maxSim(randomDocument(2, 5)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testQueryRanksByMaxSim() {
+        MultiVectorStore store = new MultiVectorStore(50);
+        List<MultiVector> documents = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            MultiVector document = randomDocument(8, 16);
+            documents.add(document);
+            store.add(document);
+        }
+        assertThat(store.size()).isEqualTo(40);
+
+        MultiVector query = new MultiVector(documents.get(3).tokens().subList(0, 4));
+        List<MultiVector> results = store.query(query, 5);
+        List<MultiVector> expected = documents.stream()
+                .sorted(Comparator.comparingDouble((MultiVector d) -> d.maxSim(query)).reversed())
+                .limit(5)
+                .toList();
+        assertThat(results).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void testRemove() {
+        MultiVectorStore store = new MultiVectorStore();
+        MultiVector document = randomDocument(4, 8);
+        MultiVector equal = new MultiVector(document.tokens().stream()
+                .map(token -> new FloatsVector(token.contents().clone()))
+                .toList());
+        store.add(document);
+        assertThat(store.remove(equal)).isFalse();
+        assertThat(store.remove(document)).isTrue();
+        assertThat(store.size()).isZero();
+        assertThat(store.query(document, 3)).isEmpty();
+    }
+
+    @Test
+    public void testRemoveKeepsEqualTokensOfOtherDocuments() {
+        MultiVectorStore store = new MultiVectorStore();
+        MultiVector other = randomDocument(1, 8);
+        FloatsVector shared = other.tokens().get(0);
+        MultiVector document = new MultiVector(List.of(new FloatsVector(shared.contents().clone()),
+                randomDocument(1, 8).tokens().get(0)));
+        // The other document's equal token is added first, so removing by equality rather than identity would take it
+        store.add(other);
+        store.add(document);
+        assertThat(store.remove(document)).isTrue();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.query(new MultiVector(List.of(shared)), 3)).containsExactly(other);
+    }
+
+    @Test
+    public void testRejectsSharedTokenInstances() {
+        MultiVectorStore store = new MultiVectorStore();
+        MultiVector document = randomDocument(2, 8);
+        FloatsVector shared = document.tokens().get(1);
+        store.add(document);
+        assertThatThrownBy(() -> store.add(document)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.add(new MultiVector(List.of(randomDocument(1, 8).tokens().get(0), shared))))
+                .isInstanceOf(IllegalArgumentException.class);
+        FloatsVector repeated = randomDocument(1, 8).tokens().get(0);
+        assertThatThrownBy(() -> store.add(new MultiVector(List.of(repeated, repeated))))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Nothing from the rejected documents was indexed, and a document over a subset of the tokens is not removed
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.query(new MultiVector(List.of(repeated)), 3)).containsExactly(document);
+        assertThat(store.remove(new MultiVector(List.of(document.tokens().get(0))))).isFalse();
+        assertThat(store.remove(document)).isTrue();
+        assertThat(store.size()).isZero();
+    }
+
+    private MultiVector randomDocument(int tokens, int dimensions) {
+        List<FloatsVector> vectors = new ArrayList<>(tokens);
+        for (int t = 0; t < tokens; t++) {
+            float[] values = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                values[i] = (float) random.nextGaussian();
+            }
+            vectors.add(new FloatsVector(values));
+        }
+        return new MultiVector(vectors);
+    }
+}
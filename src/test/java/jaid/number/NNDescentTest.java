@@ -0,0 +1,107 @@
+package jaid.number;
+
+import jaid.collection.FloatsMatrix;
+import jaid.collection.FloatsVector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class NNDescentTest {
+
+    private static final int K = 10;
+
+    @Test
+    public void testHighRecallAgainstBruteForce() {
+        List<FloatsVector> vectors = randomVectors(2000, 12, new Random(1));
+        KnnGraph graph = NNDescent.builder().k(K).seed(2).build().buildGraph(vectors);
+
+        assertThat(graph.size()).isEqualTo(vectors.size());
+        assertThat(graph.getK()).isEqualTo(K);
+        assertThat(recall(graph, vectors)).isGreaterThan(0.9);
+        for (int v = 0; v < graph.size(); v++) {
+            assertThat(graph.neighbours(v)).doesNotContain(v).doesNotHaveDuplicates();
+            for (int r = 1; r < K; r++) {
+                assertThat(graph.distance(v, r)).isGreaterThanOrEqualTo(graph.distance(v, r - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testCosineDistanceOfMatrixRows() {
+        List<FloatsVector> vectors = randomVectors(500, 8, new Random(3));
+        KnnGraph graph = NNDescent.builder().k(5).cosine(true).parallel(false).build()
+                .buildGraph(FloatsMatrix.of(vectors));
+        int v = 17;
+        int nearest = graph.neighbour(v, 0);
+        assertThat((double) graph.distance(v, 0))
+                .isCloseTo(1 - vectors.get(v).cosineSimilarity(vectors.get(nearest)), within(1e-5));
+    }
+
+    @Test
+    public void testPersistsThroughFileIO(@TempDir Path directory) {
+        List<FloatsVector> vectors = randomVectors(100, 4, new Random(4));
+        KnnGraph graph = NNDescent.builder().k(3).build().buildGraph(vectors);
+        File file = directory.resolve("graph.knn").toFile();
+        graph.write(file.getPath());
+        assertThat(KnnGraph.read(file)).isEqualTo(graph);
+    }
+
+    @Test
+    public void testNeedsMoreVectorsThanNeighbours() {
+        assertThatThrownBy(() -> NNDescent.builder().k(5).build().buildGraph(randomVectors(5, 2, new Random(5))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testRejectsMismatchedDimensions() {
+        List<FloatsVector> vectors = new ArrayList<>(randomVectors(10, 3, new Random(6)));
+        vectors.add(new FloatsVector(new float[4]));
+        assertThatThrownBy(() -> NNDescent.builder().k(2).build().buildGraph(vectors))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Vectors must have the same dimensions");
+    }
+
+    private static double recall(final KnnGraph graph, final List<FloatsVector> vectors) {
+        int found = 0;
+        for (int v = 0; v < vectors.size(); v++) {
+            final int vector = v;
+            Integer[] order = new Integer[vectors.size()];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, (a, b) -> Double.compare(distance(vectors, vector, a), distance(vectors, vector, b)));
+            List<Integer> exact = Arrays.asList(order).subList(1, K + 1);
+            for (int neighbour : graph.neighbours(v)) {
+                if (exact.contains(neighbour)) {
+                    found++;
+                }
+            }
+        }
+        return (double) found / (vectors.size() * K);
+    }
+
+    private static double distance(final List<FloatsVector> vectors, final int vector, final int other) {
+        // Itself first, whatever the rounding
+        return vector == other ? -1 : vectors.get(vector).squaredDistance(vectors.get(other));
+    }
+
+    private static List<FloatsVector> randomVectors(final int count, final int dimensions, final Random random) {
+        List<FloatsVector> vectors = new ArrayList<>();
+        for (int v = 0; v < count; v++) {
+            float[] values = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                values[i] = (float) random.nextGaussian();
+            }
+            vectors.add(new FloatsVector(values));
+        }
+        return vectors;
+    }
+}
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -147,4 +149,107 @@ class NearestVectorStoreTest {
         store.clear();
         assertThat(store.getBucketSizeExponent()).isEqualTo((byte)0);
   }
-}
\ No newline at end of file
+
+    @Test
+    void testCosineIgnoresMagnitude() {
+        FloatsVector close = new FloatsVector(new float[]{0.1f, 0.2f, 0.3f});
+        FloatsVector large = new FloatsVector(new float[]{3f, 1f, 1f});
+        FloatsVector queryVector = new FloatsVector(new float[]{1f, 2f, 3.1f});
+        store.add(close);
+        store.add(large);
+        assertThat(store.isCosine()).isTrue();
+        assertThat(store.query(queryVector, 1)).containsExactly(close);
+
+        NearestVectorStore dotProductStore = new NearestVectorStore(THRESHOLDS, false);
+        dotProductStore.add(close);
+        dotProductStore.add(large);
+        assertThat(dotProductStore.query(queryVector, 1)).containsExactly(large);
+    }
+
+    @Test
+    void testTuningRaisesBucketsWhileRecallHolds() {
+        NearestVectorStore store = new NearestVectorStore();
+        List<FloatsVector> vectors = addRandomVectors(store, 200);
+        store.enableTuning(null, 0.9);
+        for (int round = 1; round <= 3; round++) {
+            for (int i = 0; i < 256; i++) {
+                FloatsVector vector = vectors.get(i % vectors.size());
+                assertThat(store.query(vector, 1)).containsExactly(vector);
+            }
+            store.rebucket();
+            assertThat(store.getBucketSizeExponent()).isEqualTo((byte) round);
+        }
+    }
+
+    @Test
+    void testTuningLowersBucketsForLooseScanTarget() {
+        List<FloatsVector> vectors = addRandomVectors(store, 20);
+        assertThat(store.getBucketSizeExponent()).isEqualTo(UPPER_SECTION_BITS);
+        store.enableTuning(Duration.ofHours(1), 0);
+        for (int i = 0; i < 256; i++) {
+            store.query(vectors.get(i % vectors.size()), 1);
+        }
+        store.rebucket();
+        assertThat(store.getBucketSizeExponent()).isEqualTo((byte) 0);
+        for (FloatsVector vector : vectors) {
+            assertThat(store.query(vector, 1)).containsExactly(vector);
+        }
+    }
+
+    @Test
+    void testIncrementalRebucketing() {
+        List<FloatsVector> vectors = addRandomVectors(store, 3000);
+        store.enableTuning(Duration.ofHours(1), 0);
+        for (int i = 0; i < 256; i++) {
+            store.query(vectors.get(i), 1);
+        }
+        // Each add moves only part of the vectors, so queries and removes have to check both layouts
+        vectors.addAll(addRandomVectors(store, 1));
+        for (FloatsVector vector : vectors) {
+            assertThat(store.query(vector, 1)).containsExactly(vector);
+        }
+        for (int i = 0; i < vectors.size(); i += 2) {
+            assertTrue(store.remove(vectors.get(i)));
+        }
+        assertThat(store.size()).isEqualTo(1500);
+        store.rebucket();
+        assertThat(store.getBucketSizeExponent()).isEqualTo((byte) 0);
+        for (int i = 1; i < vectors.size(); i += 2) {
+            assertThat(store.query(vectors.get(i), 1)).containsExactly(vectors.get(i));
+        }
+    }
+
+    @Test
+    void testRebucketingSplitsLargeBuckets() {
+        // Few enough vectors that they all start in a single bucket
+        NearestVectorStore store = new NearestVectorStore();
+        List<FloatsVector> vectors = addRandomVectors(store, 3000);
+        assertThat(store.getBucketSizeExponent()).isEqualTo((byte) 0);
+        store.enableTuning(null, 0.9);
+        for (int i = 0; i < 256; i++) {
+            store.query(vectors.get(i), 1);
+        }
+        // Each add moves at most 1024 vectors, even though they are all in one bucket
+        vectors.addAll(addRandomVectors(store, 1));
+        assertThat(store.getBucketSizeExponent()).isEqualTo((byte) 1);
+        assertThat(store.pendingRebucketing()).isEqualTo(3000 - 1024);
+        vectors.addAll(addRandomVectors(store, 1));
+        assertThat(store.pendingRebucketing()).isEqualTo(3000 - 2048);
+        for (FloatsVector vector : vectors) {
+            assertThat(store.query(vector, 1)).containsExactly(vector);
+        }
+        store.rebucket();
+        assertThat(store.pendingRebucketing()).isZero();
+        assertThat(store.size()).isEqualTo(3002);
+    }
+
+    private static List<FloatsVector> addRandomVectors(NearestVectorStore store, int count) {
+        List<FloatsVector> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FloatsVector vector = generateRandomVector(10, RANDOM);
+            vectors.add(vector);
+            store.add(vector);
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,102 @@
+package jaid.number;
+
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PrefixVectorStoreTest {
+
+    private static final int DIMENSIONS = 128;
+    private final Random random = new Random(11);
+
+    @Test
+    public void testFullPrefixIsExact() {
+        PrefixVectorStore store = PrefixVectorStore.builder(DIMENSIONS).prefixDimensions(DIMENSIONS)
+                .shortlistFactor(1).build();
+        List<FloatsVector> vectors = addVectors(store, 500);
+        FloatsVector query = vector();
+        assertThat(store.query(query, 10)).containsExactlyInAnyOrderElementsOf(exact(vectors, query, 10));
+    }
+
+    @Test
+    public void testPrefixShortlistRecall() {
+        PrefixVectorStore store = PrefixVectorStore.builder(DIMENSIONS).build();
+        assertThat(store.getPrefixDimensions()).isEqualTo(DIMENSIONS / 4);
+        List<FloatsVector> vectors = addVectors(store, 2000);
+        int found = 0;
+        for (int q = 0; q < 20; q++) {
+            FloatsVector query = vector();
+            List<IVector> results = store.query(query, 10);
+            assertThat(results).hasSize(10);
+            found += (int) exact(vectors, query, 10).stream().filter(results::contains).count();
+        }
+        assertThat(found / 200.0).isGreaterThan(0.9);
+    }
+
+    @Test
+    public void testDotProductRanking() {
+        PrefixVectorStore store = PrefixVectorStore.builder(4).prefixDimensions(2).cosine(false).build();
+        FloatsVector small = new FloatsVector(new float[]{1, 0, 0, 0});
+        FloatsVector large = new FloatsVector(new float[]{3, 0, 0, 0});
+        store.add(small);
+        store.add(large);
+        assertThat(store.query(new FloatsVector(new float[]{1, 0, 0, 0}), 1)).containsExactly(large);
+    }
+
+    @Test
+    public void testRemove() {
+        PrefixVectorStore store = PrefixVectorStore.builder(DIMENSIONS).build();
+        List<FloatsVector> vectors = addVectors(store, 50);
+        FloatsVector removed = vectors.get(7);
+        assertThat(store.remove(removed)).isTrue();
+        assertThat(store.remove(removed)).isFalse();
+        assertThat(store.size()).isEqualTo(49);
+        assertThat(store.query(removed, 1)).doesNotContain(removed);
+        assertThat(store.query(vectors.get(49), 1)).containsExactly(vectors.get(49));
+    }
+
+    @Test
+    public void testRejectsMismatchedDimensions() {
+        PrefixVectorStore store = PrefixVectorStore.builder(4).build();
+        assertThatThrownBy(() -> store.add(new FloatsVector(new float[]{1, 2, 3})))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PrefixVectorStore.builder(4).prefixDimensions(5).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<FloatsVector> addVectors(PrefixVectorStore store, int count) {
+        List<FloatsVector> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FloatsVector vector = vector();
+            vectors.add(vector);
+            store.add(vector);
+        }
+        return vectors;
+    }
+
+    private static List<FloatsVector> exact(List<FloatsVector> vectors, FloatsVector query, int k) {
+        return vectors.stream()
+                .sorted(Comparator.comparingDouble((FloatsVector v) -> v.cosineSimilarity(query)).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    /**
+     * Mimics a Matryoshka embedding, where most of the variance is in the leading dimensions
+     */
+    private FloatsVector vector() {
+        float[] values = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            values[i] = (float) (random.nextGaussian() / (1 + i / 8.0));
+        }
+        return new FloatsVector(values);
+    }
+}
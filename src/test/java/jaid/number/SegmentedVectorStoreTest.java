@@ -0,0 +1,110 @@
+package jaid.number;
+
+import jaid.collection.FloatsVector;
+import jaid.collection.IVector;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SegmentedVectorStoreTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final SegmentedVectorStore store = SegmentedVectorStore.builder()
+            .retention(Duration.ofMinutes(60))
+            .segmentDuration(Duration.ofMinutes(10))
+            .maxSegmentSize(3)
+            .clock(clock)
+            .build();
+
+    @Test
+    public void testSealsSegmentsBySizeAndTime() {
+        for (int i = 0; i < 7; i++) {
+            store.add(vector(1, i));
+        }
+        assertThat(store.getSegmentCount()).isEqualTo(3);
+        clock.advance(Duration.ofMinutes(10));
+        store.add(vector(1, 7));
+        assertThat(store.getSegmentCount()).isEqualTo(4);
+        assertThat(store.size()).isEqualTo(8);
+    }
+
+    @Test
+    public void testQueryMergesTopKAcrossSegments() {
+        FloatsVector best = vector(1, 0.01f);
+        FloatsVector second = vector(1, 0.02f);
+        store.add(best);
+        store.add(vector(0, 1));
+        store.add(vector(0, 1));
+        store.add(second);
+        store.add(vector(-1, 0));
+
+        List<IVector> results = store.query(vector(1, 0), 2);
+        assertThat(results).containsExactlyInAnyOrder(best, second);
+    }
+
+    @Test
+    public void testExpiresWholeSegments() {
+        FloatsVector old = vector(1, 0);
+        store.add(old);
+        clock.advance(Duration.ofMinutes(30));
+        FloatsVector recent = vector(1, 0.1f);
+        store.add(recent);
+        assertThat(store.getSegmentCount()).isEqualTo(2);
+
+        clock.advance(Duration.ofMinutes(31));
+        assertThat(store.query(vector(1, 0), 5)).containsExactly(recent);
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.getSegmentCount()).isEqualTo(1);
+
+        clock.advance(Duration.ofMinutes(30));
+        store.expire();
+        assertThat(store.size()).isZero();
+        assertThat(store.query(vector(1, 0), 5)).isEmpty();
+    }
+
+    @Test
+    public void testRemove() {
+        FloatsVector first = vector(1, 0);
+        store.add(first);
+        for (int i = 0; i < 4; i++) {
+            store.add(vector(0, i));
+        }
+        assertThat(store.remove(first)).isTrue();
+        assertThat(store.remove(first)).isFalse();
+        assertThat(store.size()).isEqualTo(4);
+    }
+
+    private static FloatsVector vector(final float x, final float y) {
+        return new FloatsVector(new float[]{x, y});
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(final Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(final ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package jaid.number;
+
+import jaid.collection.FloatsMatrix;
+import jaid.collection.FloatsVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class SimilarityJoinTest {
+
+    @Test
+    public void testCosineMatchesBruteForce() {
+        // Clustered rows in cluster order, so that many pairs of tiles are skipped, in several tiles of 64 dimensions
+        List<FloatsVector> vectors = clusteredVectors(1500, 64, new Random(1));
+        FloatsMatrix matrix = FloatsMatrix.of(vectors);
+        for (boolean parallel : new boolean[]{false, true}) {
+            Set<Long> pairs = ConcurrentHashMap.newKeySet();
+            SimilarityJoin.cosine(matrix, 0.9f, parallel, (i, j, score) -> {
+                assertThat(i).isLessThan(j);
+                assertThat((double) score).isCloseTo(vectors.get(i).cosineSimilarity(vectors.get(j)), within(1e-4));
+                assertThat(pairs.add(pair(i, j))).isTrue();
+            });
+            assertThat(pairs).isEqualTo(bruteForce(vectors, 0.9, true));
+        }
+    }
+
+    @Test
+    public void testDotProductMatchesBruteForce() {
+        List<FloatsVector> vectors = clusteredVectors(700, 8, new Random(2));
+        Set<Long> pairs = ConcurrentHashMap.newKeySet();
+        SimilarityJoin.dotProduct(FloatsMatrix.of(vectors), 5, true, (i, j, score) -> pairs.add(pair(i, j)));
+        assertThat(pairs).isNotEmpty().isEqualTo(bruteForce(vectors, 5, false));
+    }
+
+    @Test
+    public void testZeroRowsOnlyMatchNonPositiveThresholds() {
+        FloatsMatrix matrix = new FloatsMatrix(new float[]{0, 0, 1, 0, 0, 1}, 3, 2);
+        List<Long> pairs = new ArrayList<>();
+        SimilarityJoin.cosine(matrix, 0, false, (i, j, score) -> pairs.add(pair(i, j)));
+        assertThat(pairs).containsExactlyInAnyOrder(pair(0, 1), pair(0, 2), pair(1, 2));
+        pairs.clear();
+        SimilarityJoin.cosine(matrix, 0.5f, false, (i, j, score) -> pairs.add(pair(i, j)));
+        assertThat(pairs).isEmpty();
+    }
+
+    private static Set<Long> bruteForce(final List<FloatsVector> vectors, final double threshold,
+                                        final boolean cosine) {
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            for (int j = i + 1; j < vectors.size(); j++) {
+                double score = cosine ? vectors.get(i).cosineSimilarity(vectors.get(j))
+                        : vectors.get(i).dotProduct(vectors.get(j));
+                // Pairs right at the threshold could go either way with rounding, and are very unlikely
+                if (score >= threshold) {
+                    pairs.add(pair(i, j));
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static List<FloatsVector> clusteredVectors(final int count, final int dimensions, final Random random) {
+        final int clusters = 20;
+        float[][] centres = new float[clusters][dimensions];
+        for (float[] centre : centres) {
+            for (int i = 0; i < dimensions; i++) {
+                centre[i] = (float) random.nextGaussian();
+            }
+        }
+        List<FloatsVector> vectors = new ArrayList<>();
+        for (int v = 0; v < count; v++) {
+            float[] values = new float[dimensions];
+            float[] centre = centres[v * clusters / count];
+            for (int i = 0; i < dimensions; i++) {
+                values[i] = centre[i] + (float) random.nextGaussian() * 0.3f;
+            }
+            vectors.add(new FloatsVector(values));
+        }
+        return vectors;
+    }
+
+    private static long pair(final int i, final int j) {
+        return ((long) i << 32) | j;
+    }
+}
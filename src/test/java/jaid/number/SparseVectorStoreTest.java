@@ -0,0 +1,66 @@
+package jaid.number;
+
+import jaid.collection.IVector;
+import jaid.collection.SparseFloatsVector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SparseVectorStoreTest {
+
+    private static final Random RANDOM = new Random(4444);
+    private static final int DIMENSIONS = 30_000;
+
+    @Test
+    void queryMatchesExhaustiveSearch() {
+        SparseVectorStore store = new SparseVectorStore();
+        List<SparseFloatsVector> vectors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            SparseFloatsVector vector = randomSparseVector(40);
+            vectors.add(vector);
+            store.add(vector);
+        }
+        for (int run = 0; run < 50; run++) {
+            SparseFloatsVector query = randomSparseVector(60);
+            List<IVector> results = store.query(query, 10);
+            List<SparseFloatsVector> expected = vectors.stream()
+                    .filter(v -> v.dotProduct(query) > 0)
+                    .sorted(Comparator.comparingDouble(v -> -v.dotProduct(query)))
+                    .limit(10)
+                    .toList();
+            assertThat(results.stream().mapToDouble(v -> v.dotProduct(query)).sorted().toArray())
+                    .containsExactly(expected.stream().mapToDouble(v -> v.dotProduct(query)).sorted().toArray());
+        }
+    }
+
+    @Test
+    void addAndRemove() {
+        SparseVectorStore store = new SparseVectorStore();
+        SparseFloatsVector vector = new SparseFloatsVector(new int[]{1, 500, 20_000}, new float[]{0.5f, 1, 2}, DIMENSIONS);
+        SparseFloatsVector other = new SparseFloatsVector(new int[]{500}, new float[]{0.1f}, DIMENSIONS);
+        store.add(vector);
+        store.add(other);
+        assertThat(store.query(vector, 1)).containsExactly(vector);
+        assertThat(store.remove(vector)).isTrue();
+        assertThat(store.remove(vector)).isFalse();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.query(vector, 1)).containsExactly(other);
+        store.clear();
+        assertThat(store.query(vector, 1)).isEmpty();
+    }
+
+    private static SparseFloatsVector randomSparseVector(final int nonZero) {
+        // Concentrate on a smaller vocabulary so that the posting lists overlap
+        int[] indices = RANDOM.ints(0, 2000).distinct().limit(nonZero).sorted().toArray();
+        float[] values = new float[nonZero];
+        for (int i = 0; i < nonZero; i++) {
+            values[i] = RANDOM.nextFloat();
+        }
+        return new SparseFloatsVector(indices, values, DIMENSIONS);
+    }
+}